@@ -0,0 +1,118 @@
+// GoogleDriveCannedResponses - canned Google Drive responses used by benchmarks
+
+/* NoticeStart
+
+OWF TSTool Google Drive Plugin
+Copyright (C) 2023 Open Water Foundation
+
+OWF TSTool Google Drive Plugin is free software:  you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+OWF TSTool Google Drive Plugin is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+    along with OWF TSTool Google Drive Plugin.  If not, see <https://www.gnu.org/licenses/>.
+
+NoticeEnd */
+
+package org.openwaterfoundation.tstool.plugin.googledrive;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.google.api.client.json.JsonFactory;
+import com.google.api.client.json.gson.GsonFactory;
+import com.google.api.services.drive.model.File;
+import com.google.api.services.drive.model.FileList;
+
+/**
+ * Canned Google Drive responses used by benchmarks, so that benchmarks do not require Google Drive access.
+ * The "drive-files-list.json" resource is a files.list response with representative files,
+ * which is repeated with unique IDs and names to create a page of the requested size.
+ */
+public class GoogleDriveCannedResponses {
+
+	/**
+	 * Resource containing the canned files.list response.
+	 */
+	private static final String FILES_LIST_RESOURCE = "drive-files-list.json";
+
+	/**
+	 * JSON factory, the same as used by GoogleDriveSession.
+	 */
+	public static final JsonFactory JSON_FACTORY = GsonFactory.getDefaultInstance();
+
+	/**
+	 * Constructor is not used.
+	 */
+	private GoogleDriveCannedResponses () {
+	}
+
+	/**
+	 * Create a page of files from the canned response.
+	 * @param pageSize the number of files in the page
+	 * @return the page of files
+	 * @throws IOException if the canned response cannot be read
+	 */
+	public static FileList createFilesListPage ( int pageSize ) throws IOException {
+		FileList canned = readFilesList();
+		List<File> cannedFiles = canned.getFiles();
+		List<File> files = new ArrayList<>(pageSize);
+		for ( int i = 0; i < pageSize; i++ ) {
+			File file = cannedFiles.get(i % cannedFiles.size()).clone();
+			// Make the ID and name unique, similar to a folder with many files.
+			file.setId(file.getId() + "-" + i);
+			if ( i >= cannedFiles.size() ) {
+				file.setName((i / cannedFiles.size()) + "-" + file.getName());
+			}
+			files.add(file);
+		}
+		return new FileList()
+			.setKind(canned.getKind())
+			.setNextPageToken(canned.getNextPageToken())
+			.setIncompleteSearch(canned.getIncompleteSearch())
+			.setFiles(files);
+	}
+
+	/**
+	 * Create the JSON for a page of files, as returned by Google Drive.
+	 * @param pageSize the number of files in the page
+	 * @return the JSON bytes for the page
+	 * @throws IOException if the canned response cannot be read
+	 */
+	public static byte [] createFilesListPageJson ( int pageSize ) throws IOException {
+		return JSON_FACTORY.toByteArray(createFilesListPage(pageSize));
+	}
+
+	/**
+	 * Parse a files.list response.
+	 * @param json the JSON bytes
+	 * @return the parsed response
+	 * @throws IOException if the JSON cannot be parsed
+	 */
+	public static FileList parseFilesList ( byte [] json ) throws IOException {
+		return JSON_FACTORY.fromString(new String(json, StandardCharsets.UTF_8), FileList.class);
+	}
+
+	/**
+	 * Read the canned files.list response.
+	 * @return the canned response
+	 * @throws IOException if the resource cannot be read
+	 */
+	private static FileList readFilesList () throws IOException {
+		try ( InputStream in = GoogleDriveCannedResponses.class.getResourceAsStream(FILES_LIST_RESOURCE) ) {
+			if ( in == null ) {
+				throw new IOException("Resource not found: " + FILES_LIST_RESOURCE);
+			}
+			return JSON_FACTORY.fromInputStream(in, StandardCharsets.UTF_8, FileList.class);
+		}
+	}
+}
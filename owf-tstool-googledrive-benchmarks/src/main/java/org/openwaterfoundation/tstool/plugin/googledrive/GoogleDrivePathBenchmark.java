@@ -0,0 +1,111 @@
+// GoogleDrivePathBenchmark - benchmark GoogleDriveToolkit path parsing
+
+/* NoticeStart
+
+OWF TSTool Google Drive Plugin
+Copyright (C) 2023 Open Water Foundation
+
+OWF TSTool Google Drive Plugin is free software:  you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+OWF TSTool Google Drive Plugin is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+    along with OWF TSTool Google Drive Plugin.  If not, see <https://www.gnu.org/licenses/>.
+
+NoticeEnd */
+
+package org.openwaterfoundation.tstool.plugin.googledrive;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmark the GoogleDriveToolkit path parsing methods, which are called for each file path that is resolved.
+ * Each benchmark processes all the paths so that results are per set of paths.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GoogleDrivePathBenchmark {
+
+	/**
+	 * Representative paths, consistent with the paths used with commands.
+	 */
+	private final String [] paths = {
+		"/My Drive/data/streamflow-daily-2023.csv",
+		"/My Drive/projects/2023/reservoir-operations/model/input/diversions-2022.csv",
+		"/Shared drives/Water Data/stations/station-map.png",
+		"/Shared with me/Data Requests/2023-annual-report.pdf",
+		"/My Drive/README.md",
+		"/My Drive/projects/2023/reservoir-operations/",
+		"README.md"
+	};
+
+	/**
+	 * Toolkit that provides the path methods.
+	 */
+	private final GoogleDriveToolkit toolkit = GoogleDriveToolkit.getInstance();
+
+	/**
+	 * Benchmark getting the last part of the path (file name).
+	 */
+	@Benchmark
+	public void pathGetLast ( Blackhole blackhole ) {
+		for ( String path : this.paths ) {
+			blackhole.consume(this.toolkit.pathGetLast(path));
+		}
+	}
+
+	/**
+	 * Benchmark removing the first part of the path (e.g., "/My Drive").
+	 */
+	@Benchmark
+	public void pathRemoveFirst ( Blackhole blackhole ) {
+		for ( String path : this.paths ) {
+			blackhole.consume(this.toolkit.pathRemoveFirst(path));
+		}
+	}
+
+	/**
+	 * Benchmark removing the last part of the path (parent folder).
+	 */
+	@Benchmark
+	public void pathRemoveLast ( Blackhole blackhole ) {
+		for ( String path : this.paths ) {
+			blackhole.consume(this.toolkit.pathRemoveLast(path));
+		}
+	}
+
+	/**
+	 * Benchmark splitting a file path into the parent folder and file name,
+	 * as done by GoogleDriveToolkit.getFileIdForPath().
+	 */
+	@Benchmark
+	public void pathSplitFile ( Blackhole blackhole ) {
+		for ( String path : this.paths ) {
+			String parentFolderPath = this.toolkit.pathRemoveFirst(path);
+			parentFolderPath = this.toolkit.pathRemoveLast(parentFolderPath);
+			blackhole.consume(parentFolderPath);
+			blackhole.consume(this.toolkit.pathGetLast(path));
+		}
+	}
+}
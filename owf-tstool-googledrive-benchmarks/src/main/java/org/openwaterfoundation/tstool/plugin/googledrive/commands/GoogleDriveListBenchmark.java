@@ -0,0 +1,269 @@
+// GoogleDriveListBenchmark - benchmark the per-file processing when listing Google Drive files
+
+/* NoticeStart
+
+OWF TSTool Google Drive Plugin
+Copyright (C) 2023 Open Water Foundation
+
+OWF TSTool Google Drive Plugin is free software:  you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+OWF TSTool Google Drive Plugin is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+    along with OWF TSTool Google Drive Plugin.  If not, see <https://www.gnu.org/licenses/>.
+
+NoticeEnd */
+
+package org.openwaterfoundation.tstool.plugin.googledrive.commands;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openwaterfoundation.tstool.plugin.googledrive.GoogleDriveCannedResponses;
+import org.openwaterfoundation.tstool.plugin.googledrive.GoogleDriveDateTimeConverter;
+import org.openwaterfoundation.tstool.plugin.googledrive.GoogleDriveNameMatcher;
+
+import com.google.api.services.drive.model.File;
+import com.google.api.services.drive.model.FileList;
+
+import RTi.Util.Table.DataTable;
+import RTi.Util.Table.TableField;
+import RTi.Util.Table.TableRecord;
+import RTi.Util.Time.DateTime;
+
+/**
+ * Benchmark the per-file processing in GoogleDrive_Command.doGoogleDriveList(), using a canned page of files.
+ * The benchmark is in the commands package so that it can call the command's package-private methods,
+ * such as setListRecordValues(), rather than a copy of the processing.
+ * Each benchmark processes a full page so that results are per page.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GoogleDriveListBenchmark {
+
+	/**
+	 * Number of files in a page, the default and maximum ListPageSize.
+	 */
+	@Param({"1000"})
+	public int pageSize;
+
+	/**
+	 * Number of records in the table before listing, to measure duplicate checks when appending.
+	 */
+	@Param({"0", "100000"})
+	public int existingRecords;
+
+	/**
+	 * Output columns, the same as GoogleDrive_Command._ListColumns except for ParentFolder,
+	 * which requires Google Drive requests.
+	 */
+	private static final String [] LIST_COLUMNS = {
+		"Id", "Name", "ParentFolderId", "Type", "Size", "Owner", "OwnedByMe", "CreationTime",
+		"Shared", "SharingUser", "SharedWithMeTime", "LastModifiedTime", "LastModifiedUser",
+		"Trashed", "TrashingUser", "TrashedTime", "OriginalFilename", "WebViewLink"
+	};
+
+	/**
+	 * Column types for LIST_COLUMNS.
+	 */
+	private static final int [] LIST_COLUMN_TYPES = {
+		TableField.DATA_TYPE_STRING, TableField.DATA_TYPE_STRING, TableField.DATA_TYPE_STRING,
+		TableField.DATA_TYPE_STRING, TableField.DATA_TYPE_LONG, TableField.DATA_TYPE_STRING,
+		TableField.DATA_TYPE_BOOLEAN, TableField.DATA_TYPE_DATETIME, TableField.DATA_TYPE_BOOLEAN,
+		TableField.DATA_TYPE_STRING, TableField.DATA_TYPE_DATETIME, TableField.DATA_TYPE_DATETIME,
+		TableField.DATA_TYPE_STRING, TableField.DATA_TYPE_BOOLEAN, TableField.DATA_TYPE_STRING,
+		TableField.DATA_TYPE_DATETIME, TableField.DATA_TYPE_STRING, TableField.DATA_TYPE_STRING
+	};
+
+	/**
+	 * ListRegEx parameter value used for regular expression filtering.
+	 */
+	private static final String LIST_REGEX = "*.csv";
+
+	/**
+	 * JSON for the page of files.
+	 */
+	private byte [] pageJson = null;
+
+	/**
+	 * Parsed page of files.
+	 */
+	private List<File> files = null;
+
+	/**
+	 * Converter for Google Drive times, as used in doGoogleDriveList().
+	 */
+	private final GoogleDriveDateTimeConverter dateTimeConverter = new GoogleDriveDateTimeConverter();
+
+	/**
+	 * Table containing existing records, used when appending.
+	 */
+	private DataTable existingTable = null;
+
+	/**
+	 * Create the canned page and the existing table.
+	 */
+	@Setup(Level.Trial)
+	public void setup () throws Exception {
+		this.pageJson = GoogleDriveCannedResponses.createFilesListPageJson(this.pageSize);
+		this.files = GoogleDriveCannedResponses.parseFilesList(this.pageJson).getFiles();
+		this.existingTable = createTable();
+		for ( int i = 0; i < this.existingRecords; i++ ) {
+			TableRecord rec = this.existingTable.addRecord(this.existingTable.emptyRecord());
+			rec.setFieldValue(0, "existing-" + i);
+		}
+	}
+
+	/**
+	 * Benchmark the full per-file processing for a page:
+	 * filter by type using GoogleDrive_Command.getListType(), check for duplicates using GoogleDrive_Command.getListRecord(),
+	 * and set each column value in the record using GoogleDrive_Command.setListRecordValues().
+	 * The ParentFolder column is not output because it requires Google Drive requests.
+	 */
+	@Benchmark
+	public DataTable buildRecords () throws Exception {
+		DataTable table = createTable();
+		Map<String,TableRecord> recordIndex = GoogleDrive_Command.buildRecordIndex ( table, 0 );
+		for ( File file : this.files ) {
+			String type = GoogleDrive_Command.getListType ( file, true, true );
+			if ( type == null ) {
+				continue;
+			}
+			TableRecord rec = GoogleDrive_Command.getListRecord ( table, recordIndex, file.getId() );
+			List<String> parents = file.getParents();
+			String parentId = ((parents != null) && (parents.size() > 0)) ? parents.get(0) : "";
+			// Column positions are the positions in LIST_COLUMNS, and -1 for columns that are not output.
+			GoogleDrive_Command.setListRecordValues ( rec, file, null, type, "", parentId, this.dateTimeConverter,
+				-1, 7, 0, 11, 12,
+				1, 16, 6, 5,
+				-1, 2,
+				8, 10, 9,
+				4,
+				13, 15, 14,
+				3, 17 );
+		}
+		return table;
+	}
+
+	/**
+	 * Create a table with the list columns.
+	 * @return a new table
+	 */
+	private DataTable createTable () throws Exception {
+		List<TableField> columnList = new ArrayList<>();
+		for ( int i = 0; i < LIST_COLUMNS.length; i++ ) {
+			columnList.add ( new TableField(LIST_COLUMN_TYPES[i], LIST_COLUMNS[i], -1) );
+		}
+		return new DataTable( columnList );
+	}
+
+	/**
+	 * Benchmark converting Google Drive times to TSTool DateTime, as done in doGoogleDriveList().
+	 */
+	@Benchmark
+	public void dateTimeConversion ( Blackhole blackhole ) {
+		for ( File file : this.files ) {
+			blackhole.consume(toDateTime(file.getCreatedTime()));
+			blackhole.consume(toDateTime(file.getModifiedTime()));
+		}
+	}
+
+	/**
+	 * Benchmark converting Google Drive times to TSTool DateTime by formatting and parsing strings,
+	 * for comparison with dateTimeConversion().
+	 */
+	@Benchmark
+	public void dateTimeConversionParse ( Blackhole blackhole ) {
+		for ( File file : this.files ) {
+			blackhole.consume(DateTime.parse(file.getCreatedTime().toString()));
+			blackhole.consume(DateTime.parse(file.getModifiedTime().toString()));
+		}
+	}
+
+	/**
+	 * Benchmark building the owner CSV, using GoogleDrive_Command.buildOwnerCsv().
+	 */
+	@Benchmark
+	public void ownerCsv ( Blackhole blackhole ) {
+		for ( File file : this.files ) {
+			blackhole.consume(GoogleDrive_Command.buildOwnerCsv(file));
+		}
+	}
+
+	/**
+	 * Benchmark parsing the JSON for a page, which is done by the Google API client for each page.
+	 */
+	@Benchmark
+	public FileList parsePage () throws Exception {
+		return GoogleDriveCannedResponses.parseFilesList(this.pageJson);
+	}
+
+	/**
+	 * Benchmark filtering file names using ListRegEx, as done in doGoogleDriveList().
+	 */
+	@Benchmark
+	public void regexFilter ( Blackhole blackhole ) {
+		GoogleDriveNameMatcher nameMatcher = GoogleDriveNameMatcher.fromParameter(LIST_REGEX);
+		for ( File file : this.files ) {
+			blackhole.consume(nameMatcher.matches(file.getName()));
+		}
+	}
+
+	/**
+	 * Benchmark filtering file names by converting the glob and calling String.matches() for each name,
+	 * for comparison with regexFilter().
+	 */
+	@Benchmark
+	public void regexFilterStringMatches ( Blackhole blackhole ) {
+		String regex = LIST_REGEX.replace(".", "\\.").replace("*", ".*");
+		for ( File file : this.files ) {
+			blackhole.consume(file.getName().matches(regex));
+		}
+	}
+
+	/**
+	 * Benchmark checking for duplicate records when appending to a table:
+	 * index the existing records using GoogleDrive_Command.buildRecordIndex(), and then look up each file in the page.
+	 */
+	@Benchmark
+	public void tableDedup ( Blackhole blackhole ) throws Exception {
+		Map<String,TableRecord> recordIndex = GoogleDrive_Command.buildRecordIndex ( this.existingTable, 0 );
+		for ( File file : this.files ) {
+			blackhole.consume(recordIndex.get(file.getId()));
+		}
+	}
+
+	/**
+	 * Convert a Google Drive time to TSTool DateTime, as done in doGoogleDriveList().
+	 * @param dateTime the Google Drive time
+	 * @return the TSTool DateTime, or null if the time is null
+	 */
+	private DateTime toDateTime ( com.google.api.client.util.DateTime dateTime ) {
+		return this.dateTimeConverter.toDateTime(dateTime);
+	}
+}
@@ -38,7 +38,12 @@ public enum GoogleDriveAuthenticationMethodType {
 	/**
 	Service account key.
 	*/
-	SERVICE_ACCOUNT_KEY ( "ServiceAccountKey", "Service account key" );
+	SERVICE_ACCOUNT_KEY ( "ServiceAccountKey", "Service account key" ),
+
+	/**
+	Offline stand-in for Google Drive, for testing without credentials or network access.
+	*/
+	OFFLINE ( "Offline", "Offline stand-in for testing" );
 
 	/**
 	The name that is used for choices and other technical code (terse).
@@ -68,6 +73,7 @@ public enum GoogleDriveAuthenticationMethodType {
     	List<GoogleDriveAuthenticationMethodType> choices = new ArrayList<>();
     	choices.add ( GoogleDriveAuthenticationMethodType.OAUTH );
     	choices.add ( GoogleDriveAuthenticationMethodType.SERVICE_ACCOUNT_KEY );
+    	choices.add ( GoogleDriveAuthenticationMethodType.OFFLINE );
     	return choices;
 	}
 
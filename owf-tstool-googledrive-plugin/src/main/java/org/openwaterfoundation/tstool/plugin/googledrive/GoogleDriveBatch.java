@@ -0,0 +1,170 @@
+// GoogleDriveBatch - batch of Google Drive requests sent as one HTTP request
+
+/* NoticeStart
+
+OWF TSTool Google Drive Plugin
+Copyright (C) 2023 Open Water Foundation
+
+OWF TSTool Google Drive Plugin is free software:  you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+OWF TSTool Google Drive Plugin is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+    along with OWF TSTool Google Drive Plugin.  If not, see <https://www.gnu.org/licenses/>.
+
+NoticeEnd */
+
+package org.openwaterfoundation.tstool.plugin.googledrive;
+
+import java.io.IOException;
+
+import com.google.api.client.googleapis.batch.BatchRequest;
+import com.google.api.client.googleapis.batch.json.JsonBatchCallback;
+import com.google.api.client.http.HttpRequestInitializer;
+import com.google.api.services.drive.Drive;
+import com.google.api.services.drive.DriveRequest;
+
+import RTi.Util.Message.Message;
+
+/**
+ * Batch of independent Google Drive requests, which are sent as one multipart HTTP request.
+ * Requests are queued with a callback that is called for each response when the batch is flushed.
+ * The batch is flushed automatically when the maximum number of requests is queued.
+ * There is no time-based flush because callbacks would then be called by another thread,
+ * so callers must call flush() (or close()) when done queuing requests,
+ * and before using results of queued requests, for example after queuing the requests for a page of files.
+ * Only use for requests that do not depend on each other, for example getting several files by ID.
+ * A batch is not thread-safe and should be used by one thread.
+ * See: https://developers.google.com/drive/api/guides/performance#batch-requests
+ */
+public class GoogleDriveBatch implements AutoCloseable {
+
+	/**
+	 * Maximum number of requests in a batch, as allowed by the Google Drive API.
+	 */
+	public static final int MAX_BATCH_SIZE = 100;
+
+	/**
+	 * Google Drive service used to create the batch.
+	 */
+	private final Drive driveService;
+
+	/**
+	 * Request initializer for the batch HTTP request, so that the batch request is limited, retried, and measured
+	 * like other requests.
+	 */
+	private final HttpRequestInitializer requestInitializer;
+
+	/**
+	 * Maximum number of requests before the batch is flushed.
+	 */
+	private final int maxSize;
+
+	/**
+	 * Batch request that requests are queued in, created when the first request is queued.
+	 */
+	private BatchRequest batchRequest = null;
+
+	/**
+	 * Number of batches that have been sent.
+	 */
+	private int batchCount = 0;
+
+	/**
+	 * Number of requests that have been sent.
+	 */
+	private int requestCount = 0;
+
+	/**
+	 * Create a batch using the maximum size.
+	 * @param googleDriveSession Google Drive session
+	 */
+	public GoogleDriveBatch ( GoogleDriveSession googleDriveSession ) {
+		this ( googleDriveSession, MAX_BATCH_SIZE );
+	}
+
+	/**
+	 * Create a batch.
+	 * @param googleDriveSession Google Drive session
+	 * @param maxSize maximum number of requests before the batch is flushed, limited to MAX_BATCH_SIZE
+	 */
+	public GoogleDriveBatch ( GoogleDriveSession googleDriveSession, int maxSize ) {
+		this.driveService = googleDriveSession.getService();
+		this.requestInitializer = googleDriveSession.getRequestInitializer();
+		this.maxSize = Math.max(1, Math.min(maxSize, MAX_BATCH_SIZE));
+	}
+
+	/**
+	 * Flush the batch.
+	 */
+	@Override
+	public void close () throws IOException {
+		flush();
+	}
+
+	/**
+	 * Send the queued requests, which calls the callback for each request.
+	 * Nothing is done if no requests are queued.
+	 * @throws IOException if the batch could not be sent
+	 */
+	public void flush () throws IOException {
+		String routine = getClass().getSimpleName() + ".flush";
+		if ( (this.batchRequest == null) || (this.batchRequest.size() == 0) ) {
+			return;
+		}
+		int size = this.batchRequest.size();
+		++this.batchCount;
+		this.requestCount += size;
+		if ( Message.isDebugOn ) {
+			Message.printStatus(2, routine, "Sending batch " + this.batchCount + " with " + size + " requests.");
+		}
+		try {
+			this.batchRequest.execute();
+		}
+		finally {
+			// The batch request is cleared when executed but create a new one in case of an error.
+			this.batchRequest = null;
+		}
+	}
+
+	/**
+	 * Return the number of batches that have been sent.
+	 * @return the number of batches that have been sent
+	 */
+	public int getBatchCount () {
+		return this.batchCount;
+	}
+
+	/**
+	 * Return the number of requests that have been sent.
+	 * @return the number of requests that have been sent
+	 */
+	public int getRequestCount () {
+		return this.requestCount;
+	}
+
+	/**
+	 * Queue a request.  The batch is flushed if the maximum size has been reached,
+	 * and otherwise the request is not sent until flush() or close() is called.
+	 * @param request the request to queue, for example driveService.files().get(fileId)
+	 * @param callback the callback to call with the response
+	 * @param <T> the response type
+	 * @throws IOException if the batch was flushed and could not be sent
+	 */
+	public <T> void queue ( DriveRequest<T> request, JsonBatchCallback<T> callback ) throws IOException {
+		if ( this.batchRequest == null ) {
+			// Drive.batch() without an initializer would not use the session's rate limiter and metrics.
+			this.batchRequest = this.driveService.batch(this.requestInitializer);
+		}
+		request.queue(this.batchRequest, callback);
+		if ( this.batchRequest.size() >= this.maxSize ) {
+			flush();
+		}
+	}
+}
@@ -0,0 +1,225 @@
+// GoogleDriveChangesReader - read Google Drive changes since the previous run
+
+/* NoticeStart
+
+OWF TSTool Google Drive Plugin
+Copyright (C) 2023 Open Water Foundation
+
+OWF TSTool Google Drive Plugin is free software:  you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+OWF TSTool Google Drive Plugin is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+    along with OWF TSTool Google Drive Plugin.  If not, see <https://www.gnu.org/licenses/>.
+
+NoticeEnd */
+
+package org.openwaterfoundation.tstool.plugin.googledrive;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.Properties;
+
+import com.google.api.services.drive.Drive;
+import com.google.api.services.drive.model.Change;
+import com.google.api.services.drive.model.ChangeList;
+import com.google.api.services.drive.model.StartPageToken;
+
+import RTi.Util.Message.Message;
+
+/**
+ * Read the Google Drive changes since the previous run, using the Changes API.
+ * The page token to start from is saved in a file for the session and drive (see GoogleDriveSession.getChangesPageTokenFile()).
+ * If the token file does not exist, call initialize() to save the current start page token,
+ * which will be used to list changes in the next run.
+ * Otherwise, call next() to read each page of changes and then call saveNewStartPageToken() after all pages are processed.
+ * See: https://developers.google.com/drive/api/guides/manage-changes
+ */
+public class GoogleDriveChangesReader {
+
+	/**
+	 * Google Drive session.
+	 */
+	private final GoogleDriveSession googleDriveSession;
+
+	/**
+	 * Shared drive ID, or null for the user's changes (My Drive and shared with me).
+	 */
+	private final String driveId;
+
+	/**
+	 * Fields to return for each changed file.
+	 */
+	private final String fields;
+
+	/**
+	 * File used to save the page token.
+	 */
+	private final File pageTokenFile;
+
+	/**
+	 * Page token for the next request, or null if all pages have been read.
+	 */
+	private String pageToken = null;
+
+	/**
+	 * Start page token for the next run, set when the last page has been read.
+	 */
+	private String newStartPageToken = null;
+
+	/**
+	 * Time of the previous run, milliseconds since 1970, or -1 if not known.
+	 */
+	private long previousRunTime = -1;
+
+	/**
+	 * Time that this reader was created, saved with the new start page token.
+	 */
+	private final long runTime = System.currentTimeMillis();
+
+	/**
+	 * Create a reader, reading the saved page token if available.
+	 * @param googleDriveSession Google Drive session
+	 * @param driveId shared drive ID, or null for the user's changes (My Drive and shared with me)
+	 * @param fields fields to return for each changed file (e.g., "id, name, mimeType")
+	 * @throws IOException if the page token file cannot be read
+	 */
+	public GoogleDriveChangesReader ( GoogleDriveSession googleDriveSession, String driveId, String fields ) throws IOException {
+		this.googleDriveSession = googleDriveSession;
+		this.driveId = driveId;
+		this.fields = fields;
+		this.pageTokenFile = googleDriveSession.getChangesPageTokenFile(driveId);
+		if ( this.pageTokenFile.isFile() ) {
+			Properties props = new Properties();
+			try ( InputStream in = new FileInputStream(this.pageTokenFile) ) {
+				props.load(in);
+			}
+			this.pageToken = props.getProperty("pageToken");
+			try {
+				this.previousRunTime = Long.parseLong(props.getProperty("time", "-1"));
+			}
+			catch ( NumberFormatException e ) {
+				this.previousRunTime = -1;
+			}
+		}
+	}
+
+	/**
+	 * Return the page token file.
+	 * @return the page token file
+	 */
+	public File getPageTokenFile () {
+		return this.pageTokenFile;
+	}
+
+	/**
+	 * Return the time of the previous run, which can be used to determine whether a changed file was added.
+	 * @return the time of the previous run, milliseconds since 1970, or -1 if not known
+	 */
+	public long getPreviousRunTime () {
+		return this.previousRunTime;
+	}
+
+	/**
+	 * Determine whether a page token was read from the page token file.
+	 * @return true if a page token is available to list changes, false if initialize() needs to be called
+	 */
+	public boolean hasPageToken () {
+		return this.pageToken != null;
+	}
+
+	/**
+	 * Save the current start page token so that the next run lists changes after now.
+	 * @throws IOException if the token cannot be requested or saved
+	 */
+	public void initialize () throws IOException {
+		Drive.Changes.GetStartPageToken request = this.googleDriveSession.getService()
+			.changes()
+			.getStartPageToken()
+			.setSupportsAllDrives(true);
+		if ( this.driveId != null ) {
+			request.setDriveId(this.driveId);
+		}
+		StartPageToken startPageToken = request.execute();
+		this.newStartPageToken = startPageToken.getStartPageToken();
+		saveNewStartPageToken();
+	}
+
+	/**
+	 * Determine whether all pages of changes have been read.
+	 * @return true if all pages have been read and saveNewStartPageToken() can be called
+	 */
+	public boolean isComplete () {
+		return this.newStartPageToken != null;
+	}
+
+	/**
+	 * Read the next page of changes.
+	 * @return the next page of changes, or null if all pages have been read
+	 * @throws IOException if the changes cannot be requested
+	 */
+	public List<Change> next () throws IOException {
+		if ( this.pageToken == null ) {
+			return null;
+		}
+		Drive.Changes.List request = this.googleDriveSession.getService()
+			.changes()
+			.list(this.pageToken)
+			// Whether files from My Drive and shared drives should be listed in the result.
+			.setIncludeItemsFromAllDrives(true)
+			// Whether the application supports My Drive and shared drives.
+			.setSupportsAllDrives(true)
+			// Include removed files so that they can be output.
+			.setIncludeRemoved(true)
+			// Only the "drive" space.
+			.setSpaces("drive")
+			// Use the maximum page size to minimize the number of requests.
+			.setPageSize(1000)
+			// Only request the fields that are used.
+			.setFields("nextPageToken, newStartPageToken, changes(changeType, removed, fileId, time, file(" + this.fields + "))");
+		if ( this.driveId != null ) {
+			request.setDriveId(this.driveId);
+		}
+		ChangeList changeList = request.execute();
+		// The next page token is null for the last page, which has the new start page token.
+		this.pageToken = changeList.getNextPageToken();
+		if ( changeList.getNewStartPageToken() != null ) {
+			this.newStartPageToken = changeList.getNewStartPageToken();
+		}
+		return changeList.getChanges();
+	}
+
+	/**
+	 * Save the new start page token, which is used to list changes in the next run.
+	 * Only call after all pages have been read and processed so that changes are not missed.
+	 * @throws IOException if the page token file cannot be written
+	 */
+	public void saveNewStartPageToken () throws IOException {
+		String routine = getClass().getSimpleName() + ".saveNewStartPageToken";
+		if ( this.newStartPageToken == null ) {
+			return;
+		}
+		File folder = this.pageTokenFile.getParentFile();
+		if ( (folder != null) && !folder.exists() ) {
+			folder.mkdirs();
+		}
+		Properties props = new Properties();
+		props.setProperty("pageToken", this.newStartPageToken);
+		props.setProperty("time", String.valueOf(this.runTime));
+		try ( OutputStream out = new FileOutputStream(this.pageTokenFile) ) {
+			props.store(out, "Google Drive changes start page token");
+		}
+		Message.printStatus(2, routine, "Saved changes start page token to \"" + this.pageTokenFile + "\".");
+	}
+}
@@ -0,0 +1,238 @@
+// GoogleDriveCsvWriter - write table records to a CSV file as they are listed
+
+/* NoticeStart
+
+OWF TSTool Google Drive Plugin
+Copyright (C) 2023 Open Water Foundation
+
+OWF TSTool Google Drive Plugin is free software:  you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+OWF TSTool Google Drive Plugin is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+    along with OWF TSTool Google Drive Plugin.  If not, see <https://www.gnu.org/licenses/>.
+
+NoticeEnd */
+
+package org.openwaterfoundation.tstool.plugin.googledrive;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+import RTi.Util.Table.DataTable;
+import RTi.Util.Table.TableRecord;
+
+/**
+ * Write table records to a CSV file as they are listed, rather than writing the full table at the end.
+ * The table is used as a page buffer:  after each page of records is added to the table,
+ * call writeRecords() to append the records to the file and remove them from the table,
+ * so that memory use does not grow with the size of the listing and the file can be read while the listing runs.
+ * Duplicate records are not detected, so memory use does not depend on the number of records written,
+ * and the caller must skip files that are listed more than once,
+ * for example a shared file that is listed by both the folder walk and the 'Shared with me' root.
+ */
+public class GoogleDriveCsvWriter implements AutoCloseable {
+
+	/**
+	 * Output file.
+	 */
+	private final File file;
+
+	/**
+	 * Writer for the output file.
+	 */
+	private final Writer writer;
+
+	/**
+	 * Whether the column names have been written.
+	 */
+	private boolean columnNamesWritten = false;
+
+	/**
+	 * Number of records that have been written.
+	 */
+	private int recordCount = 0;
+
+	/**
+	 * Number of records in the existing file when appending.
+	 */
+	private int existingRecordCount = 0;
+
+	/**
+	 * Open the output file.
+	 * @param file the output file
+	 * @param append whether to append to an existing file, in which case the column names are not written again
+	 * @throws IOException if the file cannot be opened
+	 */
+	public GoogleDriveCsvWriter ( File file, boolean append ) throws IOException {
+		this.file = file;
+		if ( append && file.isFile() && (file.length() > 0) ) {
+			// The existing file has the column names.
+			this.columnNamesWritten = true;
+			this.existingRecordCount = countRecords(file);
+		}
+		else {
+			append = false;
+		}
+		this.writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file, append), StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * Close the output file.
+	 */
+	@Override
+	public void close () throws IOException {
+		this.writer.close();
+	}
+
+	/**
+	 * Count the records in an existing CSV file.
+	 * The first non-comment line is the column names, and comment lines starting with # and blank lines are not counted.
+	 * Line breaks in quoted values are not counted.
+	 * @param file the CSV file
+	 * @return the number of records
+	 * @throws IOException if the file cannot be read
+	 */
+	private static int countRecords ( File file ) throws IOException {
+		int lineCount = 0;
+		boolean inQuote = false;
+		boolean lineStart = true;
+		boolean haveLine = false;
+		try ( Reader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8)) ) {
+			int c;
+			while ( (c = reader.read()) >= 0 ) {
+				if ( lineStart ) {
+					lineStart = false;
+					if ( c == '#' ) {
+						// Comment line:  skip to the end of the line.
+						while ( (c >= 0) && (c != '\n') ) {
+							c = reader.read();
+						}
+						lineStart = true;
+						continue;
+					}
+				}
+				if ( c == '"' ) {
+					// Escaped quotes ("") toggle twice.
+					inQuote = !inQuote;
+				}
+				else if ( (c == '\n') && !inQuote ) {
+					if ( haveLine ) {
+						// Blank lines are not counted.
+						++lineCount;
+					}
+					lineStart = true;
+					haveLine = false;
+					continue;
+				}
+				if ( c != '\r' ) {
+					haveLine = true;
+				}
+			}
+		}
+		if ( haveLine ) {
+			// Last line does not end with a line break.
+			++lineCount;
+		}
+		// The first line is the column names.
+		return Math.max(0, lineCount - 1);
+	}
+
+	/**
+	 * Format a value for CSV output, consistent with DataTable.writeDelimitedFile().
+	 * @param value the value to format
+	 * @return the formatted value
+	 */
+	private String formatValue ( Object value ) {
+		if ( value == null ) {
+			return "";
+		}
+		String s = value.toString();
+		if ( (s.indexOf(',') >= 0) || (s.indexOf('"') >= 0) || (s.indexOf('\n') >= 0) || (s.indexOf('\r') >= 0) ) {
+			// Quote and escape embedded quotes.
+			return "\"" + s.replace("\"", "\"\"") + "\"";
+		}
+		return s;
+	}
+
+	/**
+	 * Return the output file.
+	 * @return the output file
+	 */
+	public File getFile () {
+		return this.file;
+	}
+
+	/**
+	 * Return the number of records that were in the existing file when appending.
+	 * @return the number of records that were in the existing file, or 0 if not appending
+	 */
+	public int getExistingRecordCount () {
+		return this.existingRecordCount;
+	}
+
+	/**
+	 * Return the number of records that have been written, not including the records in an existing file.
+	 * @return the number of records that have been written
+	 */
+	public int getRecordCount () {
+		return this.recordCount;
+	}
+
+	/**
+	 * Write the table's records to the file and then remove the records from the table.
+	 * The column names are written before the first records.
+	 * The file is flushed so that the records can be read while the listing continues.
+	 * @param table the table containing records to write
+	 * @throws Exception if the records cannot be written
+	 */
+	public void writeRecords ( DataTable table ) throws Exception {
+		int numFields = table.getNumberOfFields();
+		StringBuilder b = new StringBuilder();
+		if ( !this.columnNamesWritten ) {
+			for ( int i = 0; i < numFields; i++ ) {
+				if ( i > 0 ) {
+					b.append(",");
+				}
+				b.append("\"").append(table.getFieldName(i)).append("\"");
+			}
+			b.append(System.lineSeparator());
+			this.writer.write(b.toString());
+			this.columnNamesWritten = true;
+		}
+		int numRecords = table.getNumberOfRecords();
+		for ( int irec = 0; irec < numRecords; irec++ ) {
+			TableRecord rec = table.getRecord(irec);
+			b.setLength(0);
+			for ( int i = 0; i < numFields; i++ ) {
+				if ( i > 0 ) {
+					b.append(",");
+				}
+				b.append(formatValue(rec.getFieldValue(i)));
+			}
+			b.append(System.lineSeparator());
+			this.writer.write(b.toString());
+			++this.recordCount;
+		}
+		this.writer.flush();
+		// Remove the records from the end so that the table is empty for the next page.
+		for ( int irec = numRecords - 1; irec >= 0; irec-- ) {
+			table.deleteRecord(irec);
+		}
+	}
+}
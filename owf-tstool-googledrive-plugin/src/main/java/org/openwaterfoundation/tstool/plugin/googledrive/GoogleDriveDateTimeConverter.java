@@ -0,0 +1,120 @@
+// GoogleDriveDateTimeConverter - convert Google API DateTime to TSTool DateTime
+
+/* NoticeStart
+
+OWF TSTool Google Drive Plugin
+Copyright (C) 2023 Open Water Foundation
+
+OWF TSTool Google Drive Plugin is free software:  you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+OWF TSTool Google Drive Plugin is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+    along with OWF TSTool Google Drive Plugin.  If not, see <https://www.gnu.org/licenses/>.
+
+NoticeEnd */
+
+package org.openwaterfoundation.tstool.plugin.googledrive;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+import RTi.Util.Time.DateTime;
+
+/**
+ * Convert Google API DateTime values to TSTool DateTime, for example for file creation and modification times.
+ * The date and time parts are computed from the epoch milliseconds and time zone shift,
+ * rather than formatting and parsing an RFC 3339 string for each value, which is slow for large listings.
+ * The result is the same as DateTime.parse(googleDateTime.toString()):
+ * millisecond precision with the time zone "Z" for UTC (as returned by Google Drive) or, for example, "-07:00".
+ * Time zone strings are cached so that one converter can be used for all values and by multiple threads.
+ */
+public class GoogleDriveDateTimeConverter {
+
+	/**
+	 * Milliseconds per day.
+	 */
+	private static final long MS_PER_DAY = 86400000L;
+
+	/**
+	 * Time zone strings for time zone shifts (minutes).
+	 */
+	private final ConcurrentHashMap<Integer,String> timeZones = new ConcurrentHashMap<>();
+
+	/**
+	 * Create a converter.
+	 */
+	public GoogleDriveDateTimeConverter () {
+		this.timeZones.put(0, "Z");
+	}
+
+	/**
+	 * Convert a Google API DateTime to a TSTool DateTime.
+	 * @param googleDateTime the Google API DateTime
+	 * @return the TSTool DateTime, or null if the Google API DateTime is null
+	 */
+	public DateTime toDateTime ( com.google.api.client.util.DateTime googleDateTime ) {
+		if ( googleDateTime == null ) {
+			return null;
+		}
+		if ( googleDateTime.isDateOnly() ) {
+			// The value is midnight UTC for the date.
+			long days = Math.floorDiv(googleDateTime.getValue(), MS_PER_DAY);
+			DateTime dateTime = new DateTime(DateTime.PRECISION_DAY);
+			setDate(dateTime, days);
+			return dateTime;
+		}
+		int shift = googleDateTime.getTimeZoneShift();
+		// Local time in the time zone, milliseconds since the epoch.
+		long localMs = googleDateTime.getValue() + shift*60000L;
+		long days = Math.floorDiv(localMs, MS_PER_DAY);
+		int msOfDay = (int)Math.floorMod(localMs, MS_PER_DAY);
+		DateTime dateTime = new DateTime(DateTime.PRECISION_MILLISECOND);
+		setDate(dateTime, days);
+		dateTime.setHour(msOfDay/3600000);
+		dateTime.setMinute((msOfDay/60000)%60);
+		dateTime.setSecond((msOfDay/1000)%60);
+		dateTime.setNanoSecond((msOfDay%1000)*1000000);
+		dateTime.setTimeZone(this.timeZones.computeIfAbsent(shift, GoogleDriveDateTimeConverter::formatTimeZone));
+		return dateTime;
+	}
+
+	/**
+	 * Format a time zone shift as an RFC 3339 offset, for example "-07:00".
+	 * @param shift the time zone shift, minutes
+	 * @return the time zone string
+	 */
+	private static String formatTimeZone ( int shift ) {
+		if ( shift == 0 ) {
+			return "Z";
+		}
+		int absShift = Math.abs(shift);
+		return String.format("%s%02d:%02d", ((shift < 0) ? "-" : "+"), absShift/60, absShift%60);
+	}
+
+	/**
+	 * Set the year, month, and day for days since the epoch, using the proleptic Gregorian calendar.
+	 * See the "civil_from_days" algorithm at https://howardhinnant.github.io/date_algorithms.html
+	 * @param dateTime the DateTime to set
+	 * @param epochDays days since 1970-01-01
+	 */
+	private static void setDate ( DateTime dateTime, long epochDays ) {
+		long z = epochDays + 719468;
+		long era = Math.floorDiv(z, 146097);
+		long doe = z - era*146097;
+		long yoe = (doe - doe/1460 + doe/36524 - doe/146096)/365;
+		long doy = doe - (365*yoe + yoe/4 - yoe/100);
+		long mp = (5*doy + 2)/153;
+		int day = (int)(doy - (153*mp + 2)/5 + 1);
+		int month = (int)((mp < 10) ? (mp + 3) : (mp - 9));
+		int year = (int)(yoe + era*400 + ((month <= 2) ? 1 : 0));
+		dateTime.setYear(year);
+		dateTime.setMonth(month);
+		dateTime.setDay(day);
+	}
+}
@@ -0,0 +1,295 @@
+// GoogleDriveDownloadState - state of a downloaded file, used to skip unchanged files
+
+/* NoticeStart
+
+OWF TSTool Google Drive Plugin
+Copyright (C) 2023 Open Water Foundation
+
+OWF TSTool Google Drive Plugin is free software:  you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+OWF TSTool Google Drive Plugin is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+    along with OWF TSTool Google Drive Plugin.  If not, see <https://www.gnu.org/licenses/>.
+
+NoticeEnd */
+
+package org.openwaterfoundation.tstool.plugin.googledrive;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Objects;
+import java.util.Properties;
+
+/**
+ * State of a downloaded file, saved in a small sidecar file next to the local file.
+ * The state includes the Google Drive file's MD5 checksum, size, and modification time,
+ * and the local file's size and modification time when the state was saved.
+ * If the local file has not changed since the state was saved,
+ * the Google Drive metadata can be compared with the state without computing the local file's checksum.
+ * The sidecar file is the local file name with a leading "." and trailing ".gdrive" (e.g., ".data.csv.gdrive").
+ * A sidecar is also written for a download's part file so that the download is only resumed
+ * if the part file is for the same version of the Google Drive file.
+ */
+public class GoogleDriveDownloadState {
+
+	/**
+	 * Extension for the sidecar file.
+	 */
+	public static final String SIDECAR_EXTENSION = ".gdrive";
+
+	/**
+	 * Google Drive file ID.
+	 */
+	private String fileId = null;
+
+	/**
+	 * Google Drive MD5 checksum, null for Google Workspace files.
+	 */
+	private String md5Checksum = null;
+
+	/**
+	 * Google Drive file size, bytes.
+	 */
+	private Long size = null;
+
+	/**
+	 * Google Drive file modification time, milliseconds since 1970.
+	 */
+	private Long modifiedTime = null;
+
+	/**
+	 * MIME type that a Google Workspace file was exported to, or null if the file was downloaded.
+	 */
+	private String exportMimeType = null;
+
+	/**
+	 * Local file size when the state was saved, bytes.
+	 */
+	private long localSize = -1;
+
+	/**
+	 * Local file modification time when the state was saved, milliseconds since 1970.
+	 */
+	private long localModifiedTime = -1;
+
+	/**
+	 * Create a state from Google Drive file metadata.
+	 * @param fileId Google Drive file ID
+	 * @param driveFile Google Drive file metadata, with md5Checksum, size, and modifiedTime
+	 */
+	public GoogleDriveDownloadState ( String fileId, com.google.api.services.drive.model.File driveFile ) {
+		this ( fileId, driveFile, null );
+	}
+
+	/**
+	 * Create a state from Google Drive file metadata, for a file that is exported.
+	 * Google Workspace files do not have a checksum or size so only the modification time and export type are compared.
+	 * @param fileId Google Drive file ID
+	 * @param driveFile Google Drive file metadata, with md5Checksum, size, and modifiedTime
+	 * @param exportMimeType MIME type that a Google Workspace file is exported to, or null if the file is downloaded
+	 */
+	public GoogleDriveDownloadState ( String fileId, com.google.api.services.drive.model.File driveFile, String exportMimeType ) {
+		this.fileId = fileId;
+		this.exportMimeType = exportMimeType;
+		this.md5Checksum = driveFile.getMd5Checksum();
+		this.size = driveFile.getSize();
+		if ( driveFile.getModifiedTime() != null ) {
+			this.modifiedTime = driveFile.getModifiedTime().getValue();
+		}
+	}
+
+	/**
+	 * Private constructor used when reading the sidecar file.
+	 */
+	private GoogleDriveDownloadState () {
+	}
+
+	/**
+	 * Compute the MD5 checksum for a local file, as a lowercase hexadecimal string consistent with Google Drive.
+	 * @param localFile the local file
+	 * @return the MD5 checksum
+	 * @throws IOException if the file cannot be read
+	 */
+	public static String computeMd5Checksum ( File localFile ) throws IOException {
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("MD5");
+		}
+		catch ( NoSuchAlgorithmException e ) {
+			// Should not happen since MD5 is always available.
+			throw new IOException(e);
+		}
+		byte [] buffer = new byte[64*1024];
+		try ( InputStream in = new FileInputStream(localFile) ) {
+			int n;
+			while ( (n = in.read(buffer)) > 0 ) {
+				digest.update(buffer, 0, n);
+			}
+		}
+		StringBuilder b = new StringBuilder();
+		for ( byte x : digest.digest() ) {
+			b.append(String.format("%02x", x));
+		}
+		return b.toString();
+	}
+
+	/**
+	 * Delete the sidecar file for a local file, if it exists.
+	 * @param localFile the local file
+	 * @throws IOException if the sidecar file cannot be deleted
+	 */
+	public static void deleteSidecarFile ( File localFile ) throws IOException {
+		Files.deleteIfExists(getSidecarFile(localFile).toPath());
+	}
+
+	/**
+	 * Return the sidecar file for a local file.
+	 * @param localFile the local file
+	 * @return the sidecar file
+	 */
+	public static File getSidecarFile ( File localFile ) {
+		return new File(localFile.getAbsoluteFile().getParentFile(), "." + localFile.getName() + SIDECAR_EXTENSION);
+	}
+
+	/**
+	 * Determine whether a local file has the Google Drive file's size and MD5 checksum,
+	 * for example to verify a completed download.
+	 * The size and checksum are only compared if known (Google Workspace files do not have them).
+	 * @param localFile the local file
+	 * @return true if the local file has the same size and checksum as the Google Drive file
+	 * @throws IOException if the local file cannot be read
+	 */
+	public boolean isContentSame ( File localFile ) throws IOException {
+		if ( (this.size != null) && (this.size != localFile.length()) ) {
+			return false;
+		}
+		if ( (this.md5Checksum != null) && !this.md5Checksum.equalsIgnoreCase(computeMd5Checksum(localFile)) ) {
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Determine whether the local file has the same contents as the Google Drive file.
+	 * If the sidecar file exists and the local file has not changed since the sidecar was written,
+	 * the Google Drive metadata is compared with the sidecar.
+	 * Otherwise, if the sizes are the same, the local file's MD5 checksum is computed and compared,
+	 * and the sidecar is written so that the checksum does not need to be computed again.
+	 * @param localFile the local file
+	 * @return true if the local file exists and is the same as the Google Drive file
+	 * @throws IOException if the local file cannot be read
+	 */
+	public boolean isLocalFileUnchanged ( File localFile ) throws IOException {
+		if ( !localFile.isFile() ) {
+			return false;
+		}
+		GoogleDriveDownloadState savedState = read(localFile);
+		if ( (savedState != null) && (savedState.localSize == localFile.length())
+			&& (savedState.localModifiedTime == localFile.lastModified()) ) {
+			// The local file has not changed since the state was saved so compare with the saved state.
+			return Objects.equals(this.fileId, savedState.fileId)
+				&& Objects.equals(this.md5Checksum, savedState.md5Checksum)
+				&& Objects.equals(this.size, savedState.size)
+				&& Objects.equals(this.modifiedTime, savedState.modifiedTime)
+				&& Objects.equals(this.exportMimeType, savedState.exportMimeType);
+		}
+		// Compare with the local file:
+		// - Google Workspace files do not have a checksum so can't compare
+		if ( (this.md5Checksum == null) || (this.size == null) || (this.size != localFile.length()) ) {
+			return false;
+		}
+		if ( this.md5Checksum.equalsIgnoreCase(computeMd5Checksum(localFile)) ) {
+			// Save the state so that the checksum does not need to be computed next time.
+			write(localFile);
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Determine whether a part file was written for the same version of the Google Drive file,
+	 * so that a download can be resumed from the end of the part file.
+	 * The part file's sidecar is compared and the file ID, modification time, and MD5 checksum must all match.
+	 * @param partFile the part file
+	 * @return true if the part file's sidecar exists and is for the same version of the Google Drive file
+	 */
+	public boolean isSameVersion ( File partFile ) {
+		GoogleDriveDownloadState savedState = read(partFile);
+		return (savedState != null)
+			&& Objects.equals(this.fileId, savedState.fileId)
+			&& Objects.equals(this.modifiedTime, savedState.modifiedTime)
+			&& Objects.equals(this.md5Checksum, savedState.md5Checksum);
+	}
+
+	/**
+	 * Read the sidecar file for a local file.
+	 * @param localFile the local file
+	 * @return the state, or null if the sidecar file does not exist or cannot be read
+	 */
+	private static GoogleDriveDownloadState read ( File localFile ) {
+		File sidecarFile = getSidecarFile(localFile);
+		if ( !sidecarFile.isFile() ) {
+			return null;
+		}
+		Properties props = new Properties();
+		try ( InputStream in = new FileInputStream(sidecarFile) ) {
+			props.load(in);
+			GoogleDriveDownloadState state = new GoogleDriveDownloadState();
+			state.fileId = props.getProperty("fileId");
+			state.md5Checksum = props.getProperty("md5Checksum");
+			String value = props.getProperty("size");
+			state.size = (value == null) ? null : Long.valueOf(value);
+			value = props.getProperty("modifiedTime");
+			state.modifiedTime = (value == null) ? null : Long.valueOf(value);
+			state.exportMimeType = props.getProperty("exportMimeType");
+			state.localSize = Long.parseLong(props.getProperty("localSize", "-1"));
+			state.localModifiedTime = Long.parseLong(props.getProperty("localModifiedTime", "-1"));
+			return state;
+		}
+		catch ( IOException | NumberFormatException e ) {
+			// Treat as if there is no state.
+			return null;
+		}
+	}
+
+	/**
+	 * Write the sidecar file for a local file, using the local file's current size and modification time.
+	 * @param localFile the local file, which must exist
+	 * @throws IOException if the sidecar file cannot be written
+	 */
+	public void write ( File localFile ) throws IOException {
+		Properties props = new Properties();
+		props.setProperty("fileId", this.fileId);
+		if ( this.md5Checksum != null ) {
+			props.setProperty("md5Checksum", this.md5Checksum);
+		}
+		if ( this.size != null ) {
+			props.setProperty("size", String.valueOf(this.size));
+		}
+		if ( this.modifiedTime != null ) {
+			props.setProperty("modifiedTime", String.valueOf(this.modifiedTime));
+		}
+		if ( this.exportMimeType != null ) {
+			props.setProperty("exportMimeType", this.exportMimeType);
+		}
+		props.setProperty("localSize", String.valueOf(localFile.length()));
+		props.setProperty("localModifiedTime", String.valueOf(localFile.lastModified()));
+		try ( OutputStream out = new FileOutputStream(getSidecarFile(localFile)) ) {
+			props.store(out, "Google Drive download state for " + localFile.getName());
+		}
+	}
+}
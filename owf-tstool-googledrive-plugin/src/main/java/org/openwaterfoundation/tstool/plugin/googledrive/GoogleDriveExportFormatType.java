@@ -0,0 +1,231 @@
+// GoogleDriveExportFormatType - formats for exporting Google Workspace files
+
+
+/* NoticeStart
+
+OWF TSTool Google Drive Plugin
+Copyright (C) 2023 Open Water Foundation
+
+OWF TSTool Google Drive Plugin is free software:  you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+OWF TSTool Google Drive Plugin is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+    along with OWF TSTool Google Drive Plugin.  If not, see <https://www.gnu.org/licenses/>.
+
+NoticeEnd */
+
+package org.openwaterfoundation.tstool.plugin.googledrive;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+Formats for exporting Google Workspace files (Docs, Sheets, Slides, Drawings), as enumeration to simplify code.
+Google Workspace files do not have content that can be downloaded and must be exported to a format.
+See: https://developers.google.com/drive/api/guides/ref-export-formats
+*/
+public enum GoogleDriveExportFormatType {
+	/**
+	Comma-separated values, for Sheets (only the first sheet is exported).
+	*/
+	CSV ( "CSV", "csv", "text/csv", GoogleDriveExportFormatType.SPREADSHEET ),
+
+	/**
+	Microsoft Word, for Docs.
+	*/
+	DOCX ( "DOCX", "docx", "application/vnd.openxmlformats-officedocument.wordprocessingml.document",
+		GoogleDriveExportFormatType.DOCUMENT ),
+
+	/**
+	PDF, for all Google Workspace files.
+	*/
+	PDF ( "PDF", "pdf", "application/pdf",
+		GoogleDriveExportFormatType.DOCUMENT, GoogleDriveExportFormatType.SPREADSHEET,
+		GoogleDriveExportFormatType.PRESENTATION, GoogleDriveExportFormatType.DRAWING ),
+
+	/**
+	Microsoft PowerPoint, for Slides.
+	*/
+	PPTX ( "PPTX", "pptx", "application/vnd.openxmlformats-officedocument.presentationml.presentation",
+		GoogleDriveExportFormatType.PRESENTATION ),
+
+	/**
+	Tab-separated values, for Sheets (only the first sheet is exported).
+	*/
+	TSV ( "TSV", "tsv", "text/tab-separated-values", GoogleDriveExportFormatType.SPREADSHEET ),
+
+	/**
+	Plain text, for Docs and Slides.
+	*/
+	TXT ( "TXT", "txt", "text/plain", GoogleDriveExportFormatType.DOCUMENT, GoogleDriveExportFormatType.PRESENTATION ),
+
+	/**
+	Microsoft Excel, for Sheets (all sheets are exported).
+	*/
+	XLSX ( "XLSX", "xlsx", "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet",
+		GoogleDriveExportFormatType.SPREADSHEET );
+
+	/**
+	Google Workspace MIME type prefix.
+	*/
+	public static final String WORKSPACE_MIME_TYPE_PREFIX = "application/vnd.google-apps.";
+
+	/**
+	Google Docs MIME type.
+	*/
+	public static final String DOCUMENT = "application/vnd.google-apps.document";
+
+	/**
+	Google Drawings MIME type.
+	*/
+	public static final String DRAWING = "application/vnd.google-apps.drawing";
+
+	/**
+	Google Slides MIME type.
+	*/
+	public static final String PRESENTATION = "application/vnd.google-apps.presentation";
+
+	/**
+	Google Sheets MIME type.
+	*/
+	public static final String SPREADSHEET = "application/vnd.google-apps.spreadsheet";
+
+	/**
+	The name that is used for choices and other technical code (terse).
+	*/
+	private final String name;
+
+	/**
+	The file extension for exported files, without the leading period.
+	*/
+	private final String extension;
+
+	/**
+	The MIME type to request when exporting.
+	*/
+	private final String mimeType;
+
+	/**
+	The Google Workspace MIME types that can be exported to the format.
+	*/
+	private final List<String> workspaceMimeTypes;
+
+	/**
+	Construct an enumeration value.
+	@param name name that should be displayed in choices, etc.
+	@param extension file extension without the leading period
+	@param mimeType MIME type to request when exporting
+	@param workspaceMimeTypes Google Workspace MIME types that can be exported to the format
+	*/
+	private GoogleDriveExportFormatType(String name, String extension, String mimeType, String ... workspaceMimeTypes ) {
+    	this.name = name;
+    	this.extension = extension;
+    	this.mimeType = mimeType;
+    	this.workspaceMimeTypes = Arrays.asList(workspaceMimeTypes);
+	}
+
+	/**
+	Get the list of export formats, in appropriate order.
+	@return the list of export formats.
+	*/
+	public static List<GoogleDriveExportFormatType> getChoices() {
+    	List<GoogleDriveExportFormatType> choices = new ArrayList<>();
+    	choices.add ( GoogleDriveExportFormatType.CSV );
+    	choices.add ( GoogleDriveExportFormatType.DOCX );
+    	choices.add ( GoogleDriveExportFormatType.PDF );
+    	choices.add ( GoogleDriveExportFormatType.PPTX );
+    	choices.add ( GoogleDriveExportFormatType.TSV );
+    	choices.add ( GoogleDriveExportFormatType.TXT );
+    	choices.add ( GoogleDriveExportFormatType.XLSX );
+    	return choices;
+	}
+
+	/**
+	Get the list of export formats as strings.
+	@return the list of export formats as strings.
+	@param includeNote Currently not implemented.
+	*/
+	public static List<String> getChoicesAsStrings( boolean includeNote ) {
+    	List<GoogleDriveExportFormatType> choices = getChoices();
+    	List<String> stringChoices = new ArrayList<>();
+    	for ( int i = 0; i < choices.size(); i++ ) {
+        	GoogleDriveExportFormatType choice = choices.get(i);
+        	String choiceString = "" + choice;
+        	stringChoices.add ( choiceString );
+    	}
+    	return stringChoices;
+	}
+
+	/**
+	Return the file extension for exported files.
+	@return the file extension, without the leading period.
+	*/
+	public String getExtension() {
+		return this.extension;
+	}
+
+	/**
+	Return the MIME type to request when exporting.
+	@return the MIME type to request when exporting.
+	*/
+	public String getMimeType() {
+		return this.mimeType;
+	}
+
+	/**
+	Determine whether a MIME type is for a Google Workspace file that must be exported.
+	Folders and shortcuts are Google Workspace MIME types but are not files that can be exported.
+	@param mimeType the MIME type to check
+	@return true if the MIME type is for a Google Workspace file.
+	*/
+	public static boolean isWorkspaceMimeType ( String mimeType ) {
+		return (mimeType != null) && mimeType.startsWith(WORKSPACE_MIME_TYPE_PREFIX)
+			&& !mimeType.equals(GoogleDriveFolderWalker.FOLDER_MIME_TYPE)
+			&& !mimeType.equals("application/vnd.google-apps.shortcut");
+	}
+
+	/**
+	Determine whether a Google Workspace file can be exported to the format.
+	@param workspaceMimeType the Google Workspace file MIME type
+	@return true if the file can be exported to the format.
+	*/
+	public boolean supports ( String workspaceMimeType ) {
+		return this.workspaceMimeTypes.contains(workspaceMimeType);
+	}
+
+	/**
+	Return the format name.
+	@return the display name.
+	*/
+	@Override
+	public String toString() {
+    	return this.name;
+	}
+
+	/**
+	Return the enumeration value given a string name (case-independent).
+	@param name the name to match
+	@return the enumeration value given a string name (case-independent), or null if not matched.
+	*/
+	public static GoogleDriveExportFormatType valueOfIgnoreCase ( String name ) {
+	    if ( name == null ) {
+        	return null;
+    	}
+    	GoogleDriveExportFormatType [] values = values();
+    	for ( GoogleDriveExportFormatType t : values ) {
+        	if ( name.equalsIgnoreCase(t.toString()) )  {
+            	return t;
+        	}
+    	}
+    	return null;
+	}
+
+}
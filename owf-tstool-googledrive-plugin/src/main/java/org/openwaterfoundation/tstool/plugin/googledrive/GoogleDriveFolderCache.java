@@ -0,0 +1,205 @@
+// GoogleDriveFolderCache - cache of Google Drive folder ID to name, parent, and path
+
+/* NoticeStart
+
+OWF TSTool Google Drive Plugin
+Copyright (C) 2023 Open Water Foundation
+
+OWF TSTool Google Drive Plugin is free software:  you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+OWF TSTool Google Drive Plugin is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+    along with OWF TSTool Google Drive Plugin.  If not, see <https://www.gnu.org/licenses/>.
+
+NoticeEnd */
+
+package org.openwaterfoundation.tstool.plugin.googledrive;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Cache of Google Drive folder ID to folder name and parent ID, and folder ID to full path, owned by a GoogleDriveSession.
+ * Converting a folder ID to a path requires one files().get() request for each parent folder,
+ * so caching the folders ensures that each folder is requested at most once per session,
+ * and caching the paths allows a path to be reused for all the files in a folder.
+ * The cache is bounded and the least recently used entries are removed when the maximum size is exceeded.
+ * Methods are synchronized so that the cache can be used by multiple threads.
+ */
+public class GoogleDriveFolderCache {
+
+	/**
+	 * Default maximum number of entries for each of the folder and path maps.
+	 */
+	public static final int DEFAULT_MAX_SIZE = 10000;
+
+	/**
+	 * Map of folder ID to folder, in access order so that the eldest entry is the least recently used.
+	 */
+	private final LinkedHashMap<String,Folder> folderMap;
+
+	/**
+	 * Map of folder ID to full path, in access order so that the eldest entry is the least recently used.
+	 */
+	private final LinkedHashMap<String,String> pathMap;
+
+	/**
+	 * Number of folder requests that were avoided by using the cache.
+	 */
+	private long folderHitCount = 0;
+
+	/**
+	 * Number of folders that were not in the cache.
+	 */
+	private long folderMissCount = 0;
+
+	/**
+	 * Number of path lookups that were found in the cache.
+	 */
+	private long pathHitCount = 0;
+
+	/**
+	 * Create a cache using the default size.
+	 */
+	public GoogleDriveFolderCache () {
+		this ( DEFAULT_MAX_SIZE );
+	}
+
+	/**
+	 * Create a cache.
+	 * @param maxSize maximum number of entries for each of the folder and path maps
+	 */
+	public GoogleDriveFolderCache ( int maxSize ) {
+		this.folderMap = new LinkedHashMap<String,Folder>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry ( Map.Entry<String,Folder> eldest ) {
+				return size() > maxSize;
+			}
+		};
+		this.pathMap = new LinkedHashMap<String,String>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry ( Map.Entry<String,String> eldest ) {
+				return size() > maxSize;
+			}
+		};
+	}
+
+	/**
+	 * Remove all entries.  The counts are not reset.
+	 */
+	public synchronized void clear () {
+		this.folderMap.clear();
+		this.pathMap.clear();
+	}
+
+	/**
+	 * Determine whether a folder ID has a cached folder or path, without changing the hit and miss counts.
+	 * @param folderId the Google Drive folder ID
+	 * @return true if the folder or its path is cached
+	 */
+	public synchronized boolean contains ( String folderId ) {
+		return this.folderMap.containsKey(folderId) || this.pathMap.containsKey(folderId);
+	}
+
+	/**
+	 * Return the folder for a folder ID.
+	 * The hit or miss count is incremented.
+	 * @param folderId the Google Drive folder ID
+	 * @return the folder, or null if not cached
+	 */
+	public synchronized Folder getFolder ( String folderId ) {
+		Folder folder = this.folderMap.get(folderId);
+		if ( folder == null ) {
+			++this.folderMissCount;
+		}
+		else {
+			++this.folderHitCount;
+		}
+		return folder;
+	}
+
+	/**
+	 * Return the full path for a folder ID.
+	 * @param folderId the Google Drive folder ID
+	 * @return the full path (e.g., "My Drive/folder1/folder2"), or null if not cached
+	 */
+	public synchronized String getPath ( String folderId ) {
+		String path = this.pathMap.get(folderId);
+		if ( path != null ) {
+			++this.pathHitCount;
+		}
+		return path;
+	}
+
+	/**
+	 * Add a folder.
+	 * @param folderId the Google Drive folder ID
+	 * @param name the folder name
+	 * @param parentId the primary parent folder ID, or null if the folder is a top-level folder
+	 * @return the folder that was added
+	 */
+	public synchronized Folder putFolder ( String folderId, String name, String parentId ) {
+		Folder folder = new Folder(name, parentId);
+		this.folderMap.put(folderId, folder);
+		return folder;
+	}
+
+	/**
+	 * Add the full path for a folder.
+	 * @param folderId the Google Drive folder ID
+	 * @param path the full path (e.g., "My Drive/folder1/folder2")
+	 */
+	public synchronized void putPath ( String folderId, String path ) {
+		this.pathMap.put(folderId, path);
+	}
+
+	/**
+	 * Return a summary of the cache statistics, suitable for logging.
+	 * @return a summary of the cache statistics
+	 */
+	public synchronized String toString () {
+		return "folderHits=" + this.folderHitCount + ", folderMisses=" + this.folderMissCount
+			+ ", pathHits=" + this.pathHitCount
+			+ ", folders=" + this.folderMap.size() + ", paths=" + this.pathMap.size();
+	}
+
+	/**
+	 * Cached folder, which is the folder name and primary parent folder ID.
+	 */
+	public static class Folder {
+		private final String name;
+		private final String parentId;
+
+		private Folder ( String name, String parentId ) {
+			this.name = name;
+			this.parentId = parentId;
+		}
+
+		/**
+		 * Return the folder name.
+		 * @return the folder name
+		 */
+		public String getName () {
+			return this.name;
+		}
+
+		/**
+		 * Return the primary parent folder ID.
+		 * @return the primary parent folder ID, or null if the folder is a top-level folder
+		 */
+		public String getParentId () {
+			return this.parentId;
+		}
+	}
+}
@@ -0,0 +1,273 @@
+// GoogleDriveFolderWalker - walk a Google Drive folder tree breadth-first
+
+/* NoticeStart
+
+OWF TSTool Google Drive Plugin
+Copyright (C) 2023 Open Water Foundation
+
+OWF TSTool Google Drive Plugin is free software:  you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+OWF TSTool Google Drive Plugin is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+    along with OWF TSTool Google Drive Plugin.  If not, see <https://www.gnu.org/licenses/>.
+
+NoticeEnd */
+
+package org.openwaterfoundation.tstool.plugin.googledrive;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import com.google.api.services.drive.model.File;
+
+/**
+ * Walk a Google Drive folder tree breadth-first, listing folders using a pool of threads.
+ * Call next() to get the listing for each folder in breadth-first order and close() when done.
+ * When a folder's listing is returned, its sub-folders are submitted to the pool,
+ * so sibling folders are listed concurrently while the caller processes previous listings.
+ * The folder path is determined from the walk so that each file's parent folder path does not need to be looked up.
+ */
+public class GoogleDriveFolderWalker implements AutoCloseable {
+
+	/**
+	 * Google Drive MIME type for folders.
+	 */
+	public static final String FOLDER_MIME_TYPE = "application/vnd.google-apps.folder";
+
+	/**
+	 * Google Drive session.
+	 */
+	private final GoogleDriveSession googleDriveSession;
+
+	/**
+	 * Whether to list trashed files, used in the query for sub-folders.
+	 */
+	private final boolean listTrashed;
+
+	/**
+	 * Query clause that is added to the query for sub-folders to filter the results on the server, or null.
+	 */
+	private final String filterQuery;
+
+	/**
+	 * Maximum depth to list, where 1 is the contents of the root, or -1 to list all depths.
+	 */
+	private final int maxDepth;
+
+	/**
+	 * Fields to return for each file, must include id, name, and mimeType.
+	 */
+	private final String fields;
+
+	/**
+	 * Number of files to request per page when listing a folder.
+	 */
+	private final int pageSize;
+
+	/**
+	 * Thread pool used to list folders.
+	 */
+	private final ExecutorService executor;
+
+	/**
+	 * Folder listings that have been submitted, in breadth-first order.
+	 */
+	private final Deque<Future<FolderListing>> pending = new ArrayDeque<>();
+
+	/**
+	 * Folder IDs that have been submitted, to avoid listing a folder more than once.
+	 */
+	private final Set<String> visitedFolderIds = new HashSet<>();
+
+	/**
+	 * Create a walker and start listing the root.
+	 * @param googleDriveSession Google Drive session
+	 * @param rootFolderId the root folder ID, or null if the root is only defined by the query
+	 * @param rootQuery query to list the root, for example "'folderId' in parents and trashed=false"
+	 * @param rootPath path for the root folder, used as the parent folder for the root contents
+	 * @param listTrashed whether to list trashed files
+	 * @param maxDepth maximum depth to list, where 1 is only the contents of the root, or -1 to list all depths
+	 * @param concurrency the maximum number of folders to list at the same time
+	 * @param fields fields to return for each file (e.g., "*"), must include id, name, and mimeType
+	 * @param pageSize the number of files to request per page when listing a folder
+	 */
+	public GoogleDriveFolderWalker ( GoogleDriveSession googleDriveSession, String rootFolderId, String rootQuery, String rootPath,
+		boolean listTrashed, int maxDepth, int concurrency, String fields, int pageSize ) {
+		this ( googleDriveSession, rootFolderId, rootQuery, rootPath, listTrashed, null, maxDepth, concurrency, fields, pageSize );
+	}
+
+	/**
+	 * Create a walker that filters the sub-folder listings on the server, and start listing the root.
+	 * @param googleDriveSession Google Drive session
+	 * @param rootFolderId the root folder ID, or null if the root is only defined by the query
+	 * @param rootQuery query to list the root, which should include the filter query if used
+	 * @param rootPath path for the root folder, used as the parent folder for the root contents
+	 * @param listTrashed whether to list trashed files
+	 * @param filterQuery query clause that is added to the query for sub-folders with "and", or null to not filter,
+	 * which must select all folders so that the walk is complete,
+	 * for example "(name contains 'data' or mimeType = 'application/vnd.google-apps.folder')"
+	 * @param maxDepth maximum depth to list, where 1 is only the contents of the root, or -1 to list all depths
+	 * @param concurrency the maximum number of folders to list at the same time
+	 * @param fields fields to return for each file (e.g., "*"), must include id, name, and mimeType
+	 * @param pageSize the number of files to request per page when listing a folder
+	 */
+	public GoogleDriveFolderWalker ( GoogleDriveSession googleDriveSession, String rootFolderId, String rootQuery, String rootPath,
+		boolean listTrashed, String filterQuery, int maxDepth, int concurrency, String fields, int pageSize ) {
+		this.googleDriveSession = googleDriveSession;
+		this.listTrashed = listTrashed;
+		this.filterQuery = filterQuery;
+		this.maxDepth = maxDepth;
+		this.fields = fields;
+		this.pageSize = pageSize;
+		this.executor = Executors.newFixedThreadPool(Math.max(1, concurrency));
+		submit ( rootFolderId, rootQuery, rootPath, 1 );
+	}
+
+	/**
+	 * Add another root to walk, for example to list 'Shared with me' files while walking 'My Drive'.
+	 * The root is listed concurrently with the other folders and its listings are returned by next()
+	 * in the order that it was added, and folders that were already listed by another root are not listed again.
+	 * @param rootFolderId the root folder ID, or null if the root is only defined by the query
+	 * @param rootQuery query to list the root, for example "sharedWithMe=true"
+	 * @param rootPath path for the root folder, used as the parent folder for the root contents
+	 */
+	public void addRoot ( String rootFolderId, String rootQuery, String rootPath ) {
+		submit ( rootFolderId, rootQuery, rootPath, 1 );
+	}
+
+	/**
+	 * Stop listing folders.  Listings that have not been returned are discarded.
+	 */
+	@Override
+	public void close () {
+		this.executor.shutdownNow();
+		this.pending.clear();
+	}
+
+	/**
+	 * Return the next folder listing in breadth-first order, waiting for the listing if necessary.
+	 * The sub-folders in the listing are submitted to be listed if the maximum depth has not been reached.
+	 * @return the next folder listing, or null if all folders have been listed
+	 * @throws InterruptedException if interrupted while waiting
+	 */
+	public FolderListing next () throws InterruptedException {
+		Future<FolderListing> future = this.pending.pollFirst();
+		if ( future == null ) {
+			return null;
+		}
+		FolderListing listing;
+		try {
+			listing = future.get();
+		}
+		catch ( ExecutionException e ) {
+			// Should not happen because the task saves exceptions in the listing.
+			throw new RuntimeException(e.getCause());
+		}
+		if ( (this.maxDepth <= 0) || (listing.depth < this.maxDepth) ) {
+			for ( File file : listing.files ) {
+				if ( FOLDER_MIME_TYPE.equals(file.getMimeType()) ) {
+					submit ( file.getId(), "'" + file.getId() + "' in parents and trashed=" + this.listTrashed
+						+ ((this.filterQuery == null) ? "" : (" and " + this.filterQuery)),
+						listing.folderPath + "/" + file.getName(), (listing.depth + 1) );
+				}
+			}
+		}
+		return listing;
+	}
+
+	/**
+	 * Submit a folder to be listed.
+	 * @param folderId folder ID, or null if the root is only defined by the query
+	 * @param q the query to list the folder contents
+	 * @param folderPath the folder path
+	 * @param depth the depth of the folder contents
+	 */
+	private void submit ( String folderId, String q, String folderPath, int depth ) {
+		if ( (folderId != null) && !this.visitedFolderIds.add(folderId) ) {
+			// Already listed.
+			return;
+		}
+		this.pending.addLast(this.executor.submit(() -> {
+			FolderListing listing = new FolderListing(folderId, folderPath, depth);
+			try {
+				listing.files = GoogleDriveToolkit.getInstance().listFiles(this.googleDriveSession, q, this.fields, this.pageSize);
+			}
+			catch ( Exception e ) {
+				listing.exception = e;
+			}
+			return listing;
+		}));
+	}
+
+	/**
+	 * Listing for one folder.
+	 */
+	public static class FolderListing {
+		private final String folderId;
+		private final String folderPath;
+		private final int depth;
+		private List<File> files = new ArrayList<>();
+		private Exception exception = null;
+
+		private FolderListing ( String folderId, String folderPath, int depth ) {
+			this.folderId = folderId;
+			this.folderPath = folderPath;
+			this.depth = depth;
+		}
+
+		/**
+		 * Return the depth of the folder contents, 1 for the root folder contents.
+		 * @return the depth of the folder contents
+		 */
+		public int getDepth () {
+			return this.depth;
+		}
+
+		/**
+		 * Return the exception if the folder could not be listed.
+		 * @return the exception if the folder could not be listed, or null if no error
+		 */
+		public Exception getException () {
+			return this.exception;
+		}
+
+		/**
+		 * Return the files and folders in the folder.
+		 * @return the files and folders in the folder, guaranteed to be non-null
+		 */
+		public List<File> getFiles () {
+			return this.files;
+		}
+
+		/**
+		 * Return the folder ID.
+		 * @return the folder ID, or null for a root that is only defined by the query
+		 */
+		public String getFolderId () {
+			return this.folderId;
+		}
+
+		/**
+		 * Return the folder path, which is the parent folder path for the files.
+		 * @return the folder path
+		 */
+		public String getFolderPath () {
+			return this.folderPath;
+		}
+	}
+}
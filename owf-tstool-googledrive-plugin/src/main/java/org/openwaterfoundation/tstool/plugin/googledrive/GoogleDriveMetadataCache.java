@@ -0,0 +1,341 @@
+// GoogleDriveMetadataCache - on-disk cache of Google Drive metadata shared across TSTool runs
+
+/* NoticeStart
+
+OWF TSTool Google Drive Plugin
+Copyright (C) 2023 Open Water Foundation
+
+OWF TSTool Google Drive Plugin is free software:  you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+OWF TSTool Google Drive Plugin is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+    along with OWF TSTool Google Drive Plugin.  If not, see <https://www.gnu.org/licenses/>.
+
+NoticeEnd */
+
+package org.openwaterfoundation.tstool.plugin.googledrive;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import com.google.api.client.json.JsonFactory;
+import com.google.api.services.drive.model.FileList;
+
+import RTi.Util.Message.Message;
+
+/**
+ * On-disk cache of Google Drive metadata, which is shared across TSTool runs so that short runs do not start cold.
+ * The cache is in a "cache" folder next to the tokens folder, with a folder for each session, and contains:
+ * - "paths.properties" - folder path to ID for the session's GoogleDrivePathCache, loaded when the cache is opened
+ *   and saved when the session is closed
+ * - "listings/*.json" - folder listings for a query and fields, one file per listing
+ * Entries older than the time to live are ignored.
+ * Listings are removed, oldest first, when the total size exceeds the maximum.
+ * Methods can be called by multiple threads.
+ */
+public class GoogleDriveMetadataCache {
+
+	/**
+	 * Default time to live for entries, milliseconds.
+	 */
+	public static final long DEFAULT_TTL_MS = 60*60*1000L;
+
+	/**
+	 * Default maximum total size of the listings, bytes.
+	 */
+	public static final long DEFAULT_MAX_SIZE_BYTES = 100*1024*1024L;
+
+	/**
+	 * Folder for the session's cache files.
+	 */
+	private final File cacheFolder;
+
+	/**
+	 * Folder for the listing files.
+	 */
+	private final File listingsFolder;
+
+	/**
+	 * JSON factory used to read and write listings.
+	 */
+	private final JsonFactory jsonFactory;
+
+	/**
+	 * Time to live for entries, milliseconds.
+	 */
+	private final long ttlMs;
+
+	/**
+	 * Maximum total size of the listings, bytes.
+	 */
+	private final long maxSizeBytes;
+
+	/**
+	 * Total size of the listing files, bytes.
+	 */
+	private long totalSizeBytes = 0;
+
+	/**
+	 * Number of listings that were read from the cache.
+	 */
+	private long hitCount = 0;
+
+	/**
+	 * Number of listings that were not in the cache or were too old.
+	 */
+	private long missCount = 0;
+
+	/**
+	 * Number of listings that were removed to limit the size.
+	 */
+	private long evictedCount = 0;
+
+	/**
+	 * Open the cache, creating the folders if necessary.
+	 * @param cacheFolder folder for the session's cache files
+	 * @param jsonFactory JSON factory used to read and write listings
+	 * @param ttlMs time to live for entries, milliseconds
+	 * @param maxSizeBytes maximum total size of the listings, bytes
+	 */
+	public GoogleDriveMetadataCache ( File cacheFolder, JsonFactory jsonFactory, long ttlMs, long maxSizeBytes ) {
+		this.cacheFolder = cacheFolder;
+		this.listingsFolder = new File(cacheFolder, "listings");
+		this.jsonFactory = jsonFactory;
+		this.ttlMs = ttlMs;
+		this.maxSizeBytes = maxSizeBytes;
+		if ( !this.listingsFolder.exists() ) {
+			this.listingsFolder.mkdirs();
+		}
+		for ( File file : listListingFiles() ) {
+			this.totalSizeBytes += file.length();
+		}
+	}
+
+	/**
+	 * Remove all the cached entries.
+	 */
+	public synchronized void clear () {
+		String routine = getClass().getSimpleName() + ".clear";
+		for ( File file : listListingFiles() ) {
+			file.delete();
+		}
+		getPathsFile().delete();
+		this.totalSizeBytes = 0;
+		Message.printStatus(2, routine, "Cleared the Google Drive metadata cache \"" + this.cacheFolder + "\".");
+	}
+
+	/**
+	 * Remove the oldest listings until the total size is less than the maximum.
+	 */
+	private void evict () {
+		if ( this.totalSizeBytes <= this.maxSizeBytes ) {
+			return;
+		}
+		File [] files = listListingFiles();
+		Arrays.sort(files, Comparator.comparingLong(File::lastModified));
+		for ( File file : files ) {
+			if ( this.totalSizeBytes <= this.maxSizeBytes ) {
+				break;
+			}
+			long size = file.length();
+			if ( file.delete() ) {
+				this.totalSizeBytes -= size;
+				++this.evictedCount;
+			}
+		}
+	}
+
+	/**
+	 * Return the cached listing for a query.
+	 * @param q the query used to list files
+	 * @param fields the fields that were requested for each file
+	 * @return the listing, or null if not cached or older than the time to live
+	 */
+	public List<com.google.api.services.drive.model.File> getListing ( String q, String fields ) {
+		File file = getListingFile(q, fields);
+		synchronized ( this ) {
+			if ( !file.isFile() || ((System.currentTimeMillis() - file.lastModified()) > this.ttlMs) ) {
+				++this.missCount;
+				return null;
+			}
+			++this.hitCount;
+		}
+		try ( InputStream in = new FileInputStream(file) ) {
+			FileList fileList = this.jsonFactory.fromInputStream(in, StandardCharsets.UTF_8, FileList.class);
+			List<com.google.api.services.drive.model.File> files = fileList.getFiles();
+			return (files == null) ? new ArrayList<>() : files;
+		}
+		catch ( Exception e ) {
+			// Treat as not cached.
+			Message.printWarning(3, getClass().getSimpleName() + ".getListing", "Error reading cached listing \"" + file + "\" (" + e + ").");
+			return null;
+		}
+	}
+
+	/**
+	 * Return the file for a listing, using a hash of the query and fields.
+	 * @param q the query used to list files
+	 * @param fields the fields that were requested for each file
+	 * @return the file for the listing
+	 */
+	private File getListingFile ( String q, String fields ) {
+		StringBuilder b = new StringBuilder();
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-256");
+			for ( byte x : digest.digest((q + "\n" + fields).getBytes(StandardCharsets.UTF_8)) ) {
+				b.append(String.format("%02x", x));
+			}
+		}
+		catch ( NoSuchAlgorithmException e ) {
+			// Should not happen since SHA-256 is always available.
+			b.append(Integer.toHexString((q + "\n" + fields).hashCode()));
+		}
+		return new File(this.listingsFolder, b.toString() + ".json");
+	}
+
+	/**
+	 * Return the file for the folder paths.
+	 * @return the file for the folder paths
+	 */
+	private File getPathsFile () {
+		return new File(this.cacheFolder, "paths.properties");
+	}
+
+	/**
+	 * Return the time to live for entries.
+	 * @return the time to live for entries, milliseconds
+	 */
+	public long getTtlMs () {
+		return this.ttlMs;
+	}
+
+	/**
+	 * List the listing files.
+	 * @return the listing files, guaranteed to be non-null
+	 */
+	private File [] listListingFiles () {
+		File [] files = this.listingsFolder.listFiles((dir, name) -> name.endsWith(".json"));
+		return (files == null) ? new File[0] : files;
+	}
+
+	/**
+	 * Load the folder paths into a path cache.
+	 * Entries older than the time to live are ignored and loaded entries expire when the time to live is reached.
+	 * @param pathCache the path cache to load
+	 * @return the number of entries that were loaded
+	 */
+	public synchronized int loadPaths ( GoogleDrivePathCache pathCache ) {
+		String routine = getClass().getSimpleName() + ".loadPaths";
+		File file = getPathsFile();
+		if ( !file.isFile() ) {
+			return 0;
+		}
+		Properties props = new Properties();
+		try ( InputStream in = new FileInputStream(file) ) {
+			props.load(in);
+		}
+		catch ( IOException e ) {
+			Message.printWarning(3, routine, "Error reading cached paths \"" + file + "\" (" + e + ").");
+			return 0;
+		}
+		long now = System.currentTimeMillis();
+		int count = 0;
+		for ( String key : props.stringPropertyNames() ) {
+			// Value is the time that the entry was created and the ID.
+			String [] parts = props.getProperty(key).split(" ", 2);
+			if ( parts.length != 2 ) {
+				continue;
+			}
+			try {
+				long time = Long.parseLong(parts[0]);
+				if ( (now - time) <= this.ttlMs ) {
+					pathCache.load(key, parts[1], time, (time + this.ttlMs));
+					++count;
+				}
+			}
+			catch ( NumberFormatException e ) {
+				// Ignore the entry.
+			}
+		}
+		Message.printStatus(2, routine, "Loaded " + count + " cached folder paths from \"" + file + "\".");
+		return count;
+	}
+
+	/**
+	 * Save a listing.
+	 * @param q the query used to list files
+	 * @param fields the fields that were requested for each file
+	 * @param files the listing
+	 */
+	public void putListing ( String q, String fields, List<com.google.api.services.drive.model.File> files ) {
+		File file = getListingFile(q, fields);
+		File tempFile = new File(file.getPath() + "." + Thread.currentThread().getId() + ".tmp");
+		try {
+			try ( OutputStream out = new FileOutputStream(tempFile) ) {
+				out.write(this.jsonFactory.toByteArray(new FileList().setFiles(files)));
+			}
+			synchronized ( this ) {
+				long oldSize = file.isFile() ? file.length() : 0;
+				Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+				this.totalSizeBytes += file.length() - oldSize;
+				evict();
+			}
+		}
+		catch ( IOException e ) {
+			// The cache is optional so only log the problem.
+			Message.printWarning(3, getClass().getSimpleName() + ".putListing", "Error saving cached listing \"" + file + "\" (" + e + ").");
+			tempFile.delete();
+		}
+	}
+
+	/**
+	 * Save the folder paths from a path cache, replacing the previous paths.
+	 * @param pathCache the path cache to save
+	 */
+	public synchronized void savePaths ( GoogleDrivePathCache pathCache ) {
+		String routine = getClass().getSimpleName() + ".savePaths";
+		Properties props = new Properties();
+		for ( Map.Entry<String,String[]> entry : pathCache.getEntries().entrySet() ) {
+			// Value is the time that the entry was created and the ID.
+			props.setProperty(entry.getKey(), entry.getValue()[0] + " " + entry.getValue()[1]);
+		}
+		File file = getPathsFile();
+		try ( OutputStream out = new FileOutputStream(file) ) {
+			props.store(out, "Google Drive folder path to ID: created time (ms) and ID");
+		}
+		catch ( IOException e ) {
+			Message.printWarning(3, routine, "Error saving cached paths \"" + file + "\" (" + e + ").");
+		}
+	}
+
+	/**
+	 * Return a summary of the cache statistics, suitable for logging.
+	 * @return a summary of the cache statistics
+	 */
+	public synchronized String toString () {
+		return "listingHits=" + this.hitCount + ", listingMisses=" + this.missCount
+			+ ", evicted=" + this.evictedCount + ", sizeBytes=" + this.totalSizeBytes;
+	}
+}
@@ -0,0 +1,490 @@
+// GoogleDriveMetrics - Google Drive request metrics for a command
+
+/* NoticeStart
+
+OWF TSTool Google Drive Plugin
+Copyright (C) 2023 Open Water Foundation
+
+OWF TSTool Google Drive Plugin is free software:  you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+OWF TSTool Google Drive Plugin is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+    along with OWF TSTool Google Drive Plugin.  If not, see <https://www.gnu.org/licenses/>.
+
+NoticeEnd */
+
+package org.openwaterfoundation.tstool.plugin.googledrive;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import com.google.api.client.http.GenericUrl;
+import com.google.api.client.http.HttpContent;
+import com.google.api.client.http.HttpExecuteInterceptor;
+import com.google.api.client.http.HttpRequest;
+import com.google.api.client.http.HttpRequestInitializer;
+import com.google.api.client.http.HttpResponse;
+import com.google.api.client.http.HttpResponseInterceptor;
+import com.google.api.client.http.HttpUnsuccessfulResponseHandler;
+
+/**
+ * Google Drive request metrics for a command, used to determine whether time is spent resolving paths,
+ * listing pages, or transferring files.
+ * Metrics are accumulated for each operation (e.g., "files.list", "files.download"),
+ * which is determined from the request method and URL.
+ * Use wrap() to add the metrics to the request initializer when creating a Drive service,
+ * so that every request, including retries, is measured.
+ * Methods can be called by multiple threads.
+ */
+public class GoogleDriveMetrics {
+
+	/**
+	 * Operation name used for the total of all operations.
+	 */
+	public static final String TOTAL = "Total";
+
+	/**
+	 * Metrics for each operation, sorted by operation name.
+	 */
+	private final Map<String,OperationMetrics> operationMap = new TreeMap<>();
+
+	/**
+	 * Time that the metrics were started, nanoseconds.
+	 */
+	private final long startTime = System.nanoTime();
+
+	/**
+	 * Time that the metrics were stopped, nanoseconds, or -1 if not stopped.
+	 */
+	private long stopTime = -1;
+
+	/**
+	 * Create metrics, starting the elapsed time.
+	 */
+	public GoogleDriveMetrics () {
+	}
+
+	/**
+	 * Determine the operation for a request, similar to the Google Drive API method names.
+	 * @param request the request
+	 * @return the operation name
+	 */
+	private String getOperation ( HttpRequest request ) {
+		GenericUrl url = request.getUrl();
+		String path = url.getRawPath();
+		String method = request.getRequestMethod();
+		if ( path == null ) {
+			path = "";
+		}
+		if ( path.endsWith("/batch") || path.contains("/batch/") ) {
+			return "batch";
+		}
+		int pos = path.indexOf("/drive/v3/");
+		String resourcePath = (pos >= 0) ? path.substring(pos + "/drive/v3/".length()) : path;
+		String [] parts = resourcePath.split("/");
+		String resource = parts[0];
+		if ( resource.equals("changes") ) {
+			return ((parts.length > 1) && parts[1].equals("startPageToken")) ? "changes.getStartPageToken" : "changes.list";
+		}
+		else if ( resource.equals("files") ) {
+			if ( (parts.length > 2) && parts[2].equals("export") ) {
+				return "files.export";
+			}
+			if ( parts.length == 1 ) {
+				return method.equals("POST") ? "files.create" : "files.list";
+			}
+			if ( method.equals("DELETE") ) {
+				return "files.delete";
+			}
+			if ( method.equals("PATCH") ) {
+				return "files.update";
+			}
+			if ( "media".equals(url.getFirst("alt")) ) {
+				return "files.download";
+			}
+			return "files.get";
+		}
+		else if ( resource.equals("drives") ) {
+			return (parts.length == 1) ? "drives.list" : "drives.get";
+		}
+		return method.toLowerCase() + " " + resource;
+	}
+
+	/**
+	 * Return the elapsed time since the metrics were started, until stop() is called.
+	 * @return the elapsed time, milliseconds
+	 */
+	public synchronized long getElapsedMs () {
+		long endTime = (this.stopTime >= 0) ? this.stopTime : System.nanoTime();
+		return (endTime - this.startTime)/1000000L;
+	}
+
+	/**
+	 * Return the metrics for each operation.
+	 * @param includeTotal whether to include the total for all operations, as the last item
+	 * @return the metrics for each operation, sorted by operation name
+	 */
+	public synchronized List<OperationMetrics> getOperationMetrics ( boolean includeTotal ) {
+		List<OperationMetrics> metricsList = new ArrayList<>();
+		OperationMetrics total = new OperationMetrics(TOTAL);
+		for ( OperationMetrics metrics : this.operationMap.values() ) {
+			metricsList.add(metrics.copy());
+			total.add(metrics);
+		}
+		if ( includeTotal ) {
+			metricsList.add(total);
+		}
+		return metricsList;
+	}
+
+	/**
+	 * Return the total metrics for all operations.
+	 * @return the total metrics for all operations
+	 */
+	public synchronized OperationMetrics getTotal () {
+		List<OperationMetrics> metricsList = getOperationMetrics(true);
+		return metricsList.get(metricsList.size() - 1);
+	}
+
+	/**
+	 * Record a request.
+	 * @param operation the operation name
+	 */
+	private synchronized void recordRequest ( String operation ) {
+		this.operationMap.computeIfAbsent(operation, OperationMetrics::new).requestCount++;
+	}
+
+	/**
+	 * Record a response for a request attempt.
+	 * @param operation the operation name
+	 * @param latencyNanos the time from sending the request until the response was received, nanoseconds
+	 * @param bytesSent the number of bytes sent
+	 * @param bytesReceived the number of bytes received, from the Content-Length header
+	 * @param success whether the response was successful
+	 */
+	private synchronized void recordResponse ( String operation, long latencyNanos, long bytesSent,
+		long bytesReceived, boolean success ) {
+		OperationMetrics metrics = this.operationMap.computeIfAbsent(operation, OperationMetrics::new);
+		metrics.addLatency(latencyNanos);
+		metrics.bytesSent += bytesSent;
+		metrics.bytesReceived += bytesReceived;
+		if ( !success ) {
+			++metrics.errorCount;
+		}
+	}
+
+	/**
+	 * Stop the elapsed time.
+	 */
+	public synchronized void stop () {
+		if ( this.stopTime < 0 ) {
+			this.stopTime = System.nanoTime();
+		}
+	}
+
+	/**
+	 * Return a one-line summary of the metrics, suitable for logging.
+	 * @return a one-line summary of the metrics
+	 */
+	public String toString () {
+		StringBuilder b = new StringBuilder();
+		OperationMetrics total = null;
+		for ( OperationMetrics metrics : getOperationMetrics(true) ) {
+			if ( metrics.getOperation().equals(TOTAL) ) {
+				total = metrics;
+			}
+			else {
+				if ( b.length() > 0 ) {
+					b.append(", ");
+				}
+				b.append(metrics.getOperation() + "=" + metrics.getRequestCount());
+			}
+		}
+		return "elapsedMs=" + getElapsedMs() + ", requests=" + total.getRequestCount()
+			+ ", retries=" + total.getRetryCount() + ", errors=" + total.getErrorCount()
+			+ ", bytesSent=" + total.getBytesSent() + ", bytesReceived=" + total.getBytesReceived()
+			+ ", latencyMs p50=" + total.getLatencyPercentileMs(50) + " p95=" + total.getLatencyPercentileMs(95)
+			+ " p99=" + total.getLatencyPercentileMs(99) + " max=" + total.getLatencyPercentileMs(100)
+			+ " (" + b + ")";
+	}
+
+	/**
+	 * Wrap a request initializer so that requests are measured.
+	 * The wrapped initializer is called first so that its interceptors and response handler are used.
+	 * @param requestInitializer the request initializer for the credentials
+	 * @return a request initializer that measures requests
+	 */
+	public HttpRequestInitializer wrap ( HttpRequestInitializer requestInitializer ) {
+		return new HttpRequestInitializer() {
+			@Override
+			public void initialize ( HttpRequest request ) throws IOException {
+				if ( requestInitializer != null ) {
+					requestInitializer.initialize(request);
+				}
+				HttpExecuteInterceptor interceptor = request.getInterceptor();
+				HttpUnsuccessfulResponseHandler handler = request.getUnsuccessfulResponseHandler();
+				HttpResponseInterceptor responseInterceptor = request.getResponseInterceptor();
+				// State for the request, which is used by one thread.
+				RequestState state = new RequestState();
+				request.setInterceptor ( new HttpExecuteInterceptor() {
+					@Override
+					public void intercept ( HttpRequest request ) throws IOException {
+						if ( interceptor != null ) {
+							interceptor.intercept(request);
+						}
+						if ( state.operation == null ) {
+							// First attempt.
+							state.operation = getOperation(request);
+							recordRequest(state.operation);
+						}
+						state.attemptStartTime = System.nanoTime();
+					}
+				});
+				// Unsuccessful responses, including those that are retried, are passed to the handler.
+				request.setUnsuccessfulResponseHandler ( new HttpUnsuccessfulResponseHandler() {
+					@Override
+					public boolean handleResponse ( HttpRequest request, HttpResponse response, boolean supportsRetry )
+						throws IOException {
+						state.recordResponse(request, response);
+						return (handler != null) && handler.handleResponse(request, response, supportsRetry);
+					}
+				});
+				// The final response is passed to the response interceptor.
+				request.setResponseInterceptor ( new HttpResponseInterceptor() {
+					@Override
+					public void interceptResponse ( HttpResponse response ) throws IOException {
+						state.recordResponse(response.getRequest(), response);
+						if ( responseInterceptor != null ) {
+							responseInterceptor.interceptResponse(response);
+						}
+					}
+				});
+			}
+		};
+	}
+
+	/**
+	 * Metrics for an operation.
+	 */
+	public static class OperationMetrics {
+
+		/**
+		 * Operation name.
+		 */
+		private final String operation;
+
+		/**
+		 * Number of requests.
+		 */
+		private long requestCount = 0;
+
+		/**
+		 * Number of responses that were not successful.
+		 */
+		private long errorCount = 0;
+
+		/**
+		 * Number of bytes sent.
+		 */
+		private long bytesSent = 0;
+
+		/**
+		 * Number of bytes received.
+		 */
+		private long bytesReceived = 0;
+
+		/**
+		 * Latency for each attempt, nanoseconds, with latencyCount values used.
+		 */
+		private long [] latencies = new long[16];
+
+		/**
+		 * Number of latency values.
+		 */
+		private int latencyCount = 0;
+
+		/**
+		 * Create metrics for an operation.
+		 * @param operation operation name
+		 */
+		private OperationMetrics ( String operation ) {
+			this.operation = operation;
+		}
+
+		/**
+		 * Add the metrics from another operation, used to compute the total.
+		 * @param metrics metrics to add
+		 */
+		private void add ( OperationMetrics metrics ) {
+			this.requestCount += metrics.requestCount;
+			this.errorCount += metrics.errorCount;
+			this.bytesSent += metrics.bytesSent;
+			this.bytesReceived += metrics.bytesReceived;
+			for ( int i = 0; i < metrics.latencyCount; i++ ) {
+				addLatency(metrics.latencies[i]);
+			}
+		}
+
+		/**
+		 * Add a latency value.
+		 * @param latencyNanos latency, nanoseconds
+		 */
+		private void addLatency ( long latencyNanos ) {
+			if ( this.latencyCount == this.latencies.length ) {
+				this.latencies = Arrays.copyOf(this.latencies, this.latencies.length*2);
+			}
+			this.latencies[this.latencyCount++] = latencyNanos;
+		}
+
+		/**
+		 * Return a copy of the metrics.
+		 * @return a copy of the metrics
+		 */
+		private OperationMetrics copy () {
+			OperationMetrics metrics = new OperationMetrics(this.operation);
+			metrics.add(this);
+			return metrics;
+		}
+
+		/**
+		 * Return the number of attempts, including retries.
+		 * @return the number of attempts
+		 */
+		public long getAttemptCount () {
+			return this.latencyCount;
+		}
+
+		/**
+		 * Return the number of bytes received, from the Content-Length header.
+		 * @return the number of bytes received
+		 */
+		public long getBytesReceived () {
+			return this.bytesReceived;
+		}
+
+		/**
+		 * Return the number of bytes sent.
+		 * @return the number of bytes sent
+		 */
+		public long getBytesSent () {
+			return this.bytesSent;
+		}
+
+		/**
+		 * Return the number of responses that were not successful, including those that were retried.
+		 * @return the number of responses that were not successful
+		 */
+		public long getErrorCount () {
+			return this.errorCount;
+		}
+
+		/**
+		 * Return the mean latency.
+		 * @return the mean latency, milliseconds
+		 */
+		public double getLatencyMeanMs () {
+			if ( this.latencyCount == 0 ) {
+				return 0.0;
+			}
+			double sum = 0.0;
+			for ( int i = 0; i < this.latencyCount; i++ ) {
+				sum += this.latencies[i];
+			}
+			return sum/this.latencyCount/1.0e6;
+		}
+
+		/**
+		 * Return a latency percentile, using the nearest rank.
+		 * @param percentile the percentile, 0 to 100 (100 is the maximum)
+		 * @return the latency percentile, milliseconds
+		 */
+		public long getLatencyPercentileMs ( double percentile ) {
+			if ( this.latencyCount == 0 ) {
+				return 0;
+			}
+			long [] sorted = Arrays.copyOf(this.latencies, this.latencyCount);
+			Arrays.sort(sorted);
+			int rank = (int)Math.ceil(percentile/100.0*this.latencyCount);
+			rank = Math.max(1, Math.min(this.latencyCount, rank));
+			return sorted[rank - 1]/1000000L;
+		}
+
+		/**
+		 * Return the operation name.
+		 * @return the operation name
+		 */
+		public String getOperation () {
+			return this.operation;
+		}
+
+		/**
+		 * Return the number of requests.
+		 * @return the number of requests
+		 */
+		public long getRequestCount () {
+			return this.requestCount;
+		}
+
+		/**
+		 * Return the number of retries.
+		 * @return the number of retries
+		 */
+		public long getRetryCount () {
+			return Math.max(0, getAttemptCount() - this.requestCount);
+		}
+	}
+
+	/**
+	 * State for a request, used to measure each attempt.
+	 */
+	private class RequestState {
+
+		/**
+		 * Operation name, set for the first attempt.
+		 */
+		private String operation = null;
+
+		/**
+		 * Time that the current attempt started, nanoseconds, or -1 if the response has been recorded.
+		 */
+		private long attemptStartTime = -1;
+
+		/**
+		 * Record the response for the current attempt, if not already recorded.
+		 * @param request the request
+		 * @param response the response
+		 */
+		private void recordResponse ( HttpRequest request, HttpResponse response ) {
+			if ( (this.operation == null) || (this.attemptStartTime < 0) ) {
+				return;
+			}
+			long latency = System.nanoTime() - this.attemptStartTime;
+			this.attemptStartTime = -1;
+			long bytesSent = 0;
+			HttpContent content = request.getContent();
+			if ( content != null ) {
+				try {
+					bytesSent = Math.max(0, content.getLength());
+				}
+				catch ( IOException e ) {
+					// Length is not known.
+				}
+			}
+			Long contentLength = response.getHeaders().getContentLength();
+			long bytesReceived = (contentLength == null) ? 0 : Math.max(0, contentLength);
+			GoogleDriveMetrics.this.recordResponse(this.operation, latency, bytesSent, bytesReceived,
+				response.isSuccessStatusCode());
+		}
+	}
+}
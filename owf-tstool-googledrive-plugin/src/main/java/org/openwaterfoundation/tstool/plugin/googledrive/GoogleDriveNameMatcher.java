@@ -0,0 +1,290 @@
+// GoogleDriveNameMatcher - match file, folder, and drive names to a glob or Java regular expression
+
+/* NoticeStart
+
+OWF TSTool Google Drive Plugin
+Copyright (C) 2023 Open Water Foundation
+
+OWF TSTool Google Drive Plugin is free software:  you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+OWF TSTool Google Drive Plugin is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+    along with OWF TSTool Google Drive Plugin.  If not, see <https://www.gnu.org/licenses/>.
+
+NoticeEnd */
+
+package org.openwaterfoundation.tstool.plugin.googledrive;
+
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * Match names to a pattern, used to filter listed files, folders, and drives.
+ * The pattern is compiled once when the matcher is created so that it can be reused for each name.
+ * The pattern is a glob by default, or a Java regular expression if it starts with "java:".
+ * The following glob syntax is supported:
+ * <ul>
+ * <li>* - zero or more characters</li>
+ * <li>? - one character</li>
+ * <li>[abc], [a-z] - one character in the set or range, and [!abc] or [^abc] for one character not in the set</li>
+ * <li>{abc,def} - one of the alternatives, which can contain the above</li>
+ * <li>\ - escape the next character so that it is matched literally</li>
+ * </ul>
+ * The literal prefix and suffix of a glob are checked before the regular expression,
+ * and globs that only contain * between the prefix and suffix do not use a regular expression,
+ * so that filtering large listings is fast.
+ * A matcher can be used by multiple threads.
+ */
+public class GoogleDriveNameMatcher {
+
+	/**
+	 * The original pattern, for messages.
+	 */
+	private final String patternString;
+
+	/**
+	 * Compiled regular expression, or null if the prefix and suffix checks are sufficient.
+	 */
+	private final Pattern pattern;
+
+	/**
+	 * Literal text at the start of all matching names, or an empty string.
+	 */
+	private final String prefix;
+
+	/**
+	 * Literal text at the end of all matching names, or an empty string.
+	 */
+	private final String suffix;
+
+	/**
+	 * Whether the pattern is only a literal name, which is checked with equals.
+	 */
+	private final boolean isLiteral;
+
+	/**
+	 * Create a matcher.
+	 * @param patternString the pattern, a glob or "java:" followed by a Java regular expression
+	 * @throws PatternSyntaxException if the pattern is invalid
+	 */
+	public GoogleDriveNameMatcher ( String patternString ) {
+		this.patternString = patternString;
+		if ( patternString.toUpperCase().startsWith("JAVA:") ) {
+			// Use as is for a Java regular expression.
+			this.pattern = Pattern.compile(patternString.substring(5));
+			this.prefix = "";
+			this.suffix = "";
+			this.isLiteral = false;
+			return;
+		}
+		// Determine the literal prefix and suffix:
+		// - the prefix is the text before the first special character
+		// - the suffix is the text after the last special character, unless escaped
+		int firstSpecial = -1;
+		int lastSpecialEnd = 0;
+		boolean escaped = false;
+		for ( int i = 0; i < patternString.length(); i++ ) {
+			char c = patternString.charAt(i);
+			if ( escaped ) {
+				escaped = false;
+				continue;
+			}
+			if ( (c == '\\') || (c == '*') || (c == '?') || (c == '[') || (c == ']') || (c == '{') || (c == '}') || (c == ',') ) {
+				if ( (c == ',') && (firstSpecial < 0) ) {
+					// Comma is only special in braces, which must start before it.
+					continue;
+				}
+				if ( firstSpecial < 0 ) {
+					firstSpecial = i;
+				}
+				lastSpecialEnd = i + 1;
+				if ( c == '\\' ) {
+					escaped = true;
+					// Escaped characters are not treated as a literal suffix, for simplicity.
+					lastSpecialEnd = i + 2;
+				}
+			}
+		}
+		if ( firstSpecial < 0 ) {
+			// No special characters so only need to check the name.
+			this.prefix = patternString;
+			this.suffix = "";
+			this.isLiteral = true;
+			this.pattern = null;
+			return;
+		}
+		this.isLiteral = false;
+		this.prefix = patternString.substring(0, firstSpecial);
+		this.suffix = patternString.substring(Math.min(lastSpecialEnd, patternString.length()));
+		String middle = patternString.substring(firstSpecial, Math.min(lastSpecialEnd, patternString.length()));
+		if ( middle.replace("*", "").isEmpty() ) {
+			// Only * between the prefix and suffix so the prefix and suffix checks are sufficient.
+			this.pattern = null;
+		}
+		else {
+			// The regular expression only needs to match the middle,
+			// but match the full name so that the expression is easy to understand in messages.
+			this.pattern = Pattern.compile(Pattern.quote(this.prefix) + globToRegex(middle) + Pattern.quote(this.suffix));
+		}
+	}
+
+	/**
+	 * Create a matcher for a command parameter value.
+	 * @param parameterValue the parameter value, a glob or "java:" followed by a Java regular expression
+	 * @return the matcher, or null if the parameter value is null or empty
+	 * @throws PatternSyntaxException if the pattern is invalid
+	 */
+	public static GoogleDriveNameMatcher fromParameter ( String parameterValue ) {
+		if ( (parameterValue == null) || parameterValue.isEmpty() ) {
+			return null;
+		}
+		return new GoogleDriveNameMatcher ( parameterValue );
+	}
+
+	/**
+	 * Convert a glob to a Java regular expression.
+	 * @param glob the glob to convert
+	 * @return the Java regular expression
+	 * @throws PatternSyntaxException if the glob is invalid, for example has an unclosed [ or {
+	 */
+	public static String globToRegex ( String glob ) {
+		StringBuilder regex = new StringBuilder();
+		// Depth of {} nesting.
+		int braceDepth = 0;
+		for ( int i = 0; i < glob.length(); i++ ) {
+			char c = glob.charAt(i);
+			if ( c == '\\' ) {
+				// Escape the next character.
+				if ( ++i < glob.length() ) {
+					regex.append(Pattern.quote("" + glob.charAt(i)));
+				}
+				else {
+					// Trailing backslash is literal.
+					regex.append("\\\\");
+				}
+			}
+			else if ( c == '*' ) {
+				regex.append(".*");
+			}
+			else if ( c == '?' ) {
+				regex.append(".");
+			}
+			else if ( c == '[' ) {
+				regex.append('[');
+				int j = i + 1;
+				if ( (j < glob.length()) && ((glob.charAt(j) == '!') || (glob.charAt(j) == '^')) ) {
+					regex.append('^');
+					++j;
+				}
+				// A ] at the start of the set is literal.
+				int end = glob.indexOf(']', j + 1);
+				if ( end < 0 ) {
+					throw new PatternSyntaxException("Unclosed character class", glob, i);
+				}
+				for ( ; j < end; j++ ) {
+					char cc = glob.charAt(j);
+					if ( (cc == '\\') || (cc == '[') || (cc == '&') || ((cc == '^') && (j > i + 1)) ) {
+						// Escape characters that are special in a Java character class.
+						regex.append('\\');
+					}
+					regex.append(cc);
+				}
+				regex.append(']');
+				i = end;
+			}
+			else if ( c == '{' ) {
+				regex.append("(?:");
+				++braceDepth;
+			}
+			else if ( (c == '}') && (braceDepth > 0) ) {
+				regex.append(')');
+				--braceDepth;
+			}
+			else if ( (c == ',') && (braceDepth > 0) ) {
+				regex.append('|');
+			}
+			else if ( "\\.^$|+()[]{}".indexOf(c) >= 0 ) {
+				// Other characters that are special in a regular expression.
+				regex.append('\\').append(c);
+			}
+			else {
+				regex.append(c);
+			}
+		}
+		if ( braceDepth > 0 ) {
+			throw new PatternSyntaxException("Unclosed {", glob, glob.length() - 1);
+		}
+		return regex.toString();
+	}
+
+	/**
+	 * Determine whether a name matches the pattern.
+	 * @param name the name to check
+	 * @return true if the name matches, false if not or the name is null
+	 */
+	public boolean matches ( String name ) {
+		if ( name == null ) {
+			return false;
+		}
+		if ( this.isLiteral ) {
+			return name.equals(this.prefix);
+		}
+		// Check the literal parts first since they are fast and will exclude most names.
+		if ( (name.length() < (this.prefix.length() + this.suffix.length()))
+			|| !name.startsWith(this.prefix) || !name.endsWith(this.suffix) ) {
+			return false;
+		}
+		if ( this.pattern == null ) {
+			return true;
+		}
+		return this.pattern.matcher(name).matches();
+	}
+
+	/**
+	 * Return a Google Drive query clause that selects a superset of the matching names,
+	 * so that the server does not return files that cannot match.
+	 * Names must still be checked with matches() because the clause may select names that do not match:
+	 * <ul>
+	 * <li>a literal pattern is returned as "name = 'literal'"</li>
+	 * <li>a glob with a literal prefix is returned as "name contains 'prefix'",
+	 *     which Google Drive evaluates as a case-insensitive prefix match</li>
+	 * <li>other globs and Java regular expressions cannot be expressed and null is returned</li>
+	 * </ul>
+	 * @return the query clause, or null if the pattern cannot be expressed as a query
+	 */
+	public String toQueryClause () {
+		if ( this.isLiteral ) {
+			return "name = '" + escapeQueryValue(this.prefix) + "'";
+		}
+		else if ( !this.prefix.isEmpty() ) {
+			// Java regular expressions have an empty prefix so are not handled here.
+			return "name contains '" + escapeQueryValue(this.prefix) + "'";
+		}
+		return null;
+	}
+
+	/**
+	 * Escape a string value for use in a Google Drive query, where single quotes and backslashes are escaped with a backslash.
+	 * @param value the value to escape
+	 * @return the escaped value
+	 */
+	public static String escapeQueryValue ( String value ) {
+		return value.replace("\\", "\\\\").replace("'", "\\'");
+	}
+
+	/**
+	 * Return the original pattern.
+	 * @return the original pattern
+	 */
+	@Override
+	public String toString () {
+		return this.patternString;
+	}
+}
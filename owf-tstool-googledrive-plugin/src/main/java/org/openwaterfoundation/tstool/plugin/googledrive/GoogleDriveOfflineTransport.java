@@ -0,0 +1,1075 @@
+// GoogleDriveOfflineTransport - offline stand-in for the Google Drive API, for testing without network access
+
+/* NoticeStart
+
+OWF TSTool Google Drive Plugin
+Copyright (C) 2023 Open Water Foundation
+
+OWF TSTool Google Drive Plugin is free software:  you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+OWF TSTool Google Drive Plugin is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+    along with OWF TSTool Google Drive Plugin.  If not, see <https://www.gnu.org/licenses/>.
+
+NoticeEnd */
+
+package org.openwaterfoundation.tstool.plugin.googledrive;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Random;
+import java.util.function.Predicate;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.google.api.client.http.LowLevelHttpRequest;
+import com.google.api.client.http.LowLevelHttpResponse;
+import com.google.api.client.json.JsonFactory;
+import com.google.api.client.testing.http.MockHttpTransport;
+import com.google.api.client.testing.http.MockLowLevelHttpRequest;
+import com.google.api.client.testing.http.MockLowLevelHttpResponse;
+
+import RTi.Util.Message.Message;
+
+/**
+ * Offline stand-in for the Google Drive v3 API, used by sessions with the "Offline" authentication method
+ * so that commands can be tested and measured without credentials or network access.
+ * The transport serves a synthetic tree of folders and files that is generated from configuration properties:
+ * <ul>
+ * <li>"My Drive", containing the tree</li>
+ * <li>shared drives named "shared-drive-1", etc., each containing the tree</li>
+ * <li>shared with me folders named "shared-folder-1", etc., each containing the tree</li>
+ * </ul>
+ * The following requests are handled, including paging, the "q" query syntax that is used by the plugin,
+ * and the "fields" parameter:
+ * files.list, files.get (including alt=media downloads with Range), files.export, drives.list, drives.get,
+ * changes.getStartPageToken, changes.list, and batches of the above.
+ * Other requests return a 501 error.
+ * Latency and transient errors (503 and 429) can be added to measure throughput and test retries.
+ * Errors are injected for the requests in a batch rather than the batch itself, similar to Google Drive.
+ * The configuration properties and defaults are:
+ * <ul>
+ * <li>FolderDepth=2 - number of folder levels below each root</li>
+ * <li>FoldersPerFolder=3 - number of subfolders in each folder, except the deepest folders</li>
+ * <li>FilesPerFolder=10 - number of files in each folder, including roots</li>
+ * <li>SheetsPerFolder=0 - number of Google Sheets in each folder, which can be exported but not downloaded</li>
+ * <li>FileSize=1024 - size of each file, bytes</li>
+ * <li>SharedDrives=2 - number of shared drives</li>
+ * <li>SharedWithMeFolders=1 - number of shared with me folders</li>
+ * <li>ChangeCount=(number of files) - number of changes after the start page token</li>
+ * <li>LatencyMs=0 - time added to each response, milliseconds</li>
+ * <li>ErrorRate=0.0 - fraction of requests that fail with 503</li>
+ * <li>RateLimitErrorRate=0.0 - fraction of requests that fail with 429</li>
+ * <li>Seed=1 - random number seed for errors, so that runs are reproducible</li>
+ * </ul>
+ */
+public class GoogleDriveOfflineTransport extends MockHttpTransport {
+
+	/**
+	 * Google Drive folder MIME type.
+	 */
+	private static final String FOLDER_MIME_TYPE = "application/vnd.google-apps.folder";
+
+	/**
+	 * MIME type for synthetic files.
+	 */
+	private static final String FILE_MIME_TYPE = "text/csv";
+
+	/**
+	 * ID of the My Drive root folder, which can also be requested as "root".
+	 */
+	public static final String MY_DRIVE_ROOT_ID = "offline-root";
+
+	/**
+	 * Time for the first synthetic file, and later files are one minute apart.
+	 */
+	private static final long BASE_TIME_MS = Instant.parse("2023-01-01T00:00:00Z").toEpochMilli();
+
+	/**
+	 * URL prefix for Drive API requests.
+	 */
+	private static final String API_PATH = "/drive/v3/";
+
+	/**
+	 * URL path for batch requests.
+	 */
+	private static final String BATCH_PATH = "/batch/drive/v3";
+
+	/**
+	 * Default and maximum page sizes for files.list.
+	 */
+	private static final int DEFAULT_PAGE_SIZE = 100;
+	private static final int MAX_PAGE_SIZE = 1000;
+
+	/**
+	 * Pattern to match an 'id' in parents clause, to limit the files that are checked for a query.
+	 */
+	private static final Pattern IN_PARENTS_PATTERN = Pattern.compile("'([^']*)'\\s+in\\s+parents");
+
+	/**
+	 * JSON factory used to format responses.
+	 */
+	private final JsonFactory jsonFactory;
+
+	/**
+	 * Configuration.
+	 */
+	private final int folderDepth;
+	private final int foldersPerFolder;
+	private final int filesPerFolder;
+	private final int sheetsPerFolder;
+	private final long fileSize;
+	private final int sharedDriveCount;
+	private final int sharedWithMeFolderCount;
+	private final long latencyMs;
+	private final double errorRate;
+	private final double rateLimitErrorRate;
+
+	/**
+	 * Number of changes after the start page token.
+	 */
+	private final int changeCount;
+
+	/**
+	 * Random number generator for errors, synchronized on itself.
+	 */
+	private final Random random;
+
+	/**
+	 * All files and folders, in creation order, as JSON objects.
+	 */
+	private final List<Map<String,Object>> files = new ArrayList<>();
+
+	/**
+	 * Files and folders by ID.
+	 */
+	private final Map<String,Map<String,Object>> filesById = new HashMap<>();
+
+	/**
+	 * Files and folders in each folder, by the folder ID.
+	 */
+	private final Map<String,List<Map<String,Object>>> filesByParent = new HashMap<>();
+
+	/**
+	 * Shared drives, as JSON objects.
+	 */
+	private final List<Map<String,Object>> drives = new ArrayList<>();
+
+	/**
+	 * MD5 checksum of the synthetic file content, which is the same for all files.
+	 */
+	private final String md5Checksum;
+
+	/**
+	 * Create the transport.
+	 * @param jsonFactory JSON factory used to format responses
+	 * @param properties configuration properties, as described in the class documentation
+	 */
+	public GoogleDriveOfflineTransport ( JsonFactory jsonFactory, Properties properties ) {
+		String routine = getClass().getSimpleName();
+		this.jsonFactory = jsonFactory;
+		this.folderDepth = Integer.parseInt(properties.getProperty("FolderDepth", "2"));
+		this.foldersPerFolder = Integer.parseInt(properties.getProperty("FoldersPerFolder", "3"));
+		this.filesPerFolder = Integer.parseInt(properties.getProperty("FilesPerFolder", "10"));
+		this.sheetsPerFolder = Integer.parseInt(properties.getProperty("SheetsPerFolder", "0"));
+		this.fileSize = Long.parseLong(properties.getProperty("FileSize", "1024"));
+		this.sharedDriveCount = Integer.parseInt(properties.getProperty("SharedDrives", "2"));
+		this.sharedWithMeFolderCount = Integer.parseInt(properties.getProperty("SharedWithMeFolders", "1"));
+		this.latencyMs = Long.parseLong(properties.getProperty("LatencyMs", "0"));
+		this.errorRate = Double.parseDouble(properties.getProperty("ErrorRate", "0.0"));
+		this.rateLimitErrorRate = Double.parseDouble(properties.getProperty("RateLimitErrorRate", "0.0"));
+		this.random = new Random(Long.parseLong(properties.getProperty("Seed", "1")));
+		this.md5Checksum = computeMd5Checksum(this.fileSize);
+
+		// My Drive.
+		Map<String,Object> myDrive = createFile(MY_DRIVE_ROOT_ID, "My Drive", FOLDER_MIME_TYPE, null, null, false);
+		addTree(myDrive, null, false, 0);
+
+		// Shared drives:
+		// - the drive ID is also the ID of the root folder
+		for ( int i = 1; i <= this.sharedDriveCount; i++ ) {
+			Map<String,Object> drive = new LinkedHashMap<>();
+			drive.put("kind", "drive#drive");
+			drive.put("id", "shared-drive-" + i);
+			drive.put("name", "shared-drive-" + i);
+			drive.put("createdTime", Instant.ofEpochMilli(BASE_TIME_MS).toString());
+			drive.put("hidden", Boolean.FALSE);
+			this.drives.add(drive);
+			Map<String,Object> driveRoot = createFile((String)drive.get("id"), (String)drive.get("name"),
+				FOLDER_MIME_TYPE, null, (String)drive.get("id"), false);
+			addTree(driveRoot, (String)drive.get("id"), false, 0);
+		}
+
+		// Shared with me folders:
+		// - the folders have no parent because they are not in the user's drive
+		for ( int i = 1; i <= this.sharedWithMeFolderCount; i++ ) {
+			Map<String,Object> sharedFolder = createFile("shared-folder-" + i, "shared-folder-" + i,
+				FOLDER_MIME_TYPE, null, null, true);
+			sharedFolder.put("sharedWithMeTime", Instant.ofEpochMilli(BASE_TIME_MS).toString());
+			sharedFolder.put("sharingUser", createUser("Offline Sharing User", "offline.sharing.user@example.org", false));
+			addTree(sharedFolder, null, true, 0);
+		}
+
+		this.changeCount = Integer.parseInt(properties.getProperty("ChangeCount", "" + this.files.size()));
+		Message.printStatus(2, routine, "Created offline Google Drive with " + this.files.size() + " files and folders, "
+			+ this.drives.size() + " shared drives, latency " + this.latencyMs + " ms, error rate " + this.errorRate
+			+ ", rate limit error rate " + this.rateLimitErrorRate + ".");
+	}
+
+	/**
+	 * Add the files and folders in a folder, recursively.
+	 * @param folder the folder to add to
+	 * @param driveId the shared drive ID, or null if not in a shared drive
+	 * @param shared whether the files are shared with the user (owned by another user)
+	 * @param depth the depth of the folder, zero for a root
+	 */
+	private void addTree ( Map<String,Object> folder, String driveId, boolean shared, int depth ) {
+		String folderId = (String)folder.get("id");
+		for ( int i = 1; i <= this.filesPerFolder; i++ ) {
+			createFile(folderId + "-f" + i, "file" + i + ".csv", FILE_MIME_TYPE, folderId, driveId, shared);
+		}
+		for ( int i = 1; i <= this.sheetsPerFolder; i++ ) {
+			createFile(folderId + "-s" + i, "sheet" + i, GoogleDriveExportFormatType.SPREADSHEET, folderId, driveId, shared);
+		}
+		if ( depth < this.folderDepth ) {
+			for ( int i = 1; i <= this.foldersPerFolder; i++ ) {
+				Map<String,Object> subfolder = createFile(folderId + "-d" + i, "folder" + i, FOLDER_MIME_TYPE,
+					folderId, driveId, shared);
+				addTree(subfolder, driveId, shared, depth + 1);
+			}
+		}
+	}
+
+	/**
+	 * Wait for the configured latency.
+	 * @throws InterruptedIOException if interrupted while waiting
+	 */
+	private void applyLatency () throws InterruptedIOException {
+		if ( this.latencyMs > 0 ) {
+			try {
+				Thread.sleep(this.latencyMs);
+			}
+			catch ( InterruptedException e ) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException("Interrupted while waiting for the offline response.");
+			}
+		}
+	}
+
+	/**
+	 * Determine whether to return an injected error for a request.
+	 * @return an error response, or null if the request should be handled
+	 */
+	private MockLowLevelHttpResponse injectError () {
+		double r;
+		synchronized ( this.random ) {
+			r = this.random.nextDouble();
+		}
+		if ( r < this.errorRate ) {
+			return createErrorResponse(503, "backendError", "Offline injected server error.");
+		}
+		else if ( r < (this.errorRate + this.rateLimitErrorRate) ) {
+			return createErrorResponse(429, "rateLimitExceeded", "Offline injected rate limit error.");
+		}
+		return null;
+	}
+
+	/**
+	 * Build a request, which is handled when executed.
+	 * @param method the HTTP method
+	 * @param url the request URL
+	 */
+	@Override
+	public LowLevelHttpRequest buildRequest ( String method, String url ) {
+		return new MockLowLevelHttpRequest(url) {
+			@Override
+			public LowLevelHttpResponse execute () throws IOException {
+				applyLatency();
+				if ( new java.net.URL(url).getPath().equals(BATCH_PATH) ) {
+					// Errors are injected for the requests in the batch, similar to Google Drive.
+					return handleBatch(getContentType(), getContentAsString());
+				}
+				MockLowLevelHttpResponse response = injectError();
+				if ( response != null ) {
+					return response;
+				}
+				return handle(method, url, getFirstHeaderValue("Range"));
+			}
+		};
+	}
+
+	/**
+	 * Compute the MD5 checksum of synthetic file content.
+	 * @param size the file size
+	 * @return the checksum as a hexadecimal string
+	 */
+	private static String computeMd5Checksum ( long size ) {
+		try {
+			MessageDigest md = MessageDigest.getInstance("MD5");
+			byte [] buffer = new byte[8192];
+			try ( InputStream in = new SyntheticContentInputStream(0, size) ) {
+				int n;
+				while ( (n = in.read(buffer)) > 0 ) {
+					md.update(buffer, 0, n);
+				}
+			}
+			StringBuilder b = new StringBuilder();
+			for ( byte d : md.digest() ) {
+				b.append(String.format("%02x", d));
+			}
+			return b.toString();
+		}
+		catch ( IOException | NoSuchAlgorithmException e ) {
+			return null;
+		}
+	}
+
+	/**
+	 * Create an error response, formatted like a Google API error.
+	 * @param statusCode the HTTP status code
+	 * @param reason the error reason
+	 * @param message the error message
+	 * @return the response
+	 */
+	private MockLowLevelHttpResponse createErrorResponse ( int statusCode, String reason, String message ) {
+		Map<String,Object> error = new LinkedHashMap<>();
+		Map<String,Object> errorItem = new LinkedHashMap<>();
+		errorItem.put("domain", "global");
+		errorItem.put("reason", reason);
+		errorItem.put("message", message);
+		error.put("code", statusCode);
+		error.put("message", message);
+		error.put("errors", Collections.singletonList(errorItem));
+		return createJsonResponse(statusCode, Collections.singletonMap("error", error));
+	}
+
+	/**
+	 * Create a file or folder and add to the tree.
+	 * @param id the file ID
+	 * @param name the file name
+	 * @param mimeType the MIME type
+	 * @param parentId the parent folder ID, or null if none
+	 * @param driveId the shared drive ID, or null if not in a shared drive
+	 * @param shared whether the file is shared with the user (owned by another user)
+	 * @return the file
+	 */
+	private Map<String,Object> createFile ( String id, String name, String mimeType, String parentId,
+		String driveId, boolean shared ) {
+		Map<String,Object> file = new LinkedHashMap<>();
+		String time = Instant.ofEpochMilli(BASE_TIME_MS + this.files.size()*60000L).toString();
+		Map<String,Object> user;
+		if ( shared ) {
+			user = createUser("Offline Sharing User", "offline.sharing.user@example.org", false);
+		}
+		else {
+			user = createUser("Offline User", "offline.user@example.org", true);
+		}
+		file.put("kind", "drive#file");
+		file.put("id", id);
+		file.put("name", name);
+		file.put("mimeType", mimeType);
+		if ( parentId != null ) {
+			file.put("parents", Collections.singletonList(parentId));
+		}
+		if ( driveId != null ) {
+			file.put("driveId", driveId);
+		}
+		else {
+			// Shared drive files do not have owners.
+			file.put("owners", Collections.singletonList(user));
+			file.put("ownedByMe", !shared);
+		}
+		file.put("createdTime", time);
+		file.put("modifiedTime", time);
+		file.put("lastModifyingUser", user);
+		file.put("shared", shared);
+		file.put("trashed", Boolean.FALSE);
+		if ( GoogleDriveExportFormatType.isWorkspaceMimeType(mimeType) ) {
+			// Google Workspace files do not have a size or checksum.
+			file.put("webViewLink", "https://docs.google.com/spreadsheets/d/" + id + "/edit");
+		}
+		else if ( !FOLDER_MIME_TYPE.equals(mimeType) ) {
+			// Sizes are formatted as strings, as returned by Google Drive.
+			file.put("size", "" + this.fileSize);
+			file.put("md5Checksum", this.md5Checksum);
+			file.put("originalFilename", name);
+			file.put("webViewLink", "https://drive.google.com/file/d/" + id + "/view");
+		}
+		else {
+			file.put("webViewLink", "https://drive.google.com/drive/folders/" + id);
+		}
+		this.files.add(file);
+		this.filesById.put(id, file);
+		if ( parentId != null ) {
+			this.filesByParent.computeIfAbsent(parentId, k -> new ArrayList<>()).add(file);
+		}
+		return file;
+	}
+
+	/**
+	 * Create a JSON response.
+	 * @param statusCode the HTTP status code
+	 * @param content the content to format as JSON
+	 * @return the response
+	 */
+	private MockLowLevelHttpResponse createJsonResponse ( int statusCode, Object content ) {
+		String json;
+		try {
+			json = this.jsonFactory.toString(content);
+		}
+		catch ( IOException e ) {
+			// Should not happen for maps and lists.
+			throw new RuntimeException(e);
+		}
+		return new MockLowLevelHttpResponse()
+			.setStatusCode(statusCode)
+			.setContentType("application/json; charset=UTF-8")
+			.setContent(json);
+	}
+
+	/**
+	 * Create a user.
+	 * @param displayName the display name
+	 * @param emailAddress the email address
+	 * @param me whether the user is the authenticated user
+	 * @return the user
+	 */
+	private Map<String,Object> createUser ( String displayName, String emailAddress, boolean me ) {
+		Map<String,Object> user = new LinkedHashMap<>();
+		user.put("kind", "drive#user");
+		user.put("displayName", displayName);
+		user.put("emailAddress", emailAddress);
+		user.put("me", me);
+		return user;
+	}
+
+	/**
+	 * Filter an object to include only the requested fields.
+	 * @param object the object to filter, a map, list of maps, or other value
+	 * @param fields the requested fields, with nested fields as the values, or null to include all fields
+	 * @return the filtered object
+	 */
+	@SuppressWarnings("unchecked")
+	private Object filterFields ( Object object, Map<String,Object> fields ) {
+		if ( (fields == null) || fields.containsKey("*") ) {
+			return object;
+		}
+		if ( object instanceof List ) {
+			List<Object> filtered = new ArrayList<>();
+			for ( Object item : (List<Object>)object ) {
+				filtered.add(filterFields(item, fields));
+			}
+			return filtered;
+		}
+		else if ( object instanceof Map ) {
+			Map<String,Object> map = (Map<String,Object>)object;
+			Map<String,Object> filtered = new LinkedHashMap<>();
+			for ( Map.Entry<String,Object> field : fields.entrySet() ) {
+				Object value = map.get(field.getKey());
+				if ( value != null ) {
+					filtered.put(field.getKey(), filterFields(value, (Map<String,Object>)field.getValue()));
+				}
+			}
+			return filtered;
+		}
+		return object;
+	}
+
+	/**
+	 * Return the files that match a query.
+	 * @param q the query, or null to match all files
+	 * @return the matching files
+	 * @throws IllegalArgumentException if the query is invalid
+	 */
+	private List<Map<String,Object>> findFiles ( String q ) {
+		if ( (q == null) || q.trim().isEmpty() ) {
+			return this.files;
+		}
+		Predicate<Map<String,Object>> predicate = new QueryParser(q).parse();
+		// Only check the files in the parent folder if a single parent is required.
+		List<Map<String,Object>> candidates = this.files;
+		Matcher m = IN_PARENTS_PATTERN.matcher(q);
+		if ( m.find() && !m.find() && !q.toLowerCase().contains(" or ") && !q.toLowerCase().contains("not ") ) {
+			m.reset();
+			m.find();
+			candidates = this.filesByParent.getOrDefault(resolveId(m.group(1)), Collections.emptyList());
+		}
+		List<Map<String,Object>> matched = new ArrayList<>();
+		for ( Map<String,Object> file : candidates ) {
+			if ( predicate.test(file) ) {
+				matched.add(file);
+			}
+		}
+		return matched;
+	}
+
+	/**
+	 * Return a page of a list.
+	 * @param list the full list
+	 * @param pageToken the page token, which is the index of the first item, or null for the first page
+	 * @param pageSize the page size
+	 * @return the page
+	 */
+	private <T> List<T> getPage ( List<T> list, String pageToken, int pageSize ) {
+		int start = (pageToken == null) ? 0 : Integer.parseInt(pageToken);
+		return list.subList(Math.min(start, list.size()), Math.min(start + pageSize, list.size()));
+	}
+
+	/**
+	 * Return the next page token.
+	 * @param listSize the size of the full list
+	 * @param pageToken the page token for the current page, or null for the first page
+	 * @param pageSize the page size
+	 * @return the next page token, or null if the current page is the last page
+	 */
+	private String getNextPageToken ( int listSize, String pageToken, int pageSize ) {
+		int next = ((pageToken == null) ? 0 : Integer.parseInt(pageToken)) + pageSize;
+		return (next < listSize) ? ("" + next) : null;
+	}
+
+	/**
+	 * Handle a request.
+	 * @param method the HTTP method
+	 * @param url the request URL
+	 * @param range the Range header value, or null if not specified
+	 * @return the response
+	 */
+	private MockLowLevelHttpResponse handle ( String method, String url, String range ) throws IOException {
+		java.net.URL u = new java.net.URL(url);
+		String path = URLDecoder.decode(u.getPath(), StandardCharsets.UTF_8.name());
+		Map<String,String> params = parseQueryString(u.getQuery());
+		if ( !method.equals("GET") || !path.startsWith(API_PATH) ) {
+			return createErrorResponse(501, "notImplemented", "The offline Google Drive does not implement: " + method + " " + path);
+		}
+		String [] parts = path.substring(API_PATH.length()).split("/");
+		Map<String,Object> fields = parseFields(params.get("fields"));
+		int pageSize = params.containsKey("pageSize") ? Integer.parseInt(params.get("pageSize")) : DEFAULT_PAGE_SIZE;
+		pageSize = Math.max(1, Math.min(pageSize, MAX_PAGE_SIZE));
+		String pageToken = params.get("pageToken");
+		try {
+			if ( parts[0].equals("files") && (parts.length == 1) ) {
+				// files.list
+				List<Map<String,Object>> matched = findFiles(params.get("q"));
+				Map<String,Object> result = new LinkedHashMap<>();
+				result.put("kind", "drive#fileList");
+				String nextPageToken = getNextPageToken(matched.size(), pageToken, pageSize);
+				if ( nextPageToken != null ) {
+					result.put("nextPageToken", nextPageToken);
+				}
+				result.put("incompleteSearch", Boolean.FALSE);
+				result.put("files", getPage(matched, pageToken, pageSize));
+				return createJsonResponse(200, filterFields(result, fields));
+			}
+			else if ( parts[0].equals("files") && (parts.length == 2) ) {
+				// files.get
+				Map<String,Object> file = this.filesById.get(resolveId(parts[1]));
+				if ( file == null ) {
+					return createErrorResponse(404, "notFound", "File not found: " + parts[1] + ".");
+				}
+				if ( "media".equals(params.get("alt")) ) {
+					return handleDownload(file, range);
+				}
+				return createJsonResponse(200, filterFields(file, fields));
+			}
+			else if ( parts[0].equals("files") && (parts.length == 3) && parts[2].equals("export") ) {
+				// files.export
+				Map<String,Object> file = this.filesById.get(resolveId(parts[1]));
+				if ( file == null ) {
+					return createErrorResponse(404, "notFound", "File not found: " + parts[1] + ".");
+				}
+				return handleExport(file, params.get("mimeType"));
+			}
+			else if ( parts[0].equals("drives") && (parts.length == 1) ) {
+				// drives.list
+				List<Map<String,Object>> matched = new ArrayList<>();
+				String q = params.get("q");
+				Predicate<Map<String,Object>> predicate = (q == null) ? (d -> true) : new QueryParser(q).parse();
+				for ( Map<String,Object> drive : this.drives ) {
+					if ( predicate.test(drive) ) {
+						matched.add(drive);
+					}
+				}
+				Map<String,Object> result = new LinkedHashMap<>();
+				result.put("kind", "drive#driveList");
+				String nextPageToken = getNextPageToken(matched.size(), pageToken, pageSize);
+				if ( nextPageToken != null ) {
+					result.put("nextPageToken", nextPageToken);
+				}
+				result.put("drives", getPage(matched, pageToken, pageSize));
+				return createJsonResponse(200, filterFields(result, fields));
+			}
+			else if ( parts[0].equals("drives") && (parts.length == 2) ) {
+				// drives.get
+				for ( Map<String,Object> drive : this.drives ) {
+					if ( drive.get("id").equals(parts[1]) ) {
+						return createJsonResponse(200, filterFields(drive, fields));
+					}
+				}
+				return createErrorResponse(404, "notFound", "Shared drive not found: " + parts[1] + ".");
+			}
+			else if ( parts[0].equals("changes") && (parts.length == 2) && parts[1].equals("startPageToken") ) {
+				// changes.getStartPageToken:
+				// - the changes are listed starting with token 1
+				Map<String,Object> result = new LinkedHashMap<>();
+				result.put("kind", "drive#startPageToken");
+				result.put("startPageToken", "1");
+				return createJsonResponse(200, filterFields(result, fields));
+			}
+			else if ( parts[0].equals("changes") && (parts.length == 1) ) {
+				// changes.list:
+				// - the page token is the change number starting with 1, with a change for each file in order
+				int start = Integer.parseInt(params.get("pageToken"));
+				int end = Math.min(start + pageSize, this.changeCount + 1);
+				List<Map<String,Object>> changes = new ArrayList<>();
+				for ( int i = start; i < end; i++ ) {
+					Map<String,Object> file = this.files.get((i - 1) % this.files.size());
+					Map<String,Object> change = new LinkedHashMap<>();
+					change.put("kind", "drive#change");
+					change.put("changeType", "file");
+					change.put("removed", Boolean.FALSE);
+					change.put("fileId", file.get("id"));
+					change.put("time", file.get("modifiedTime"));
+					change.put("file", file);
+					changes.add(change);
+				}
+				Map<String,Object> result = new LinkedHashMap<>();
+				result.put("kind", "drive#changeList");
+				if ( end <= this.changeCount ) {
+					result.put("nextPageToken", "" + end);
+				}
+				else {
+					result.put("newStartPageToken", "" + Math.max(start, this.changeCount + 1));
+				}
+				result.put("changes", changes);
+				return createJsonResponse(200, filterFields(result, fields));
+			}
+		}
+		catch ( IllegalArgumentException e ) {
+			return createErrorResponse(400, "invalid", "Invalid request: " + e.getMessage());
+		}
+		return createErrorResponse(501, "notImplemented", "The offline Google Drive does not implement: " + method + " " + path);
+	}
+
+	/**
+	 * Handle a batch request, which contains multiple requests as multipart content.
+	 * @param contentType the request content type, which includes the boundary
+	 * @param content the request content
+	 * @return the response with multipart content
+	 */
+	private MockLowLevelHttpResponse handleBatch ( String contentType, String content ) throws IOException {
+		String boundary = contentType.substring(contentType.indexOf("boundary=") + "boundary=".length()).replace("\"", "");
+		String responseBoundary = "batch_offline";
+		StringBuilder b = new StringBuilder();
+		int partCount = 0;
+		for ( String part : content.split("--" + Pattern.quote(boundary)) ) {
+			// The request line is after the part headers, for example "GET https://.../files/ID?fields=name HTTP/1.1".
+			String requestLine = null;
+			for ( String line : part.split("\r?\n") ) {
+				if ( line.startsWith("GET ") || line.startsWith("POST ") || line.startsWith("PATCH ") || line.startsWith("DELETE ") ) {
+					requestLine = line;
+					break;
+				}
+			}
+			if ( requestLine == null ) {
+				continue;
+			}
+			++partCount;
+			String [] tokens = requestLine.split(" ");
+			String url = tokens[1].startsWith("/") ? ("https://www.googleapis.com" + tokens[1]) : tokens[1];
+			MockLowLevelHttpResponse response = injectError();
+			if ( response == null ) {
+				response = handle(tokens[0], url, null);
+			}
+			b.append("--").append(responseBoundary).append("\r\n");
+			b.append("Content-Type: application/http\r\n");
+			b.append("Content-ID: <response-").append(partCount).append(">\r\n\r\n");
+			b.append("HTTP/1.1 ").append(response.getStatusCode()).append(" ")
+				.append((response.getStatusCode() < 300) ? "OK" : "Error").append("\r\n");
+			b.append("Content-Type: application/json; charset=UTF-8\r\n\r\n");
+			try ( InputStream in = response.getContent() ) {
+				b.append(new String(in.readAllBytes(), StandardCharsets.UTF_8));
+			}
+			b.append("\r\n");
+		}
+		b.append("--").append(responseBoundary).append("--\r\n");
+		return new MockLowLevelHttpResponse()
+			.setStatusCode(200)
+			.setContentType("multipart/mixed; boundary=" + responseBoundary)
+			.setContent(b.toString());
+	}
+
+	/**
+	 * Handle a download request, returning synthetic content for the requested range.
+	 * @param file the file to download
+	 * @param range the Range header value, for example "bytes=0-1023", or null for the full file
+	 * @return the response
+	 */
+	private MockLowLevelHttpResponse handleDownload ( Map<String,Object> file, String range ) {
+		if ( ((String)file.get("mimeType")).startsWith(GoogleDriveExportFormatType.WORKSPACE_MIME_TYPE_PREFIX) ) {
+			return createErrorResponse(403, "fileNotDownloadable", "Only files with binary content can be downloaded.");
+		}
+		long size = Long.parseLong((String)file.get("size"));
+		MockLowLevelHttpResponse response = new MockLowLevelHttpResponse();
+		response.setContentType(FILE_MIME_TYPE);
+		if ( (range != null) && range.startsWith("bytes=") && (size > 0) ) {
+			String [] rangeParts = range.substring("bytes=".length()).split("-");
+			long start = Long.parseLong(rangeParts[0]);
+			long end = ((rangeParts.length > 1) && !rangeParts[1].isEmpty()) ? Long.parseLong(rangeParts[1]) : (size - 1);
+			end = Math.min(end, size - 1);
+			if ( start > end ) {
+				return createErrorResponse(416, "requestedRangeNotSatisfiable", "Request range not satisfiable.");
+			}
+			response.setStatusCode(206);
+			response.addHeader("Content-Range", "bytes " + start + "-" + end + "/" + size);
+			response.setContentLength(end - start + 1);
+			response.setContent(new SyntheticContentInputStream(start, end + 1));
+		}
+		else {
+			response.setStatusCode(200);
+			response.setContentLength(size);
+			response.setContent(new SyntheticContentInputStream(0, size));
+		}
+		return response;
+	}
+
+	/**
+	 * Handle an export request, returning synthetic content that is the configured file size.
+	 * @param file the file to export
+	 * @param mimeType the MIME type to export
+	 * @return the response
+	 */
+	private MockLowLevelHttpResponse handleExport ( Map<String,Object> file, String mimeType ) {
+		String fileMimeType = (String)file.get("mimeType");
+		if ( !GoogleDriveExportFormatType.isWorkspaceMimeType(fileMimeType) ) {
+			return createErrorResponse(403, "fileNotExportable", "Export only supports Docs Editors files.");
+		}
+		boolean supported = false;
+		for ( GoogleDriveExportFormatType format : GoogleDriveExportFormatType.values() ) {
+			if ( format.getMimeType().equals(mimeType) && format.supports(fileMimeType) ) {
+				supported = true;
+				break;
+			}
+		}
+		if ( !supported ) {
+			return createErrorResponse(400, "badRequest", "The requested conversion is not supported.");
+		}
+		// Google Drive does not return the content length for exports.
+		MockLowLevelHttpResponse response = new MockLowLevelHttpResponse();
+		response.setContentType(mimeType);
+		response.setStatusCode(200);
+		response.setContent(new SyntheticContentInputStream(0, this.fileSize));
+		return response;
+	}
+
+	/**
+	 * Parse the fields parameter, for example "nextPageToken, files(id, name, owners(displayName))".
+	 * @param fields the fields parameter, or null
+	 * @return the fields, with nested fields as the values (null to include all nested fields),
+	 * or null to include all fields
+	 */
+	private Map<String,Object> parseFields ( String fields ) {
+		if ( (fields == null) || fields.trim().isEmpty() ) {
+			return null;
+		}
+		int [] pos = { 0 };
+		return parseFields(fields, pos);
+	}
+
+	/**
+	 * Parse a list of fields, up to the closing parenthesis or end of the string.
+	 * @param fields the fields parameter
+	 * @param pos the position in the string, which is updated
+	 * @return the fields, with nested fields as the values
+	 */
+	private Map<String,Object> parseFields ( String fields, int [] pos ) {
+		Map<String,Object> parsed = new LinkedHashMap<>();
+		StringBuilder name = new StringBuilder();
+		while ( pos[0] < fields.length() ) {
+			char c = fields.charAt(pos[0]++);
+			if ( c == '(' ) {
+				parsed.put(name.toString().trim(), parseFields(fields, pos));
+				name.setLength(0);
+			}
+			else if ( c == ')' ) {
+				break;
+			}
+			else if ( c == ',' ) {
+				if ( name.toString().trim().length() > 0 ) {
+					parsed.put(name.toString().trim(), null);
+				}
+				name.setLength(0);
+			}
+			else {
+				name.append(c);
+			}
+		}
+		if ( name.toString().trim().length() > 0 ) {
+			parsed.put(name.toString().trim(), null);
+		}
+		return parsed;
+	}
+
+	/**
+	 * Parse a URL query string.
+	 * @param query the raw query string, or null
+	 * @return the decoded parameters
+	 */
+	private Map<String,String> parseQueryString ( String query ) throws IOException {
+		Map<String,String> params = new HashMap<>();
+		if ( query != null ) {
+			for ( String param : query.split("&") ) {
+				int pos = param.indexOf('=');
+				if ( pos > 0 ) {
+					params.put(URLDecoder.decode(param.substring(0, pos), StandardCharsets.UTF_8.name()),
+						URLDecoder.decode(param.substring(pos + 1), StandardCharsets.UTF_8.name()));
+				}
+			}
+		}
+		return params;
+	}
+
+	/**
+	 * Read the configuration properties file.
+	 * @param file the properties file, which is optional
+	 * @return the properties, empty if the file does not exist so that defaults are used
+	 * @throws IOException if the file exists and cannot be read
+	 */
+	public static Properties readProperties ( File file ) throws IOException {
+		Properties properties = new Properties();
+		if ( file.exists() ) {
+			try ( InputStream in = new FileInputStream(file) ) {
+				properties.load(in);
+			}
+		}
+		return properties;
+	}
+
+	/**
+	 * Resolve an ID, which converts the "root" alias to the My Drive root folder ID.
+	 * @param id the ID to resolve
+	 * @return the resolved ID
+	 */
+	private String resolveId ( String id ) {
+		return id.equals("root") ? MY_DRIVE_ROOT_ID : id;
+	}
+
+	/**
+	 * Parser for the query syntax, which converts a query into a predicate.
+	 * The following are supported, combined with "and", "or", "not", and parentheses:
+	 * 'id' in parents, name/mimeType = or != 'value', name contains 'value',
+	 * and trashed/sharedWithMe/hidden = true or false.
+	 * See: https://developers.google.com/drive/api/guides/ref-search-terms
+	 */
+	private class QueryParser {
+
+		/**
+		 * Tokens in the query.
+		 */
+		private final List<String> tokens = new ArrayList<>();
+
+		/**
+		 * Position of the next token.
+		 */
+		private int pos = 0;
+
+		/**
+		 * Create a parser for a query.
+		 * @param q the query
+		 */
+		public QueryParser ( String q ) {
+			// Tokens are quoted strings (with the quotes), operators, parentheses, and words.
+			Matcher m = Pattern.compile("'(?:\\\\.|[^'\\\\])*'|!=|=|\\(|\\)|[^\\s()=!']+").matcher(q);
+			while ( m.find() ) {
+				this.tokens.add(m.group());
+			}
+		}
+
+		/**
+		 * Return the next token.
+		 * @return the next token
+		 * @throws IllegalArgumentException if there are no more tokens
+		 */
+		private String next () {
+			if ( this.pos >= this.tokens.size() ) {
+				throw new IllegalArgumentException("Unexpected end of query.");
+			}
+			return this.tokens.get(this.pos++);
+		}
+
+		/**
+		 * Parse the query.
+		 * @return the predicate for the query
+		 * @throws IllegalArgumentException if the query is invalid
+		 */
+		public Predicate<Map<String,Object>> parse () {
+			Predicate<Map<String,Object>> predicate = parseOr();
+			if ( this.pos < this.tokens.size() ) {
+				throw new IllegalArgumentException("Unexpected \"" + this.tokens.get(this.pos) + "\" in query.");
+			}
+			return predicate;
+		}
+
+		private Predicate<Map<String,Object>> parseAnd () {
+			Predicate<Map<String,Object>> predicate = parseUnary();
+			while ( peekIs("and") ) {
+				++this.pos;
+				predicate = predicate.and(parseUnary());
+			}
+			return predicate;
+		}
+
+		private Predicate<Map<String,Object>> parseOr () {
+			Predicate<Map<String,Object>> predicate = parseAnd();
+			while ( peekIs("or") ) {
+				++this.pos;
+				predicate = predicate.or(parseAnd());
+			}
+			return predicate;
+		}
+
+		private Predicate<Map<String,Object>> parseUnary () {
+			String token = next();
+			if ( token.equalsIgnoreCase("not") ) {
+				return parseUnary().negate();
+			}
+			else if ( token.equals("(") ) {
+				Predicate<Map<String,Object>> predicate = parseOr();
+				if ( !next().equals(")") ) {
+					throw new IllegalArgumentException("Expecting ) in query.");
+				}
+				return predicate;
+			}
+			else if ( token.startsWith("'") ) {
+				// 'value' in parents
+				String value = unquote(token);
+				if ( !next().equalsIgnoreCase("in") || !next().equals("parents") ) {
+					throw new IllegalArgumentException("Expecting 'id' in parents in query.");
+				}
+				String parentId = resolveId(value);
+				return file -> {
+					Object parents = file.get("parents");
+					return (parents != null) && ((List<?>)parents).contains(parentId);
+				};
+			}
+			String field = token;
+			String operator = next();
+			String value = next();
+			if ( operator.equalsIgnoreCase("contains") ) {
+				String s = unquote(value).toLowerCase();
+				return file -> {
+					Object fieldValue = file.get(field);
+					return (fieldValue != null) && fieldValue.toString().toLowerCase().contains(s);
+				};
+			}
+			if ( !operator.equals("=") && !operator.equals("!=") ) {
+				throw new IllegalArgumentException("Operator \"" + operator + "\" is not supported in query.");
+			}
+			Predicate<Map<String,Object>> predicate;
+			if ( value.startsWith("'") ) {
+				String s = unquote(value);
+				predicate = file -> s.equals(file.get(field));
+			}
+			else if ( value.equalsIgnoreCase("true") || value.equalsIgnoreCase("false") ) {
+				boolean b = Boolean.parseBoolean(value);
+				if ( field.equals("sharedWithMe") ) {
+					predicate = file -> (file.get("sharedWithMeTime") != null) == b;
+				}
+				else {
+					predicate = file -> Boolean.valueOf(b).equals(file.getOrDefault(field, Boolean.FALSE));
+				}
+			}
+			else {
+				throw new IllegalArgumentException("Value \"" + value + "\" is not supported in query.");
+			}
+			return operator.equals("=") ? predicate : predicate.negate();
+		}
+
+		/**
+		 * Determine whether the next token is a word, case-independent.
+		 * @param word the word to check
+		 * @return true if the next token is the word
+		 */
+		private boolean peekIs ( String word ) {
+			return (this.pos < this.tokens.size()) && this.tokens.get(this.pos).equalsIgnoreCase(word);
+		}
+
+		/**
+		 * Remove the quotes and escapes from a quoted string.
+		 * @param token the quoted string
+		 * @return the string without quotes and escapes
+		 */
+		private String unquote ( String token ) {
+			return token.substring(1, token.length() - 1).replaceAll("\\\\(.)", "$1");
+		}
+	}
+
+	/**
+	 * Input stream for synthetic file content, which is lines of letters.
+	 * The content only depends on the position so that any range can be returned.
+	 */
+	private static class SyntheticContentInputStream extends InputStream {
+
+		/**
+		 * Position of the next byte.
+		 */
+		private long pos;
+
+		/**
+		 * Position after the last byte.
+		 */
+		private final long end;
+
+		/**
+		 * Create a stream for a range of the content.
+		 * @param start position of the first byte
+		 * @param end position after the last byte
+		 */
+		public SyntheticContentInputStream ( long start, long end ) {
+			this.pos = start;
+			this.end = end;
+		}
+
+		@Override
+		public int read () {
+			if ( this.pos >= this.end ) {
+				return -1;
+			}
+			long i = this.pos++;
+			return ((i % 64) == 63) ? '\n' : ('a' + (int)(i % 26));
+		}
+
+		@Override
+		public int read ( byte [] b, int off, int len ) {
+			if ( this.pos >= this.end ) {
+				return -1;
+			}
+			int n = (int)Math.min(len, this.end - this.pos);
+			for ( int i = 0; i < n; i++ ) {
+				b[off + i] = (byte)read();
+			}
+			return n;
+		}
+	}
+}
@@ -0,0 +1,271 @@
+// GoogleDrivePathCache - cache of Google Drive folder path to ID
+
+/* NoticeStart
+
+OWF TSTool Google Drive Plugin
+Copyright (C) 2023 Open Water Foundation
+
+OWF TSTool Google Drive Plugin is free software:  you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+OWF TSTool Google Drive Plugin is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+    along with OWF TSTool Google Drive Plugin.  If not, see <https://www.gnu.org/licenses/>.
+
+NoticeEnd */
+
+package org.openwaterfoundation.tstool.plugin.googledrive;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Cache of Google Drive folder path prefix to folder ID, owned by a GoogleDriveSession.
+ * Resolving a path requires one files().list() request per path part,
+ * so caching the prefixes avoids repeating the same requests for paths that share parent folders.
+ * The cache is bounded:
+ * - the least recently used entry is removed when the maximum size is exceeded
+ * - entries older than the time to live are ignored and removed
+ * Keys are the path root (e.g., "My Drive") followed by the path parts, separated by /.
+ * Methods are synchronized so that the cache can be used by multiple threads.
+ */
+public class GoogleDrivePathCache {
+
+	/**
+	 * Default maximum number of entries.
+	 */
+	public static final int DEFAULT_MAX_SIZE = 1000;
+
+	/**
+	 * Default time to live for entries, milliseconds.
+	 */
+	public static final long DEFAULT_TTL_MS = 10*60*1000L;
+
+	/**
+	 * Maximum number of entries.
+	 */
+	private final int maxSize;
+
+	/**
+	 * Time to live for entries, milliseconds.
+	 */
+	private final long ttlMs;
+
+	/**
+	 * Map of path to cache entry, in access order so that the eldest entry is the least recently used.
+	 */
+	private final LinkedHashMap<String,Entry> map;
+
+	/**
+	 * Number of lookups that matched a cached path.
+	 */
+	private long hitCount = 0;
+
+	/**
+	 * Number of lookups that did not match a cached path.
+	 */
+	private long missCount = 0;
+
+	/**
+	 * Number of entries that were removed because the time to live was exceeded.
+	 */
+	private long expiredCount = 0;
+
+	/**
+	 * Create a cache using the default size and time to live.
+	 */
+	public GoogleDrivePathCache () {
+		this ( DEFAULT_MAX_SIZE, DEFAULT_TTL_MS );
+	}
+
+	/**
+	 * Create a cache.
+	 * @param maxSize maximum number of entries
+	 * @param ttlMs time to live for entries, milliseconds
+	 */
+	public GoogleDrivePathCache ( int maxSize, long ttlMs ) {
+		this.maxSize = maxSize;
+		this.ttlMs = ttlMs;
+		this.map = new LinkedHashMap<String,Entry>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry ( Map.Entry<String,Entry> eldest ) {
+				return size() > GoogleDrivePathCache.this.maxSize;
+			}
+		};
+	}
+
+	/**
+	 * Build the cache key for the first parts of a path.
+	 * @param root the path root, such as "My Drive", "Shared drives", or "Shared with me"
+	 * @param parts the path parts after the root
+	 * @param depth the number of parts to include
+	 * @return the cache key
+	 */
+	private String buildKey ( String root, String [] parts, int depth ) {
+		StringBuilder b = new StringBuilder(root);
+		for ( int i = 0; i < depth; i++ ) {
+			b.append("/");
+			b.append(parts[i]);
+		}
+		return b.toString();
+	}
+
+	/**
+	 * Remove all entries.  The hit and miss counts are not reset.
+	 */
+	public synchronized void clear () {
+		this.map.clear();
+	}
+
+	/**
+	 * Return the folder ID for the longest cached prefix of a path.
+	 * The hit or miss count is incremented.
+	 * @param root the path root, such as "My Drive", "Shared drives", or "Shared with me"
+	 * @param parts the path parts after the root
+	 * @return the match for the longest prefix, or null if no prefix is cached
+	 */
+	public synchronized Match getLongestPrefix ( String root, String [] parts ) {
+		long now = System.currentTimeMillis();
+		for ( int depth = parts.length; depth > 0; depth-- ) {
+			String key = buildKey(root, parts, depth);
+			Entry entry = this.map.get(key);
+			if ( entry != null ) {
+				if ( now > entry.expireTime ) {
+					// Too old so remove and keep checking shorter prefixes.
+					this.map.remove(key);
+					++this.expiredCount;
+				}
+				else {
+					++this.hitCount;
+					return new Match(entry.id, depth);
+				}
+			}
+		}
+		++this.missCount;
+		return null;
+	}
+
+	/**
+	 * Return the number of lookups that matched a cached path.
+	 * @return the hit count
+	 */
+	public synchronized long getHitCount () {
+		return this.hitCount;
+	}
+
+	/**
+	 * Return the number of lookups that did not match a cached path.
+	 * @return the miss count
+	 */
+	public synchronized long getMissCount () {
+		return this.missCount;
+	}
+
+	/**
+	 * Add the folder ID for the first parts of a path.
+	 * @param root the path root, such as "My Drive", "Shared drives", or "Shared with me"
+	 * @param parts the path parts after the root
+	 * @param depth the number of parts that the ID corresponds to
+	 * @param id the Google Drive folder ID
+	 */
+	public synchronized void put ( String root, String [] parts, int depth, String id ) {
+		long now = System.currentTimeMillis();
+		this.map.put(buildKey(root, parts, depth), new Entry(id, now, (now + this.ttlMs)));
+	}
+
+	/**
+	 * Return the entries that have not expired, used to save the cache.
+	 * @return map of path key to an array containing the time that the entry was created (as a string) and the ID
+	 */
+	public synchronized Map<String,String[]> getEntries () {
+		long now = System.currentTimeMillis();
+		Map<String,String[]> entries = new LinkedHashMap<>();
+		for ( Map.Entry<String,Entry> mapEntry : this.map.entrySet() ) {
+			Entry entry = mapEntry.getValue();
+			if ( now <= entry.expireTime ) {
+				entries.put(mapEntry.getKey(), new String[] { String.valueOf(entry.time), entry.id });
+			}
+		}
+		return entries;
+	}
+
+	/**
+	 * Add an entry that was saved previously, for example from a GoogleDriveMetadataCache.
+	 * @param key the path key, as returned by getEntries()
+	 * @param id the Google Drive folder ID
+	 * @param time the time that the entry was created, milliseconds since 1970
+	 * @param expireTime the time that the entry expires, milliseconds since 1970
+	 */
+	public synchronized void load ( String key, String id, long time, long expireTime ) {
+		this.map.put(key, new Entry(id, time, expireTime));
+	}
+
+	/**
+	 * Return the number of entries in the cache.
+	 * @return the number of entries in the cache
+	 */
+	public synchronized int size () {
+		return this.map.size();
+	}
+
+	/**
+	 * Return a summary of the cache statistics, suitable for logging.
+	 * @return a summary of the cache statistics
+	 */
+	public synchronized String toString () {
+		return "hits=" + this.hitCount + ", misses=" + this.missCount + ", expired=" + this.expiredCount
+			+ ", entries=" + this.map.size() + " (max=" + this.maxSize + ")";
+	}
+
+	/**
+	 * Cache entry, which saves the time that the entry was created and the time that it expires.
+	 */
+	private static class Entry {
+		private final String id;
+		private final long time;
+		private final long expireTime;
+
+		private Entry ( String id, long time, long expireTime ) {
+			this.id = id;
+			this.time = time;
+			this.expireTime = expireTime;
+		}
+	}
+
+	/**
+	 * Result of matching the longest cached prefix.
+	 */
+	public static class Match {
+		private final String id;
+		private final int depth;
+
+		private Match ( String id, int depth ) {
+			this.id = id;
+			this.depth = depth;
+		}
+
+		/**
+		 * Return the number of path parts that were matched.
+		 * @return the number of path parts that were matched
+		 */
+		public int getDepth () {
+			return this.depth;
+		}
+
+		/**
+		 * Return the Google Drive folder ID for the matched prefix.
+		 * @return the Google Drive folder ID for the matched prefix
+		 */
+		public String getId () {
+			return this.id;
+		}
+	}
+}
@@ -0,0 +1,358 @@
+// GoogleDriveRateLimiter - limit the Google Drive request rate and retry rate limited requests
+
+/* NoticeStart
+
+OWF TSTool Google Drive Plugin
+Copyright (C) 2023 Open Water Foundation
+
+OWF TSTool Google Drive Plugin is free software:  you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+OWF TSTool Google Drive Plugin is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+    along with OWF TSTool Google Drive Plugin.  If not, see <https://www.gnu.org/licenses/>.
+
+NoticeEnd */
+
+package org.openwaterfoundation.tstool.plugin.googledrive;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.concurrent.ThreadLocalRandom;
+
+import com.google.api.client.googleapis.json.GoogleJsonError;
+import com.google.api.client.googleapis.json.GoogleJsonResponseException;
+import com.google.api.client.http.HttpExecuteInterceptor;
+import com.google.api.client.http.HttpRequest;
+import com.google.api.client.http.HttpRequestInitializer;
+import com.google.api.client.http.HttpResponse;
+import com.google.api.client.http.HttpUnsuccessfulResponseHandler;
+import com.google.api.client.json.JsonFactory;
+
+import RTi.Util.Message.Message;
+
+/**
+ * Limit the rate of Google Drive requests and retry requests that are rate limited.
+ * A token bucket limits the request rate for a session, shared by all threads,
+ * so that throughput near the quota is smooth rather than failing.
+ * Requests that fail with 429, 403 with a rate limit reason, or a 5xx server error
+ * are retried using exponential backoff with jitter, honoring the Retry-After header if provided.
+ * The backoff also pauses other requests in the session, since they would likely be rate limited.
+ * Use wrap() to add the limiter to the request initializer when creating a Drive service,
+ * so that every request, including media downloads and batches, is limited.
+ * See: https://developers.google.com/drive/api/guides/limits
+ */
+public class GoogleDriveRateLimiter {
+
+	/**
+	 * Default maximum requests per second, consistent with the Google Drive per-user quota of 12,000 requests per minute.
+	 */
+	public static final double DEFAULT_REQUESTS_PER_SECOND = 100.0;
+
+	/**
+	 * Default maximum number of retries for a request.
+	 */
+	public static final int DEFAULT_MAX_RETRIES = 8;
+
+	/**
+	 * Initial backoff, milliseconds, which is doubled for each retry.
+	 */
+	private static final long INITIAL_BACKOFF_MS = 1000L;
+
+	/**
+	 * Maximum backoff, milliseconds.
+	 */
+	private static final long MAX_BACKOFF_MS = 64000L;
+
+	/**
+	 * Maximum random jitter added to the backoff, milliseconds.
+	 */
+	private static final long MAX_JITTER_MS = 1000L;
+
+	/**
+	 * JSON factory used to parse error responses.
+	 */
+	private final JsonFactory jsonFactory;
+
+	/**
+	 * Maximum requests per second, or zero to not limit.
+	 */
+	private double requestsPerSecond;
+
+	/**
+	 * Maximum number of requests that can be sent without waiting, after a period with no requests.
+	 */
+	private double burst;
+
+	/**
+	 * Maximum number of retries for a request.
+	 */
+	private volatile int maxRetries;
+
+	/**
+	 * Tokens available, which can be negative if requests have reserved future tokens.
+	 */
+	private double tokens;
+
+	/**
+	 * Time that the tokens were last updated, nanoseconds.
+	 */
+	private long tokensTime = System.nanoTime();
+
+	/**
+	 * Time until which requests are paused due to a rate limited response, nanoseconds.
+	 */
+	private long pauseUntil = System.nanoTime();
+
+	/**
+	 * Number of requests.
+	 */
+	private long requestCount = 0;
+
+	/**
+	 * Number of retries.
+	 */
+	private long retryCount = 0;
+
+	/**
+	 * Total time that requests waited for the limiter, milliseconds.
+	 */
+	private long waitMs = 0;
+
+	/**
+	 * Create a rate limiter.
+	 * @param jsonFactory JSON factory used to parse error responses
+	 * @param requestsPerSecond maximum requests per second, or zero to not limit
+	 * @param maxRetries maximum number of retries for a request
+	 */
+	public GoogleDriveRateLimiter ( JsonFactory jsonFactory, double requestsPerSecond, int maxRetries ) {
+		this.jsonFactory = jsonFactory;
+		setRequestsPerSecond ( requestsPerSecond );
+		this.tokens = this.burst;
+		this.maxRetries = maxRetries;
+	}
+
+	/**
+	 * Wait until a request can be sent.
+	 * @throws InterruptedIOException if the thread is interrupted while waiting
+	 */
+	public void acquire () throws InterruptedIOException {
+		long waitNanos = 0;
+		synchronized ( this ) {
+			++this.requestCount;
+			long now = System.nanoTime();
+			if ( this.requestsPerSecond > 0.0 ) {
+				// Add tokens for the elapsed time and then reserve a token, which may be in the future.
+				this.tokens = Math.min ( this.burst, this.tokens + (now - this.tokensTime)*this.requestsPerSecond/1.0e9 );
+				this.tokensTime = now;
+				this.tokens -= 1.0;
+				if ( this.tokens < 0.0 ) {
+					waitNanos = (long)(-this.tokens*1.0e9/this.requestsPerSecond);
+				}
+			}
+			waitNanos = Math.max ( waitNanos, this.pauseUntil - now );
+			if ( waitNanos > 0 ) {
+				this.waitMs += waitNanos/1000000L;
+			}
+		}
+		if ( waitNanos > 0 ) {
+			sleep ( waitNanos/1000000L, (int)(waitNanos%1000000L) );
+		}
+	}
+
+	/**
+	 * Determine the backoff for a retry.
+	 * @param response the rate limited response
+	 * @param retry the retry number, 1+
+	 * @return the backoff, milliseconds
+	 */
+	private long getBackoffMs ( HttpResponse response, int retry ) {
+		long backoffMs = Math.min ( MAX_BACKOFF_MS, INITIAL_BACKOFF_MS << Math.min(retry - 1, 16) )
+			+ ThreadLocalRandom.current().nextLong(MAX_JITTER_MS + 1);
+		// Use the Retry-After header if longer, which is seconds or an HTTP date.
+		String retryAfter = response.getHeaders().getFirstHeaderStringValue("Retry-After");
+		if ( (retryAfter != null) && !retryAfter.isEmpty() ) {
+			try {
+				backoffMs = Math.max ( backoffMs, Long.parseLong(retryAfter.trim())*1000L );
+			}
+			catch ( NumberFormatException e ) {
+				try {
+					ZonedDateTime retryTime = ZonedDateTime.parse(retryAfter.trim(), DateTimeFormatter.RFC_1123_DATE_TIME);
+					backoffMs = Math.max ( backoffMs, retryTime.toInstant().toEpochMilli() - System.currentTimeMillis() );
+				}
+				catch ( DateTimeParseException e2 ) {
+					// Ignore the header.
+				}
+			}
+		}
+		return backoffMs;
+	}
+
+	/**
+	 * Return the maximum number of retries for a request.
+	 * @return the maximum number of retries for a request
+	 */
+	public int getMaxRetries () {
+		return this.maxRetries;
+	}
+
+	/**
+	 * Return the maximum requests per second.
+	 * @return the maximum requests per second, or zero if not limited
+	 */
+	public synchronized double getRequestsPerSecond () {
+		return this.requestsPerSecond;
+	}
+
+	/**
+	 * Determine whether a 403 response is due to a rate limit.
+	 * @param e the exception created from the response
+	 * @return true if the response is due to a rate limit
+	 */
+	private boolean isRateLimitError ( GoogleJsonResponseException e ) {
+		GoogleJsonError details = e.getDetails();
+		if ( (details == null) || (details.getErrors() == null) ) {
+			return false;
+		}
+		for ( GoogleJsonError.ErrorInfo errorInfo : details.getErrors() ) {
+			String reason = errorInfo.getReason();
+			if ( "userRateLimitExceeded".equals(reason) || "rateLimitExceeded".equals(reason) ) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Pause all requests for the backoff, because other requests would likely also be rate limited.
+	 * @param backoffMs backoff, milliseconds
+	 */
+	private synchronized void pause ( long backoffMs ) {
+		this.pauseUntil = Math.max ( this.pauseUntil, System.nanoTime() + backoffMs*1000000L );
+		++this.retryCount;
+	}
+
+	/**
+	 * Set the maximum number of retries for a request.
+	 * @param maxRetries the maximum number of retries for a request
+	 */
+	public void setMaxRetries ( int maxRetries ) {
+		this.maxRetries = maxRetries;
+	}
+
+	/**
+	 * Set the maximum requests per second.
+	 * The burst is one second of requests so that a short burst of requests is not delayed.
+	 * @param requestsPerSecond maximum requests per second, or zero to not limit
+	 */
+	public synchronized void setRequestsPerSecond ( double requestsPerSecond ) {
+		this.requestsPerSecond = Math.max ( 0.0, requestsPerSecond );
+		this.burst = Math.max ( 1.0, this.requestsPerSecond );
+		this.tokens = Math.min ( this.tokens, this.burst );
+	}
+
+	/**
+	 * Sleep, converting an interrupt to an I/O exception that can be thrown from request handlers.
+	 * @param ms milliseconds to sleep
+	 * @param nanos additional nanoseconds to sleep
+	 * @throws InterruptedIOException if the thread is interrupted
+	 */
+	private void sleep ( long ms, int nanos ) throws InterruptedIOException {
+		try {
+			Thread.sleep ( ms, nanos );
+		}
+		catch ( InterruptedException e ) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting to send a Google Drive request.");
+		}
+	}
+
+	/**
+	 * Return a summary of the limiter statistics, suitable for logging.
+	 * @return a summary of the limiter statistics
+	 */
+	public synchronized String toString () {
+		return "requestsPerSecond=" + this.requestsPerSecond + ", requests=" + this.requestCount
+			+ ", retries=" + this.retryCount + ", waitMs=" + this.waitMs;
+	}
+
+	/**
+	 * Wrap a request initializer so that requests are limited and retried.
+	 * The wrapped initializer is called first so that its interceptor and response handler
+	 * (e.g., to refresh credentials) are used.
+	 * @param requestInitializer the request initializer for the credentials
+	 * @return a request initializer that limits and retries requests
+	 */
+	public HttpRequestInitializer wrap ( HttpRequestInitializer requestInitializer ) {
+		return new HttpRequestInitializer() {
+			@Override
+			public void initialize ( HttpRequest request ) throws IOException {
+				if ( requestInitializer != null ) {
+					requestInitializer.initialize(request);
+				}
+				HttpExecuteInterceptor interceptor = request.getInterceptor();
+				HttpUnsuccessfulResponseHandler handler = request.getUnsuccessfulResponseHandler();
+				request.setNumberOfRetries ( Math.max(getMaxRetries(), 1) );
+				// Wait for the limiter before each attempt.
+				request.setInterceptor ( new HttpExecuteInterceptor() {
+					@Override
+					public void intercept ( HttpRequest request ) throws IOException {
+						acquire();
+						if ( interceptor != null ) {
+							interceptor.intercept(request);
+						}
+					}
+				});
+				request.setUnsuccessfulResponseHandler ( new HttpUnsuccessfulResponseHandler() {
+					/**
+					 * Number of retries for the request.
+					 */
+					private int retry = 0;
+
+					@Override
+					public boolean handleResponse ( HttpRequest request, HttpResponse response, boolean supportsRetry )
+						throws IOException {
+						String routine = GoogleDriveRateLimiter.class.getSimpleName() + ".handleResponse";
+						if ( (handler != null) && handler.handleResponse(request, response, supportsRetry) ) {
+							// Handled by the credentials (e.g., refreshed token).
+							return true;
+						}
+						int statusCode = response.getStatusCode();
+						if ( statusCode == 403 ) {
+							// Need to read the error to check the reason:
+							// - throw the same exception as the Drive request would if not retried,
+							//   since the response content can only be read once
+							GoogleJsonResponseException e = GoogleJsonResponseException.from(jsonFactory, response);
+							if ( !isRateLimitError(e) || !supportsRetry || (this.retry >= getMaxRetries()) ) {
+								throw e;
+							}
+						}
+						else if ( (statusCode != 429) && (statusCode != 500) && (statusCode != 502)
+							&& (statusCode != 503) && (statusCode != 504) ) {
+							return false;
+						}
+						if ( !supportsRetry || (this.retry >= getMaxRetries()) ) {
+							return false;
+						}
+						++this.retry;
+						long backoffMs = getBackoffMs(response, this.retry);
+						Message.printStatus(2, routine, "Google Drive request returned " + statusCode
+							+ ", retry " + this.retry + " of " + getMaxRetries() + " after " + backoffMs + " ms.");
+						// Pause all requests and then wait for the limiter.
+						pause ( backoffMs );
+						return true;
+					}
+				});
+			}
+		};
+	}
+}
@@ -47,7 +47,7 @@ import com.google.api.client.googleapis.auth.oauth2.GoogleAuthorizationCodeFlow;
 import com.google.api.client.googleapis.auth.oauth2.GoogleClientSecrets;
 import com.google.api.client.googleapis.javanet.GoogleNetHttpTransport;
 import com.google.api.client.http.HttpRequestInitializer;
-import com.google.api.client.http.javanet.NetHttpTransport;
+import com.google.api.client.http.HttpTransport;
 import com.google.api.client.json.JsonFactory;
 import com.google.api.client.json.gson.GsonFactory;
 import com.google.api.client.util.store.FileDataStoreFactory;
@@ -86,6 +86,11 @@ public class GoogleDriveSession {
 	 */
 	private boolean isSessionAuthenticated = false;
 
+	/**
+	 * Whether the session has been closed, so that closing more than once has no effect.
+	 */
+	private boolean isClosed = false;
+
 	/**
 	 * The error if credentials are not OK.
 	 */
@@ -141,7 +146,53 @@ public class GoogleDriveSession {
 
 	//private static final String CREDENTIALS_FILE_PATH = "/credentials.json";
 
-	private NetHttpTransport httpTransport = null;
+	/**
+	 * HTTP transport, which is the offline stand-in for the Offline authentication method.
+	 */
+	private HttpTransport httpTransport = null;
+
+	/**
+	 * Refresh the access token if it expires within this time, milliseconds,
+	 * so that a reused session does not fail part way through a command.
+	 */
+	private static final long TOKEN_REFRESH_MARGIN_MS = 5*60*1000L;
+
+	/**
+	 * Cache of folder path to Google Drive ID, to avoid repeated requests when resolving paths.
+	 */
+	private GoogleDrivePathCache pathCache = new GoogleDrivePathCache();
+
+	/**
+	 * Cache of folder ID to name, parent, and path, to avoid repeated requests when converting IDs to paths.
+	 */
+	private GoogleDriveFolderCache folderCache = new GoogleDriveFolderCache();
+
+	/**
+	 * Index of shared drive name to drive ID, to avoid requesting the shared drives for each path.
+	 */
+	private GoogleDriveSharedDriveIndex sharedDriveIndex = new GoogleDriveSharedDriveIndex();
+
+	/**
+	 * On-disk metadata cache shared across TSTool runs, or null if not opened.
+	 */
+	private GoogleDriveMetadataCache metadataCache = null;
+
+	/**
+	 * Whether the metadata cache is used by the current command,
+	 * volatile because it is checked by threads that list folders.
+	 */
+	private volatile boolean useMetadataCache = false;
+
+	/**
+	 * Rate limiter for all requests in the session, shared by threads so that the quota is not exceeded.
+	 */
+	private GoogleDriveRateLimiter rateLimiter = new GoogleDriveRateLimiter ( JSON_FACTORY,
+		GoogleDriveRateLimiter.DEFAULT_REQUESTS_PER_SECOND, GoogleDriveRateLimiter.DEFAULT_MAX_RETRIES );
+
+	/**
+	 * Request metrics for the current command, or null if not measuring.
+	 */
+	private volatile GoogleDriveMetrics metrics = null;
 
 	/**
 	 * Create a new session, which holds the credential.
@@ -155,7 +206,9 @@ public class GoogleDriveSession {
 		// Build a new authorized API client service.
 		this.sessionId = sessionId;
 		this.authenticationMethod = authenticationMethod;
-	    this.httpTransport = GoogleNetHttpTransport.newTrustedTransport();
+	    if ( this.authenticationMethod != GoogleDriveAuthenticationMethodType.OFFLINE ) {
+	    	this.httpTransport = GoogleNetHttpTransport.newTrustedTransport();
+	    }
 
 	    // Set the paths to credentials file and tokens folder.
 		if ( IOUtil.isUNIXMachine() ) {
@@ -170,6 +223,9 @@ public class GoogleDriveSession {
 				else if ( this.authenticationMethod == GoogleDriveAuthenticationMethodType.SERVICE_ACCOUNT_KEY ) {
 					this.credentialsFilePath = HOME + "/.tstool/GoogleDrive/api-key-" + sessionId + ".json";
 				}
+				else if ( this.authenticationMethod == GoogleDriveAuthenticationMethodType.OFFLINE ) {
+					this.credentialsFilePath = HOME + "/.tstool/GoogleDrive/offline-" + sessionId + ".properties";
+				}
 				this.tokensFolderPath = HOME + "/.tstool/GoogleDrive/tokens";
 			}
 		}
@@ -181,6 +237,10 @@ public class GoogleDriveSession {
 					this.credentialsFilePath = APP_DATA + File.separator + "TSTool" + File.separator +
 						"GoogleDrive" + File.separator + "oauth2-credentials-" + sessionId + ".json";
 				}
+				else if ( this.authenticationMethod == GoogleDriveAuthenticationMethodType.OFFLINE ) {
+					this.credentialsFilePath = APP_DATA + File.separator + "TSTool" + File.separator +
+						"GoogleDrive" + File.separator + "offline-" + sessionId + ".properties";
+				}
 				else {
 					this.credentialsFilePath = APP_DATA + File.separator + "TSTool" + File.separator +
 						"GoogleDrive" + File.separator + "api-key-" + sessionId + ".json";
@@ -189,6 +249,15 @@ public class GoogleDriveSession {
 					"GoogleDrive" + File.separator + "tokens";
 			}
 		}
+		if ( this.authenticationMethod == GoogleDriveAuthenticationMethodType.OFFLINE ) {
+			// Use the offline stand-in, which does not need credentials:
+			// - the configuration file is optional
+			Message.printStatus(2, routine, "Using offline Google Drive with configuration file: " + this.credentialsFilePath);
+			this.httpTransport = new GoogleDriveOfflineTransport ( JSON_FACTORY,
+				GoogleDriveOfflineTransport.readProperties(new File(this.credentialsFilePath)) );
+			this.isSessionAuthenticated = true;
+			return;
+		}
 		File file = new File(this.credentialsFilePath);
 		boolean fileExists = true;
 		if ( !file.exists() ) {
@@ -264,6 +333,42 @@ public class GoogleDriveSession {
 		}
 	}
 
+	/**
+	 * Close the session, which releases the HTTP transport and clears the path and folder caches and shared drive index.
+	 * The session should not be used after closing.
+	 * Closing a session that is already closed has no effect,
+	 * so a session can be closed by a later run or when TSTool exits.
+	 */
+	public synchronized void close () {
+		String routine = getClass().getSimpleName() + ".close";
+		if ( this.isClosed ) {
+			return;
+		}
+		this.isClosed = true;
+		if ( this.metadataCache != null ) {
+			// Save the folder paths for the next run.
+			this.metadataCache.savePaths(this.pathCache);
+			Message.printStatus(2, routine, "Metadata cache: " + this.metadataCache);
+			this.metadataCache = null;
+			this.useMetadataCache = false;
+		}
+		Message.printStatus(2, routine, "Rate limiter: " + this.rateLimiter);
+		Message.printStatus(2, routine, "Shared drive index: " + this.sharedDriveIndex);
+		this.pathCache.clear();
+		this.folderCache.clear();
+		this.sharedDriveIndex.clear();
+		this.isSessionAuthenticated = false;
+		if ( this.httpTransport != null ) {
+			try {
+				this.httpTransport.shutdown();
+			}
+			catch ( IOException e ) {
+				Message.printWarning(3, routine, "Error shutting down the HTTP transport.");
+				Message.printWarning(3, routine, e);
+			}
+		}
+	}
+
 	/**
 	 * Creates an authorized Credential or GoogleCredentials object,
 	 * depending on the authentication method.
@@ -272,7 +377,7 @@ public class GoogleDriveSession {
 	 * @return An authorized Credential object.
 	 * @throws IOException If the credentials.json file cannot be found.
 	 */
-	private void createCredential ( final NetHttpTransport HTTP_TRANSPORT )
+	private void createCredential ( final HttpTransport HTTP_TRANSPORT )
 	    throws IOException {
 		String routine = getClass().getSimpleName() + ".createCredential";
 		// Load client secrets.
@@ -428,6 +533,28 @@ public class GoogleDriveSession {
 		return this.APPLICATION_NAME;
 	}
 
+	/**
+	 * Return the file used to save the changes start page token for the session and drive,
+	 * which is in a "changes" folder next to the tokens folder.
+	 * The file name includes the session ID and authentication method (see getStorageName())
+	 * so that each identity has its own token.
+	 * @param driveId shared drive ID, or null for the user's changes (My Drive and shared with me)
+	 * @return the changes page token file
+	 */
+	public File getChangesPageTokenFile ( String driveId ) {
+		File changesFolder = new File ( new File(this.tokensFolderPath).getParentFile(), "changes" );
+		return new File ( changesFolder, "changes-page-token-" + getStorageName() + "-" +
+			((driveId == null) ? "my-drive" : driveId) + ".properties" );
+	}
+
+	/**
+	 * Do not use the on-disk metadata cache for the current command.
+	 * Folder paths that were loaded from the cache remain in the path cache.
+	 */
+	public void closeMetadataCache () {
+		this.useMetadataCache = false;
+	}
+
 	/**
 	 * Return the credential to use for Google Drive operations,
 	 * used with OAuth authentication.
@@ -447,18 +574,26 @@ public class GoogleDriveSession {
 	}
 
 	/**
-	 * Return the path to the credentials file.
+	 * Return the path to the credentials file, which is the configuration file for the Offline authentication method.
 	 * @return the path to the credentials file
 	 */
 	public String getCredentialsFilePath () {
 		return this.credentialsFilePath;
 	}
 
+	/**
+	 * Return the cache of folder ID to name, parent, and path.
+	 * @return the folder cache
+	 */
+	public GoogleDriveFolderCache getFolderCache () {
+		return this.folderCache;
+	}
+
 	/**
 	 * Return the HTTP transport object.
 	 * @return the HTTP transport object
 	 */
-	public NetHttpTransport getHttpTransport () {
+	public HttpTransport getHttpTransport () {
 		return this.httpTransport;
 	}
 
@@ -470,6 +605,38 @@ public class GoogleDriveSession {
 		return this.JSON_FACTORY;
 	}
 
+	/**
+	 * Return the request metrics for the current command.
+	 * @return the request metrics, or null if not started
+	 */
+	public GoogleDriveMetrics getMetrics () {
+		return this.metrics;
+	}
+
+	/**
+	 * Return the on-disk metadata cache, if used by the current command.
+	 * @return the metadata cache, or null if not used
+	 */
+	public GoogleDriveMetadataCache getMetadataCache () {
+		return this.useMetadataCache ? this.metadataCache : null;
+	}
+
+	/**
+	 * Return the cache of folder path to Google Drive ID.
+	 * @return the path cache
+	 */
+	public GoogleDrivePathCache getPathCache () {
+		return this.pathCache;
+	}
+
+	/**
+	 * Return the index of shared drive name to drive ID.
+	 * @return the shared drive index
+	 */
+	public GoogleDriveSharedDriveIndex getSharedDriveIndex () {
+		return this.sharedDriveIndex;
+	}
+
 	/**
 	 * Return the problem if areCredentialsOk is false.
 	 * @return the problem description
@@ -486,32 +653,152 @@ public class GoogleDriveSession {
 		return this.problemRecommendation;
 	}
 
+	/**
+	 * Return the rate limiter for the session, which can be configured for a command.
+	 * @return the rate limiter for the session
+	 */
+	public GoogleDriveRateLimiter getRateLimiter () {
+		return this.rateLimiter;
+	}
+
+	/**
+	 * Return the request initializer for Google Drive requests, which provides the credentials,
+	 * limits and retries requests using the session's rate limiter,
+	 * and measures requests if metrics have been started for the command.
+	 * This is used for services returned from getService() and must also be used for requests
+	 * that are not created by a service, such as batch requests (see GoogleDriveBatch).
+	 * @return the request initializer, or null if the authentication method is not known
+	 */
+	public HttpRequestInitializer getRequestInitializer () {
+		HttpRequestInitializer requestInitializer = null;
+		if ( this.authenticationMethod == GoogleDriveAuthenticationMethodType.OAUTH ) {
+			requestInitializer = getCredential();
+		}
+		else if ( this.authenticationMethod == GoogleDriveAuthenticationMethodType.SERVICE_ACCOUNT_KEY ) {
+			// The following is from:
+			//    https://developers.google.com/drive/api/guides/search-files
+			requestInitializer = new HttpCredentialsAdapter(getCredentials());
+		}
+		else if ( this.authenticationMethod == GoogleDriveAuthenticationMethodType.OFFLINE ) {
+			// The offline stand-in does not need credentials.
+			requestInitializer = request -> {};
+		}
+		else {
+			return null;
+		}
+		return this.rateLimiter.wrap(wrapMetrics(requestInitializer));
+	}
+
 	/**
 	 * Return a new Drive service based on session properties.
+	 * Requests are limited and retried using the session's rate limiter,
+	 * and are measured if metrics have been started for the command.
 	 * @return the drive service, which can be modified before executing a request
 	 */
 	public Drive getService () {
-   		Drive service = null;
-   		if ( this.authenticationMethod == GoogleDriveAuthenticationMethodType.OAUTH ) {
-   			service = new Drive.Builder (
-   			getHttpTransport(),
-   			getJsonFactory(),
-       		getCredential())
-   				.setApplicationName(getApplicationName())
-   				.build();
+   		HttpRequestInitializer requestInitializer = getRequestInitializer();
+   		if ( requestInitializer == null ) {
+   			return null;
    		}
-   		else if ( this.authenticationMethod == GoogleDriveAuthenticationMethodType.SERVICE_ACCOUNT_KEY ) {
-   			// The following is from:
-   			//    https://developers.google.com/drive/api/guides/search-files
-   			HttpRequestInitializer requestInitializer = new HttpCredentialsAdapter(getCredentials());
-   			service = new Drive.Builder (
-   				getHttpTransport(),
-   				getJsonFactory(),
-       			requestInitializer)
-   				.setApplicationName(getApplicationName())
-   				.build();
-   		}
-		return service;
+		return new Drive.Builder (
+			getHttpTransport(),
+			getJsonFactory(),
+			requestInitializer)
+			.setApplicationName(getApplicationName())
+			.build();
+	}
+
+	/**
+	 * Return the name used for files and folders that are saved for the session,
+	 * which includes the session ID and authentication method because each identifies different credentials,
+	 * for example "Default-OAuth".
+	 * Data for one identity (e.g., OAuth user) is therefore not used with another identity (e.g., service account).
+	 * @return the name used for files and folders that are saved for the session
+	 */
+	private String getStorageName () {
+		return this.sessionId + "-" + this.authenticationMethod;
+	}
+
+	/**
+	 * Start new request metrics for a command, which are used by services returned from getService().
+	 * @return the request metrics
+	 */
+	public GoogleDriveMetrics startMetrics () {
+		this.metrics = new GoogleDriveMetrics();
+		return this.metrics;
+	}
+
+	/**
+	 * Wrap the request initializer to measure requests if metrics have been started.
+	 * @param requestInitializer the request initializer for the credentials
+	 * @return the request initializer to use
+	 */
+	private HttpRequestInitializer wrapMetrics ( HttpRequestInitializer requestInitializer ) {
+		GoogleDriveMetrics metrics = this.metrics;
+		return (metrics == null) ? requestInitializer : metrics.wrap(requestInitializer);
+	}
+
+	/**
+	 * Open the on-disk metadata cache, which is in a "cache" folder next to the tokens folder,
+	 * in a folder for the session ID and authentication method (see getStorageName()),
+	 * and use it for the current command.
+	 * The first time that the cache is opened, the cached folder paths are loaded into the path cache.
+	 * The time to live that is used when the cache is first opened is used for the session.
+	 * @param ttlMs time to live for cache entries, milliseconds
+	 * @param clear whether to remove all the cached entries
+	 */
+	public void openMetadataCache ( long ttlMs, boolean clear ) {
+		if ( this.metadataCache == null ) {
+			File cacheFolder = new File ( new File(new File(this.tokensFolderPath).getParentFile(), "cache"), getStorageName() );
+			this.metadataCache = new GoogleDriveMetadataCache ( cacheFolder, this.JSON_FACTORY, ttlMs,
+				GoogleDriveMetadataCache.DEFAULT_MAX_SIZE_BYTES );
+			if ( !clear ) {
+				this.metadataCache.loadPaths(this.pathCache);
+			}
+		}
+		if ( clear ) {
+			this.metadataCache.clear();
+			this.pathCache.clear();
+			this.folderCache.clear();
+			this.sharedDriveIndex.clear();
+		}
+		this.useMetadataCache = true;
+	}
+
+	/**
+	 * Refresh the access token if it has expired or will expire soon.
+	 * This is called when a session is reused so that the token is only refreshed when necessary.
+	 * If the refresh fails, the session is marked as not authenticated.
+	 */
+	public void refreshIfNeeded () {
+		String routine = getClass().getSimpleName() + ".refreshIfNeeded";
+		try {
+			if ( this.authenticationMethod == GoogleDriveAuthenticationMethodType.OAUTH ) {
+				if ( this.credential != null ) {
+					Long expiration = this.credential.getExpirationTimeMilliseconds();
+					if ( (expiration == null) || ((expiration - System.currentTimeMillis()) < TOKEN_REFRESH_MARGIN_MS) ) {
+						Message.printStatus(2, routine, "The Google Drive access token is expiring. Refreshing.");
+						if ( !this.credential.refreshToken() ) {
+							this.isSessionAuthenticated = false;
+							this.problem = "Unable to refresh the Google Drive access token.";
+							this.problemRecommendation = "Delete the tokens in " + this.tokensFolderPath + " and authenticate again.";
+						}
+					}
+				}
+			}
+			else if ( this.authenticationMethod == GoogleDriveAuthenticationMethodType.SERVICE_ACCOUNT_KEY ) {
+				if ( this.credentials != null ) {
+					// The library only refreshes if the token has expired or is about to expire.
+					this.credentials.refreshIfExpired();
+				}
+			}
+		}
+		catch ( IOException e ) {
+			this.isSessionAuthenticated = false;
+			this.problem = "Error refreshing the Google Drive access token.";
+			this.problemRecommendation = "Check the log file for details.";
+			Message.printWarning(3, routine, e);
+		}
 	}
 
 	/**
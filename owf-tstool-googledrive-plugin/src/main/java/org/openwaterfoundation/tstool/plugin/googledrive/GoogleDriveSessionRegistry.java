@@ -0,0 +1,135 @@
+// GoogleDriveSessionRegistry - registry of Google Drive sessions that are reused by commands
+
+/* NoticeStart
+
+OWF TSTool Google Drive Plugin
+Copyright (C) 2023 Open Water Foundation
+
+OWF TSTool Google Drive Plugin is free software:  you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+OWF TSTool Google Drive Plugin is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+    along with OWF TSTool Google Drive Plugin.  If not, see <https://www.gnu.org/licenses/>.
+
+NoticeEnd */
+
+package org.openwaterfoundation.tstool.plugin.googledrive;
+
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import RTi.Util.IO.CommandProcessor;
+import RTi.Util.Message.Message;
+
+/**
+ * Registry of Google Drive sessions, as a singleton.
+ * Creating a session requires reading the credentials file and authenticating,
+ * which is slow, so sessions are reused by the commands that are run by a command processor.
+ * Sessions are keyed by the command processor, session ID, and authentication method.
+ * The processor is weakly referenced so that sessions for a discarded processor can be garbage collected.
+ */
+public class GoogleDriveSessionRegistry {
+	/**
+	 * Singleton object.
+	 */
+	private static GoogleDriveSessionRegistry instance = null;
+
+	/**
+	 * Sessions for each processor, with the key being the session ID and authentication method.
+	 */
+	private final Map<CommandProcessor,Map<String,GoogleDriveSession>> sessionMap = new WeakHashMap<>();
+
+	/**
+	 * Get the GoogleDriveSessionRegistry singleton instance.
+	 */
+	public static synchronized GoogleDriveSessionRegistry getInstance() {
+		// Use lazy loading.
+		if ( instance == null ) {
+			instance = new GoogleDriveSessionRegistry();
+		}
+		return instance;
+	}
+
+	/**
+	 * Private constructor.
+	 * Sessions that are still open when the JVM exits are closed,
+	 * for example if the last GoogleDrive command in a run was not run,
+	 * so that the metadata cache is saved.
+	 */
+	private GoogleDriveSessionRegistry () {
+		Runtime.getRuntime().addShutdownHook(new Thread(this::closeAllSessions, "GoogleDriveSessionRegistry-close"));
+	}
+
+	/**
+	 * Close all the sessions for all processors.
+	 */
+	private synchronized void closeAllSessions () {
+		for ( CommandProcessor processor : new ArrayList<>(this.sessionMap.keySet()) ) {
+			closeSessions(processor);
+		}
+	}
+
+	/**
+	 * Close all the sessions for a processor, for example at the end of a run.
+	 * @param processor the command processor that is running commands
+	 */
+	public synchronized void closeSessions ( CommandProcessor processor ) {
+		String routine = getClass().getSimpleName() + ".closeSessions";
+		Map<String,GoogleDriveSession> sessions = this.sessionMap.remove(processor);
+		if ( sessions == null ) {
+			return;
+		}
+		for ( Map.Entry<String,GoogleDriveSession> entry : sessions.entrySet() ) {
+			Message.printStatus(2, routine, "Closing Google Drive session \"" + entry.getKey() + "\".");
+			entry.getValue().close();
+		}
+	}
+
+	/**
+	 * Get a session for the processor, session ID, and authentication method.
+	 * An existing authenticated session is reused and its token is refreshed if close to expiring.
+	 * Otherwise, a new session is created, which may not be authenticated (check with isSessionAuthenticated()).
+	 * @param processor the command processor that is running commands
+	 * @param sessionId the session ID to match the credentials file
+	 * @param authenticationMethod the authentication method to use
+	 * @return the session
+	 */
+	public synchronized GoogleDriveSession getSession (
+		CommandProcessor processor, String sessionId, GoogleDriveAuthenticationMethodType authenticationMethod )
+		throws IOException, GeneralSecurityException {
+		String routine = getClass().getSimpleName() + ".getSession";
+		Map<String,GoogleDriveSession> sessions = this.sessionMap.get(processor);
+		if ( sessions == null ) {
+			sessions = new HashMap<>();
+			this.sessionMap.put(processor, sessions);
+		}
+		String key = sessionId + ":" + authenticationMethod;
+		GoogleDriveSession session = sessions.get(key);
+		if ( (session != null) && session.isSessionAuthenticated() ) {
+			Message.printStatus(2, routine, "Reusing Google Drive session \"" + key + "\".");
+			session.refreshIfNeeded();
+			if ( session.isSessionAuthenticated() ) {
+				return session;
+			}
+		}
+		if ( session != null ) {
+			// Previous session had a problem so try again.
+			session.close();
+		}
+		Message.printStatus(2, routine, "Creating Google Drive session \"" + key + "\".");
+		session = new GoogleDriveSession(sessionId, authenticationMethod);
+		sessions.put(key, session);
+		return session;
+	}
+}
@@ -0,0 +1,119 @@
+// GoogleDriveSharedDriveIndex - index of shared drive name to drive ID for a session
+
+/* NoticeStart
+
+OWF TSTool Google Drive Plugin
+Copyright (C) 2023 Open Water Foundation
+
+OWF TSTool Google Drive Plugin is free software:  you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+OWF TSTool Google Drive Plugin is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+    along with OWF TSTool Google Drive Plugin.  If not, see <https://www.gnu.org/licenses/>.
+
+NoticeEnd */
+
+package org.openwaterfoundation.tstool.plugin.googledrive;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.google.api.services.drive.model.Drive;
+
+/**
+ * Index of shared drive name to drive ID, owned by a GoogleDriveSession.
+ * The index is loaded from one paged drives().list() request for all shared drives,
+ * so that resolving paths in several shared drives does not require a request for each drive name.
+ * Shared drive names are not required to be unique, so a name can have more than one drive ID.
+ * Methods are synchronized so that the index can be used by multiple threads.
+ */
+public class GoogleDriveSharedDriveIndex {
+
+	/**
+	 * Map of shared drive name to drive IDs, in the order that the drives were listed.
+	 */
+	private final Map<String,List<String>> nameMap = new HashMap<>();
+
+	/**
+	 * Whether the index has been loaded.
+	 */
+	private boolean isLoaded = false;
+
+	/**
+	 * Number of names that were found in the index.
+	 */
+	private long hitCount = 0;
+
+	/**
+	 * Number of times the index was loaded.
+	 */
+	private long loadCount = 0;
+
+	/**
+	 * Create an empty index.
+	 */
+	public GoogleDriveSharedDriveIndex () {
+	}
+
+	/**
+	 * Remove all entries so that the index is loaded again when next used.  The counts are not reset.
+	 */
+	public synchronized void clear () {
+		this.nameMap.clear();
+		this.isLoaded = false;
+	}
+
+	/**
+	 * Return the drive IDs for a shared drive name.
+	 * The hit count is incremented if the name is found.
+	 * @param driveName the shared drive name
+	 * @return the drive IDs, or null if the index is not loaded or the name is not found
+	 */
+	public synchronized List<String> getDriveIds ( String driveName ) {
+		List<String> driveIds = this.nameMap.get(driveName);
+		if ( driveIds != null ) {
+			++this.hitCount;
+			return Collections.unmodifiableList(driveIds);
+		}
+		return null;
+	}
+
+	/**
+	 * Return whether the index has been loaded.
+	 * @return true if the index has been loaded
+	 */
+	public synchronized boolean isLoaded () {
+		return this.isLoaded;
+	}
+
+	/**
+	 * Replace the index contents with the shared drives.
+	 * @param drives all the shared drives that are visible to the user, must include the id and name
+	 */
+	public synchronized void load ( List<Drive> drives ) {
+		this.nameMap.clear();
+		for ( Drive drive : drives ) {
+			this.nameMap.computeIfAbsent(drive.getName(), name -> new ArrayList<>()).add(drive.getId());
+		}
+		this.isLoaded = true;
+		++this.loadCount;
+	}
+
+	/**
+	 * Return a summary of the index statistics, suitable for logging.
+	 * @return a summary of the index statistics
+	 */
+	public synchronized String toString () {
+		return "hits=" + this.hitCount + ", loads=" + this.loadCount + ", names=" + this.nameMap.size();
+	}
+}
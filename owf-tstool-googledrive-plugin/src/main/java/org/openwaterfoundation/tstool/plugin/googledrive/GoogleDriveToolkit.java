@@ -22,10 +22,28 @@ NoticeEnd */
 
 package org.openwaterfoundation.tstool.plugin.googledrive;
 
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 
+import javax.net.ssl.SSLException;
+
+import com.google.api.client.googleapis.batch.json.JsonBatchCallback;
+import com.google.api.client.googleapis.json.GoogleJsonError;
+import com.google.api.client.http.HttpHeaders;
 import com.google.api.services.drive.Drive;
 import com.google.api.services.drive.model.DriveList;
 import com.google.api.services.drive.model.FileList;
@@ -59,6 +77,26 @@ public class GoogleDriveToolkit {
 	 */
 	public static final String SHARED_DRIVES = "Shared drives";
 
+	/**
+	 * Maximum number of files that can be requested in a page when listing files.
+	 */
+	public static final int MAX_PAGE_SIZE = 1000;
+
+	/**
+	 * Maximum number of shared drives that can be requested in a page when listing shared drives.
+	 */
+	public static final int MAX_DRIVES_PAGE_SIZE = 100;
+
+	/**
+	 * Extension added to the local file name while downloading.
+	 */
+	public static final String PART_FILE_EXTENSION = ".part";
+
+	/**
+	 * Maximum number of attempts to download a file when transient errors occur.
+	 */
+	private static final int MAX_DOWNLOAD_ATTEMPTS = 5;
+
 	/**
 	 * Get the AwsToolkit singleton instance.
 	 */
@@ -76,16 +114,255 @@ public class GoogleDriveToolkit {
 	private GoogleDriveToolkit () {
 	}
 
+	/**
+	 * Download a Google Drive file to a local file.
+	 * The file is downloaded to a temporary part file (the local file with ".part" appended),
+	 * which is renamed to the local file when the download is complete,
+	 * so that an interrupted download does not leave a truncated file at the local file path.
+	 * If a part file exists from a previous download of the same version of the file,
+	 * as indicated by the part file's sidecar (file ID, modification time, and MD5 checksum),
+	 * the download resumes from the end of the part file using HTTP Range requests.
+	 * Transient errors are retried from the last byte that was written.
+	 * The size and MD5 checksum of the completed part file are verified before the rename and,
+	 * if they do not match, the full file is downloaded again once before an error is thrown.
+	 * If skipping unchanged files, the download state is saved in a sidecar file (see GoogleDriveDownloadState).
+	 * This method can be called by multiple threads.
+	 * @param googleDriveSession Google Drive session
+	 * @param fileId Google Drive file ID
+	 * @param localFile local file to create, the parent folder must exist
+	 * @param skipIfUnchanged if true, do not download if the local file is the same as the Google Drive file
+	 * @return true if the file was downloaded, false if skipped because unchanged
+	 * @throws IOException if an error occurs downloading
+	 */
+	public boolean downloadFile ( GoogleDriveSession googleDriveSession, String fileId, File localFile,
+		boolean skipIfUnchanged ) throws IOException {
+		return downloadFile ( googleDriveSession, fileId, localFile, skipIfUnchanged, null );
+	}
+
+	/**
+	 * Download a Google Drive file to a local file, exporting Google Workspace files (Docs, Sheets, etc.) to a format.
+	 * Files that are not Google Workspace files are downloaded as described for
+	 * downloadFile(GoogleDriveSession,String,File,boolean).
+	 * Google Workspace files are exported by streaming the exported content to the part file,
+	 * and because an export cannot be resumed, transient errors are retried from the start.
+	 * This method can be called by multiple threads.
+	 * @param googleDriveSession Google Drive session
+	 * @param fileId Google Drive file ID
+	 * @param localFile local file to create, the parent folder must exist
+	 * @param skipIfUnchanged if true, do not download if the local file is the same as the Google Drive file
+	 * @param exportFormat format to export Google Workspace files, or null if Google Workspace files are not expected
+	 * @return true if the file was downloaded, false if skipped because unchanged
+	 * @throws IOException if an error occurs downloading, including a Google Workspace file that cannot be exported to the format
+	 */
+	public boolean downloadFile ( GoogleDriveSession googleDriveSession, String fileId, File localFile,
+		boolean skipIfUnchanged, GoogleDriveExportFormatType exportFormat ) throws IOException {
+		String routine = getClass().getSimpleName() + ".downloadFile";
+		Drive driveService = googleDriveSession.getService();
+		File partFile = new File(localFile.getPath() + PART_FILE_EXTENSION);
+
+		// Get the checksum and modification time to check whether the part file can be used,
+		// the size and checksum to check whether the local file is unchanged and verify the download,
+		// and the MIME type to check whether the file must be exported.
+		com.google.api.services.drive.model.File driveFile = driveService.files()
+			.get(fileId)
+			.setFields("md5Checksum, size, modifiedTime, mimeType")
+			// Whether the application supports My Drive and shared drives.
+			.setSupportsAllDrives(true)
+			.execute();
+		Long size = driveFile.getSize();
+		String exportMimeType = null;
+		if ( GoogleDriveExportFormatType.isWorkspaceMimeType(driveFile.getMimeType()) ) {
+			// Google Workspace files have no content to download and must be exported.
+			if ( exportFormat == null ) {
+				throw new IOException ( "Google Workspace file (" + driveFile.getMimeType()
+					+ ") cannot be downloaded - specify an export format." );
+			}
+			else if ( !exportFormat.supports(driveFile.getMimeType()) ) {
+				throw new IOException ( "Google Workspace file (" + driveFile.getMimeType()
+					+ ") cannot be exported to " + exportFormat + "." );
+			}
+			exportMimeType = exportFormat.getMimeType();
+		}
+		GoogleDriveDownloadState downloadState = new GoogleDriveDownloadState(fileId, driveFile, exportMimeType);
+		if ( skipIfUnchanged && downloadState.isLocalFileUnchanged(localFile) ) {
+			Message.printStatus(2, routine, "Local file \"" + localFile + "\" is the same as the Google Drive file.  Skipping download.");
+			return false;
+		}
+		if ( exportMimeType != null ) {
+			exportFile ( driveService, fileId, exportMimeType, localFile, partFile );
+			if ( skipIfUnchanged ) {
+				// Save the state so that the next export can be skipped if the file is unchanged.
+				downloadState.write(localFile);
+			}
+			return true;
+		}
+		if ( partFile.exists() && !downloadState.isSameVersion(partFile) ) {
+			// The part file is for another file or version of the file so start over.
+			Message.printStatus(2, routine, "Part file \"" + partFile + "\" is not for the current version of the Google Drive file.  Downloading the full file.");
+			Files.delete(partFile.toPath());
+		}
+
+		for ( int pass = 1; ; pass++ ) {
+			if ( !partFile.exists() ) {
+				// Save the version that the part file is for so that a later download only resumes the same version.
+				Files.createFile(partFile.toPath());
+				downloadState.write(partFile);
+			}
+			downloadPartFile ( driveService, fileId, size, localFile, partFile );
+			// Verify the size and checksum before replacing the local file.
+			if ( downloadState.isContentSame(partFile) ) {
+				break;
+			}
+			Files.delete(partFile.toPath());
+			if ( pass >= 2 ) {
+				GoogleDriveDownloadState.deleteSidecarFile(partFile);
+				throw new IOException ( "Downloaded file \"" + localFile + "\" size or checksum does not match the Google Drive file." );
+			}
+			Message.printWarning(3, routine, "Downloaded file \"" + localFile
+				+ "\" size or checksum does not match the Google Drive file.  Downloading the full file again.");
+		}
+
+		// Rename the part file to the local file, replacing an existing file.
+		try {
+			Files.move(partFile.toPath(), localFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		}
+		catch ( AtomicMoveNotSupportedException e ) {
+			Files.move(partFile.toPath(), localFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		}
+		GoogleDriveDownloadState.deleteSidecarFile(partFile);
+		if ( skipIfUnchanged ) {
+			// Save the state so that the next download can be skipped if the file is unchanged.
+			downloadState.write(localFile);
+		}
+		return true;
+	}
+
+	/**
+	 * Download a Google Drive file to a part file, appending to the bytes that are already in the part file.
+	 * Transient errors are retried from the last byte that was written.
+	 * @param driveService Google Drive service
+	 * @param fileId Google Drive file ID
+	 * @param size Google Drive file size, or null if not known
+	 * @param localFile local file, used in messages
+	 * @param partFile part file to append to, which must exist
+	 * @throws IOException if an error occurs downloading, in which case the part file is kept so that a later download can resume
+	 */
+	private void downloadPartFile ( Drive driveService, String fileId, Long size, File localFile, File partFile )
+		throws IOException {
+		String routine = getClass().getSimpleName() + ".downloadPartFile";
+		// Open the part file once so that local file errors are not retried,
+		// and append so that the bytes that were already written are kept.
+		try ( OutputStream outputStream = new FileOutputStream(partFile, true) ) {
+			for ( int attempt = 1; ; attempt++ ) {
+				// The output stream is not buffered so the part file length is the number of bytes written.
+				long offset = partFile.length();
+				if ( (size != null) && (offset >= size) ) {
+					// Already have all the bytes, for example an empty file or a download that failed before the rename.
+					break;
+				}
+				if ( offset > 0 ) {
+					Message.printStatus(2, routine, "Resuming download of \"" + localFile + "\" at byte " + offset
+						+ ((size == null) ? "" : (" of " + size)) + ".");
+				}
+				Drive.Files.Get request = driveService.files()
+					// Request to execute.
+					.get(fileId)
+					// Whether the application supports My Drive and shared drives.
+					.setSupportsAllDrives(true);
+				// The downloader requests the file in chunks using the Range header, starting at the offset.
+				request.getMediaHttpDownloader().setBytesDownloaded(offset);
+				try {
+					// Invoke the remote operation.
+					request.executeMediaAndDownloadTo(outputStream);
+					break;
+				}
+				catch ( IOException e ) {
+					if ( (attempt >= MAX_DOWNLOAD_ATTEMPTS) || !isTransientError(e) ) {
+						// The part file is kept so that a later download can resume.
+						throw e;
+					}
+					long waitMs = Math.min(1000L << (attempt - 1), 30000L);
+					Message.printWarning(3, routine, "Error downloading \"" + localFile + "\" (attempt " + attempt + " of "
+						+ MAX_DOWNLOAD_ATTEMPTS + ", " + e + ").  Retrying in " + waitMs + " ms.");
+					try {
+						Thread.sleep(waitMs);
+					}
+					catch ( InterruptedException e2 ) {
+						Thread.currentThread().interrupt();
+						throw e;
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Export a Google Workspace file to a local file, streaming the exported content to a part file,
+	 * which is renamed to the local file when the export is complete.
+	 * Google Drive limits exported content to 10 MB.
+	 * @param driveService Google Drive service
+	 * @param fileId Google Drive file ID
+	 * @param exportMimeType the MIME type to export
+	 * @param localFile local file to create, the parent folder must exist
+	 * @param partFile part file to write before renaming to the local file
+	 * @throws IOException if an error occurs exporting
+	 */
+	private void exportFile ( Drive driveService, String fileId, String exportMimeType, File localFile, File partFile )
+		throws IOException {
+		String routine = getClass().getSimpleName() + ".exportFile";
+		// Open the part file once so that local file errors are not retried.
+		try ( FileOutputStream outputStream = new FileOutputStream(partFile, false) ) {
+			for ( int attempt = 1; ; attempt++ ) {
+				try {
+					// Invoke the remote operation.
+					driveService.files()
+						.export(fileId, exportMimeType)
+						.executeMediaAndDownloadTo(outputStream);
+					break;
+				}
+				catch ( IOException e ) {
+					if ( (attempt >= MAX_DOWNLOAD_ATTEMPTS) || !isTransientError(e) ) {
+						throw e;
+					}
+					long waitMs = Math.min(1000L << (attempt - 1), 30000L);
+					Message.printWarning(3, routine, "Error exporting \"" + localFile + "\" (attempt " + attempt + " of "
+						+ MAX_DOWNLOAD_ATTEMPTS + ", " + e + ").  Retrying in " + waitMs + " ms.");
+					try {
+						Thread.sleep(waitMs);
+					}
+					catch ( InterruptedException e2 ) {
+						Thread.currentThread().interrupt();
+						throw e;
+					}
+					// An export cannot be resumed so discard the content that was written and start over.
+					outputStream.getChannel().truncate(0);
+				}
+			}
+		}
+		catch ( IOException e ) {
+			Files.deleteIfExists(partFile.toPath());
+			throw e;
+		}
+
+		// Rename the part file to the local file, replacing an existing file.
+		try {
+			Files.move(partFile.toPath(), localFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		}
+		catch ( AtomicMoveNotSupportedException e ) {
+			Files.move(partFile.toPath(), localFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+
 	/**
 	 * Get the Google Drive file ID given a path to the file.
 	 * This code was generated by ChatGPT.
-	 * @param driveService Drive service object
+	 * @param googleDriveSession Google Drive session, which provides the service and path cache
 	 * @param googleDriveFilePath folder path using syntax "/path/to/folder/" (no leading G: or G:/My Drive).
 	 * The leading and trailing / are optional.
 	 * @return the Google Drive folder ID, or null if not matched
 	 * @throws IOException
 	 */
-	public String getFileIdForPath ( Drive driveService, String googleDriveFilePath ) throws IOException {
+	public String getFileIdForPath ( GoogleDriveSession googleDriveSession, String googleDriveFilePath ) throws IOException {
 		String routine = getClass().getSimpleName() + ".getFileIdForPath";
 		boolean debug = true;
 		if ( debug ) {
@@ -118,7 +395,7 @@ public class GoogleDriveToolkit {
 			parentFolderPath = pathRemoveFirst(googleDriveFilePath);
 			// Parent is everything but the trailing file.
 			parentFolderPath = pathRemoveLast(parentFolderPath);
-			parentFolderId = getFolderIdForSharedWithMePath ( driveService, parentFolderPath );
+			parentFolderId = getFolderIdForSharedWithMePath ( googleDriveSession, parentFolderPath );
 			fileName = pathGetLast(googleDriveFilePath);
 			if ( parentFolderId == null ) {
    				String message = "Cannot get Google Drive ID for 'Shared with me' folder \"" + parentFolderPath + "\".";
@@ -137,7 +414,7 @@ public class GoogleDriveToolkit {
 			parentFolderPath = pathRemoveFirst(googleDriveFilePath);
 			// Parent is everything but the trailing file.
 			parentFolderPath = pathRemoveLast(parentFolderPath);
-			parentFolderId = getFolderIdForSharedDrivesPath ( driveService, parentFolderPath );
+			parentFolderId = getFolderIdForSharedDrivesPath ( googleDriveSession, parentFolderPath );
 			fileName = pathGetLast(googleDriveFilePath);
 			if ( parentFolderId == null ) {
    				String message = "Cannot get Google Drive ID for 'Shared drives' folder \"" + parentFolderPath + "\".";
@@ -161,7 +438,7 @@ public class GoogleDriveToolkit {
 			}
 			// Parent is everything but the trailing file.
 			parentFolderPath = pathRemoveLast(parentFolderPath);
-			parentFolderId = getFolderIdForPath ( driveService, parentFolderPath );
+			parentFolderId = getFolderIdForPath ( googleDriveSession, parentFolderPath );
 			fileName = pathGetLast(googleDriveFilePath);
 			if ( parentFolderId == null ) {
    				String message = "Cannot get Google Drive ID for 'My Drive' folder \"" + parentFolderPath + "\".";
@@ -180,7 +457,7 @@ public class GoogleDriveToolkit {
 		// Then list the files in the folder to find a matching name.
    		FileList result = null;
    		try {
-   			result = driveService
+   			result = googleDriveSession.getService()
    				// Request to execute.
    				.files()
    				// Holds the parameters for the request.
@@ -207,11 +484,9 @@ public class GoogleDriveToolkit {
        			// - see https://developers.google.com/drive/api/guides/ref-search-terms#drive_properties
        			// - don't specify any fields to return all fields (will be slower) but it is a pain to figure out fields
        			//   since they don't seem to be documented well
-       			// - specifying * returns everything and may be slower
-       			// - when using files(), need to do a better job including only file fields in the parentheses
-       			//.setFields("nextPageToken, files(createdTime, description, id, mimeType, modifiedTime, name, ownedByMe, owners, parents, permissions, shared, sharingUser, size, trashed, trashedTime)")
-       			//.setFields("nextPageToken, createdTime, description, id, mimeType, modifiedTime, name, ownedByMe, owners, parents, permissions, shared, sharingUser, size, trashed, trashedTime")
-       			.setFields("*")
+       			// - specifying * returns everything and is much slower
+       			// - only the ID is needed
+       			.setFields("files(id)")
        			// Invoke the remote operation.
        			.execute();
 
@@ -246,13 +521,14 @@ public class GoogleDriveToolkit {
 	/**
 	 * Get the Google Drive folder ID given a path to the folder.
 	 * This method should not be called with empty or root (/) path.
-	 * @param driveService Drive service object
+	 * The session's path cache is used to restart from the longest previously resolved folder.
+	 * @param googleDriveSession Google Drive session, which provides the service and path cache
 	 * @param folderPath folder path using syntax "/path/to/folder/" (no leading G: or G:/My Drive).
 	 * The leading and trailing / are optional.
 	 * @return the Google Drive folder ID, or null if not matched
 	 * @throws IOException
 	 */
-	public String getFolderIdForPath ( Drive driveService, String folderPath ) throws IOException {
+	public String getFolderIdForPath ( GoogleDriveSession googleDriveSession, String folderPath ) throws IOException {
 		String routine = getClass().getSimpleName() + ".getFolderIdForPath";
 
 		// Remove the leading 'My Drive', which is not used in API calls.
@@ -297,9 +573,24 @@ public class GoogleDriveToolkit {
 
         // Initialize the root folder ID.
         String currentFolderId = "root";
+        int iStart = 0;
+
+        // Restart from the longest cached path prefix, if available.
+        GoogleDrivePathCache pathCache = googleDriveSession.getPathCache();
+        GoogleDrivePathCache.Match match = pathCache.getLongestPrefix(MY_DRIVE, folderNames);
+        if ( match != null ) {
+        	currentFolderId = match.getId();
+        	iStart = match.getDepth();
+        }
+        Message.printStatus(2, routine, "Path cache matched " + iStart + " of " + folderNames.length
+        	+ " folders for \"" + folderPath + "\" (" + pathCache + ").");
+
+        Drive driveService = googleDriveSession.getService();
 
-        // Iterate through each folder in the path.
-        for ( String folderName : folderNames ) {
+        // Iterate through each folder in the path:
+        // - skip the folders that were matched in the cache
+        for ( int i = iStart; i < folderNames.length; i++ ) {
+        	String folderName = folderNames[i];
             // Search for the folder by name in the parent folder:
         	// - first time through will list 'root', then sub-folders
         	// - only match the folder name
@@ -317,6 +608,7 @@ public class GoogleDriveToolkit {
                 // Update the current folder ID for the next iteration.
                 currentFolderId = result.getFiles().get(0).getId();
                 Message.printStatus(2, routine, "Set currentFolderId=\"" + currentFolderId + "\"");
+                pathCache.put(MY_DRIVE, folderNames, (i + 1), currentFolderId);
             }
             else {
                 // Folder not found, return null.
@@ -339,13 +631,14 @@ public class GoogleDriveToolkit {
 	 * This should be called for folders that are in shared drives (but not shared folders).
 	 * This ensures that the path is not mixed up with normal My Drive,
 	 * such as service accounts where typically only shared resources are available.
-	 * @param driveService Drive service object
+	 * The session's path cache is used to restart from the longest previously resolved folder.
+	 * @param googleDriveSession Google Drive session, which provides the service and path cache
 	 * @param sharedDrivePath shared folder path using syntax "/Shared drives/driveName/path/to/folder/"
 	 * The leading and trailing / are optional.
 	 * @return the Google Drive folder ID, or null if not matched
 	 * @throws IOException
 	 */
-	public String getFolderIdForSharedDrivesPath ( Drive driveService, String sharedDrivePath ) throws IOException {
+	public String getFolderIdForSharedDrivesPath ( GoogleDriveSession googleDriveSession, String sharedDrivePath ) throws IOException {
 		String routine = getClass().getSimpleName() + ".getFolderIdForSharedDrivesPath";
 
 		// Remove the leading "Shared drives" and "/Shared drives".
@@ -392,37 +685,37 @@ public class GoogleDriveToolkit {
         // sharing user, not the current user.
         // Therefore list shared folders and match the name with the first part of the path.
 
-        // List the shared drives to match the first part and then use that for the initial folder ID.
-
-   		// Output the names and IDs for up to 10 files.
-   		DriveList result0 = null;
-   		Drive.Drives.List request = null;
-		// Do the initial request.
-   		String q0 = "name='" + folderNames[0] + "'";
-		request = driveService
-			// Request to execute.
-			.drives()
-			// Holds the parameters for the request.
-			.list()
-			// Query the shared drive name.
-			.setQ(q0)
-			// Set the fields that are returned (creation time, etc.).
-   			.setFields("*");
-		// Invoke the remote operation.
-		result0 = request.execute();
-
-		if ( (result0 == null) || (result0.size() == 0) ) {
-			// No shared drives so return null;
-			Message.printStatus(2, routine, "Could not match shared drive \"" + folderNames[1] + "\".");
-			return null;
-		}
-
-		// Get the drive ID for the matching shared drive.
-		String currentFolderId = result0.getDrives().get(0).getId();
+        String currentFolderId = null;
+        int iStart = 1;
+
+        // Restart from the longest cached path prefix, if available:
+        // - the first part is the shared drive
+        GoogleDrivePathCache pathCache = googleDriveSession.getPathCache();
+        GoogleDrivePathCache.Match match = pathCache.getLongestPrefix(SHARED_DRIVES, folderNames);
+        if ( match != null ) {
+        	currentFolderId = match.getId();
+        	iStart = match.getDepth();
+        }
+        Message.printStatus(2, routine, "Path cache matched " + ((match == null) ? 0 : iStart) + " of " + folderNames.length
+        	+ " folders for \"" + sharedDrivePath + "\" (" + pathCache + ").");
+
+        Drive driveService = googleDriveSession.getService();
+
+        if ( currentFolderId == null ) {
+        	// Match the first part to a shared drive and then use that for the initial folder ID:
+        	// - the drive ID is the ID of the shared drive's top folder
+        	currentFolderId = getSharedDriveId ( googleDriveSession, folderNames[0] );
+			if ( currentFolderId == null ) {
+				// No matching shared drive so return null.
+				Message.printStatus(2, routine, "Could not match shared drive \"" + folderNames[0] + "\".");
+				return null;
+			}
+			pathCache.put(SHARED_DRIVES, folderNames, 1, currentFolderId);
+        }
 
         // Iterate through each folder in the path:
-   		// - skip the first part, which was checked above
-        for ( int i = 1; i < folderNames.length; i++ ) {
+   		// - skip the first part, which was checked above, and folders that were matched in the cache
+        for ( int i = iStart; i < folderNames.length; i++ ) {
         	String folderName = folderNames[i];
             // Search for the folder by name in the parent folder:
         	// - first time through will list top shared drive, then sub-folders
@@ -446,6 +739,7 @@ public class GoogleDriveToolkit {
                 // Update the current folder ID for the next iteration.
                 currentFolderId = result.getFiles().get(0).getId();
                 Message.printStatus(2, routine, "Set currentFolderId=\"" + currentFolderId + "\"");
+                pathCache.put(SHARED_DRIVES, folderNames, (i + 1), currentFolderId);
             }
             else {
                 // Folder not found, return null.
@@ -464,18 +758,53 @@ public class GoogleDriveToolkit {
         return currentFolderId;
 	}
 
+	/**
+	 * Get the shared drive ID for a shared drive name, using the session's shared drive index.
+	 * The index is loaded from one paged request for all shared drives the first time that it is used,
+	 * and is loaded again if the name is not found, in case the drive was added since the index was loaded.
+	 * @param googleDriveSession Google Drive session, which provides the service and shared drive index
+	 * @param driveName the shared drive name
+	 * @return the shared drive ID, or null if no shared drive has the name
+	 * @throws IOException if more than one shared drive has the name, or if the shared drives cannot be listed
+	 */
+	public String getSharedDriveId ( GoogleDriveSession googleDriveSession, String driveName ) throws IOException {
+		String routine = getClass().getSimpleName() + ".getSharedDriveId";
+		GoogleDriveSharedDriveIndex sharedDriveIndex = googleDriveSession.getSharedDriveIndex();
+		List<String> driveIds = null;
+		// Synchronize so that threads resolving paths at the same time only load the index once.
+		synchronized ( sharedDriveIndex ) {
+			driveIds = sharedDriveIndex.getDriveIds(driveName);
+			if ( driveIds == null ) {
+				// Not loaded yet or the name was not found so (re)load the index.
+				sharedDriveIndex.load(listSharedDrives(googleDriveSession));
+				Message.printStatus(2, routine, "Loaded the shared drive index (" + sharedDriveIndex + ").");
+				driveIds = sharedDriveIndex.getDriveIds(driveName);
+			}
+		}
+		if ( driveIds == null ) {
+			return null;
+		}
+		else if ( driveIds.size() > 1 ) {
+			// Google Drive allows duplicate shared drive names but the path would be ambiguous.
+			throw new IOException ( "Shared drive name \"" + driveName + "\" matches " + driveIds.size()
+				+ " shared drives (IDs " + String.join(", ", driveIds) + ") - rename the shared drives so that the path is unique." );
+		}
+		return driveIds.get(0);
+	}
+
 	/**
 	 * Get the Google Drive shared folder ID given a path to the folder.
 	 * This should be called for folders that are shared (but not shared drives).
 	 * This ensures that the path is not mixed up with normal My Drive,
 	 * such as service accounts where typically only shared resources are available.
-	 * @param driveService Drive service object
+	 * The session's path cache is used to restart from the longest previously resolved folder.
+	 * @param googleDriveSession Google Drive session, which provides the service and path cache
 	 * @param sharedFolderPath shared folder path using syntax "/path/to/folder/"
 	 * The leading and trailing / are optional.
 	 * @return the Google Drive folder ID, or null if not matched
 	 * @throws IOException
 	 */
-	public String getFolderIdForSharedWithMePath ( Drive driveService, String sharedFolderPath ) throws IOException {
+	public String getFolderIdForSharedWithMePath ( GoogleDriveSession googleDriveSession, String sharedFolderPath ) throws IOException {
 		String routine = getClass().getSimpleName() + ".getFolderIdForSharedWithMePath";
 
 		// Remove the leading "Shared with me" and "/Shared with me".
@@ -523,28 +852,48 @@ public class GoogleDriveToolkit {
 
         // List the top-level folders to match the first part and then use that for the initial folder ID:
         // - sharedWithMe=true is required to list the shared folder (but is not required below to list subfolder contents)
+        // - the name must be in the query, otherwise the first shared folder would be used and cached for the path
 
-        String q0 = "mimeType='application/vnd.google-apps.folder' and sharedWithMe=true";
-        Message.printStatus(2, routine, "Getting files using q=\"" + q0 + "\"");
-        // Only the file ID is needed.
-        FileList result0 = driveService.files().list()
-            .setQ(q0)
-            .setFields("files(id)")
-            .execute();
-
-   		List<com.google.api.services.drive.model.File> files = result0.getFiles();
         String currentFolderId = null;
-   		if ( (files == null) || files.isEmpty() ) {
-   			Message.printStatus(2, routine, "No shared folders.");
-   			return null;
-   		}
-   		else {
-   			currentFolderId = files.get(0).getId();
-   		}
+        int iStart = 1;
+
+        // Restart from the longest cached path prefix, if available:
+        // - the first part is the top-level shared folder
+        GoogleDrivePathCache pathCache = googleDriveSession.getPathCache();
+        GoogleDrivePathCache.Match match = pathCache.getLongestPrefix(SHARED_WITH_ME, folderNames);
+        if ( match != null ) {
+        	currentFolderId = match.getId();
+        	iStart = match.getDepth();
+        }
+        Message.printStatus(2, routine, "Path cache matched " + ((match == null) ? 0 : iStart) + " of " + folderNames.length
+        	+ " folders for \"" + sharedFolderPath + "\" (" + pathCache + ").");
+
+        Drive driveService = googleDriveSession.getService();
+
+        if ( currentFolderId == null ) {
+        	String q0 = "name='" + GoogleDriveNameMatcher.escapeQueryValue(folderNames[0])
+        		+ "' and mimeType='application/vnd.google-apps.folder' and sharedWithMe=true";
+        	Message.printStatus(2, routine, "Getting files using q=\"" + q0 + "\"");
+        	// Only the file ID is needed.
+        	FileList result0 = driveService.files().list()
+        		.setQ(q0)
+        		.setFields("files(id)")
+        		.execute();
+
+   			List<com.google.api.services.drive.model.File> files = result0.getFiles();
+   			if ( (files == null) || files.isEmpty() ) {
+   				Message.printStatus(2, routine, "No shared folder named \"" + folderNames[0] + "\".");
+   				return null;
+   			}
+   			else {
+   				currentFolderId = files.get(0).getId();
+   				pathCache.put(SHARED_WITH_ME, folderNames, 1, currentFolderId);
+   			}
+        }
 
         // Iterate through each folder in the path:
-   		// - skip the first part, which was checked above
-        for ( int i = 1; i < folderNames.length; i++ ) {
+   		// - skip the first part, which was checked above, and folders that were matched in the cache
+        for ( int i = iStart; i < folderNames.length; i++ ) {
         	String folderName = folderNames[i];
             // Search for the folder by name in the parent folder:
         	// - first time through will list top shared folder, then sub-folders
@@ -563,6 +912,7 @@ public class GoogleDriveToolkit {
                 // Update the current folder ID for the next iteration.
                 currentFolderId = result.getFiles().get(0).getId();
                 Message.printStatus(2, routine, "Set currentFolderId=\"" + currentFolderId + "\"");
+                pathCache.put(SHARED_WITH_ME, folderNames, (i + 1), currentFolderId);
             }
             else {
                 // Folder not found, return null.
@@ -583,20 +933,32 @@ public class GoogleDriveToolkit {
 
 	/**
 	 * Get the parent path given the parent folder Google Drive ID.
-	 * @param driveService Drive service instance
+	 * The session's folder cache is used so that each folder is requested at most once per session
+	 * and the path for a folder is reused for all files in the folder.
+	 * @param googleDriveSession Google Drive session
 	 * @param folderId the folder ID to process
-	 * @return the array of parent paths starting from the top-most folder (e.g., "My Drive")
+	 * @return the path starting from the top-most folder (e.g., "My Drive/folder1/folder2")
 	 * @throws IOException
 	 */
-    public String getParentFolderPathFromFolderId ( Drive driveService, String folderId ) throws IOException {
-		List<String> parentPaths = getParentFoldersFromFolderId(driveService, folderId);
+    public String getParentFolderPathFromFolderId ( GoogleDriveSession googleDriveSession, String folderId ) throws IOException {
+    	GoogleDriveFolderCache folderCache = googleDriveSession.getFolderCache();
+    	String path = folderCache.getPath(folderId);
+    	if ( path != null ) {
+    		return path;
+    	}
+		List<String> folderIds = new ArrayList<>();
+		List<String> parentPaths = getParentFoldersFromFolderId(googleDriveSession, folderId, folderIds);
+		// The first folder may be a cached path rather than a single folder name.
 		StringBuilder parentPath = new StringBuilder();
-		// The paths will be from the innermost folder to the outermost.
-		for ( String part : parentPaths ) {
+		for ( int i = 0; i < parentPaths.size(); i++ ) {
 			if ( parentPath.length() > 0 ) {
 				parentPath.append("/");
 			}
-			parentPath.append(part);
+			parentPath.append(parentPaths.get(i));
+			// Save the path for each folder so that other folders with the same parents can use it.
+			if ( folderIds.get(i) != null ) {
+				folderCache.putPath(folderIds.get(i), parentPath.toString());
+			}
 		}
     	return parentPath.toString();
     }
@@ -604,75 +966,265 @@ public class GoogleDriveToolkit {
 	/**
 	 * Get the parent folders given the parent folder Google Drive ID.
 	 * The initial code was generated by ChatGPT.
-	 * @param driveService Drive service instance
+	 * Folders are requested only if not in the session's folder cache,
+	 * and walking up the parents stops at the first folder that has a cached path.
+	 * @param googleDriveSession Google Drive session
 	 * @param folderId the folder ID to process
-	 * @return the array of parent paths starting from the top-most folder (e.g., "My Drive")
+	 * @param folderIds list that is filled with the folder ID for each returned folder,
+	 * or null for the first item if it is a cached path
+	 * @return the array of parent paths starting from the top-most folder (e.g., "My Drive"),
+	 * where the first item may be a cached path containing multiple folders
 	 * @throws IOException
 	 */
-    private List<String> getParentFoldersFromFolderId ( Drive driveService, String folderId ) throws IOException {
+    private List<String> getParentFoldersFromFolderId ( GoogleDriveSession googleDriveSession, String folderId,
+    	List<String> folderIds ) throws IOException {
     	String routine = getClass().getSimpleName() + ".getParentFolders";
+    	GoogleDriveFolderCache folderCache = googleDriveSession.getFolderCache();
         List<String> parentFolders = new ArrayList<>();
+        List<String> parentFolderIds = new ArrayList<>();
         boolean debug = false;
         if ( debug ) {
         	Message.printStatus(2,routine,"Getting folders for ID=" + folderId);
         }
 
-   		com.google.api.services.drive.model.File folder = driveService.files()
-   			.get(folderId)
-   			.setFields("*")
-			// Whether files from My Drive and shared drives should be listed in the result:
-   			// - not available in the API here?
-			//.setIncludeItemsFromAllDrives(true)
-			// Whether the application supports My Drive and shared drives.
-			.setSupportsAllDrives(true)
-   			.execute();
-        if ( debug ) {
-        	Message.printStatus(2,routine,"Google folder for ID=" + folder);
-        }
-        if ( folder != null ) {
-        	// Add the requesting folder.
-            parentFolders.add(folder.getName());
-            if ( debug ) {
-            	Message.printStatus(2,routine,"Google folder parents=" + folder.getParents());
-        	   	if ( folder.getParents() != null ) {
-        		   	Message.printStatus(2,routine,"Google folder parents size=" + folder.getParents().size());
-        	   	}
-            }
-        }
-
-        while ( (folder != null) && (folder.getParents() != null) ) {
-            String parentId = folder.getParents().get(0); // Get the primary parent.
-            if ( debug ) {
-            	Message.printStatus(2,routine,"Parent ID=" + parentId);
-            }
-            folder = driveService.files()
-            	.get(parentId)
-            	.setFields("*")
-            	// Whether files from My Drive and shared drives should be listed in the result:
-   			    // - not available in the API here?
-			    //.setIncludeItemsFromAllDrives(true)
-			    // Whether the application supports My Drive and shared drives.
-			    .setSupportsAllDrives(true)
-            	.execute();
+        String id = folderId;
+        Drive driveService = null;
+        while ( id != null ) {
+        	String cachedPath = folderCache.getPath(id);
+        	if ( cachedPath != null ) {
+        		// The path for the folder is known so no need to go further up.
+        		parentFolders.add(cachedPath);
+        		parentFolderIds.add(null);
+        		break;
+        	}
+        	GoogleDriveFolderCache.Folder folder = folderCache.getFolder(id);
+        	if ( folder == null ) {
+        		// Request the folder from Google Drive.
+        		if ( driveService == null ) {
+        			driveService = googleDriveSession.getService();
+        		}
+        		com.google.api.services.drive.model.File file = driveService.files()
+        			.get(id)
+        			// Only the name and parents are needed to build the path.
+        			.setFields("name, parents")
+        			// Whether the application supports My Drive and shared drives.
+        			.setSupportsAllDrives(true)
+        			.execute();
+        		if ( file == null ) {
+        			break;
+        		}
+        		// Use the primary parent.
+        		String parentId = null;
+        		if ( (file.getParents() != null) && !file.getParents().isEmpty() ) {
+        			parentId = file.getParents().get(0);
+        		}
+        		folder = folderCache.putFolder(id, file.getName(), parentId);
+        	}
+        	if ( debug ) {
+        		Message.printStatus(2,routine,"Adding folder name=" + folder.getName() + " parent ID=" + folder.getParentId());
+        	}
             parentFolders.add(folder.getName());
-            if ( debug ) {
-            	Message.printStatus(2,routine,"Adding parent folder name=" + folder.getName());
-            }
+            parentFolderIds.add(id);
+            id = folder.getParentId();
         }
 
         // Reverse the order since moved up through parents.
         List<String> parentFoldersSorted = new ArrayList<>();
         for ( int i = parentFolders.size() - 1; i >= 0; i-- ) {
         	parentFoldersSorted.add(parentFolders.get(i));
+        	if ( folderIds != null ) {
+        		// The cached path, if any, will be first and its ID is not needed since it is already cached.
+        		folderIds.add(parentFolderIds.get(i));
+        	}
         }
         return parentFoldersSorted;
     }
     
+	/**
+	 * Request folders that are not in the session's folder cache, and their parent folders, using batch requests.
+	 * Each level of parents is requested in one batch (up to 100 folders per HTTP request)
+	 * rather than one request per folder, for example to fill the cache for the parents of a page of listed files
+	 * before calling getParentFolderPathFromFolderId() for each file.
+	 * Errors for individual folders are logged and the folders are requested again later if needed.
+	 * @param googleDriveSession Google Drive session
+	 * @param folderIds the folder IDs to request
+	 * @throws IOException if a batch could not be sent
+	 */
+	public void prefetchFolders ( GoogleDriveSession googleDriveSession, Collection<String> folderIds ) throws IOException {
+		String routine = getClass().getSimpleName() + ".prefetchFolders";
+		GoogleDriveFolderCache folderCache = googleDriveSession.getFolderCache();
+		Drive driveService = googleDriveSession.getService();
+		// Folders that have been requested, to avoid requesting again if there is an error.
+		Set<String> requestedIds = new HashSet<>();
+		Set<String> pendingIds = new LinkedHashSet<>();
+		for ( String folderId : folderIds ) {
+			if ( (folderId != null) && !folderCache.contains(folderId) ) {
+				pendingIds.add(folderId);
+			}
+		}
+		int batchCount = 0;
+		int requestCount = 0;
+		while ( !pendingIds.isEmpty() ) {
+			// Parents of the folders in this level.
+			Set<String> parentIds = new LinkedHashSet<>();
+			GoogleDriveBatch batch = new GoogleDriveBatch(googleDriveSession);
+			for ( String pendingId : pendingIds ) {
+				requestedIds.add(pendingId);
+				batch.queue(
+					driveService.files()
+						.get(pendingId)
+						// Only the name and parents are needed to build the path.
+						.setFields("name, parents")
+						// Whether the application supports My Drive and shared drives.
+						.setSupportsAllDrives(true),
+					new JsonBatchCallback<com.google.api.services.drive.model.File>() {
+						@Override
+						public void onSuccess ( com.google.api.services.drive.model.File file, HttpHeaders responseHeaders ) {
+							// Use the primary parent.
+							String parentId = null;
+							if ( (file.getParents() != null) && !file.getParents().isEmpty() ) {
+								parentId = file.getParents().get(0);
+								parentIds.add(parentId);
+							}
+							folderCache.putFolder(pendingId, file.getName(), parentId);
+						}
+
+						@Override
+						public void onFailure ( GoogleJsonError e, HttpHeaders responseHeaders ) {
+							Message.printWarning(3, routine, "Error getting folder for ID \"" + pendingId + "\" (" + e.getMessage() + ").");
+						}
+					});
+			}
+			// Send the remaining requests.
+			batch.flush();
+			batchCount += batch.getBatchCount();
+			requestCount += batch.getRequestCount();
+			// Request the parents that are not already known.
+			pendingIds = new LinkedHashSet<>();
+			for ( String parentId : parentIds ) {
+				if ( !requestedIds.contains(parentId) && !folderCache.contains(parentId) ) {
+					pendingIds.add(parentId);
+				}
+			}
+		}
+		if ( requestCount > 0 ) {
+			Message.printStatus(2, routine, "Requested " + requestCount + " folders using " + batchCount + " batch requests.");
+		}
+	}
+
+	/**
+	 * Determine whether an error is a transient network error, meaning that the request can be retried.
+	 * HTTP error responses are not retried here because the rate limiter (GoogleDriveRateLimiter)
+	 * already retries rate limit and server errors,
+	 * and local errors such as a file that cannot be written will not succeed if retried.
+	 * @param e the exception to check
+	 * @return true if the error is a timeout, connection error, SSL error, or unexpected end of the response
+	 */
+	private boolean isTransientError ( IOException e ) {
+		return (e instanceof SocketTimeoutException)
+			// Includes ConnectException and connection resets.
+			|| (e instanceof SocketException)
+			|| (e instanceof SSLException)
+			|| (e instanceof EOFException);
+	}
+
+	/**
+	 * List all the files and folders that match a query, reading all pages of the results.
+	 * The maximum page size is used to minimize the number of requests.
+	 * This method can be called by multiple threads.
+	 * @param googleDriveSession Google Drive session
+	 * @param q query string, for example "'folderId' in parents and trashed=false"
+	 * @param fields the fields to return for each file, for example "*" or "id, name, mimeType"
+	 * @return the list of files and folders, guaranteed to be non-null
+	 * @throws IOException if an error occurs listing
+	 */
+	public List<com.google.api.services.drive.model.File> listFiles (
+		GoogleDriveSession googleDriveSession, String q, String fields ) throws IOException {
+		return listFiles ( googleDriveSession, q, fields, MAX_PAGE_SIZE );
+	}
+
+	/**
+	 * List all the files and folders that match a query, reading all pages of the results.
+	 * This method can be called by multiple threads.
+	 * @param googleDriveSession Google Drive session
+	 * @param q query string, for example "'folderId' in parents and trashed=false"
+	 * @param fields the fields to return for each file, for example "*" or "id, name, mimeType"
+	 * @param pageSize the number of files to request per page, limited to MAX_PAGE_SIZE
+	 * @return the list of files and folders, guaranteed to be non-null
+	 * @throws IOException if an error occurs listing
+	 */
+	public List<com.google.api.services.drive.model.File> listFiles (
+		GoogleDriveSession googleDriveSession, String q, String fields, int pageSize ) throws IOException {
+		// Use the on-disk metadata cache if enabled for the command.
+		GoogleDriveMetadataCache metadataCache = googleDriveSession.getMetadataCache();
+		if ( metadataCache != null ) {
+			List<com.google.api.services.drive.model.File> cachedFiles = metadataCache.getListing(q, fields);
+			if ( cachedFiles != null ) {
+				return cachedFiles;
+			}
+		}
+		List<com.google.api.services.drive.model.File> files = new ArrayList<>();
+		Drive.Files.List request = googleDriveSession.getService()
+			.files()
+			.list()
+			.setSpaces("drive")
+			.setQ(q)
+			.setIncludeItemsFromAllDrives(true)
+			.setSupportsAllDrives(true)
+			.setPageSize(Math.max(1, Math.min(pageSize, MAX_PAGE_SIZE)))
+			.setFields("nextPageToken, files(" + fields + ")");
+		while ( true ) {
+			FileList result = request.execute();
+			if ( result.getFiles() != null ) {
+				files.addAll(result.getFiles());
+			}
+			String nextPageToken = result.getNextPageToken();
+			if ( (nextPageToken == null) || nextPageToken.isEmpty() ) {
+				break;
+			}
+			request.setPageToken(nextPageToken);
+		}
+		if ( metadataCache != null ) {
+			metadataCache.putListing(q, fields, files);
+		}
+		return files;
+	}
+
+	/**
+	 * List all the shared drives that are visible to the user, reading all pages of the results.
+	 * Only the drive ID and name are returned.
+	 * @param googleDriveSession Google Drive session
+	 * @return the list of shared drives, guaranteed to be non-null
+	 * @throws IOException if an error occurs listing
+	 */
+	public List<com.google.api.services.drive.model.Drive> listSharedDrives (
+		GoogleDriveSession googleDriveSession ) throws IOException {
+		List<com.google.api.services.drive.model.Drive> drives = new ArrayList<>();
+		Drive.Drives.List request = googleDriveSession.getService()
+			.drives()
+			.list()
+			.setPageSize(MAX_DRIVES_PAGE_SIZE)
+			.setFields("nextPageToken, drives(id, name)");
+		while ( true ) {
+			DriveList result = request.execute();
+			if ( result.getDrives() != null ) {
+				drives.addAll(result.getDrives());
+			}
+			String nextPageToken = result.getNextPageToken();
+			if ( (nextPageToken == null) || nextPageToken.isEmpty() ) {
+				break;
+			}
+			request.setPageToken(nextPageToken);
+		}
+		return drives;
+	}
+
     /**
      * Remove the first part of a path and return the remaining path.
+     * Package-private so that it can be called by benchmarks.
      * @return the path after removing the first part
      */
-	private String pathRemoveFirst ( String path ) {
+	String pathRemoveFirst ( String path ) {
 		// Save the original.
 		String pathOrig = path;
 		// If the path starts with / remove it so that have a consistent start.
@@ -693,9 +1245,10 @@ public class GoogleDriveToolkit {
 
     /**
      * Get the last part of a path (e.g., the file name).
+     * Package-private so that it can be called by benchmarks.
      * @return the last part of the path
      */
-	private String pathGetLast ( String path ) {
+	String pathGetLast ( String path ) {
 		// Save the original.
 		String pathOrig = path;
 		// If the path ends with / remove it so that have a consistent end.
@@ -716,9 +1269,10 @@ public class GoogleDriveToolkit {
 
     /**
      * Remove the last part of a path and return the remaining path.
+     * Package-private so that it can be called by benchmarks.
      * @return the path after removing the last part
      */
-	private String pathRemoveLast ( String path ) {
+	String pathRemoveLast ( String path ) {
 		// Save the original.
 		String pathOrig = path;
 		// If the path ends with / remove it so that have a consistent end.
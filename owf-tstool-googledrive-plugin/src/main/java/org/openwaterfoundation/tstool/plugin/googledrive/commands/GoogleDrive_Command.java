@@ -23,19 +23,39 @@ NoticeEnd */
 package org.openwaterfoundation.tstool.plugin.googledrive.commands;
 
 import java.io.File;
-import java.io.FileOutputStream;
-import java.io.OutputStream;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.PatternSyntaxException;
 
 import javax.swing.JFrame;
 
 import org.openwaterfoundation.tstool.plugin.googledrive.GoogleDriveAuthenticationMethodType;
+import org.openwaterfoundation.tstool.plugin.googledrive.GoogleDriveChangesReader;
+import org.openwaterfoundation.tstool.plugin.googledrive.GoogleDriveCsvWriter;
+import org.openwaterfoundation.tstool.plugin.googledrive.GoogleDriveDateTimeConverter;
+import org.openwaterfoundation.tstool.plugin.googledrive.GoogleDriveExportFormatType;
+import org.openwaterfoundation.tstool.plugin.googledrive.GoogleDriveFolderWalker;
+import org.openwaterfoundation.tstool.plugin.googledrive.GoogleDriveMetrics;
+import org.openwaterfoundation.tstool.plugin.googledrive.GoogleDriveNameMatcher;
+import org.openwaterfoundation.tstool.plugin.googledrive.GoogleDriveRateLimiter;
 import org.openwaterfoundation.tstool.plugin.googledrive.GoogleDriveSession;
+import org.openwaterfoundation.tstool.plugin.googledrive.GoogleDriveSessionRegistry;
 import org.openwaterfoundation.tstool.plugin.googledrive.GoogleDriveToolkit;
 
 import com.google.api.services.drive.Drive;
+import com.google.api.services.drive.model.Change;
 import com.google.api.services.drive.model.DriveList;
 import com.google.api.services.drive.model.FileList;
 import com.google.api.services.drive.model.User;
@@ -47,6 +67,7 @@ import rti.tscommandprocessor.core.TSCommandProcessor;
 import rti.tscommandprocessor.core.TSCommandProcessorUtil;
 
 import RTi.Util.IO.AbstractCommand;
+import RTi.Util.IO.Command;
 import RTi.Util.IO.CommandDiscoverable;
 import RTi.Util.IO.CommandException;
 import RTi.Util.IO.CommandLogRecord;
@@ -93,6 +114,7 @@ implements CommandDiscoverable, FileGenerator, ObjectListProvider
 	protected final String _File = "File";
 	protected final String _Folder = "Folder";
 	protected final String _All = "All";
+	protected final String _Changes = "Changes";
 
 	/**
 	Data members used for parameter values.
@@ -116,6 +138,103 @@ implements CommandDiscoverable, FileGenerator, ObjectListProvider
 	 */
 	protected final int _MaxObjects = 2000;
 
+	/**
+	 * Default number of threads used to download files.
+	 */
+	protected final int _DefaultDownloadConcurrency = 4;
+
+	/**
+	 * Default number of threads used to list folders when ListScope=All.
+	 */
+	protected final int _DefaultListConcurrency = 4;
+
+	/**
+	 * Default number of files and folders to request per page when listing.
+	 */
+	protected final int _DefaultListPageSize = GoogleDriveToolkit.MAX_PAGE_SIZE;
+
+	/**
+	 * Default metadata cache time to live, seconds.
+	 */
+	protected final int _DefaultMetadataCacheTTL = 3600;
+
+	/**
+	 * List output column names, in the default order.
+	 */
+	protected final String [] _ListColumns = {
+		"Id",
+		"Name",
+		"ParentFolder",
+		"ParentFolderId",
+		"Type",
+		"Size",
+		"Owner",
+		"OwnedByMe",
+		"CreationTime",
+		"Shared",
+		"SharingUser",
+		"SharedWithMeTime",
+		"LastModifiedTime",
+		"LastModifiedUser",
+		"Trashed",
+		"TrashingUser",
+		"TrashedTime",
+		"OriginalFilename",
+		"WebViewLink"
+	};
+
+	/**
+	 * Google Drive file fields that are needed for each column in _ListColumns:
+	 * - used to request only the fields that are output, which reduces the size of the response
+	 * - see https://developers.google.com/drive/api/reference/rest/v3/files
+	 */
+	private final String [] listColumnFields = {
+		"id",
+		"name",
+		"parents",
+		"parents",
+		"mimeType",
+		"size",
+		"owners(displayName)",
+		"ownedByMe",
+		"createdTime",
+		"shared",
+		"sharingUser(displayName)",
+		"sharedWithMeTime",
+		"modifiedTime",
+		"lastModifyingUser(displayName)",
+		"trashed",
+		"trashingUser(displayName)",
+		"trashedTime",
+		"originalFilename",
+		"webViewLink"
+	};
+
+	/**
+	 * Table column types for each column in _ListColumns.
+	 */
+	private final int [] listColumnTypes = {
+		TableField.DATA_TYPE_STRING,
+		TableField.DATA_TYPE_STRING,
+		TableField.DATA_TYPE_STRING,
+		TableField.DATA_TYPE_STRING,
+		TableField.DATA_TYPE_STRING,
+		TableField.DATA_TYPE_LONG,
+		TableField.DATA_TYPE_STRING,
+		TableField.DATA_TYPE_BOOLEAN,
+		TableField.DATA_TYPE_DATETIME,
+		TableField.DATA_TYPE_BOOLEAN,
+		TableField.DATA_TYPE_STRING,
+		TableField.DATA_TYPE_DATETIME,
+		TableField.DATA_TYPE_DATETIME,
+		TableField.DATA_TYPE_STRING,
+		TableField.DATA_TYPE_BOOLEAN,
+		TableField.DATA_TYPE_STRING,
+		TableField.DATA_TYPE_DATETIME,
+		TableField.DATA_TYPE_STRING,
+		TableField.DATA_TYPE_STRING
+	};
+
 	/**
 	Data members used for parameter values.
 	*/
@@ -123,6 +242,17 @@ implements CommandDiscoverable, FileGenerator, ObjectListProvider
 	protected final String _Warn = "Warn";
 	protected final String _Fail = "Fail";
 
+	/**
+	Data members used for DownloadIfUnchanged parameter values.
+	*/
+	protected final String _Download = "Download";
+	protected final String _Skip = "Skip";
+
+	/**
+	Data members used for MetadataCache parameter values.
+	*/
+	protected final String _Clear = "Clear";
+
 	/**
 	Output file that is created by this command.
 	*/
@@ -133,6 +263,11 @@ implements CommandDiscoverable, FileGenerator, ObjectListProvider
 	*/
 	private DataTable discoveryOutputTable = null;
 
+	/**
+	The metrics table that is created for discovery mode.
+	*/
+	private DataTable discoveryMetricsTable = null;
+
 	/**
 	Constructor.
 	*/
@@ -141,6 +276,108 @@ implements CommandDiscoverable, FileGenerator, ObjectListProvider
 		setCommandName ( "GoogleDrive" );
 	}
 
+	/**
+	 * Build the Google Drive fields to request for the list output columns.
+	 * The id, name, and mimeType fields are always included because they are used to filter the list and walk folders.
+	 * @param listColumns the list output columns
+	 * @return the fields to request for each file, as a comma-separated list
+	 */
+	private String buildListFields ( List<String> listColumns ) {
+		List<String> fields = new ArrayList<>();
+		fields.add("id");
+		fields.add("name");
+		fields.add("mimeType");
+		for ( String listColumn : listColumns ) {
+			int pos = getListColumnPosition(listColumn);
+			if ( (pos >= 0) && !fields.contains(this.listColumnFields[pos]) ) {
+				fields.add(this.listColumnFields[pos]);
+			}
+		}
+		return String.join(", ", fields);
+	}
+
+	/**
+	 * Build the owner column value for a file, which can have multiple owners.
+	 * @param file Google Drive file metadata
+	 * @return the owner display names separated by commas, or an empty string if no owners
+	 */
+	static String buildOwnerCsv ( com.google.api.services.drive.model.File file ) {
+		List<User> users = file.getOwners();
+		StringBuilder userCsv = new StringBuilder();
+		if ( users != null ) {
+			for ( User user : users ) {
+				if ( userCsv.length() > 0 ) {
+					userCsv.append(",");
+				}
+				userCsv.append(user.getDisplayName());
+			}
+		}
+		return userCsv.toString();
+	}
+
+	/**
+	 * Build a Google Drive query clause to filter the list on the server, so that files that will not be listed are not returned.
+	 * The query selects a superset of the files to list and files must still be checked after they are returned,
+	 * for example to match names that the query cannot express.
+	 * @param listFiles whether files are listed
+	 * @param listFolders whether folders are listed
+	 * @param nameMatcher the name matcher, or null if names are not filtered
+	 * @param isWalk whether folders are being walked, in which case all folders must be selected so that sub-folders can be listed
+	 * @return the query clause, which is enclosed in parentheses if necessary,
+	 * or null if the listing cannot be filtered on the server
+	 */
+	private String buildListFilterQuery ( boolean listFiles, boolean listFolders, GoogleDriveNameMatcher nameMatcher, boolean isWalk ) {
+		String folderQ = "mimeType = '" + GoogleDriveFolderWalker.FOLDER_MIME_TYPE + "'";
+		if ( listFolders && !listFiles ) {
+			// Only folders are listed:
+			// - the name can't be filtered when walking because all folders are needed
+			if ( !isWalk && (nameMatcher != null) && (nameMatcher.toQueryClause() != null) ) {
+				return "(" + folderQ + " and " + nameMatcher.toQueryClause() + ")";
+			}
+			return folderQ;
+		}
+		String typeQ = null;
+		if ( listFiles && !listFolders && !isWalk ) {
+			// Only files are listed and folders are not needed to walk.
+			typeQ = "mimeType != '" + GoogleDriveFolderWalker.FOLDER_MIME_TYPE + "'";
+		}
+		String nameQ = (nameMatcher == null) ? null : nameMatcher.toQueryClause();
+		if ( (nameQ != null) && isWalk ) {
+			// Folders are needed to walk even if they don't match the name.
+			nameQ = "(" + nameQ + " or " + folderQ + ")";
+		}
+		if ( (typeQ != null) && (nameQ != null) ) {
+			return "(" + typeQ + " and " + nameQ + ")";
+		}
+		else if ( typeQ != null ) {
+			return typeQ;
+		}
+		else {
+			return nameQ;
+		}
+	}
+
+	/**
+	 * Build an index of ID to table record, used to check for duplicate records.
+	 * Using the index is much faster than searching the table for each record.
+	 * @param table the table to index, which may contain existing records if appending
+	 * @param idCol the ID column number
+	 * @return the index of ID to record
+	 */
+	static Map<String,TableRecord> buildRecordIndex ( DataTable table, int idCol ) throws Exception {
+		int nrec = table.getNumberOfRecords();
+		Map<String,TableRecord> recordIndex = new HashMap<>(Math.max(16, nrec*2));
+		for ( int irec = 0; irec < nrec; irec++ ) {
+			TableRecord rec = table.getRecord(irec);
+			Object id = rec.getFieldValue(idCol);
+			if ( (id != null) && !recordIndex.containsKey(id.toString()) ) {
+				// Use the first matching record, consistent with searching the table.
+				recordIndex.put(id.toString(), rec);
+			}
+		}
+		return recordIndex;
+	}
+
 	/**
 	Check the command parameter for valid values, combination, etc.
 	@param parameters The parameters for the command.
@@ -154,6 +391,10 @@ implements CommandDiscoverable, FileGenerator, ObjectListProvider
 		String SessionID = parameters.getValue ( "SessionID" );
 		String AuthenticationMethod = parameters.getValue ( "AuthenticationMethod" );
 		String GoogleDriveCommand = parameters.getValue ( "GoogleDriveCommand" );
+		String MetadataCache = parameters.getValue ( "MetadataCache" );
+		String MetadataCacheTTL = parameters.getValue ( "MetadataCacheTTL" );
+		String RequestRateLimit = parameters.getValue ( "RequestRateLimit" );
+		String RequestMaxRetries = parameters.getValue ( "RequestMaxRetries" );
 		// Copy.
     	String CopyFiles = parameters.getValue ( "CopyFiles" );
     	String DeleteFiles = parameters.getValue ( "DeleteFiles" );
@@ -164,6 +405,9 @@ implements CommandDiscoverable, FileGenerator, ObjectListProvider
     	// Download.
     	String DownloadFiles = parameters.getValue ( "DownloadFiles" );
     	String DownloadFolders = parameters.getValue ( "DownloadFolders" );
+    	String DownloadConcurrency = parameters.getValue ( "DownloadConcurrency" );
+    	String DownloadIfUnchanged = parameters.getValue ( "DownloadIfUnchanged" );
+    	String DownloadExportFormat = parameters.getValue ( "DownloadExportFormat" );
     	// List
     	String ListScope = parameters.getValue ( "ListScope" );
     	String ListFolderPath = parameters.getValue ( "ListFolderPath" );
@@ -171,7 +415,11 @@ implements CommandDiscoverable, FileGenerator, ObjectListProvider
     	String ListFolders = parameters.getValue ( "ListFolders" );
     	String ListSharedWithMe = parameters.getValue ( "ListSharedWithMe" );
     	String ListTrashed = parameters.getValue ( "ListTrashed" );
+    	String ListMaxDepth = parameters.getValue ( "ListMaxDepth" );
+    	String ListConcurrency = parameters.getValue ( "ListConcurrency" );
+    	String ListPageSize = parameters.getValue ( "ListPageSize" );
     	String ListMax = parameters.getValue ( "ListMax" );
+    	String ListColumns = parameters.getValue ( "ListColumns" );
     	// Upload.
     	String UploadFiles = parameters.getValue ( "UploadFiles" );
     	String UploadFolders = parameters.getValue ( "UploadFolders" );
@@ -228,6 +476,43 @@ implements CommandDiscoverable, FileGenerator, ObjectListProvider
 			}
 		}
 
+		if ( (MetadataCache != null) && !MetadataCache.isEmpty() &&
+			!MetadataCache.equalsIgnoreCase(_False) && !MetadataCache.equalsIgnoreCase(_True)
+			&& !MetadataCache.equalsIgnoreCase(_Clear) ) {
+			message = "The MetadataCache parameter (" + MetadataCache + ") is invalid.";
+			warning += "\n" + message;
+			status.addToLog(CommandPhaseType.INITIALIZATION,
+				new CommandLogRecord(CommandStatusType.FAILURE,
+					message, "Specify " + _False + " (default), " + _True + ", or " + _Clear + "."));
+		}
+
+		if ( (MetadataCacheTTL != null) && !MetadataCacheTTL.isEmpty() &&
+			(!StringUtil.isInteger(MetadataCacheTTL) || (Integer.parseInt(MetadataCacheTTL) < 1)) ) {
+			message = "The metadata cache time to live (" + MetadataCacheTTL + ") is invalid.";
+			warning += "\n" + message;
+			status.addToLog(CommandPhaseType.INITIALIZATION,
+				new CommandLogRecord(CommandStatusType.FAILURE,
+					message, "Specify the number of seconds as an integer 1 or larger."));
+		}
+
+		if ( (RequestRateLimit != null) && !RequestRateLimit.isEmpty() &&
+			(!StringUtil.isDouble(RequestRateLimit) || (Double.parseDouble(RequestRateLimit) < 0.0)) ) {
+			message = "The request rate limit (" + RequestRateLimit + ") is invalid.";
+			warning += "\n" + message;
+			status.addToLog(CommandPhaseType.INITIALIZATION,
+				new CommandLogRecord(CommandStatusType.FAILURE,
+					message, "Specify the requests per second as a number 0 or larger (0 to not limit)."));
+		}
+
+		if ( (RequestMaxRetries != null) && !RequestMaxRetries.isEmpty() &&
+			(!StringUtil.isInteger(RequestMaxRetries) || (Integer.parseInt(RequestMaxRetries) < 0)) ) {
+			message = "The request maximum retries (" + RequestMaxRetries + ") is invalid.";
+			warning += "\n" + message;
+			status.addToLog(CommandPhaseType.INITIALIZATION,
+				new CommandLogRecord(CommandStatusType.FAILURE,
+					message, "Specify an integer 0 or larger."));
+		}
+
 		// OK to use /.
 		if ( (ListFolderPath != null) && !ListFolderPath.isEmpty() && !ListFolderPath.endsWith("/") ) {
 			message = "The list folder path must end with /.";
@@ -298,6 +583,61 @@ implements CommandDiscoverable, FileGenerator, ObjectListProvider
 			}
 		}
 
+		if ( (DownloadConcurrency != null) && !DownloadConcurrency.isEmpty() &&
+			(!StringUtil.isInteger(DownloadConcurrency) || (Integer.parseInt(DownloadConcurrency) < 1)) ) {
+			message = "The download concurrency (" + DownloadConcurrency + ") is invalid.";
+			warning += "\n" + message;
+			status.addToLog(CommandPhaseType.INITIALIZATION,
+				new CommandLogRecord(CommandStatusType.FAILURE,
+					message, "Specify an integer 1 or larger."));
+		}
+
+		if ( (DownloadExportFormat != null) && !DownloadExportFormat.isEmpty()
+			&& (GoogleDriveExportFormatType.valueOfIgnoreCase(DownloadExportFormat) == null) ) {
+			message = "The DownloadExportFormat parameter \"" + DownloadExportFormat + "\" is invalid.";
+			warning += "\n" + message;
+			status.addToLog(CommandPhaseType.INITIALIZATION,
+				new CommandLogRecord(CommandStatusType.FAILURE,
+					message, "Specify the parameter as one of: " + String.join(", ", GoogleDriveExportFormatType.getChoicesAsStrings(false)) + "."));
+		}
+
+		if ( (DownloadIfUnchanged != null) && !DownloadIfUnchanged.equals("") ) {
+			if ( !DownloadIfUnchanged.equalsIgnoreCase(_Download) && !DownloadIfUnchanged.equalsIgnoreCase(_Skip) ) {
+				message = "The DownloadIfUnchanged parameter \"" + DownloadIfUnchanged + "\" is invalid.";
+				warning += "\n" + message;
+				status.addToLog(CommandPhaseType.INITIALIZATION,
+					new CommandLogRecord(CommandStatusType.FAILURE,
+						message, "Specify the parameter as " + _Download + " (default) or " + _Skip + "."));
+			}
+		}
+
+		if ( (ListMaxDepth != null) && !ListMaxDepth.isEmpty() && !StringUtil.isInteger(ListMaxDepth) ) {
+			message = "The list maximum depth (" + ListMaxDepth + ") is invalid.";
+			warning += "\n" + message;
+			status.addToLog(CommandPhaseType.INITIALIZATION,
+				new CommandLogRecord(CommandStatusType.FAILURE,
+					message, "Specify an integer."));
+		}
+
+		if ( (ListConcurrency != null) && !ListConcurrency.isEmpty() &&
+			(!StringUtil.isInteger(ListConcurrency) || (Integer.parseInt(ListConcurrency) < 1)) ) {
+			message = "The list concurrency (" + ListConcurrency + ") is invalid.";
+			warning += "\n" + message;
+			status.addToLog(CommandPhaseType.INITIALIZATION,
+				new CommandLogRecord(CommandStatusType.FAILURE,
+					message, "Specify an integer 1 or larger."));
+		}
+
+		if ( (ListPageSize != null) && !ListPageSize.isEmpty() &&
+			(!StringUtil.isInteger(ListPageSize) || (Integer.parseInt(ListPageSize) < 1)
+			|| (Integer.parseInt(ListPageSize) > GoogleDriveToolkit.MAX_PAGE_SIZE)) ) {
+			message = "The list page size (" + ListPageSize + ") is invalid.";
+			warning += "\n" + message;
+			status.addToLog(CommandPhaseType.INITIALIZATION,
+				new CommandLogRecord(CommandStatusType.FAILURE,
+					message, "Specify an integer 1 to " + GoogleDriveToolkit.MAX_PAGE_SIZE + "."));
+		}
+
 		if ( (ListMax != null) && !ListMax.isEmpty() && !StringUtil.isInteger(ListMax) ) {
 			message = "The list maximum (" + ListMax + ") is invalid.";
 			warning += "\n" + message;
@@ -306,6 +646,18 @@ implements CommandDiscoverable, FileGenerator, ObjectListProvider
 					message, "Specify an integer."));
 		}
 
+		if ( (ListColumns != null) && !ListColumns.isEmpty() && (ListColumns.indexOf("${") < 0) ) {
+			for ( String listColumn : StringUtil.breakStringList(ListColumns, ",", StringUtil.DELIM_TRIM_STRINGS) ) {
+				if ( getListColumnPosition(listColumn) < 0 ) {
+					message = "The ListColumns column \"" + listColumn + "\" is invalid.";
+					warning += "\n" + message;
+					status.addToLog(CommandPhaseType.INITIALIZATION,
+						new CommandLogRecord(CommandStatusType.FAILURE,
+							message, "Specify column names from: " + String.join(", ", _ListColumns) + "."));
+				}
+			}
+		}
+
 		if ( (AppendOutput != null) && !AppendOutput.equals("") ) {
 			if ( !AppendOutput.equalsIgnoreCase(_False) && !AppendOutput.equalsIgnoreCase(_True) ) {
 				message = "The AppendOutput parameter \"" + AppendOutput + "\" is invalid.";
@@ -318,12 +670,32 @@ implements CommandDiscoverable, FileGenerator, ObjectListProvider
 
 		// Put ListScope at the end so combinations of parameters can be checked.
 		if ( (ListScope != null) && !ListScope.equals("") ) {
-			if ( !ListScope.equalsIgnoreCase(_All) && !ListScope.equalsIgnoreCase(_Folder) ) {
+			if ( !ListScope.equalsIgnoreCase(_All) && !ListScope.equalsIgnoreCase(_Changes)
+				&& !ListScope.equalsIgnoreCase(_Folder) ) {
 				message = "The ListScope parameter \"" + ListScope + "\" is invalid.";
 				warning += "\n" + message;
 				status.addToLog(CommandPhaseType.INITIALIZATION,
 					new CommandLogRecord(CommandStatusType.FAILURE,
-						message, "Specify the parameter as " + _All + " or " + _Folder + " (default).") );
+						message, "Specify the parameter as " + _All + ", " + _Changes + ", or " + _Folder + " (default).") );
+			}
+			else if ( ListScope.equalsIgnoreCase(_Changes) ) {
+				// Changes are listed for a whole drive so a sub-folder can't be used.
+				if ( (ListFolderPath != null) && !ListFolderPath.isEmpty() && (ListFolderPath.indexOf("${") < 0)
+					&& !isListChangesFolderPath(ListFolderPath) ) {
+					message = "The list folder path \"" + ListFolderPath + "\" cannot be used with ListScope=" + _Changes + ".";
+					warning += "\n" + message;
+					status.addToLog(CommandPhaseType.INITIALIZATION,
+						new CommandLogRecord(CommandStatusType.FAILURE,
+							message, "Specify the list folder as / for My Drive and shared files, or /"
+								+ GoogleDriveToolkit.SHARED_DRIVES + "/drive/ for a shared drive."));
+				}
+				if ( (ListSharedWithMe != null) && !ListSharedWithMe.isEmpty() ) {
+					message = "The ListSharedWithMe parameter is not used with ListScope=" + _Changes + ".";
+					warning += "\n" + message;
+					status.addToLog(CommandPhaseType.INITIALIZATION,
+						new CommandLogRecord(CommandStatusType.WARNING,
+							message, "Remove the ListSharedWithMe parameter - changes for / include shared files."));
+				}
 			}
 		}
 
@@ -662,6 +1034,12 @@ implements CommandDiscoverable, FileGenerator, ObjectListProvider
 		validList.add ( "SessionID" );
 		validList.add ( "AuthenticationMethod" );
 		validList.add ( "GoogleDriveCommand" );
+		validList.add ( "MetadataCache" );
+		validList.add ( "MetadataCacheTTL" );
+		validList.add ( "RequestRateLimit" );
+		validList.add ( "RequestMaxRetries" );
+		validList.add ( "MetricsPropertyPrefix" );
+		validList.add ( "MetricsTableID" );
 		// Copy.
 		validList.add ( "CopyFiles" );
 		validList.add ( "CopyBucket" );
@@ -675,6 +1053,10 @@ implements CommandDiscoverable, FileGenerator, ObjectListProvider
 		validList.add ( "DownloadFolders" );
 		validList.add ( "DownloadFiles" );
 		validList.add ( "DownloadCountProperty" );
+		validList.add ( "DownloadConcurrency" );
+		validList.add ( "DownloadIfUnchanged" );
+		validList.add ( "DownloadExportFormat" );
+		validList.add ( "DownloadSkippedCountProperty" );
 		// List buckets.
 		validList.add ( "ListDrivesRegEx" );
 		validList.add ( "ListDrivesCountProperty" );
@@ -686,7 +1068,11 @@ implements CommandDiscoverable, FileGenerator, ObjectListProvider
 		validList.add ( "ListFolders" );
 		validList.add ( "ListSharedWithMe" );
 		validList.add ( "ListTrashed" );
+		validList.add ( "ListMaxDepth" );
+		validList.add ( "ListConcurrency" );
+		validList.add ( "ListPageSize" );
 		validList.add ( "ListMax" );
+		validList.add ( "ListColumns" );
 		validList.add ( "ListCountProperty" );
 		// Upload.
 		validList.add ( "UploadFolders" );
@@ -707,6 +1093,48 @@ implements CommandDiscoverable, FileGenerator, ObjectListProvider
 		status.refreshPhaseSeverity(CommandPhaseType.INITIALIZATION,CommandStatusType.SUCCESS);
 	}
 
+	/**
+	 * Download a Google Drive file to a local file, called by the threads that download files.
+	 * Messages are not added to the command status because the status is not thread-safe,
+	 * and instead the problem is returned in the result.
+	 * @param googleDriveSession Google Drive session
+	 * @param googleDrivePath Google Drive file path to download
+	 * @param fileId Google Drive file ID if known (e.g., from a folder listing), or null to determine from the path
+	 * @param localFile local file to create
+	 * @param skipIfUnchanged if true, do not download if the local file is the same as the Google Drive file
+	 * @param exportFormat format to export Google Workspace files, or null if not exporting
+	 * @return the result of the download
+	 */
+	private DownloadFileResult downloadFile ( GoogleDriveSession googleDriveSession, String googleDrivePath, String fileId,
+		String localFile, boolean skipIfUnchanged, GoogleDriveExportFormatType exportFormat ) {
+		DownloadFileResult result = new DownloadFileResult(googleDrivePath, localFile);
+		try {
+			// Apparently the folder for the file must exist so create if necessary.
+			File file = new File(localFile);
+			File folder = file.getParentFile();
+			if ( (folder != null) && !folder.exists() ) {
+				folder.mkdirs();
+			}
+			// Convert the requested file path to a file ID, if not known.
+			GoogleDriveToolkit googleDriveToolkit = GoogleDriveToolkit.getInstance();
+			result.fileId = fileId;
+			if ( result.fileId == null ) {
+				result.fileId = googleDriveToolkit.getFileIdForPath ( googleDriveSession, googleDrivePath );
+			}
+			if ( result.fileId == null ) {
+				result.problem = "Error getting Google Drive ID for file path \"" + googleDrivePath + "\".";
+			}
+			else {
+				result.skipped = !googleDriveToolkit.downloadFile ( googleDriveSession, result.fileId, file, skipIfUnchanged, exportFormat );
+			}
+		}
+		catch ( Exception e ) {
+			result.problem = "Error downloading Google Drive file \"" + googleDrivePath + "\" to file \"" + localFile + "\" (" + e + ")";
+			result.exception = e;
+		}
+		return result;
+	}
+
 	/**
 	 * Download Google Drive files and folders.
 	 */
@@ -715,7 +1143,8 @@ implements CommandDiscoverable, FileGenerator, ObjectListProvider
 		GoogleDriveSession googleDriveSession,
 		List<String> downloadFilesGoogleDrivePaths, List<String> downloadFilesFiles,
 		List<String> downloadFoldersGoogleDrivePaths, List<String> downloadFoldersFolders,
-		String downloadCountProperty,
+		int downloadConcurrency, boolean downloadSkipUnchanged, GoogleDriveExportFormatType downloadExportFormat,
+		String downloadCountProperty, String downloadSkippedCountProperty,
 		CommandStatus status, int logLevel, int warningLevel, int warningCount, String commandTag
 		) {
 		String routine = getClass().getSimpleName() + ".doGoogleDriveDownload";
@@ -729,171 +1158,352 @@ implements CommandDiscoverable, FileGenerator, ObjectListProvider
     		return warningCount;
     	}
 
-		// Get the toolkit with useful methods.
-		GoogleDriveToolkit googleDriveToolkit = GoogleDriveToolkit.getInstance();
-
     	// Process folders first so that files can be downloaded into folders below.
 
-    	/* TODO smalers 2023-12-18 enable folder download later.
+      	int downloadCount = 0;
+      	int skippedCount = 0;
       	if ( downloadFoldersFolders.size() > 0 ) {
-    		// Process each folder in the list.
-    		boolean error = false;
+    		// Process each folder in the list:
+    		// - list the folder tree first and create the local folders
+    		// - then download the files using a pool of threads
+    		GoogleDriveToolkit googleDriveToolkit = GoogleDriveToolkit.getInstance();
     		int iFolder = -1;
-    		for ( String downloadKey : downloadFoldersKeys ) {
+    		for ( String downloadGoogleDrivePath : downloadFoldersGoogleDrivePaths ) {
     			++iFolder;
-    			error = false;
-    			String localFolder = null;
+    			downloadGoogleDrivePath = downloadGoogleDrivePath.trim();
+    			String localFolder = downloadFoldersFolders.get(iFolder).trim();
+    			if ( localFolder.endsWith("/") || localFolder.endsWith("\\") ) {
+    				localFolder = localFolder.substring(0, localFolder.length() - 1);
+    			}
+    			// Convert the folder path to an ID.
+    			String folderId = null;
     			try {
-    				downloadKey = downloadKey.trim();
-    				localFolder = downloadFoldersFolders.get(iFolder);
-    				// TODO smalers 2023-02-07 remove the error check since no longer used:
-    				// - most of the checks are done in the main runCommandInternal() method
-    				if ( !error ) {
-    					// TODO smalers 2023-02-07 path was determined in earlier code.
-    					//localFolder = localFolder.trim();
-    					// There is not a way to examine the filenames so can't apply a regular expression.
-    					//String localFolderFull = IOUtil.verifyPathForOS(
-						//IOUtil.toAbsolutePath(TSCommandProcessorUtil.getWorkingDir(processor),
-						//TSCommandProcessorUtil.expandParameterValue(processor,this,localFolder)));
-    					if ( Message.isDebugOn ) {
-    						Message.printStatus(2, routine, "Attemping to download S3 folder \"" + downloadKey
-    							+ "\" to local folder \"" + localFolder + "\".");
+    				if ( downloadGoogleDrivePath.equals("/") || downloadGoogleDrivePath.equals("/" + GoogleDriveToolkit.MY_DRIVE + "/") ) {
+    					folderId = "root";
+    				}
+    				else if ( downloadGoogleDrivePath.startsWith("/id/") ) {
+    					// Specifying the Google Drive folder ID to download.
+    					folderId = downloadGoogleDrivePath.substring(4);
+    					if ( folderId.endsWith("/") ) {
+    						// Remove the trailing slash.
+    						folderId = folderId.substring(0, folderId.length() - 1);
     					}
-    					DirectoryDownload download = tm.downloadDirectory(
-    						DownloadDirectoryRequest.builder()
-								.destinationDirectory(Paths.get(localFolder))
-								.bucket(bucket)
-								.prefix(downloadKey)
-								.build()
-						);
-    					// Wait for the transfer to complete.
-    					CompletedDirectoryDownload completed = download.completionFuture().join();
-    					// Log failed downloads, up to 50 messages.
-    					int maxMessage = 50;
-    					int failCount = 0;
-    					for ( FailedFileDownload fail : completed.failedTransfers() ) {
-    						++failCount;
-    						if ( failCount > maxMessage ) {
-    							// Limit messages.
-    							message = "Only listing " + maxMessage + " download errors.";
-   								Message.printWarning ( warningLevel,
-   									MessageUtil.formatMessageTag(commandTag, ++warningCount),routine, message );
-   								status.addToLog(CommandPhaseType.RUN,
-   									new CommandLogRecord(CommandStatusType.FAILURE,
-   										message, "Check command parameters."));
-    							break;
+    				}
+    				else if ( googleDriveToolkit.pathStartsWithSharedWithMe(downloadGoogleDrivePath) ) {
+    					// Requested a path to a 'Shared with me' path.
+    					folderId = googleDriveToolkit.getFolderIdForSharedWithMePath ( googleDriveSession, downloadGoogleDrivePath );
+    				}
+    				else if ( googleDriveToolkit.pathStartsWithSharedDrives(downloadGoogleDrivePath) ) {
+    					// Requested a path to a 'Shared drives' path.
+    					folderId = googleDriveToolkit.getFolderIdForSharedDrivesPath ( googleDriveSession, downloadGoogleDrivePath );
+    				}
+    				else {
+    					// Not a path for a shared folder so assume it is in 'My Drive'.
+    					folderId = googleDriveToolkit.getFolderIdForPath ( googleDriveSession, downloadGoogleDrivePath );
+    				}
+    			}
+    			catch ( Exception e ) {
+    				Message.printWarning ( 3, routine, e );
+    			}
+    			if ( folderId == null ) {
+    				message = "Error getting Google Drive ID for folder path \"" + downloadGoogleDrivePath + "\".";
+    				Message.printWarning ( warningLevel,
+    					MessageUtil.formatMessageTag(commandTag, ++warningCount),routine, message );
+    				status.addToLog(CommandPhaseType.RUN,
+    					new CommandLogRecord(CommandStatusType.FAILURE,
+    						message, "Confirm that the Google Drive folder exists."));
+    				continue;
+    			}
+
+    			// List the folder tree:
+    			// - the walker path is relative to the downloaded folder, with leading /
+    			List<String> fileGoogleDrivePaths = new ArrayList<>();
+    			List<String> fileIds = new ArrayList<>();
+    			List<String> localFiles = new ArrayList<>();
+    			Set<String> localFolders = new LinkedHashSet<>();
+    			localFolders.add(localFolder);
+    			// Local folder for each Google Drive folder ID, built from local names rather than the walker's path.
+    			Map<String,String> localFolderMap = new HashMap<>();
+    			localFolderMap.put(folderId, localFolder);
+    			// Local paths that have been used, to detect Google Drive names that map to the same local path.
+    			Set<String> localPaths = new HashSet<>();
+    			localPaths.add(getLocalPathKey(localFolder));
+    			int workspaceCount = 0;
+    			int exportCount = 0;
+    			int skippedNameCount = 0;
+    			boolean listError = false;
+    			String remoteFolder = downloadGoogleDrivePath.substring(0, downloadGoogleDrivePath.length() - 1);
+    			GoogleDriveFolderWalker walker = new GoogleDriveFolderWalker(googleDriveSession, folderId,
+    				"'" + folderId + "' in parents and trashed=false", "", false, -1, downloadConcurrency, "id, name, mimeType",
+    				GoogleDriveToolkit.MAX_PAGE_SIZE);
+    			try {
+    				GoogleDriveFolderWalker.FolderListing listing;
+    				while ( (listing = walker.next()) != null ) {
+    					if ( listing.getException() != null ) {
+    						message = "Error listing Google Drive folder \"" + remoteFolder + listing.getFolderPath()
+    							+ "\" (" + listing.getException() + ").";
+    						Message.printWarning ( warningLevel,
+    							MessageUtil.formatMessageTag(commandTag, ++warningCount),routine, message );
+    						Message.printWarning ( 3, routine, listing.getException() );
+    						status.addToLog(CommandPhaseType.RUN,
+    							new CommandLogRecord(CommandStatusType.FAILURE,
+    								message, "See the log file for details."));
+    						listError = true;
+    						continue;
+    					}
+    					String localParent = localFolderMap.get(listing.getFolderId());
+    					if ( localParent == null ) {
+    						// The folder was skipped so also skip its contents.
+    						skippedNameCount += listing.getFiles().size();
+    						continue;
+    					}
+    					for ( com.google.api.services.drive.model.File file : listing.getFiles() ) {
+    						String mimeType = file.getMimeType();
+    						String googleDrivePath = remoteFolder + listing.getFolderPath() + "/" + file.getName();
+    						String localName = getLocalFileName(file.getName());
+    						if ( localName == null ) {
+    							++skippedNameCount;
+    							Message.printWarning(3, routine, "Skipping \"" + googleDrivePath
+    								+ "\" because the name cannot be used for a local file.");
+    							continue;
+    						}
+    						if ( GoogleDriveFolderWalker.FOLDER_MIME_TYPE.equals(mimeType) ) {
+    							String localPath = localParent + File.separator + localName;
+    							if ( !localPaths.add(getLocalPathKey(localPath)) ) {
+    								++skippedNameCount;
+    								Message.printWarning(3, routine, "Skipping folder \"" + googleDrivePath
+    									+ "\" because local path \"" + localPath + "\" is used by another Google Drive file or folder.");
+    								continue;
+    							}
+    							localFolders.add(localPath);
+    							localFolderMap.put(file.getId(), localPath);
+    						}
+    						else if ( (mimeType != null) && mimeType.startsWith(GoogleDriveExportFormatType.WORKSPACE_MIME_TYPE_PREFIX) ) {
+    							// Google Workspace files (Docs, Sheets, etc.) can't be downloaded, only exported:
+    							// - the exported file has the format's extension since Google Workspace file names don't have an extension
+    							// - exports are done by the download threads
+    							if ( (downloadExportFormat != null) && downloadExportFormat.supports(mimeType) ) {
+    								String extension = "." + downloadExportFormat.getExtension();
+    								if ( !localName.toLowerCase().endsWith(extension) ) {
+    									localName = localName + extension;
+    								}
+    								String localPath = localParent + File.separator + localName;
+    								if ( !localPaths.add(getLocalPathKey(localPath)) ) {
+    									++skippedNameCount;
+    									Message.printWarning(3, routine, "Skipping file \"" + googleDrivePath
+    										+ "\" because local path \"" + localPath + "\" is used by another Google Drive file or folder.");
+    									continue;
+    								}
+    								fileGoogleDrivePaths.add(googleDrivePath);
+    								fileIds.add(file.getId());
+    								localFiles.add(localPath);
+    								++exportCount;
+    							}
+    							else {
+    								++workspaceCount;
+    								Message.printStatus(2, routine, "Skipping Google Workspace file \"" + googleDrivePath + "\" (" + mimeType + ")"
+    									+ ((downloadExportFormat == null) ? "." : (" that cannot be exported to " + downloadExportFormat + ".")));
+    							}
+    						}
+    						else {
+    							String localPath = localParent + File.separator + localName;
+    							if ( !localPaths.add(getLocalPathKey(localPath)) ) {
+    								++skippedNameCount;
+    								Message.printWarning(3, routine, "Skipping file \"" + googleDrivePath
+    									+ "\" because local path \"" + localPath + "\" is used by another Google Drive file or folder.");
+    								continue;
+    							}
+    							fileGoogleDrivePaths.add(googleDrivePath);
+    							fileIds.add(file.getId());
+    							localFiles.add(localPath);
     						}
-   							message = "Error downloading folder \"" + downloadKey + "\" to folder \"" + localFolder + "\"(" + fail + ").";
-   							Message.printWarning ( warningLevel,
-   								MessageUtil.formatMessageTag(commandTag, ++warningCount),routine, message );
-   							status.addToLog(CommandPhaseType.RUN,
-   								new CommandLogRecord(CommandStatusType.FAILURE,
-   									message, "Check command parameters."));
     					}
     				}
     			}
-    			catch ( Exception e ) {
-    				message = "Error downloading S3 folder \"" + downloadKey + "\" to local folder \"" + localFolder + "\" (" + e + ")";
+    			catch ( InterruptedException e ) {
+    				message = "Interrupted listing Google Drive folder \"" + downloadGoogleDrivePath + "\".";
     				Message.printWarning ( warningLevel,
     					MessageUtil.formatMessageTag(commandTag, ++warningCount),routine, message );
-    				Message.printWarning ( 3, routine, e );
     				status.addToLog(CommandPhaseType.RUN,
     					new CommandLogRecord(CommandStatusType.FAILURE,
     						message, "See the log file for details."));
+    				break;
+    			}
+    			finally {
+    				walker.close();
+    			}
+    			Message.printStatus(2, routine, "Google Drive folder \"" + downloadGoogleDrivePath + "\" has " + fileIds.size()
+    				+ " files to download in " + localFolders.size() + " folders" + (listError ? " (with listing errors)" : "")
+    				+ ", including " + exportCount + " Google Workspace files to export, skipping " + workspaceCount + " Google Workspace files.");
+    			if ( skippedNameCount > 0 ) {
+    				message = "Skipped " + skippedNameCount + " files and folders in Google Drive folder \"" + downloadGoogleDrivePath
+    					+ "\" because the names cannot be used for local files or are the same as other local files.";
+    				Message.printWarning ( warningLevel,
+    					MessageUtil.formatMessageTag(commandTag, ++warningCount),routine, message );
+    				status.addToLog(CommandPhaseType.RUN,
+    					new CommandLogRecord(CommandStatusType.WARNING,
+    						message, "See the log file for the skipped files and folders."));
+    			}
+
+    			// Create the local folders once so that the download threads don't need to.
+    			for ( String folder : localFolders ) {
+    				File f = new File(folder);
+    				if ( !f.exists() && !f.mkdirs() ) {
+    					message = "Error creating local folder \"" + folder + "\".";
+    					Message.printWarning ( warningLevel,
+    						MessageUtil.formatMessageTag(commandTag, ++warningCount),routine, message );
+    					status.addToLog(CommandPhaseType.RUN,
+    						new CommandLogRecord(CommandStatusType.FAILURE,
+    							message, "Check permissions for the folder."));
+    				}
+    			}
+
+    			// Download the files using a pool of threads:
+    			// - log failed downloads, up to 50 messages
+    			if ( fileIds.size() > 0 ) {
+    				int nThreads = Math.max(1, Math.min(downloadConcurrency, fileIds.size()));
+    				ExecutorService executor = Executors.newFixedThreadPool(nThreads);
+    				List<Future<DownloadFileResult>> futures = new ArrayList<>();
+    				int maxMessage = 50;
+    				int failCount = 0;
+    				try {
+    					for ( int iFile = 0; iFile < fileIds.size(); iFile++ ) {
+    						String fileGoogleDrivePath = fileGoogleDrivePaths.get(iFile);
+    						String fileId = fileIds.get(iFile);
+    						String localFile = localFiles.get(iFile);
+    						futures.add(executor.submit(() -> downloadFile(googleDriveSession, fileGoogleDrivePath, fileId, localFile,
+    							downloadSkipUnchanged, downloadExportFormat)));
+    					}
+    					for ( Future<DownloadFileResult> future : futures ) {
+    						DownloadFileResult result = null;
+    						try {
+    							result = future.get();
+    						}
+    						catch ( InterruptedException | ExecutionException e ) {
+    							result = new DownloadFileResult(downloadGoogleDrivePath, localFolder);
+    							result.problem = "Error downloading Google Drive folder \"" + downloadGoogleDrivePath
+    								+ "\" to folder \"" + localFolder + "\" (" + e + ").";
+    							result.exception = e;
+    						}
+    						if ( (result.problem == null) && result.skipped ) {
+    							++skippedCount;
+    						}
+    						else if ( result.problem == null ) {
+    							++downloadCount;
+    						}
+    						else {
+    							++failCount;
+    							if ( failCount > maxMessage ) {
+    								// Limit messages.
+    								continue;
+    							}
+    							Message.printWarning ( warningLevel,
+    								MessageUtil.formatMessageTag(commandTag, ++warningCount),routine, result.problem );
+    							if ( result.exception != null ) {
+    								Message.printWarning ( 3, routine, result.exception );
+    							}
+    							status.addToLog(CommandPhaseType.RUN,
+    								new CommandLogRecord(CommandStatusType.FAILURE,
+    									result.problem, "See the log file for details."));
+    						}
+    					}
+    				}
+    				finally {
+    					executor.shutdownNow();
+    				}
+    				if ( failCount > maxMessage ) {
+    					message = "Only listed " + maxMessage + " of " + failCount + " download errors for folder \""
+    						+ downloadGoogleDrivePath + "\".";
+    					Message.printWarning ( warningLevel,
+    						MessageUtil.formatMessageTag(commandTag, ++warningCount),routine, message );
+    					status.addToLog(CommandPhaseType.RUN,
+    						new CommandLogRecord(CommandStatusType.FAILURE,
+    							message, "See the log file for details."));
+    				}
     			}
     		}
     	}
-    	*/
 
-      	// Download files individually.
+      	// Download files individually:
+      	// - the files are independent so use a pool of threads to resolve the IDs and download
+      	// - results are processed in the original order so that messages are in the order of the input
+      	// - a local file can only be downloaded once because concurrent downloads would write the same part file
 
-      	int downloadCount = 0;
     	if ( downloadFilesFiles.size() > 0 ) {
-    		// Process each file in the list.
-    		boolean error = false;
-    		int iFile = -1;
-    		for ( String downloadGoogleDrivePath : downloadFilesGoogleDrivePaths ) {
-    			++iFile;
-    			error = false;
-    			String localFile = null;
-    			try {
-    				downloadGoogleDrivePath = downloadGoogleDrivePath.trim();
-    				localFile = downloadFilesFiles.get(iFile).trim();
-    				// Apparently the folder for the file must exist so create if necessary.
-    				File file = new File(localFile);
-    				// Get the parent.
-	    			File folder = file.getParentFile();
-	    			// Create the parent.
-	    			if ( !folder.exists() ) {
-	    				if ( Message.isDebugOn ) {
-	    					Message.printStatus(2, routine, "Creating folder: " + folder.getAbsolutePath() );
-	    				}
-	    				folder.mkdirs();
-	    			}
-
-    				if ( !error ) {
-    					// Convert the requested file path to a file ID:
-    					String downloadFilePath = downloadFilesGoogleDrivePaths.get(iFile);
-    					String downloadFileId = googleDriveToolkit.getFileIdForPath (
-    						googleDriveSession.getService(), downloadFilePath );
-    					if ( downloadFileId == null ) {
-							message = "Error getting Google Drive ID for file path \"" + downloadFilePath + "\".";
-	 						Message.printWarning ( warningLevel,
-	 							MessageUtil.formatMessageTag(commandTag, ++warningCount),routine, message );
-	 						status.addToLog(CommandPhaseType.RUN,
-	 							new CommandLogRecord(CommandStatusType.FAILURE,
-	 								message, "See the log file for details."));
-	 						throw new CommandException ( message );
-    					}
-    					else {
-							message = "Downloading Google Drive ID \"" + downloadFileId +
-								"\" to local file path \"" + downloadFilePath + "\".";
-    						try {
-    							OutputStream outputStream = new FileOutputStream(localFile);
-   								googleDriveSession.getService()
-   									// Request to execute.
-   									.files()
-   									// Holds the parameters for the request.
-   									.get(downloadFileId)
-       								// Invoke the remote operation.
-       								.executeMediaAndDownloadTo(outputStream);
-
-   								// Seem to need to close the stream?
-   								try {
-   									outputStream.close();
-   								}
-   								catch ( Exception e ) {
-   									// Ignore.
-   								}
-   								// Successful if no exception.
-   								++downloadCount;
-   							}
-   							catch ( Exception e ) {
-   								message = "Error downloading Google Drive file \"" + downloadFilePath + "\".";
-		 						Message.printWarning ( warningLevel,
-		 							MessageUtil.formatMessageTag(commandTag, ++warningCount),routine, message );
-		 						Message.printWarning ( 3, routine, e );
-		 						status.addToLog(CommandPhaseType.RUN,
-		 							new CommandLogRecord(CommandStatusType.FAILURE,
-		 								message, "See the log file for details."));
-		 						throw new CommandException ( message );
-   							}
+    		int nThreads = Math.max(1, Math.min(downloadConcurrency, downloadFilesFiles.size()));
+    		Message.printStatus(2, routine, "Downloading " + downloadFilesFiles.size() + " files using " + nThreads + " threads.");
+    		ExecutorService executor = Executors.newFixedThreadPool(nThreads);
+    		List<Future<DownloadFileResult>> futures = new ArrayList<>();
+    		// Position in the download lists for each future.
+    		List<Integer> futureFiles = new ArrayList<>();
+    		// Local paths that have been used, to detect download pairs that have the same local file.
+    		Set<String> localPaths = new HashSet<>();
+    		try {
+    			for ( int iFile = 0; iFile < downloadFilesGoogleDrivePaths.size(); iFile++ ) {
+    				String downloadGoogleDrivePath = downloadFilesGoogleDrivePaths.get(iFile).trim();
+    				String localFile = downloadFilesFiles.get(iFile).trim();
+    				if ( !localPaths.add(getLocalPathKey(localFile)) ) {
+    					message = "Not downloading Google Drive file \"" + downloadGoogleDrivePath
+    						+ "\" because local file \"" + localFile + "\" is used by another download.";
+    					Message.printWarning ( warningLevel,
+    						MessageUtil.formatMessageTag(commandTag, ++warningCount),routine, message );
+    					status.addToLog(CommandPhaseType.RUN,
+    						new CommandLogRecord(CommandStatusType.WARNING,
+    							message, "Specify a different local file for each downloaded file."));
+    					continue;
+    				}
+    				futures.add(executor.submit(() -> downloadFile(googleDriveSession, downloadGoogleDrivePath, null, localFile,
+    					downloadSkipUnchanged, downloadExportFormat)));
+    				futureFiles.add(iFile);
+    			}
+    			for ( int iFuture = 0; iFuture < futures.size(); iFuture++ ) {
+    				Future<DownloadFileResult> future = futures.get(iFuture);
+    				int iFile = futureFiles.get(iFuture);
+    				DownloadFileResult result = null;
+    				try {
+    					result = future.get();
+    				}
+    				catch ( InterruptedException | ExecutionException e ) {
+    					message = "Error downloading Google Drive file \"" + downloadFilesGoogleDrivePaths.get(iFile) +
+    						"\" to file \"" + downloadFilesFiles.get(iFile) + "\" (" + e + ")";
+    					Message.printWarning ( warningLevel,
+    						MessageUtil.formatMessageTag(commandTag, ++warningCount),routine, message );
+    					Message.printWarning ( 3, routine, e );
+    					status.addToLog(CommandPhaseType.RUN,
+    						new CommandLogRecord(CommandStatusType.FAILURE,
+    							message, "See the log file for details."));
+    					continue;
+    				}
+    				if ( (result.problem == null) && result.skipped ) {
+    					// Successful but the local file is unchanged.
+    					Message.printStatus(2, routine, "Skipped Google Drive file \"" + result.googleDrivePath +
+    						"\" (ID \"" + result.fileId + "\") because local file \"" + result.localFile + "\" is unchanged.");
+    					++skippedCount;
+    				}
+    				else if ( result.problem == null ) {
+    					// Successful.
+    					Message.printStatus(2, routine, "Downloaded Google Drive file \"" + result.googleDrivePath +
+    						"\" (ID \"" + result.fileId + "\") to local file \"" + result.localFile + "\".");
+    					++downloadCount;
+    				}
+    				else {
+    					Message.printWarning ( warningLevel,
+    						MessageUtil.formatMessageTag(commandTag, ++warningCount),routine, result.problem );
+    					if ( result.exception != null ) {
+    						Message.printWarning ( 3, routine, result.exception );
     					}
-    	    		}
-    	    	}
-    	    	catch ( Exception e ) {
-    	    		message = "Error downloading Google Drive file \"" + downloadGoogleDrivePath + "\" to file \"" + localFile + "\" (" + e + ")";
-    	    		Message.printWarning ( warningLevel,
-    	    			MessageUtil.formatMessageTag(commandTag, ++warningCount),routine, message );
-    	    		Message.printWarning ( 3, routine, e );
-    	    		status.addToLog(CommandPhaseType.RUN,
-    	    			new CommandLogRecord(CommandStatusType.FAILURE,
-    	    				message, "See the log file for details."));
-    	    	}
+    					status.addToLog(CommandPhaseType.RUN,
+    						new CommandLogRecord(CommandStatusType.FAILURE,
+    							result.problem, "See the log file for details."));
+    				}
+    			}
+    		}
+    		finally {
+    			executor.shutdownNow();
     		}
       	}
 
-    	Message.printStatus ( 2, routine, "Downloaded " + downloadCount + " files." );
+    	Message.printStatus ( 2, routine, "Downloaded " + downloadCount + " files, skipped " + skippedCount + " unchanged files." );
     	// Set the property indicating the number of downloads.
        	if ( (downloadCountProperty != null) && !downloadCountProperty.equals("") ) {
            	PropList requestParams = new PropList ( "" );
@@ -913,6 +1523,25 @@ implements CommandDiscoverable, FileGenerator, ObjectListProvider
            	}
        	}
 
+    	// Set the property indicating the number of skipped downloads.
+       	if ( (downloadSkippedCountProperty != null) && !downloadSkippedCountProperty.equals("") ) {
+           	PropList requestParams = new PropList ( "" );
+           	requestParams.setUsingObject ( "PropertyName", downloadSkippedCountProperty );
+           	requestParams.setUsingObject ( "PropertyValue", Integer.valueOf(skippedCount) );
+           	try {
+               	processor.processRequest( "SetProperty", requestParams);
+           	}
+           	catch ( Exception e ) {
+               	message = "Error requesting SetProperty(" + downloadSkippedCountProperty + "=\"" + skippedCount + "\") from processor.";
+               	Message.printWarning(logLevel,
+                   	MessageUtil.formatMessageTag( commandTag, ++warningCount),
+                   	routine, message );
+                    	status.addToLog ( CommandPhaseType.RUN,
+                   	new CommandLogRecord(CommandStatusType.FAILURE,
+                       	message, "Report the problem to software support." ) );
+           	}
+       	}
+
     	// Return the updated warning count.
     	return warningCount;
 	}
@@ -924,9 +1553,12 @@ implements CommandDiscoverable, FileGenerator, ObjectListProvider
 	private int doGoogleDriveList (
 		CommandProcessor processor,
 		GoogleDriveSession googleDriveSession,
-		String listScope, String listFolderPath, boolean listFiles, boolean listFolders, boolean listShared, boolean listTrashed,
-		String regex,
-		DataTable table, int listCreationTimeCol, int listIdCol, int listLastModifiedTimeCol, int listLastModifiedUserCol,
+		String listScope, String listFolderPath, boolean listFiles, boolean listFolders, String listSharedWithMe, boolean listTrashed,
+		int listMaxDepth, int listConcurrency, int listPageSize,
+		String listFields,
+		GoogleDriveNameMatcher nameMatcher,
+		DataTable table, GoogleDriveCsvWriter outputWriter,
+		int listChangeCol, int listCreationTimeCol, int listIdCol, int listLastModifiedTimeCol, int listLastModifiedUserCol,
 		int listMax,
 		int listNameCol, int listOriginalFilenameCol, int listOwnedByMeCol, int listOwnerCol,
 		int listParentFolderCol, int listParentFolderIdCol,
@@ -943,6 +1575,8 @@ implements CommandDiscoverable, FileGenerator, ObjectListProvider
 
 		// Get the toolkit with useful methods.
 		GoogleDriveToolkit googleDriveToolkit = GoogleDriveToolkit.getInstance();
+		// Converter for Google DateTime values, used for all files.
+		GoogleDriveDateTimeConverter dateTimeConverter = new GoogleDriveDateTimeConverter();
 
    		// Folder to list:
    		// - convert the G: drive path to a folder ID
@@ -950,17 +1584,27 @@ implements CommandDiscoverable, FileGenerator, ObjectListProvider
 
 		StringBuilder q = new StringBuilder();
 		String folderId = null;
+		// Whether listing the root folder, which is the only case where shared files are listed separately.
+		boolean isRoot = false;
+		// Query for the 'My Drive' root and query for shared files, used when walking the root folder.
+		String myDriveQ = "'root' in parents and trashed=" + listTrashed;
+		String sharedQ = "sharedWithMe=true";
 		if ( listFolderPath.equals("/")
 			|| listFolderPath.equals("/" + GoogleDriveToolkit.MY_DRIVE)
 			|| listFolderPath.equals("/" + GoogleDriveToolkit.SHARED_WITH_ME) ) {
 			// List the root folder.
-			if ( listShared ) {
-				// Shared files have to be listed independent of parent folder:
-				// - TODO smalers 2023-12-17 might be a way to combine in one query
-				q = new StringBuilder("sharedWithMe=" + listShared );
+			isRoot = true;
+			if ( listSharedWithMe.equalsIgnoreCase(_Only) ) {
+				// Shared files have to be listed independent of parent folder.
+				q = new StringBuilder(sharedQ);
+			}
+			else if ( listSharedWithMe.equalsIgnoreCase(_True) ) {
+				// List the root folder and shared files in one query:
+				// - avoids paging through two listings and reconciling duplicates
+				q = new StringBuilder("(" + myDriveQ + ") or " + sharedQ);
 			}
 			else {
-				q = new StringBuilder("'root' in parents and trashed=" + listTrashed );
+				q = new StringBuilder(myDriveQ);
 			}
 		}
 		else {
@@ -977,15 +1621,15 @@ implements CommandDiscoverable, FileGenerator, ObjectListProvider
 				}
 				else if ( googleDriveToolkit.pathStartsWithSharedWithMe(folderPath) ) {
 					// Requested a path to a 'Shared with me' path.
-					folderId = GoogleDriveToolkit.getInstance().getFolderIdForSharedWithMePath ( googleDriveSession.getService(), folderPath );
+					folderId = GoogleDriveToolkit.getInstance().getFolderIdForSharedWithMePath ( googleDriveSession, folderPath );
 				}
 				else if ( googleDriveToolkit.pathStartsWithSharedDrives(folderPath) ) {
 					// Requested a path to a 'Shared drives' path.
-					folderId = GoogleDriveToolkit.getInstance().getFolderIdForSharedDrivesPath ( googleDriveSession.getService(), folderPath );
+					folderId = GoogleDriveToolkit.getInstance().getFolderIdForSharedDrivesPath ( googleDriveSession, folderPath );
 				}
 				else {
 					// Not a path for a shared folder so assume it is in 'My Drive'.
-					folderId = googleDriveToolkit.getFolderIdForPath ( googleDriveSession.getService(), folderPath );
+					folderId = googleDriveToolkit.getFolderIdForPath ( googleDriveSession, folderPath );
 				}
 			}
 			catch ( Exception e ) {
@@ -1012,62 +1656,199 @@ implements CommandDiscoverable, FileGenerator, ObjectListProvider
 			// - default is to list trashed files and folders so always specify how handled
 			// - trashed=true will list ONLY trashed files and folders, false will list only NOT trashed files and folders
 			// - trashed objects are listed in the Google Drive recycling bin
-			// - do not specify sharedWithMe=true because that only applies to top-level folders.
+			// - do not specify sharedWithMe=true because that only applies to top-level folders,
+			//   and shared files in the folder are included in the listing so only one listing is needed
 			q = new StringBuilder("'" + folderId + "' in parents and trashed=" + listTrashed );
 		}
 
+		// Filter the listing on the server where possible so that files that will not be listed are not returned:
+		// - the type and name are still checked when processing files because the query may select more files
+		// - when walking folders, the filter is added to each folder's query below
+		boolean isWalk = _All.equalsIgnoreCase(listScope);
+		String filterQ = buildListFilterQuery ( listFiles, listFolders, nameMatcher, isWalk );
+		if ( !isWalk && (filterQ != null) ) {
+			q = new StringBuilder("(" + q + ") and " + filterQ);
+		}
+
 		Message.printStatus(2, routine, "Listing files in folder using q=" + q);
 
+		// If listing all files and folders, walk the folder tree:
+		// - the walker lists sub-folders concurrently and provides the parent folder path
+		// - shared files are not in a folder so use 'Shared with me' for the top-level parent folder
+		// - if listing the root and shared files, walk both from the start so they are listed concurrently
+		//   and the parent folder path is correct for each
+		GoogleDriveFolderWalker walker = null;
+		// Whether the walk also lists shared files, in which case a file can be listed by both roots.
+		boolean walkShared = false;
+		if ( isWalk ) {
+			String rootFolderId = null;
+			String rootPath = GoogleDriveToolkit.SHARED_WITH_ME;
+			if ( isRoot && listSharedWithMe.equalsIgnoreCase(_True) ) {
+				q = new StringBuilder(myDriveQ);
+				walkShared = true;
+			}
+			if ( !isRoot || !listSharedWithMe.equalsIgnoreCase(_Only) ) {
+				rootFolderId = (folderId == null) ? "root" : folderId;
+				try {
+					rootPath = googleDriveToolkit.getParentFolderPathFromFolderId(googleDriveSession, rootFolderId);
+				}
+				catch ( Exception e ) {
+					message = "Error getting the folder path for Google Drive ID \"" + rootFolderId + "\".";
+					Message.printWarning ( warningLevel,
+						MessageUtil.formatMessageTag(commandTag, ++warningCount),routine, message );
+					Message.printWarning ( 3, routine, e );
+					status.addToLog(CommandPhaseType.RUN,
+						new CommandLogRecord(CommandStatusType.FAILURE,
+							message, "See the log file for details."));
+					throw new CommandException ( message );
+				}
+			}
+			Message.printStatus(2, routine, "Listing all files and folders under \"" + rootPath + "\" using maximum depth "
+				+ listMaxDepth + " and " + listConcurrency + " threads.");
+			if ( filterQ != null ) {
+				Message.printStatus(2, routine, "Filtering each folder listing using q=" + filterQ);
+				q = new StringBuilder("(" + q + ") and " + filterQ);
+				sharedQ = "(" + sharedQ + ") and " + filterQ;
+			}
+			walker = new GoogleDriveFolderWalker(googleDriveSession, rootFolderId, q.toString(), rootPath,
+				listTrashed, filterQ, listMaxDepth, listConcurrency, listFields, listPageSize);
+			if ( walkShared ) {
+				Message.printStatus(2, routine, "Also listing shared files using q=" + sharedQ);
+				walker.addRoot(null, sharedQ, GoogleDriveToolkit.SHARED_WITH_ME);
+			}
+		}
+
+		// If listing changes, read the changes since the previous run:
+		// - changes are for the user's files (My Drive and shared with me) or a shared drive
+		// - the first run only saves the start page token
+		GoogleDriveChangesReader changesReader = null;
+		if ( _Changes.equalsIgnoreCase(listScope) ) {
+			if ( !isListChangesFolderPath(listFolderPath) ) {
+				// Changes can't be filtered by folder so don't list changes outside the folder.
+				message = "The list folder path \"" + listFolderPath + "\" cannot be used with ListScope=" + _Changes + ".";
+				Message.printWarning ( warningLevel,
+					MessageUtil.formatMessageTag(commandTag, ++warningCount),routine, message );
+				status.addToLog(CommandPhaseType.RUN,
+					new CommandLogRecord(CommandStatusType.FAILURE,
+						message, "Specify the list folder as / for My Drive and shared files, or /"
+							+ GoogleDriveToolkit.SHARED_DRIVES + "/drive/ for a shared drive."));
+				throw new CommandException ( message );
+			}
+			String driveId = null;
+			if ( !listFolderPath.equals("/") ) {
+				// The drive ID is the ID of the shared drive's top folder.
+				String drivePath = listFolderPath;
+				try {
+					driveId = googleDriveToolkit.getFolderIdForSharedDrivesPath ( googleDriveSession, drivePath );
+				}
+				catch ( Exception e ) {
+					Message.printWarning ( 3, routine, e );
+				}
+				if ( driveId == null ) {
+					message = "Unable to determine the shared drive ID for \"" + drivePath + "\".";
+					Message.printWarning ( warningLevel,
+						MessageUtil.formatMessageTag(commandTag, ++warningCount),routine, message );
+					status.addToLog(CommandPhaseType.RUN,
+						new CommandLogRecord(CommandStatusType.FAILURE,
+							message, "Confirm that the shared drive exists."));
+					throw new CommandException ( message );
+				}
+			}
+			try {
+				changesReader = new GoogleDriveChangesReader(googleDriveSession, driveId, listFields);
+				if ( !changesReader.hasPageToken() ) {
+					changesReader.initialize();
+					message = "No changes are listed the first time - saved the start page token to \""
+						+ changesReader.getPageTokenFile() + "\" for the next run.";
+					Message.printStatus ( 2, routine, message );
+					status.addToLog(CommandPhaseType.RUN,
+						new CommandLogRecord(CommandStatusType.INFO,
+							message, "Run again to list changes since this run."));
+				}
+				else {
+					Message.printStatus(2, routine, "Listing changes using page token file \"" + changesReader.getPageTokenFile() + "\".");
+				}
+			}
+			catch ( Exception e ) {
+				message = "Error initializing the Google Drive changes list.";
+				Message.printWarning ( warningLevel,
+					MessageUtil.formatMessageTag(commandTag, ++warningCount),routine, message );
+				Message.printWarning ( 3, routine, e );
+				status.addToLog(CommandPhaseType.RUN,
+					new CommandLogRecord(CommandStatusType.FAILURE,
+						message, "See the log file for details."));
+				throw new CommandException ( message );
+			}
+		}
+
    		// Output the names and IDs for up to 10 files.
    		FileList result = null;
    		Drive.Files.List request = null;
-   		try {
-   			// Do the initial request.
-   			request = googleDriveSession.getService()
-   				// Request to execute.
-   				.files()
-   				// Holds the parameters for the request.
-   				.list()
-   				// The "space" is the location where files are stored:
-   				// - "drive" - user's personal Google Drive
-   				// - "appDataFolder" - hidden folder in the user's Google Drive that is only
-   				//   accessible by the application that created it
-   				// - "photos" - for Google Photos
-   				// - can specify both separated by a comma to list all files
-   				.setSpaces("drive")
-   				// Set the folder to list:
-   				// See: https://developers.google.com/drive/api/guides/search-files
-   				.setQ(q.toString())
-   				// Whether files from My Drive and shared drives should be listed in the result.
-   				.setIncludeItemsFromAllDrives(true)
-   				// Whether the application supports My Drive and shared drives.
-   				.setSupportsAllDrives(true)
-   				// Page size for returned files:
-   				// - currently use the maximum of 1000
-   				// - TODO smalers 2023-12-27 need to implement paging
-       			//.setPageSize(1000)
-       			// Which fields to include in the response:
-       			// - if not specified nulls will be returned by the "get" methods below
-       			// - see https://developers.google.com/drive/api/guides/ref-search-terms#drive_properties
-       			// - don't specify any fields to return all fields (will be slower) but it is a pain to figure out fields
-       			//   since they don't seem to be documented well
-       			// - specifying * returns everything and may be slower
-       			// - when using files(), need to do a better job including only file fields in the parentheses
-       			//.setFields("nextPageToken, files(createdTime, description, id, mimeType, modifiedTime, name, ownedByMe, owners, parents, permissions, shared, sharingUser, size, trashed, trashedTime)")
-       			//.setFields("nextPageToken, createdTime, description, id, mimeType, modifiedTime, name, ownedByMe, owners, parents, permissions, shared, sharingUser, size, trashed, trashedTime")
-       			.setFields("*");
-			// Invoke the remote operation.
-   			result = request.execute();
+   		if ( (walker == null) && (changesReader == null) && (googleDriveSession.getMetadataCache() != null) ) {
+   			// Use the on-disk metadata cache:
+   			// - the toolkit reads all the pages so that the complete listing can be cached,
+   			//   or uses the cached listing, which is then processed as one page
+   			try {
+   				result = new FileList().setFiles(
+   					googleDriveToolkit.listFiles(googleDriveSession, q.toString(), listFields, listPageSize));
+   			}
+   			catch ( Exception e ) {
+   				message = "Error listing Google Drive files.";
+			 	Message.printWarning ( warningLevel,
+			 		MessageUtil.formatMessageTag(commandTag, ++warningCount),routine, message );
+			 	Message.printWarning ( 3, routine, e );
+			 	status.addToLog(CommandPhaseType.RUN,
+			 		new CommandLogRecord(CommandStatusType.FAILURE,
+			 			message, "See the log file for details."));
+			 	throw new CommandException ( message );
+   			}
    		}
-   		catch ( Exception e ) {
-   			message = "Error listing Google Drive files.";
-		 	Message.printWarning ( warningLevel,
-		 		MessageUtil.formatMessageTag(commandTag, ++warningCount),routine, message );
-		 	Message.printWarning ( 3, routine, e );
-		 	status.addToLog(CommandPhaseType.RUN,
-		 		new CommandLogRecord(CommandStatusType.FAILURE,
-		 			message, "See the log file for details."));
-		 	throw new CommandException ( message );
+   		else if ( (walker == null) && (changesReader == null) ) {
+   			try {
+   				// Do the initial request.
+   				request = googleDriveSession.getService()
+   					// Request to execute.
+   					.files()
+   					// Holds the parameters for the request.
+   					.list()
+   					// The "space" is the location where files are stored:
+   					// - "drive" - user's personal Google Drive
+   					// - "appDataFolder" - hidden folder in the user's Google Drive that is only
+   					//   accessible by the application that created it
+   					// - "photos" - for Google Photos
+   					// - can specify both separated by a comma to list all files
+   					.setSpaces("drive")
+   					// Set the folder to list:
+   					// See: https://developers.google.com/drive/api/guides/search-files
+   					.setQ(q.toString())
+   					// Whether files from My Drive and shared drives should be listed in the result.
+   					.setIncludeItemsFromAllDrives(true)
+   					// Whether the application supports My Drive and shared drives.
+   					.setSupportsAllDrives(true)
+   					// Page size for returned files:
+   					// - the maximum is 1000, which minimizes the number of requests
+   					.setPageSize(listPageSize)
+       				// Which fields to include in the response:
+       				// - if not specified nulls will be returned by the "get" methods below
+       				// - see https://developers.google.com/drive/api/guides/ref-search-terms#drive_properties
+       				// - don't specify any fields to return all fields (will be slower) but it is a pain to figure out fields
+       				//   since they don't seem to be documented well
+       				// - specifying * returns everything (permissions, capabilities, export links, etc.) and is much slower
+       				// - only request the fields needed for the output columns, and the page token
+       				.setFields("nextPageToken, files(" + listFields + ")");
+				// Invoke the remote operation.
+   				result = request.execute();
+   			}
+   			catch ( Exception e ) {
+   				message = "Error listing Google Drive files.";
+			 	Message.printWarning ( warningLevel,
+			 		MessageUtil.formatMessageTag(commandTag, ++warningCount),routine, message );
+			 	Message.printWarning ( 3, routine, e );
+			 	status.addToLog(CommandPhaseType.RUN,
+			 		new CommandLogRecord(CommandStatusType.FAILURE,
+			 			message, "See the log file for details."));
+			 	throw new CommandException ( message );
+   			}
    		}
 
    		// Process the result files and if necessary make additional requests.
@@ -1076,196 +1857,322 @@ implements CommandDiscoverable, FileGenerator, ObjectListProvider
 		int objectCount = 0;
 		// Page count is used for output messages.
 		int pageCount = 0;
-   		while ( (result.getFiles() != null) && (result.getFiles().size() > 0) ) {
-   			++pageCount;
-   			List<com.google.api.services.drive.model.File> files = result.getFiles();
-   			if ( (files == null) || files.isEmpty() ) {
-   				Message.printStatus(2, routine, "No more files/folders found (page=" + pageCount + ").");
-   			}
-   			else {
-   				// Have files and folders to process.
-   				Message.printStatus(2, routine, "Processing " + files.size() + " files/folders (page=" + pageCount + ").");
-   				// Do not allow duplicates in the output.
-   				boolean allowDuplicates = false;
-   				TableRecord rec = null;
-   				for ( com.google.api.services.drive.model.File file : files ) {
-   					//Message.printStatus(2, routine, String.format("%s (%s)\n", file.getName(), file.getId()));
-   					// Output to table:
-   					// - key is the full path to the file
-   					// - have size, owner and modification time properties
-					if ( regex != null ) {
-						// Want to apply a regular expression to the name.
-						if ( !file.getName().matches(regex) ) {
-							if ( Message.isDebugOn ) {
-								Message.printStatus(2, routine, "Does not match regular expression - skipping: " + file.getName());
+		// Parent folder ID and path for the previous file:
+		// - used to increase performance since files in a folder are listed together
+		String parentIdPrev = "";
+		String parentPathPrev = "";
+		// Index of ID to record, used to check for duplicates without searching the table:
+		// - includes existing records if appending
+		Map<String,TableRecord> recordIndex = null;
+		if ( table != null ) {
+			recordIndex = buildRecordIndex ( table, listIdCol );
+		}
+		// IDs of the files that have been listed, used to skip duplicates when walking more than one root:
+		// - a file that is shared with the user can also be in a walked folder
+		// - the table record index only finds duplicates in the current page when streaming output
+		// - only the IDs are kept, and only when needed, to limit memory use
+		Set<String> listedIds = null;
+		if ( walkShared ) {
+			listedIds = new HashSet<>();
+		}
+		// Change type for each file ID in the current page, used when listing changes.
+		Map<String,String> changeTypeMap = new HashMap<>();
+		// Thread and result used to request the next page while the current page is processed.
+		ExecutorService pageExecutor = null;
+		Future<FileList> nextResult = null;
+   		try {
+   			while ( true ) {
+   				List<com.google.api.services.drive.model.File> files = null;
+   				// Parent folder path from the walk, or null if it needs to be looked up.
+   				String walkParentPath = null;
+   				if ( walker != null ) {
+   					// Get the next folder from the walk.
+   					GoogleDriveFolderWalker.FolderListing listing = walker.next();
+   					if ( listing == null ) {
+   						// Done walking the folders.
+   						break;
+   					}
+   					if ( listing.getException() != null ) {
+   						message = "Error listing Google Drive folder \"" + listing.getFolderPath() + "\" (" + listing.getException() + ").";
+   						Message.printWarning ( warningLevel,
+   							MessageUtil.formatMessageTag(commandTag, ++warningCount),routine, message );
+   						Message.printWarning ( 3, routine, listing.getException() );
+   						status.addToLog(CommandPhaseType.RUN,
+   							new CommandLogRecord(CommandStatusType.FAILURE,
+   								message, "See the log file for details."));
+   						continue;
+   					}
+   					files = listing.getFiles();
+   					walkParentPath = listing.getFolderPath();
+   				}
+   				else if ( changesReader != null ) {
+   					// Get the next page of changes.
+   					List<Change> changes = changesReader.next();
+   					if ( changes == null ) {
+   						// Done reading the changes.
+   						break;
+   					}
+   					files = new ArrayList<>();
+   					changeTypeMap.clear();
+   					for ( Change change : changes ) {
+   						if ( !"file".equals(change.getChangeType()) ) {
+   							// Ignore changes to shared drives.
+   							continue;
+   						}
+   						com.google.api.services.drive.model.File file = change.getFile();
+   						String changeType;
+   						if ( Boolean.TRUE.equals(change.getRemoved()) || (file == null) ) {
+   							if ( file == null ) {
+   								// File was removed or is no longer accessible so only the ID is known:
+   								// - the MIME type is not set because it is not known whether a file or folder was removed
+   								file = new com.google.api.services.drive.model.File()
+   									.setId(change.getFileId()).setName("");
+   							}
+   							changeType = "Removed";
+   						}
+   						else if ( Boolean.TRUE.equals(file.getTrashed()) && !listTrashed ) {
+   							// Moving to the trash is treated as removed.
+   							changeType = "Removed";
+   						}
+   						else if ( (file.getCreatedTime() != null)
+   							&& (file.getCreatedTime().getValue() >= changesReader.getPreviousRunTime()) ) {
+   							changeType = "Added";
+   						}
+   						else {
+   							changeType = "Modified";
+   						}
+   						changeTypeMap.put(file.getId(), changeType);
+   						files.add(file);
+   					}
+   				}
+   				else if ( (result.getFiles() == null) || (result.getFiles().size() == 0) ) {
+   					break;
+   				}
+   				else {
+   					files = result.getFiles();
+   					// Request the next page while this page is processed:
+   					// - the request is only used by the page thread until the result is retrieved below
+   					String nextPageToken = result.getNextPageToken();
+   					if ( (nextPageToken != null) && !nextPageToken.isEmpty() ) {
+   						if ( pageExecutor == null ) {
+   							pageExecutor = Executors.newSingleThreadExecutor();
+   						}
+   						final Drive.Files.List nextRequest = request.setPageToken(nextPageToken);
+   						nextResult = pageExecutor.submit(() -> nextRequest.execute());
+   					}
+   					else {
+   						nextResult = null;
+   					}
+   				}
+   				++pageCount;
+   				if ( (walker == null) && (listParentFolderCol >= 0) && (files != null) ) {
+   					// Request the parent folders for the page in batches:
+   					// - converting each file's parent ID to a path will then use the session's folder cache
+   					Set<String> parentIds = new LinkedHashSet<>();
+   					for ( com.google.api.services.drive.model.File file : files ) {
+   						if ( (file.getParents() != null) && !file.getParents().isEmpty() ) {
+   							parentIds.add(file.getParents().get(0));
+   						}
+   					}
+   					try {
+   						googleDriveToolkit.prefetchFolders(googleDriveSession, parentIds);
+   					}
+   					catch ( Exception e ) {
+   						// Folders will be requested individually as needed.
+   						Message.printWarning(3, routine, "Error requesting parent folders in a batch (" + e + ").");
+   					}
+   				}
+   				if ( (files == null) || files.isEmpty() ) {
+   					Message.printStatus(2, routine, "No more files/folders found (page=" + pageCount + ").");
+   				}
+   				else {
+   					// Have files and folders to process.
+   					Message.printStatus(2, routine, "Processing " + files.size() + " files/folders (page=" + pageCount + ").");
+   					// Do not allow duplicates in the output.
+   					boolean allowDuplicates = false;
+   					TableRecord rec = null;
+   					for ( com.google.api.services.drive.model.File file : files ) {
+   						//Message.printStatus(2, routine, String.format("%s (%s)\n", file.getName(), file.getId()));
+   						// Output to table:
+   						// - key is the full path to the file
+   						// - have size, owner and modification time properties
+   						// Change type if listing changes:
+   						// - removed files don't have a name so always list
+   						String changeType = changeTypeMap.get(file.getId());
+						if ( (nameMatcher != null) && !"Removed".equals(changeType) ) {
+							// Want to apply a regular expression to the name.
+							if ( !nameMatcher.matches(file.getName()) ) {
+								if ( Message.isDebugOn ) {
+									Message.printStatus(2, routine, "Does not match regular expression - skipping: " + file.getName());
+								}
+								continue;
 							}
+						}
+						if ( (listedIds != null) && !listedIds.add(file.getId()) ) {
+							// Already listed from another root.
 							continue;
 						}
-					}
-					String type = null;
-					if ( file.getMimeType().equals("application/vnd.google-apps.folder") ) {
-						if ( !listFolders ) {
-							// Is a folder and don't want folders so continue.
+						String type = getListType ( file, listFiles, listFolders );
+						if ( type == null ) {
+							// Is a file or folder and don't want that type so continue.
 							if ( Message.isDebugOn ) {
-								Message.printStatus(2, routine, "Is a folder and ignoring folder - skipping: " + file.getName());
+								Message.printStatus(2, routine, "Is a file or folder type that is ignored - skipping: " + file.getName());
 							}
 							continue;
 						}
-						else {
-							// Will include the folder in the listing below.
-							type = "folder";
+						else if ( type.equals("folder") ) {
 							++folderCount;
-							++objectCount;
-						}
-					}
-					else if ( !file.getMimeType().equals("application/vnd.google-apps.folder") ) {
-						if ( !listFiles ) {
-							// Is a file and don't files want so continue.
-							if ( Message.isDebugOn ) {
-								Message.printStatus(2, routine, "Is a file and ignoring files - skipping: " + file.getName());
-							}
-							continue;
 						}
-						else {
-							// Will include the file in the listing below.
-							type = "file";
+						else if ( type.equals("file") ) {
 							++fileCount;
-							++objectCount;
 						}
-					}
-					// If here, the object should be listed in the output table.
- 					if ( table != null ) {
-   						rec = null;
-   						if ( !allowDuplicates ) {
-   							// Try to match the object key, which is the unique identifier.
-   							rec = table.getRecord ( listIdCol, file.getId() );
-   						}
-   						if ( rec == null ) {
-   							// Create a new record.
-   							rec = table.addRecord(table.emptyRecord());
-   						}
-   						// Set the data in the record:
-   						// - list in the order of the table
-   						rec.setFieldValue(listIdCol,file.getId());
-						rec.setFieldValue(listNameCol,file.getName());
-						String parentPath = "";
-						String parentId = "";
-						String parentIdPrev = ""; // Use to increase performance.
-						List<String> parents = file.getParents();
-						if ( (parents != null) && (parents.size() > 0) ) {
-							// Show the parent folder:
-							// - the primary parent is the first one and others are like symbolic links
-							// - the parents are the ID, not a nice name
-							parentId = parents.get(0);
-							if ( !parentId.equals(parentIdPrev) ) {
-								// Also convert the parent ID to a path:
-								// - only need to do this if the parent ID has changed
-								// - most of the time a single folder is being listed
-								Drive service = googleDriveSession.getService();
-								try {
-									parentPath = googleDriveToolkit.getParentFolderPathFromFolderId(service, parentId);
-								}
-								catch ( Exception e ) {
-									// Swallow for now:
-									// - TODO smalers 2023-12-28 why does this happen?
+						++objectCount;
+						// If here, the object should be listed in the output table.
+ 						if ( table != null ) {
+   							if ( allowDuplicates ) {
+   								// Create a new record.
+   								rec = table.addRecord(table.emptyRecord());
+   							}
+   							else {
+   								// Reuse the record for the object key, which is the unique identifier.
+   								rec = getListRecord ( table, recordIndex, file.getId() );
+   							}
+   							// Get the parent folder, which may require Google Drive requests.
+   							String parentPath = "";
+   							String parentId = "";
+   							if ( (listParentFolderCol >= 0) || (listParentFolderIdCol >= 0) ) {
+								List<String> parents = file.getParents();
+								if ( (parents != null) && (parents.size() > 0) ) {
+									// Show the parent folder:
+									// - the primary parent is the first one and others are like symbolic links
+									// - the parents are the ID, not a nice name
+									parentId = parents.get(0);
+									if ( listParentFolderCol < 0 ) {
+										// Only the parent folder ID is needed.
+									}
+									else if ( walkParentPath != null ) {
+										// Parent folder path is known from the walk.
+										parentPath = walkParentPath;
+									}
+									else if ( !parentId.equals(parentIdPrev) ) {
+										// Also convert the parent ID to a path:
+										// - only need to do this if the parent ID has changed
+										// - most of the time a single folder is being listed
+										// - the session caches folders so each folder is requested at most once
+										try {
+											parentPath = googleDriveToolkit.getParentFolderPathFromFolderId(googleDriveSession, parentId);
+										}
+										catch ( Exception e ) {
+											// Swallow for now:
+											// - TODO smalers 2023-12-28 why does this happen?
+										}
+									}
+									else {
+										// Same parent as the previous file.
+										parentPath = parentPathPrev;
+									}
+									parentIdPrev = parentId;
+									parentPathPrev = parentPath;
 								}
-							}
-							parentIdPrev = parentId;
-						}
-						rec.setFieldValue(listParentFolderCol,parentPath.toString());
-						rec.setFieldValue(listParentFolderIdCol,parentId);
-   						rec.setFieldValue(listTypeCol,type);
-   						rec.setFieldValue(listSizeCol,file.getSize());
-   						List<User> users = file.getOwners();
-   						// Can have multiple owners.
-   						StringBuilder userCsv = new StringBuilder();
-   						if ( users != null ) {
-   							for ( User user : users ) {
-   								if ( userCsv.length() > 0 ) {
-   									userCsv.append(",");
-   								}
-   								userCsv.append(user.getDisplayName());
    							}
+   							// Set the data in the record.
+   							setListRecordValues ( rec, file, changeType, type, parentPath, parentId, dateTimeConverter,
+   								listChangeCol, listCreationTimeCol, listIdCol, listLastModifiedTimeCol, listLastModifiedUserCol,
+   								listNameCol, listOriginalFilenameCol, listOwnedByMeCol, listOwnerCol,
+   								listParentFolderCol, listParentFolderIdCol,
+   								listSharedCol, listSharedWithMeTimeCol, listSharingUserCol,
+   								listSizeCol,
+   								listTrashedCol, listTrashedTimeCol, listTrashingUserCol,
+   								listTypeCol, listWebViewLinkCol );
    						}
-   						rec.setFieldValue(listOwnerCol, userCsv.toString());
-   						rec.setFieldValue(listOwnedByMeCol, file.getOwnedByMe());
-   						// Google API has its own DateTime in the API so convert to TSTool type for consistency.
-   						com.google.api.client.util.DateTime fileCreationTime = file.getCreatedTime();
-   						if ( fileCreationTime != null ) {
-   							DateTime creationTime = DateTime.parse(fileCreationTime.toString());
-   							rec.setFieldValue(listCreationTimeCol, creationTime);
-   						}
-   						rec.setFieldValue(listSharedCol, file.getShared());
-   						User sharingUser = file.getSharingUser();
-   						if ( sharingUser != null ) {
-   							rec.setFieldValue(listSharingUserCol, sharingUser.getDisplayName());
-   						}
-   						// Google API has its own DateTime in the API so convert to TSTool type for consistency.
-   						com.google.api.client.util.DateTime fileSharedWithMeTime = file.getSharedWithMeTime();
-   						if ( fileSharedWithMeTime != null ) {
-   							DateTime sharedWithMeTime = DateTime.parse(fileSharedWithMeTime.toString());
-   							rec.setFieldValue(listSharedWithMeTimeCol, sharedWithMeTime);
-   						}
-   						// Google API has its own DateTime in the API so convert to TSTool type for consistency.
-   						com.google.api.client.util.DateTime fileModifiedTime = file.getModifiedTime();
-   						if ( fileModifiedTime != null ) {
-   							DateTime modificationTime = DateTime.parse(fileModifiedTime.toString());
-   							rec.setFieldValue(listLastModifiedTimeCol, modificationTime);
-   						}
-   						User lastModifyingUser = file.getLastModifyingUser();
-   						if ( lastModifyingUser != null ) {
-   							rec.setFieldValue(listLastModifiedUserCol, file.getLastModifyingUser().getDisplayName());
-   						}
-   						rec.setFieldValue(listTrashedCol, file.getTrashed());
-   						User trashingUser = file.getTrashingUser();
-   						if ( trashingUser != null ) {
-   							rec.setFieldValue(listTrashingUserCol, trashingUser.getDisplayName());
-   						}
-   						// Google API has its own DateTime in the API so convert to TSTool type for consistency.
-   						com.google.api.client.util.DateTime fileTrashedTime = file.getTrashedTime();
-   						if ( fileTrashedTime != null ) {
-   							DateTime trashedTime = DateTime.parse(fileTrashedTime.toString());
-   							rec.setFieldValue(listTrashedTimeCol, trashedTime);
-   						}
-   						rec.setFieldValue(listOriginalFilenameCol, file.getOriginalFilename());
-   						rec.setFieldValue(listWebViewLinkCol, file.getWebViewLink());
+
+ 						// Break out of the loop if the object count has been reached.
+ 						if ( (listMax > 0) && (objectCount == listMax) ) {
+ 							break;
+ 						}
    					}
 
- 					// Break out of the loop if the object count has been reached.
- 					if ( (listMax > 0) && (objectCount == listMax) ) {
- 						break;
- 					}
+   					if ( outputWriter != null ) {
+   						// Write the page to the output file and remove from the table so memory use does not grow.
+   						outputWriter.writeRecords(table);
+   						recordIndex.clear();
+   					}
+
+					// Break out of the loop if the object count has been reached.
+					if ( (listMax > 0) && (objectCount == listMax) ) {
+						break;
+					}
    				}
 
 				// Break out of the loop if the object count has been reached.
 				if ( (listMax > 0) && (objectCount == listMax) ) {
 					break;
 				}
-   			}
 
-			// Break out of the loop if the object count has been reached.
-			if ( (listMax > 0) && (objectCount == listMax) ) {
-				break;
-			}
+   				if ( (walker != null) || (changesReader != null) ) {
+   					// The walker reads all the pages for each folder and the changes reader reads the next page.
+   					continue;
+   				}
 
-   			// Get the next page of results.
-   			String nextPageToken = result.getNextPageToken();
-   			if ( nextPageToken == null ) {
-   				break;
+   				// Get the next page of results, which was requested above.
+   				if ( nextResult == null ) {
+   					break;
+   				}
+   				else {
+   					try {
+   						result = nextResult.get();
+   					}
+   					catch ( ExecutionException e ) {
+   						// Throw the original exception.
+   						throw (e.getCause() instanceof Exception) ? (Exception)e.getCause() : e;
+   					}
+   				}
    			}
-   			else {
-   				//Message.printStatus(2, routine, "Next page token = \"" + nextPageToken + "\"" );
-   				request.setPageToken(nextPageToken);
-   				result = request.execute();
+   		}
+   		finally {
+   			if ( walker != null ) {
+   				walker.close();
+   			}
+   			if ( pageExecutor != null ) {
+   				// Cancel the next page request if not used.
+   				pageExecutor.shutdownNow();
+   			}
+   			if ( outputWriter != null ) {
+   				// Write records from a page that was not completely processed.
+   				outputWriter.writeRecords(table);
+   			}
+   		}
+
+   		if ( (changesReader != null) && changesReader.isComplete() && !((listMax > 0) && (objectCount == listMax)) ) {
+   			// Save the page token for the next run:
+   			// - only if all changes were processed, otherwise the next run will list the same changes
+   			// - the output may have been limited by ListMax
+   			try {
+   				changesReader.saveNewStartPageToken();
+   			}
+   			catch ( Exception e ) {
+   				message = "Error saving the Google Drive changes page token to \"" + changesReader.getPageTokenFile() + "\".";
+   				Message.printWarning ( warningLevel,
+   					MessageUtil.formatMessageTag(commandTag, ++warningCount),routine, message );
+   				Message.printWarning ( 3, routine, e );
+   				status.addToLog(CommandPhaseType.RUN,
+   					new CommandLogRecord(CommandStatusType.FAILURE,
+   						message, "Check permissions for the folder."));
    			}
    		}
 
     	Message.printStatus ( 2, routine, "List has fileCount=" + fileCount + ", folderCount="
     		+ folderCount + ", objectCount=" + objectCount );
+    	Message.printStatus ( 2, routine, "Folder cache: " + googleDriveSession.getFolderCache() );
     	// Set the property indicating the number of bucket objects.
        	if ( (listCountProperty != null) && !listCountProperty.equals("") ) {
        		//int numObjects = objectCount;
        		int numObjects = table.getNumberOfRecords();
+       		if ( outputWriter != null ) {
+       			// Records have been written to the output file and removed from the table:
+       			// - if appending, include the records that were in the file so the count is the total
+       			numObjects = outputWriter.getExistingRecordCount() + outputWriter.getRecordCount();
+       		}
            	PropList requestParams = new PropList ( "" );
            	requestParams.setUsingObject ( "PropertyName", listCountProperty );
            	requestParams.setUsingObject ( "PropertyValue", Integer.valueOf(numObjects) );
@@ -1293,7 +2200,7 @@ implements CommandDiscoverable, FileGenerator, ObjectListProvider
 	private int doGoogleDriveListDrives (
 		CommandProcessor processor,
 		GoogleDriveSession googleDriveSession,
-		String regex,
+		GoogleDriveNameMatcher nameMatcher,
 		DataTable table,
 		int driveCreationTimeCol, int driveIdCol, int driveNameCol,
 		String listDrivesCountProperty,
@@ -1305,6 +2212,8 @@ implements CommandDiscoverable, FileGenerator, ObjectListProvider
 
 		// Get the toolkit with useful methods.
 		//GoogleDriveToolkit googleDriveToolkit = GoogleDriveToolkit.getInstance();
+		// Converter for Google DateTime values, used for all drives.
+		GoogleDriveDateTimeConverter dateTimeConverter = new GoogleDriveDateTimeConverter();
 
    		// Output the names and IDs for up to 10 files.
    		DriveList result = null;
@@ -1316,8 +2225,9 @@ implements CommandDiscoverable, FileGenerator, ObjectListProvider
    				.drives()
    				// Holds the parameters for the request.
    				.list()
-   				// Set the fields that are returned (creation time, etc.).
-       			.setFields("*");
+   				// Set the fields that are returned:
+   				// - only the fields that are output, and the page token
+       			.setFields("nextPageToken, drives(id, name, createdTime)");
 			// Invoke the remote operation.
    			result = request.execute();
    		}
@@ -1335,6 +2245,12 @@ implements CommandDiscoverable, FileGenerator, ObjectListProvider
    		// Process the result files and if necessary make additional requests.
 		int driveCount = 0;
 		int pageCount = 0;
+		// Index of ID to record, used to check for duplicates without searching the table:
+		// - includes existing records if appending
+		Map<String,TableRecord> recordIndex = null;
+		if ( table != null ) {
+			recordIndex = buildRecordIndex ( table, driveIdCol );
+		}
    		while ( (result.getDrives() != null) && (result.getDrives().size() > 0) ) {
    			++pageCount;
    			List<com.google.api.services.drive.model.Drive> drives = result.getDrives();
@@ -1350,9 +2266,9 @@ implements CommandDiscoverable, FileGenerator, ObjectListProvider
    				for ( com.google.api.services.drive.model.Drive drive : drives ) {
    					//Message.printStatus(2, routine, String.format("%s (%s)\n", file.getName(), file.getId()));
    					// Output to table.
-					if ( regex != null ) {
+					if ( nameMatcher != null ) {
 						// Want to apply a regular expression to the name.
-						if ( !drive.getName().matches(regex) ) {
+						if ( !nameMatcher.matches(drive.getName()) ) {
 							if ( Message.isDebugOn ) {
 								Message.printStatus(2, routine, "Does not match regular expression - skipping: " + drive.getName());
 							}
@@ -1364,11 +2280,12 @@ implements CommandDiscoverable, FileGenerator, ObjectListProvider
    						rec = null;
    						if ( !allowDuplicates ) {
    							// Try to match the drive ID, which is the unique identifier.
-   							rec = table.getRecord ( driveIdCol, drive.getId() );
+   							rec = recordIndex.get ( drive.getId() );
    						}
    						if ( rec == null ) {
    							// Create a new record.
    							rec = table.addRecord(table.emptyRecord());
+   							recordIndex.put ( drive.getId(), rec );
    						}
    						// Set the data in the record:
    						// - list in the order of the table
@@ -1377,7 +2294,7 @@ implements CommandDiscoverable, FileGenerator, ObjectListProvider
    						// Google API has its own DateTime in the API so convert to TSTool type for consistency.
    						com.google.api.client.util.DateTime driveCreationTime = drive.getCreatedTime();
    						if ( driveCreationTime != null ) {
-   							DateTime creationTime = DateTime.parse(driveCreationTime.toString());
+   							DateTime creationTime = dateTimeConverter.toDateTime(driveCreationTime);
    							rec.setFieldValue(driveCreationTimeCol, creationTime);
    						}
    					}
@@ -1462,9 +2379,102 @@ implements CommandDiscoverable, FileGenerator, ObjectListProvider
         	v = new ArrayList<>();
         	v.add ( (T)table );
     	}
+    	if ( (this.discoveryMetricsTable != null) && (c == this.discoveryMetricsTable.getClass()) ) {
+    		if ( v == null ) {
+    			v = new ArrayList<>();
+    		}
+        	v.add ( (T)this.discoveryMetricsTable );
+    	}
     	return v;
 	}
 
+	/**
+	 * Return the position of a list column in _ListColumns.
+	 * @param listColumn the list column name, matched ignoring case
+	 * @return the position of the column, or -1 if not matched
+	 */
+	private int getListColumnPosition ( String listColumn ) {
+		for ( int i = 0; i < _ListColumns.length; i++ ) {
+			if ( _ListColumns[i].equalsIgnoreCase(listColumn) ) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Return the record for a listed file or folder, to avoid duplicates in the output table.
+	 * If the index contains the ID, the existing record is returned so that it is updated,
+	 * and otherwise a new record is added to the table and the index.
+	 * @param table the output table
+	 * @param recordIndex index of ID to record, from buildRecordIndex()
+	 * @param id the Google Drive ID of the file or folder
+	 * @return the record to set values in
+	 */
+	static TableRecord getListRecord ( DataTable table, Map<String,TableRecord> recordIndex, String id ) throws Exception {
+		TableRecord rec = recordIndex.get ( id );
+		if ( rec == null ) {
+			// Create a new record.
+			rec = table.addRecord(table.emptyRecord());
+			recordIndex.put ( id, rec );
+		}
+		return rec;
+	}
+
+	/**
+	 * Return the type to list for a Google Drive file or folder.
+	 * @param file the Google Drive file or folder
+	 * @param listFiles whether files are listed
+	 * @param listFolders whether folders are listed
+	 * @return "folder" or "file", an empty string for a removed change where the MIME type is not known
+	 * (always listed because it can't be determined whether a file or folder was removed),
+	 * or null if the type is not listed
+	 */
+	static String getListType ( com.google.api.services.drive.model.File file, boolean listFiles, boolean listFolders ) {
+		if ( file.getMimeType() == null ) {
+			// Removed change where the file data is not available.
+			return "";
+		}
+		else if ( file.getMimeType().equals("application/vnd.google-apps.folder") ) {
+			return listFolders ? "folder" : null;
+		}
+		else {
+			return listFiles ? "file" : null;
+		}
+	}
+
+	/**
+	 * Return the local file or folder name for a Google Drive name.
+	 * Google Drive names can contain characters that are path separators on the local computer,
+	 * which are replaced with underscores so that files are not written outside of the local folder.
+	 * @param googleDriveName Google Drive file or folder name
+	 * @return the local name, or null if the name cannot be used (empty, ".", or "..")
+	 */
+	private String getLocalFileName ( String googleDriveName ) {
+		if ( googleDriveName == null ) {
+			return null;
+		}
+		String localName = googleDriveName.replace('/', '_').replace('\\', '_');
+		if ( localName.isEmpty() || localName.equals(".") || localName.equals("..") ) {
+			return null;
+		}
+		return localName;
+	}
+
+	/**
+	 * Return the key used to detect Google Drive files and folders that have the same local path.
+	 * Google Drive names are case-sensitive and Windows file names are not,
+	 * so the key is lowercase on Windows.
+	 * @param localPath local file or folder path
+	 * @return the key for the local path
+	 */
+	private String getLocalPathKey ( String localPath ) {
+		if ( File.separatorChar == '\\' ) {
+			return localPath.toLowerCase();
+		}
+		return localPath;
+	}
+
 	/**
 	Return the output file generated by this file.  This method is used internally.
 	*/
@@ -1472,6 +2482,108 @@ implements CommandDiscoverable, FileGenerator, ObjectListProvider
     	return __OutputFile_File;
 	}
 
+	/**
+	 * Return the column number for a table column.
+	 * @param table the table to check
+	 * @param columnName the column name
+	 * @return the column number, or -1 if the column is not in the table
+	 */
+	private int getTableColumnIndex ( DataTable table, String columnName ) {
+		try {
+			return table.getFieldIndex(columnName);
+		}
+		catch ( Exception e ) {
+			return -1;
+		}
+	}
+
+	/**
+	 * Determine whether this command is the first or last GoogleDrive command in the processor.
+	 * This is used to reset and close the sessions that are shared by GoogleDrive commands during a run.
+	 * The plugin does not have a hook for the end of a run, so the position of the command is used, which has limitations:
+	 * <ul>
+	 * <li> if the last GoogleDrive command is not run (e.g., it is in an If block or the run is canceled),
+	 *      the sessions are closed by the first GoogleDrive command in the next run or when TSTool exits</li>
+	 * <li> the first and last commands may be run more than once if in a For loop,
+	 *      so the caller also checks CommandsShouldClearRunStatus and isInForLoop()</li>
+	 * </ul>
+	 * @param processor the command processor
+	 * @param first if true, check whether the first command, if false check whether the last command
+	 * @return true if the first or last GoogleDrive command
+	 */
+	private boolean isFirstOrLastGoogleDriveCommand ( CommandProcessor processor, boolean first ) {
+		if ( !(processor instanceof TSCommandProcessor) ) {
+			// Don't know so assume true so that sessions are not left open.
+			return true;
+		}
+		List<Command> commands = ((TSCommandProcessor)processor).getCommands();
+		if ( commands == null ) {
+			return true;
+		}
+		int size = commands.size();
+		for ( int i = 0; i < size; i++ ) {
+			Command command = commands.get(first ? i : (size - 1 - i));
+			if ( command instanceof GoogleDrive_Command ) {
+				return command == this;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Determine whether a folder path can be used with ListScope=Changes.
+	 * Changes are listed for a whole drive, so the path must be the root folder for the user's files
+	 * (My Drive and shared files) or the top folder of a shared drive.
+	 * @param listFolderPath the ListFolderPath parameter value
+	 * @return true if the path is "/" or "/Shared drives/drive/"
+	 */
+	private boolean isListChangesFolderPath ( String listFolderPath ) {
+		if ( listFolderPath.equals("/") ) {
+			return true;
+		}
+		String sharedDrivesPrefix = "/" + GoogleDriveToolkit.SHARED_DRIVES + "/";
+		if ( !listFolderPath.startsWith(sharedDrivesPrefix) ) {
+			return false;
+		}
+		// The drive name must be followed only by the trailing slash.
+		String driveName = listFolderPath.substring(sharedDrivesPrefix.length());
+		return (driveName.length() > 1) && (driveName.indexOf("/") == (driveName.length() - 1));
+	}
+
+	/**
+	 * Determine whether this command is in a For loop, in which case it may be run more than once during a run.
+	 * @param processor the command processor
+	 * @return true if the command is between For and EndFor commands
+	 */
+	private boolean isInForLoop ( CommandProcessor processor ) {
+		if ( !(processor instanceof TSCommandProcessor) ) {
+			return false;
+		}
+		List<Command> commands = ((TSCommandProcessor)processor).getCommands();
+		if ( commands == null ) {
+			return false;
+		}
+		// Search backward for a For command that does not have a matching EndFor command.
+		int endForCount = 0;
+		for ( int i = commands.indexOf(this) - 1; i >= 0; i-- ) {
+			Command command = commands.get(i);
+			if ( !(command instanceof AbstractCommand) ) {
+				continue;
+			}
+			String commandName = ((AbstractCommand)command).getCommandName();
+			if ( "EndFor".equalsIgnoreCase(commandName) ) {
+				++endForCount;
+			}
+			else if ( "For".equalsIgnoreCase(commandName) ) {
+				if ( endForCount == 0 ) {
+					return true;
+				}
+				--endForCount;
+			}
+		}
+		return false;
+	}
+
 	/**
 	Run the command.
 	@param command_number Command number in sequence.
@@ -1536,6 +2648,31 @@ implements CommandDiscoverable, FileGenerator, ObjectListProvider
 		String GoogleDriveCommand = parameters.getValue ( "GoogleDriveCommand" );
 		GoogleDriveCommandType googleDriveCommand = GoogleDriveCommandType.valueOfIgnoreCase(GoogleDriveCommand);
 		String SessionID = parameters.getValue ( "SessionID" );
+		String MetadataCache = parameters.getValue ( "MetadataCache" );
+		boolean doMetadataCache = false;
+		boolean doMetadataCacheClear = false;
+		if ( (MetadataCache != null) && MetadataCache.equalsIgnoreCase(_True) ) {
+			doMetadataCache = true;
+		}
+		else if ( (MetadataCache != null) && MetadataCache.equalsIgnoreCase(_Clear) ) {
+			doMetadataCache = true;
+			doMetadataCacheClear = true;
+		}
+		String MetadataCacheTTL = parameters.getValue ( "MetadataCacheTTL" );
+		int metadataCacheTTL = _DefaultMetadataCacheTTL;
+		if ( (MetadataCacheTTL != null) && !MetadataCacheTTL.isEmpty() ) {
+			metadataCacheTTL = Integer.parseInt(MetadataCacheTTL);
+		}
+		String RequestRateLimit = parameters.getValue ( "RequestRateLimit" );
+		double requestRateLimit = GoogleDriveRateLimiter.DEFAULT_REQUESTS_PER_SECOND;
+		if ( (RequestRateLimit != null) && !RequestRateLimit.isEmpty() ) {
+			requestRateLimit = Double.parseDouble(RequestRateLimit);
+		}
+		String RequestMaxRetries = parameters.getValue ( "RequestMaxRetries" );
+		int requestMaxRetries = GoogleDriveRateLimiter.DEFAULT_MAX_RETRIES;
+		if ( (RequestMaxRetries != null) && !RequestMaxRetries.isEmpty() ) {
+			requestMaxRetries = Integer.parseInt(RequestMaxRetries);
+		}
 		String AuthenticationMethod = parameters.getValue ( "AuthenticationMethod" );
 		GoogleDriveAuthenticationMethodType authenticationMethod = null;
 		if ( (AuthenticationMethod == null) || AuthenticationMethod.isEmpty()) {
@@ -1981,10 +3118,29 @@ implements CommandDiscoverable, FileGenerator, ObjectListProvider
             	}
         	}
     	}
+    	String DownloadConcurrency = parameters.getValue ( "DownloadConcurrency" );
+    	int downloadConcurrency = _DefaultDownloadConcurrency;
+    	if ( (DownloadConcurrency != null) && !DownloadConcurrency.isEmpty() ) {
+    		downloadConcurrency = Integer.parseInt(DownloadConcurrency);
+    	}
+    	String DownloadIfUnchanged = parameters.getValue ( "DownloadIfUnchanged" );
+    	boolean downloadSkipUnchanged = false; // Default is to always download.
+    	if ( (DownloadIfUnchanged != null) && DownloadIfUnchanged.equalsIgnoreCase(_Skip) ) {
+    		downloadSkipUnchanged = true;
+    	}
+    	String DownloadExportFormat = parameters.getValue ( "DownloadExportFormat" );
+    	GoogleDriveExportFormatType downloadExportFormat = null; // Default is to not export Google Workspace files.
+    	if ( (DownloadExportFormat != null) && !DownloadExportFormat.isEmpty() ) {
+    		downloadExportFormat = GoogleDriveExportFormatType.valueOfIgnoreCase(DownloadExportFormat);
+    	}
     	String DownloadCountProperty = parameters.getValue ( "DownloadCountProperty" );
     	if ( commandPhase == CommandPhaseType.RUN ) {
     		DownloadCountProperty = TSCommandProcessorUtil.expandParameterValue(processor, this, DownloadCountProperty);
     	}
+    	String DownloadSkippedCountProperty = parameters.getValue ( "DownloadSkippedCountProperty" );
+    	if ( commandPhase == CommandPhaseType.RUN ) {
+    		DownloadSkippedCountProperty = TSCommandProcessorUtil.expandParameterValue(processor, this, DownloadSkippedCountProperty);
+    	}
 
 		// Get command parameters for: List Drives
 
@@ -1992,18 +3148,17 @@ implements CommandDiscoverable, FileGenerator, ObjectListProvider
 		String ListDrivesRegEx = parameters.getValue ( "ListDrivesRegEx" );
 		// TODO smalers 2023-12-28 evaluate whether regex can be expanded or will have conflicts.
 		ListDrivesRegEx = TSCommandProcessorUtil.expandParameterValue(processor,this,ListDrivesRegEx);
-		// Convert the RegEx to Java style.
-		String listDrivesRegEx = null;
-		if ( (ListDrivesRegEx != null) && !ListDrivesRegEx.isEmpty() ) {
-			if ( ListDrivesRegEx.toUpperCase().startsWith("JAVA:") ) {
-				// Use as is for a Java regular expression.
-				listDrivesRegEx = ListDrivesRegEx.substring(5);
-			}
-			else {
-				// Default to glob so convert to Java regex.
-				// TODO smalers 2023-02-01 need to hanle [abc] and [a-z].
-				listDrivesRegEx = ListDrivesRegEx.replace(".", "\\.").replace("*", ".*");
-			}
+		// Compile the glob or Java regular expression once for all drives.
+		GoogleDriveNameMatcher listDrivesNameMatcher = null;
+		try {
+			listDrivesNameMatcher = GoogleDriveNameMatcher.fromParameter(ListDrivesRegEx);
+		}
+		catch ( PatternSyntaxException e ) {
+			message = "The ListDrivesRegEx (" + ListDrivesRegEx + ") is invalid (" + e.getDescription() + ").";
+			Message.printWarning(warningLevel,
+				MessageUtil.formatMessageTag( commandTag, ++warningCount), routine, message );
+			status.addToLog ( commandPhase, new CommandLogRecord(CommandStatusType.FAILURE,
+				message, "Specify a valid glob or Java regular expression." ) );
 		}
     	String ListDrivesCountProperty = parameters.getValue ( "ListDrivesCountProperty" );
     	if ( commandPhase == CommandPhaseType.RUN ) {
@@ -2043,11 +3198,49 @@ implements CommandDiscoverable, FileGenerator, ObjectListProvider
 	  	if ( (ListTrashed != null) && ListTrashed.equalsIgnoreCase("true") ) {
 			listTrashed = true;
 	  	}
+   		String ListMaxDepth = parameters.getValue ( "ListMaxDepth" );
+   		int listMaxDepth = -1; // Default is all depths.
+	  	if ( (ListMaxDepth != null) && !ListMaxDepth.isEmpty() ) {
+			listMaxDepth = Integer.parseInt(ListMaxDepth);
+	  	}
+   		String ListConcurrency = parameters.getValue ( "ListConcurrency" );
+   		int listConcurrency = _DefaultListConcurrency;
+	  	if ( (ListConcurrency != null) && !ListConcurrency.isEmpty() ) {
+			listConcurrency = Integer.parseInt(ListConcurrency);
+	  	}
+   		String ListPageSize = parameters.getValue ( "ListPageSize" );
+   		int listPageSize = _DefaultListPageSize;
+	  	if ( (ListPageSize != null) && !ListPageSize.isEmpty() ) {
+			listPageSize = Integer.parseInt(ListPageSize);
+	  	}
    		String ListMax = parameters.getValue ( "ListMax" );
    		int listMax = -1;
 	  	if ( (ListMax != null) && !ListMax.isEmpty() ) {
 			listMax = Integer.parseInt(ListMax);
 	  	}
+	  	String ListColumns = parameters.getValue ( "ListColumns" );
+	  	if ( commandPhase == CommandPhaseType.RUN ) {
+	  		ListColumns = TSCommandProcessorUtil.expandParameterValue(processor, this, ListColumns);
+	  	}
+	  	// Output columns for the list, in the requested order:
+	  	// - the Id column is always included because it is used to check for duplicates
+	  	List<String> listColumns = new ArrayList<>();
+	  	if ( (ListColumns != null) && !ListColumns.isEmpty() ) {
+	  		for ( String listColumn : StringUtil.breakStringList(ListColumns, ",", StringUtil.DELIM_TRIM_STRINGS) ) {
+	  			int pos = getListColumnPosition(listColumn);
+	  			if ( (pos >= 0) && !listColumns.contains(_ListColumns[pos]) ) {
+	  				listColumns.add(_ListColumns[pos]);
+	  			}
+	  		}
+	  		if ( !listColumns.contains("Id") ) {
+	  			listColumns.add(0, "Id");
+	  		}
+	  	}
+	  	else {
+	  		listColumns.addAll(Arrays.asList(_ListColumns));
+	  	}
+	  	// Google Drive fields to request, based on the output columns.
+	  	String listFields = buildListFields ( listColumns );
 	  	String ListCountProperty = parameters.getValue ( "ListCountProperty" );
 	  	if ( commandPhase == CommandPhaseType.RUN ) {
 	  		ListCountProperty = TSCommandProcessorUtil.expandParameterValue(processor, this, ListCountProperty);
@@ -2056,18 +3249,18 @@ implements CommandDiscoverable, FileGenerator, ObjectListProvider
     	String ListRegEx = parameters.getValue ( "ListRegEx" );
 	  	// TODO smalers 2023-01-27 evaluate whether regex can be expanded or will have conflicts.
 	  	//ListRegEx = TSCommandProcessorUtil.expandParameterValue(processor,this,ListRegEx);
-	  	// Convert the RegEx to Java style.
-	  	String listRegEx = null;
-	  	if ( (ListRegEx != null) && !ListRegEx.isEmpty() ) {
-	  		if ( ListRegEx.toUpperCase().startsWith("JAVA:") ) {
-		  		// Use as is for a Java regular expression.
-		  		listRegEx = ListRegEx.substring(5);
-	  		}
-	  		else {
-		  		// Default to glob so convert * to Java .*
-		  		listRegEx = ListRegEx.replace("*", ".*");
-	  		}
-		}
+	  	// Compile the glob or Java regular expression once for all files.
+	  	GoogleDriveNameMatcher listNameMatcher = null;
+	  	try {
+	  		listNameMatcher = GoogleDriveNameMatcher.fromParameter(ListRegEx);
+	  	}
+	  	catch ( PatternSyntaxException e ) {
+	  		message = "The ListRegEx (" + ListRegEx + ") is invalid (" + e.getDescription() + ").";
+	  		Message.printWarning(warningLevel,
+	  			MessageUtil.formatMessageTag( commandTag, ++warningCount), routine, message );
+	  		status.addToLog ( commandPhase, new CommandLogRecord(CommandStatusType.FAILURE,
+	  			message, "Specify a valid glob or Java regular expression." ) );
+	  	}
 
 		// Get command parameters for: Upload - UploadFolders
 
@@ -2326,6 +3519,12 @@ implements CommandDiscoverable, FileGenerator, ObjectListProvider
 		boolean doTable = false;
 		String OutputTableID = parameters.getValue ( "OutputTableID" );
 		OutputTableID = TSCommandProcessorUtil.expandParameterValue(processor,this,OutputTableID);
+		String MetricsPropertyPrefix = parameters.getValue ( "MetricsPropertyPrefix" );
+		if ( commandPhase == CommandPhaseType.RUN ) {
+			MetricsPropertyPrefix = TSCommandProcessorUtil.expandParameterValue(processor, this, MetricsPropertyPrefix);
+		}
+		String MetricsTableID = parameters.getValue ( "MetricsTableID" );
+		MetricsTableID = TSCommandProcessorUtil.expandParameterValue(processor,this,MetricsTableID);
 		if ( (OutputTableID != null) && !OutputTableID.isEmpty() ) {
 			doTable = true;
 		}
@@ -2375,6 +3574,10 @@ implements CommandDiscoverable, FileGenerator, ObjectListProvider
 		// - if not appending, (re)create below
 
 		DataTable table = null;
+		// Writer used to write the list output file as pages are listed, if only writing the output file.
+		GoogleDriveCsvWriter outputWriter = null;
+		// Request metrics for the command, output at the end of the command.
+		GoogleDriveMetrics metrics = null;
     	if ( commandPhase == CommandPhaseType.RUN ) {
     		PropList requestParams = null;
 			CommandProcessorRequestResultsBean bean = null;
@@ -2413,11 +3616,18 @@ implements CommandDiscoverable, FileGenerator, ObjectListProvider
 
 		try {
 			if ( commandPhase == CommandPhaseType.RUN ) {
-				// Create a session, which has the credential.
+				// Get a session, which has the credential:
+				// - sessions are shared by GoogleDrive commands that are run by the processor
+				// - the first command closes sessions that were left open from a previous run,
+				//   but not for later iterations of a For loop (which do not clear the run status)
 				GoogleDriveSession googleDriveSession = null;
+				GoogleDriveSessionRegistry sessionRegistry = GoogleDriveSessionRegistry.getInstance();
+				if ( clearStatus && isFirstOrLastGoogleDriveCommand(processor, true) ) {
+					sessionRegistry.closeSessions(processor);
+				}
 
 				try {
-					googleDriveSession = new GoogleDriveSession(SessionID, authenticationMethod);
+					googleDriveSession = sessionRegistry.getSession(processor, SessionID, authenticationMethod);
 				}
 				catch ( Exception e ) {
 					message = "Error creating a Google Drive session.";
@@ -2430,6 +3640,23 @@ implements CommandDiscoverable, FileGenerator, ObjectListProvider
 					throw new CommandException ( message );
 				}
 
+				// Use the on-disk metadata cache only if requested for this command:
+				// - the session may have opened the cache for a previous command
+				if ( doMetadataCache ) {
+					googleDriveSession.openMetadataCache ( metadataCacheTTL*1000L, doMetadataCacheClear );
+				}
+				else {
+					googleDriveSession.closeMetadataCache();
+				}
+
+				// Limit and retry requests as specified for this command:
+				// - the limiter is shared by all requests in the session
+				googleDriveSession.getRateLimiter().setRequestsPerSecond ( requestRateLimit );
+				googleDriveSession.getRateLimiter().setMaxRetries ( requestMaxRetries );
+
+				// Measure requests for this command.
+				metrics = googleDriveSession.startMetrics();
+
     			// Column numbers are used later.
 
 	    		// Drive list columns.
@@ -2453,6 +3680,7 @@ implements CommandDiscoverable, FileGenerator, ObjectListProvider
    	    		int listSharedWithMeTimeCol = -1;
    	    		int listSharingUserCol = -1;
    	    		int listSizeCol = -1;
+        		int listChangeCol = -1;
         		int listTrashedCol = -1;
         		int listTrashedTimeCol = -1;
         		int listTrashingUserCol = -1;
@@ -2473,26 +3701,14 @@ implements CommandDiscoverable, FileGenerator, ObjectListProvider
     	        			columnList.add ( new TableField(TableField.DATA_TYPE_DATETIME, "CreationTime", -1) );
     	        		}
     	        		else if ( googleDriveCommand == GoogleDriveCommandType.LIST ) {
-    	        			// List in order that makes sense (not alphabetical).
-    	        			columnList.add ( new TableField(TableField.DATA_TYPE_STRING, "Id", -1) );
-    	        			columnList.add ( new TableField(TableField.DATA_TYPE_STRING, "Name", -1) );
-    	        			columnList.add ( new TableField(TableField.DATA_TYPE_STRING, "ParentFolder", -1) );
-    	        			columnList.add ( new TableField(TableField.DATA_TYPE_STRING, "ParentFolderId", -1) );
-    	        			columnList.add ( new TableField(TableField.DATA_TYPE_STRING, "Type", -1) );
-    	        			columnList.add ( new TableField(TableField.DATA_TYPE_LONG, "Size", -1) );
-    	        			columnList.add ( new TableField(TableField.DATA_TYPE_STRING, "Owner", -1) );
-    	        			columnList.add ( new TableField(TableField.DATA_TYPE_BOOLEAN, "OwnedByMe", -1) );
-    	        			columnList.add ( new TableField(TableField.DATA_TYPE_DATETIME, "CreationTime", -1) );
-    	        			columnList.add ( new TableField(TableField.DATA_TYPE_BOOLEAN, "Shared", -1) );
-    	        			columnList.add ( new TableField(TableField.DATA_TYPE_STRING, "SharingUser", -1) );
-    	        			columnList.add ( new TableField(TableField.DATA_TYPE_DATETIME, "SharedWithMeTime", -1) );
-    	        			columnList.add ( new TableField(TableField.DATA_TYPE_DATETIME, "LastModifiedTime", -1) );
-    	        			columnList.add ( new TableField(TableField.DATA_TYPE_STRING, "LastModifiedUser", -1) );
-    	        			columnList.add ( new TableField(TableField.DATA_TYPE_BOOLEAN, "Trashed", -1) );
-    	        			columnList.add ( new TableField(TableField.DATA_TYPE_STRING, "TrashingUser", -1) );
-    	        			columnList.add ( new TableField(TableField.DATA_TYPE_DATETIME, "TrashedTime", -1) );
-    	        			columnList.add ( new TableField(TableField.DATA_TYPE_STRING, "OriginalFilename", -1) );
-    	        			columnList.add ( new TableField(TableField.DATA_TYPE_STRING, "WebViewLink", -1) );
+    	        			// List in the order requested with ListColumns, which defaults to an order that makes sense (not alphabetical).
+    	        			if ( _Changes.equalsIgnoreCase(ListScope) ) {
+    	        				// Indicate whether the file was added, modified, or removed.
+    	        				columnList.add ( new TableField(TableField.DATA_TYPE_STRING, "Change", -1) );
+    	        			}
+    	        			for ( String listColumn : listColumns ) {
+    	        				columnList.add ( new TableField(this.listColumnTypes[getListColumnPosition(listColumn)], listColumn, -1) );
+    	        			}
     	        		}
     	        		// 2. Create the table if not found from the processor above.
     	        		if ( (googleDriveCommand == GoogleDriveCommandType.LIST_DRIVES) ||
@@ -2507,26 +3723,28 @@ implements CommandDiscoverable, FileGenerator, ObjectListProvider
     	        			driveCreationTimeCol = table.getFieldIndex("CreationTime");
     	        		}
     	        		else if ( googleDriveCommand == GoogleDriveCommandType.LIST ) {
-    	        			// List in the same order as "add" calls above.
-    	        			listIdCol = table.getFieldIndex("Id");
-    	        			listNameCol = table.getFieldIndex("Name");
-    	        			listParentFolderCol = table.getFieldIndex("ParentFolder");
-    	        			listParentFolderIdCol = table.getFieldIndex("ParentFolderId");
-    	        			listTypeCol = table.getFieldIndex("Type");
-    	        			listSizeCol = table.getFieldIndex("Size");
-    	        			listOwnerCol = table.getFieldIndex("Owner");
-    	        			listOwnedByMeCol = table.getFieldIndex("OwnedByMe");
-    	        			listCreationTimeCol = table.getFieldIndex("CreationTime");
-    	        			listSharedCol = table.getFieldIndex("Shared");
-    	        			listSharingUserCol = table.getFieldIndex("SharingUser");
-    	        			listSharedWithMeTimeCol = table.getFieldIndex("SharedWithMeTime");
-    	        			listLastModifiedTimeCol = table.getFieldIndex("LastModifiedTime");
-    	        			listLastModifiedUserCol = table.getFieldIndex("LastModifiedUser");
-    	        			listTrashedCol = table.getFieldIndex("Trashed");
-    	        			listTrashingUserCol = table.getFieldIndex("TrashingUser");
-    	        			listTrashedTimeCol = table.getFieldIndex("TrashedTime");
-    	        			listOriginalFilenameCol = table.getFieldIndex("OriginalFilename");
-    	        			listWebViewLinkCol = table.getFieldIndex("WebViewLink");
+    	        			// List in the same order as "add" calls above:
+    	        			// - columns that were not requested with ListColumns will be -1
+    	        			listChangeCol = getTableColumnIndex(table, "Change");
+    	        			listIdCol = getTableColumnIndex(table, "Id");
+    	        			listNameCol = getTableColumnIndex(table, "Name");
+    	        			listParentFolderCol = getTableColumnIndex(table, "ParentFolder");
+    	        			listParentFolderIdCol = getTableColumnIndex(table, "ParentFolderId");
+    	        			listTypeCol = getTableColumnIndex(table, "Type");
+    	        			listSizeCol = getTableColumnIndex(table, "Size");
+    	        			listOwnerCol = getTableColumnIndex(table, "Owner");
+    	        			listOwnedByMeCol = getTableColumnIndex(table, "OwnedByMe");
+    	        			listCreationTimeCol = getTableColumnIndex(table, "CreationTime");
+    	        			listSharedCol = getTableColumnIndex(table, "Shared");
+    	        			listSharingUserCol = getTableColumnIndex(table, "SharingUser");
+    	        			listSharedWithMeTimeCol = getTableColumnIndex(table, "SharedWithMeTime");
+    	        			listLastModifiedTimeCol = getTableColumnIndex(table, "LastModifiedTime");
+    	        			listLastModifiedUserCol = getTableColumnIndex(table, "LastModifiedUser");
+    	        			listTrashedCol = getTableColumnIndex(table, "Trashed");
+    	        			listTrashingUserCol = getTableColumnIndex(table, "TrashingUser");
+    	        			listTrashedTimeCol = getTableColumnIndex(table, "TrashedTime");
+    	        			listOriginalFilenameCol = getTableColumnIndex(table, "OriginalFilename");
+    	        			listWebViewLinkCol = getTableColumnIndex(table, "WebViewLink");
     	        		}
     	        		// 4. Set the table in the processor:
     	        		//    - if new will add
@@ -2578,62 +3796,86 @@ implements CommandDiscoverable, FileGenerator, ObjectListProvider
     	        			}
     	        		}
     	        		else if ( googleDriveCommand == GoogleDriveCommandType.LIST ) {
-    	        			// List in the order that columns were added.
-    	        			if ( listIdCol < 0 ) {
+    	        			// Get the existing columns.
+    	        			listChangeCol = getTableColumnIndex(table, "Change");
+    	        			listIdCol = getTableColumnIndex(table, "Id");
+    	        			listNameCol = getTableColumnIndex(table, "Name");
+    	        			listParentFolderCol = getTableColumnIndex(table, "ParentFolder");
+    	        			listParentFolderIdCol = getTableColumnIndex(table, "ParentFolderId");
+    	        			listTypeCol = getTableColumnIndex(table, "Type");
+    	        			listSizeCol = getTableColumnIndex(table, "Size");
+    	        			listOwnerCol = getTableColumnIndex(table, "Owner");
+    	        			listOwnedByMeCol = getTableColumnIndex(table, "OwnedByMe");
+    	        			listCreationTimeCol = getTableColumnIndex(table, "CreationTime");
+    	        			listSharedCol = getTableColumnIndex(table, "Shared");
+    	        			listSharingUserCol = getTableColumnIndex(table, "SharingUser");
+    	        			listSharedWithMeTimeCol = getTableColumnIndex(table, "SharedWithMeTime");
+    	        			listLastModifiedTimeCol = getTableColumnIndex(table, "LastModifiedTime");
+    	        			listLastModifiedUserCol = getTableColumnIndex(table, "LastModifiedUser");
+    	        			listTrashedCol = getTableColumnIndex(table, "Trashed");
+    	        			listTrashingUserCol = getTableColumnIndex(table, "TrashingUser");
+    	        			listTrashedTimeCol = getTableColumnIndex(table, "TrashedTime");
+    	        			listOriginalFilenameCol = getTableColumnIndex(table, "OriginalFilename");
+    	        			listWebViewLinkCol = getTableColumnIndex(table, "WebViewLink");
+    	        			// Add the requested columns that do not exist, in the order that columns were added.
+    	        			if ( (listChangeCol < 0) && _Changes.equalsIgnoreCase(ListScope) ) {
+    	            			listChangeCol = table.addField(new TableField(TableField.DATA_TYPE_STRING, "Change", -1), "");
+    	        			}
+    	        			if ( (listIdCol < 0) && listColumns.contains("Id") ) {
     	            			listIdCol = table.addField(new TableField(TableField.DATA_TYPE_STRING, "Id", -1), "");
     	        			}
-    	        			if ( listNameCol < 0 ) {
+    	        			if ( (listNameCol < 0) && listColumns.contains("Name") ) {
     	            			listNameCol = table.addField(new TableField(TableField.DATA_TYPE_STRING, "Name", -1), "");
     	        			}
-    	        			if ( listParentFolderCol < 0 ) {
+    	        			if ( (listParentFolderCol < 0) && listColumns.contains("ParentFolder") ) {
     	            			listParentFolderCol = table.addField(new TableField(TableField.DATA_TYPE_STRING, "ParentFolder", -1), "");
     	        			}
-    	        			if ( listParentFolderIdCol < 0 ) {
+    	        			if ( (listParentFolderIdCol < 0) && listColumns.contains("ParentFolderId") ) {
     	            			listParentFolderIdCol = table.addField(new TableField(TableField.DATA_TYPE_STRING, "ParentFolderId", -1), "");
     	        			}
-    	        			if ( listTypeCol < 0 ) {
+    	        			if ( (listTypeCol < 0) && listColumns.contains("Type") ) {
     	            			listTypeCol = table.addField(new TableField(TableField.DATA_TYPE_STRING, "Type", -1), "");
     	        			}
-    	        			if ( listSizeCol < 0 ) {
+    	        			if ( (listSizeCol < 0) && listColumns.contains("Size") ) {
     	            			listSizeCol = table.addField(new TableField(TableField.DATA_TYPE_LONG, "Size", -1), "");
     	        			}
-    	        			if ( listOwnerCol < 0 ) {
+    	        			if ( (listOwnerCol < 0) && listColumns.contains("Owner") ) {
     	            			listOwnerCol = table.addField(new TableField(TableField.DATA_TYPE_STRING, "Owner", -1), "");
     	        			}
-    	        			if ( listOwnedByMeCol < 0 ) {
+    	        			if ( (listOwnedByMeCol < 0) && listColumns.contains("OwnedByMe") ) {
     	            			listOwnedByMeCol = table.addField(new TableField(TableField.DATA_TYPE_BOOLEAN, "OwnedByMe", -1), "");
     	        			}
-    	        			if ( listCreationTimeCol < 0 ) {
+    	        			if ( (listCreationTimeCol < 0) && listColumns.contains("CreationTime") ) {
     	            			listCreationTimeCol = table.addField(new TableField(TableField.DATA_TYPE_DATETIME, "CreationTime", -1), "");
     	        			}
-    	        			if ( listSharedCol < 0 ) {
+    	        			if ( (listSharedCol < 0) && listColumns.contains("Shared") ) {
     	            			listSharedCol = table.addField(new TableField(TableField.DATA_TYPE_BOOLEAN, "Shared", -1), "");
     	        			}
-    	        			if ( listSharingUserCol < 0 ) {
+    	        			if ( (listSharingUserCol < 0) && listColumns.contains("SharingUser") ) {
     	            			listSharingUserCol = table.addField(new TableField(TableField.DATA_TYPE_STRING, "SharingUser", -1), "");
     	        			}
-    	        			if ( listSharedWithMeTimeCol < 0 ) {
+    	        			if ( (listSharedWithMeTimeCol < 0) && listColumns.contains("SharedWithMeTime") ) {
     	            			listSharedWithMeTimeCol = table.addField(new TableField(TableField.DATA_TYPE_DATETIME, "SharedWithMeTime", -1), "");
     	        			}
-    	        			if ( listLastModifiedTimeCol < 0 ) {
+    	        			if ( (listLastModifiedTimeCol < 0) && listColumns.contains("LastModifiedTime") ) {
     	            			listLastModifiedTimeCol = table.addField(new TableField(TableField.DATA_TYPE_DATETIME, "LastModifiedTime", -1), "");
     	        			}
-    	        			if ( listLastModifiedUserCol < 0 ) {
+    	        			if ( (listLastModifiedUserCol < 0) && listColumns.contains("LastModifiedUser") ) {
     	            			listLastModifiedUserCol = table.addField(new TableField(TableField.DATA_TYPE_STRING, "LastModifiedUser", -1), "");
     	        			}
-    	        			if ( listTrashedCol < 0 ) {
+    	        			if ( (listTrashedCol < 0) && listColumns.contains("Trashed") ) {
     	            			listTrashedCol = table.addField(new TableField(TableField.DATA_TYPE_BOOLEAN, "Trashed", -1), "");
     	        			}
-    	        			if ( listTrashingUserCol < 0 ) {
+    	        			if ( (listTrashingUserCol < 0) && listColumns.contains("TrashingUser") ) {
     	            			listTrashingUserCol = table.addField(new TableField(TableField.DATA_TYPE_STRING, "TrashingUser", -1), "");
     	        			}
-    	        			if ( listTrashedTimeCol < 0 ) {
+    	        			if ( (listTrashedTimeCol < 0) && listColumns.contains("TrashedTime") ) {
     	            			listTrashedTimeCol = table.addField(new TableField(TableField.DATA_TYPE_DATETIME, "TrashedTime", -1), "");
     	        			}
-    	        			if ( listOriginalFilenameCol < 0 ) {
+    	        			if ( (listOriginalFilenameCol < 0) && listColumns.contains("OriginalFilename") ) {
     	            			listOriginalFilenameCol = table.addField(new TableField(TableField.DATA_TYPE_STRING, "OriginalFilename", -1), "");
     	        			}
-    	        			if ( listWebViewLinkCol < 0 ) {
+    	        			if ( (listWebViewLinkCol < 0) && listColumns.contains("WebViewLink") ) {
     	            			listWebViewLinkCol = table.addField(new TableField(TableField.DATA_TYPE_STRING, "WebViewLink", -1), "");
     	        			}
     	        		}
@@ -2670,62 +3912,56 @@ implements CommandDiscoverable, FileGenerator, ObjectListProvider
     	    			googleDriveSession,
     	    			downloadFilesGoogleDrivePaths, downloadFilesFiles,
     	    			downloadFoldersGoogleDrivePaths, downloadFoldersDirectories,
-    	    			DownloadCountProperty,
+    	    			downloadConcurrency, downloadSkipUnchanged, downloadExportFormat,
+    	    			DownloadCountProperty, DownloadSkippedCountProperty,
     	    			status, logLevel, warningLevel, warningCount, commandTag );
     	    	}
     	    	else if ( googleDriveCommand == GoogleDriveCommandType.LIST_DRIVES ) {
     	    		warningCount = doGoogleDriveListDrives (
     	    			processor,
     	    			googleDriveSession,
-    	    			listDrivesRegEx,
+    	    			listDrivesNameMatcher,
     	    			table, driveCreationTimeCol,
     	    			driveIdCol, driveNameCol,
     	    			ListDrivesCountProperty,
     	    			status, logLevel, warningLevel, warningCount, commandTag );
     	    	}
     	    	else if ( googleDriveCommand == GoogleDriveCommandType.LIST ) {
-   	        		if ( !ListSharedWithMe.equalsIgnoreCase(_Only) ) {
-   	        			// Get the list of files and folders that is not shared:
-   	        			// - list these before shared files
-   	        			// - the shared files will be queried below and appended
-   	        			// - if "Only" was specified then this list is skipped
-   	        			boolean listShared = false;
-   	        			warningCount = doGoogleDriveList (
-   	        				processor,
-    			      		googleDriveSession,
-    			      		ListScope, ListFolderPath, listFiles, listFolders, listShared, listTrashed, listRegEx,
-    			      		table,
-    			      		listCreationTimeCol, listIdCol,
-    			      		listLastModifiedTimeCol, listLastModifiedUserCol,
-    			      		listMax,
-    			      		listNameCol, listOriginalFilenameCol, listOwnedByMeCol, listOwnerCol,
-    			      		listParentFolderCol, listParentFolderIdCol,
-    			      		listSharedCol, listSharedWithMeTimeCol, listSharingUserCol,
-    			      		listSizeCol,
-    			      		listTrashedCol, listTrashedTimeCol, listTrashingUserCol,
-    			      		listTypeCol, listWebViewLinkCol,
-    			      		ListCountProperty,
-    			      		status, logLevel, warningLevel, warningCount, commandTag );
-   	        		}
-   	        		if ( ListSharedWithMe.equalsIgnoreCase(_Only) || ListSharedWithMe.equalsIgnoreCase(_True) ) {
-   	        			// Get the list of shared files and folders:
-   	        			// - will append to the above list
-   	        			boolean listShared = true;
-   	        			warningCount = doGoogleDriveList (
-   	        				processor,
-    			      		googleDriveSession,
-    			      		ListScope, ListFolderPath, listFiles, listFolders, listShared, listTrashed, listRegEx,
-    			      		table,
-    			      		listCreationTimeCol, listIdCol, listLastModifiedTimeCol, listLastModifiedUserCol,
-    			      		listMax,
-    			      		listNameCol, listOriginalFilenameCol, listOwnedByMeCol, listOwnerCol,
-    			      		listParentFolderCol, listParentFolderIdCol,
-    			      		listSharedCol, listSharedWithMeTimeCol, listSharingUserCol,
-    			      		listSizeCol,
-    			      		listTrashedCol, listTrashedTimeCol, listTrashingUserCol,
-    			      		listTypeCol, listWebViewLinkCol,
-    			      		ListCountProperty,
-    			      		status, logLevel, warningLevel, warningCount, commandTag );
+    	    		if ( doOutputFile && !doTable ) {
+    	    			// Only writing the output file so write each page as it is listed,
+    	    			// rather than keeping all the records in the temporary table.
+    	    			String OutputFile_full = IOUtil.verifyPathForOS(
+    	    				IOUtil.toAbsolutePath(TSCommandProcessorUtil.getWorkingDir(processor),
+    	    					TSCommandProcessorUtil.expandParameterValue(processor,this,OutputFile)));
+    	    			if ( OutputFile_full.toUpperCase().endsWith("CSV") ) {
+    	    				outputWriter = new GoogleDriveCsvWriter(new File(OutputFile_full), appendOutput);
+    	    			}
+    	    		}
+   	        		// List the files and folders, including shared files and folders if requested:
+   	        		// - shared files are listed in the same query or walk so that the listing is traversed once
+   	        		// - changes include shared files so the changes are only listed once
+   	        		warningCount = doGoogleDriveList (
+   	        			processor,
+    			      	googleDriveSession,
+    			      	ListScope, ListFolderPath, listFiles, listFolders, ListSharedWithMe, listTrashed,
+    			      	listMaxDepth, listConcurrency, listPageSize,
+    			      	listFields,
+    			      	listNameMatcher,
+    			      	table, outputWriter,
+    			      	listChangeCol, listCreationTimeCol, listIdCol,
+    			      	listLastModifiedTimeCol, listLastModifiedUserCol,
+    			      	listMax,
+    			      	listNameCol, listOriginalFilenameCol, listOwnedByMeCol, listOwnerCol,
+    			      	listParentFolderCol, listParentFolderIdCol,
+    			      	listSharedCol, listSharedWithMeTimeCol, listSharingUserCol,
+    			      	listSizeCol,
+    			      	listTrashedCol, listTrashedTimeCol, listTrashingUserCol,
+    			      	listTypeCol, listWebViewLinkCol,
+    			      	ListCountProperty,
+    			      	status, logLevel, warningLevel, warningCount, commandTag );
+   	        		if ( outputWriter != null ) {
+   	        			outputWriter.close();
+   	        			setOutputFile(outputWriter.getFile());
    	        		}
     	    	}
    	        	/*
@@ -2753,7 +3989,7 @@ implements CommandDiscoverable, FileGenerator, ObjectListProvider
 	    	   	// - write the table to a delimited file
 	    	   	// - TODO smalers 2023-01-28 for now do not write comments, keep very basic
 
-	    	   	if ( doOutputFile ) {
+	    	   	if ( doOutputFile && (outputWriter == null) ) {
 	    		   	String OutputFile_full = IOUtil.verifyPathForOS(
 	        		   	IOUtil.toAbsolutePath(TSCommandProcessorUtil.getWorkingDir(processor),
 	            		   	TSCommandProcessorUtil.expandParameterValue(processor,this,OutputFile)));
@@ -2795,6 +4031,14 @@ implements CommandDiscoverable, FileGenerator, ObjectListProvider
 	           		}
 	           		setDiscoveryTable ( table );
    	        	}
+   	        	if ( (MetricsTableID != null) && !MetricsTableID.isEmpty() ) {
+   	        		// Create an empty table with the ID so that the table can be selected by other commands.
+   	        		this.discoveryMetricsTable = new DataTable();
+   	        		this.discoveryMetricsTable.setTableID ( MetricsTableID );
+   	        	}
+   	        	else {
+   	        		this.discoveryMetricsTable = null;
+   	        	}
 	    	}
 
 		}
@@ -2832,6 +4076,28 @@ implements CommandDiscoverable, FileGenerator, ObjectListProvider
 					message, "See the log file for details."));
 			throw new CommandException ( message );
 		}
+		finally {
+			if ( metrics != null ) {
+				// Output the metrics even if there was an error so that the cause can be evaluated.
+				warningCount += setMetricsOutput ( processor, metrics, MetricsPropertyPrefix, MetricsTableID,
+					status, warningLevel, commandTag );
+			}
+			if ( outputWriter != null ) {
+				// Close the output file if an error occurred while listing.
+				try {
+					outputWriter.close();
+				}
+				catch ( IOException e ) {
+					Message.printWarning(3, routine, e);
+				}
+			}
+			if ( (commandPhase == CommandPhaseType.RUN) && isFirstOrLastGoogleDriveCommand(processor, false)
+				&& !isInForLoop(processor) ) {
+				// Last GoogleDrive command in the run so close the shared sessions:
+				// - if in a For loop, leave open for the next iteration and close in the next run or when TSTool exits
+				GoogleDriveSessionRegistry.getInstance().closeSessions(processor);
+			}
+		}
 
     	if ( warningCount > 0 ) {
         	message = "There were " + warningCount + " warnings processing the command.";
@@ -2845,6 +4111,210 @@ implements CommandDiscoverable, FileGenerator, ObjectListProvider
 		status.refreshPhaseSeverity(CommandPhaseType.RUN,CommandStatusType.SUCCESS);
 	}
 
+	/**
+	 * Set the values in a List output record from Google Drive file metadata.
+	 * This is the per-file processing for doGoogleDriveList(), which is called for every file that is listed,
+	 * and is package-private so that it can be benchmarked.
+	 * Columns that were not requested with ListColumns have column number -1
+	 * and the corresponding field was not requested from Google Drive.
+	 * @param rec the record to set
+	 * @param file Google Drive file metadata
+	 * @param changeType change type if listing changes ("Added", "Modified", or "Removed"), or null
+	 * @param type "file", "folder", or "" if not known
+	 * @param parentPath the parent folder path, used if the ParentFolder column is output
+	 * @param parentId the parent folder ID, used if the ParentFolderId column is output
+	 * @param dateTimeConverter converter for Google Drive times
+	 */
+	static void setListRecordValues ( TableRecord rec, com.google.api.services.drive.model.File file,
+		String changeType, String type, String parentPath, String parentId,
+		GoogleDriveDateTimeConverter dateTimeConverter,
+		int listChangeCol, int listCreationTimeCol, int listIdCol, int listLastModifiedTimeCol, int listLastModifiedUserCol,
+		int listNameCol, int listOriginalFilenameCol, int listOwnedByMeCol, int listOwnerCol,
+		int listParentFolderCol, int listParentFolderIdCol,
+		int listSharedCol, int listSharedWithMeTimeCol, int listSharingUserCol,
+		int listSizeCol,
+		int listTrashedCol, int listTrashedTimeCol, int listTrashingUserCol,
+		int listTypeCol, int listWebViewLinkCol )
+		throws Exception {
+		rec.setFieldValue(listIdCol,file.getId());
+		if ( (listChangeCol >= 0) && (changeType != null) ) {
+			rec.setFieldValue(listChangeCol,changeType);
+		}
+		if ( listNameCol >= 0 ) {
+			rec.setFieldValue(listNameCol,file.getName());
+		}
+		if ( listParentFolderCol >= 0 ) {
+			rec.setFieldValue(listParentFolderCol,parentPath);
+		}
+		if ( listParentFolderIdCol >= 0 ) {
+			rec.setFieldValue(listParentFolderIdCol,parentId);
+		}
+		if ( listTypeCol >= 0 ) {
+			rec.setFieldValue(listTypeCol,type);
+		}
+		if ( listSizeCol >= 0 ) {
+			rec.setFieldValue(listSizeCol,file.getSize());
+		}
+		if ( listOwnerCol >= 0 ) {
+			rec.setFieldValue(listOwnerCol, buildOwnerCsv(file));
+		}
+		if ( listOwnedByMeCol >= 0 ) {
+			rec.setFieldValue(listOwnedByMeCol, file.getOwnedByMe());
+		}
+		// Google API has its own DateTime in the API so convert to TSTool type for consistency.
+		com.google.api.client.util.DateTime fileCreationTime = file.getCreatedTime();
+		if ( (listCreationTimeCol >= 0) && (fileCreationTime != null) ) {
+			DateTime creationTime = dateTimeConverter.toDateTime(fileCreationTime);
+			rec.setFieldValue(listCreationTimeCol, creationTime);
+		}
+		if ( listSharedCol >= 0 ) {
+			rec.setFieldValue(listSharedCol, file.getShared());
+		}
+		User sharingUser = file.getSharingUser();
+		if ( (listSharingUserCol >= 0) && (sharingUser != null) ) {
+			rec.setFieldValue(listSharingUserCol, sharingUser.getDisplayName());
+		}
+		// Google API has its own DateTime in the API so convert to TSTool type for consistency.
+		com.google.api.client.util.DateTime fileSharedWithMeTime = file.getSharedWithMeTime();
+		if ( (listSharedWithMeTimeCol >= 0) && (fileSharedWithMeTime != null) ) {
+			DateTime sharedWithMeTime = dateTimeConverter.toDateTime(fileSharedWithMeTime);
+			rec.setFieldValue(listSharedWithMeTimeCol, sharedWithMeTime);
+		}
+		// Google API has its own DateTime in the API so convert to TSTool type for consistency.
+		com.google.api.client.util.DateTime fileModifiedTime = file.getModifiedTime();
+		if ( (listLastModifiedTimeCol >= 0) && (fileModifiedTime != null) ) {
+			DateTime modificationTime = dateTimeConverter.toDateTime(fileModifiedTime);
+			rec.setFieldValue(listLastModifiedTimeCol, modificationTime);
+		}
+		User lastModifyingUser = file.getLastModifyingUser();
+		if ( (listLastModifiedUserCol >= 0) && (lastModifyingUser != null) ) {
+			rec.setFieldValue(listLastModifiedUserCol, lastModifyingUser.getDisplayName());
+		}
+		if ( listTrashedCol >= 0 ) {
+			rec.setFieldValue(listTrashedCol, file.getTrashed());
+		}
+		User trashingUser = file.getTrashingUser();
+		if ( (listTrashingUserCol >= 0) && (trashingUser != null) ) {
+			rec.setFieldValue(listTrashingUserCol, trashingUser.getDisplayName());
+		}
+		// Google API has its own DateTime in the API so convert to TSTool type for consistency.
+		com.google.api.client.util.DateTime fileTrashedTime = file.getTrashedTime();
+		if ( (listTrashedTimeCol >= 0) && (fileTrashedTime != null) ) {
+			DateTime trashedTime = dateTimeConverter.toDateTime(fileTrashedTime);
+			rec.setFieldValue(listTrashedTimeCol, trashedTime);
+		}
+		if ( listOriginalFilenameCol >= 0 ) {
+			rec.setFieldValue(listOriginalFilenameCol, file.getOriginalFilename());
+		}
+		if ( listWebViewLinkCol >= 0 ) {
+			rec.setFieldValue(listWebViewLinkCol, file.getWebViewLink());
+		}
+	}
+
+	/**
+	 * Output the request metrics for the command:
+	 * - log a one-line summary
+	 * - set processor properties if a prefix is specified
+	 * - set a table with a row for each operation and the total if a table ID is specified
+	 * @param processor the command processor
+	 * @param metrics the request metrics
+	 * @param metricsPropertyPrefix the prefix for processor properties, or null to not set
+	 * @param metricsTableID the metrics table ID, or null to not create
+	 * @param status the command status
+	 * @param logLevel the warning level
+	 * @param commandTag the command tag for messages
+	 * @return the number of warnings
+	 */
+	private int setMetricsOutput ( CommandProcessor processor, GoogleDriveMetrics metrics,
+		String metricsPropertyPrefix, String metricsTableID,
+		CommandStatus status, int logLevel, String commandTag ) {
+		String routine = getClass().getSimpleName() + ".setMetricsOutput";
+		String message;
+		int warningCount = 0;
+		metrics.stop();
+		Message.printStatus(2, routine, "Google Drive request metrics: " + metrics);
+
+		if ( (metricsPropertyPrefix != null) && !metricsPropertyPrefix.isEmpty() ) {
+			GoogleDriveMetrics.OperationMetrics total = metrics.getTotal();
+			Map<String,Object> propMap = new LinkedHashMap<>();
+			propMap.put("RequestCount", Long.valueOf(total.getRequestCount()));
+			propMap.put("RetryCount", Long.valueOf(total.getRetryCount()));
+			propMap.put("ErrorCount", Long.valueOf(total.getErrorCount()));
+			propMap.put("BytesSent", Long.valueOf(total.getBytesSent()));
+			propMap.put("BytesReceived", Long.valueOf(total.getBytesReceived()));
+			propMap.put("LatencyP50Ms", Long.valueOf(total.getLatencyPercentileMs(50)));
+			propMap.put("LatencyP95Ms", Long.valueOf(total.getLatencyPercentileMs(95)));
+			propMap.put("LatencyP99Ms", Long.valueOf(total.getLatencyPercentileMs(99)));
+			propMap.put("ElapsedMs", Long.valueOf(metrics.getElapsedMs()));
+			for ( Map.Entry<String,Object> entry : propMap.entrySet() ) {
+				String propertyName = metricsPropertyPrefix + entry.getKey();
+           		PropList requestParams = new PropList ( "" );
+           		requestParams.setUsingObject ( "PropertyName", propertyName );
+           		requestParams.setUsingObject ( "PropertyValue", entry.getValue() );
+           		try {
+               		processor.processRequest( "SetProperty", requestParams);
+           		}
+           		catch ( Exception e ) {
+               		message = "Error requesting SetProperty(" + propertyName + "=\"" + entry.getValue() + "\") from processor.";
+               		Message.printWarning(logLevel,
+                   		MessageUtil.formatMessageTag( commandTag, ++warningCount),
+                   		routine, message );
+               		status.addToLog ( CommandPhaseType.RUN,
+                   		new CommandLogRecord(CommandStatusType.FAILURE,
+                       		message, "Report the problem to software support." ) );
+           		}
+			}
+		}
+
+		if ( (metricsTableID != null) && !metricsTableID.isEmpty() ) {
+			try {
+				List<TableField> columnList = new ArrayList<>();
+				columnList.add ( new TableField(TableField.DATA_TYPE_STRING, "Operation", -1) );
+				columnList.add ( new TableField(TableField.DATA_TYPE_LONG, "Requests", -1) );
+				columnList.add ( new TableField(TableField.DATA_TYPE_LONG, "Retries", -1) );
+				columnList.add ( new TableField(TableField.DATA_TYPE_LONG, "Errors", -1) );
+				columnList.add ( new TableField(TableField.DATA_TYPE_LONG, "BytesSent", -1) );
+				columnList.add ( new TableField(TableField.DATA_TYPE_LONG, "BytesReceived", -1) );
+				columnList.add ( new TableField(TableField.DATA_TYPE_DOUBLE, "LatencyMeanMs", -1, 1) );
+				columnList.add ( new TableField(TableField.DATA_TYPE_LONG, "LatencyP50Ms", -1) );
+				columnList.add ( new TableField(TableField.DATA_TYPE_LONG, "LatencyP95Ms", -1) );
+				columnList.add ( new TableField(TableField.DATA_TYPE_LONG, "LatencyP99Ms", -1) );
+				columnList.add ( new TableField(TableField.DATA_TYPE_LONG, "LatencyMaxMs", -1) );
+				DataTable table = new DataTable( columnList );
+				table.setTableID ( metricsTableID );
+				for ( GoogleDriveMetrics.OperationMetrics operationMetrics : metrics.getOperationMetrics(true) ) {
+					TableRecord rec = table.addRecord(table.emptyRecord());
+					int col = 0;
+					rec.setFieldValue(col++, operationMetrics.getOperation());
+					rec.setFieldValue(col++, Long.valueOf(operationMetrics.getRequestCount()));
+					rec.setFieldValue(col++, Long.valueOf(operationMetrics.getRetryCount()));
+					rec.setFieldValue(col++, Long.valueOf(operationMetrics.getErrorCount()));
+					rec.setFieldValue(col++, Long.valueOf(operationMetrics.getBytesSent()));
+					rec.setFieldValue(col++, Long.valueOf(operationMetrics.getBytesReceived()));
+					rec.setFieldValue(col++, Double.valueOf(operationMetrics.getLatencyMeanMs()));
+					rec.setFieldValue(col++, Long.valueOf(operationMetrics.getLatencyPercentileMs(50)));
+					rec.setFieldValue(col++, Long.valueOf(operationMetrics.getLatencyPercentileMs(95)));
+					rec.setFieldValue(col++, Long.valueOf(operationMetrics.getLatencyPercentileMs(99)));
+					rec.setFieldValue(col++, Long.valueOf(operationMetrics.getLatencyPercentileMs(100)));
+				}
+				// Set the table in the processor, replacing a previous table with the same ID.
+				PropList requestParams = new PropList ( "" );
+				requestParams.setUsingObject ( "Table", table );
+				processor.processRequest( "SetTable", requestParams);
+			}
+			catch ( Exception e ) {
+				message = "Error creating the metrics table \"" + metricsTableID + "\" (" + e + ").";
+				Message.printWarning(logLevel,
+					MessageUtil.formatMessageTag( commandTag, ++warningCount), routine, message );
+				Message.printWarning ( 3, routine, e );
+				status.addToLog ( CommandPhaseType.RUN,
+					new CommandLogRecord(CommandStatusType.FAILURE,
+						message, "Report problem to software support." ) );
+			}
+		}
+		return warningCount;
+	}
+
 	/**
 	Set the output file that is created by this command.  This is only used internally.
 	@param file the output file created by this command
@@ -2872,6 +4342,12 @@ implements CommandDiscoverable, FileGenerator, ObjectListProvider
 			"SessionID",
 			"AuthenticationMethod",
 			"GoogleDriveCommand",
+			"MetadataCache",
+			"MetadataCacheTTL",
+			"RequestRateLimit",
+			"RequestMaxRetries",
+			"MetricsPropertyPrefix",
+			"MetricsTableID",
 			//"Bucket",
 			// Copy.
 			//"CopyFiles",
@@ -2886,6 +4362,10 @@ implements CommandDiscoverable, FileGenerator, ObjectListProvider
 			"DownloadFolders",
 			"DownloadFiles",
 			"DownloadCountProperty",
+			"DownloadConcurrency",
+			"DownloadIfUnchanged",
+			"DownloadExportFormat",
+			"DownloadSkippedCountProperty",
 			// List drives.
 			"ListDrivesRegEx",
 			"ListDrivesCountProperty",
@@ -2897,7 +4377,11 @@ implements CommandDiscoverable, FileGenerator, ObjectListProvider
 			"ListFolders",
 			"ListSharedWithMe",
 			"ListTrashed",
+			"ListMaxDepth",
+			"ListConcurrency",
+			"ListPageSize",
 			"ListMax",
+			"ListColumns",
 			"ListCountProperty",
 			// Upload.
 			//"UploadFolders",
@@ -2911,4 +4395,44 @@ implements CommandDiscoverable, FileGenerator, ObjectListProvider
 		return this.toString(parameters, parameterOrder);
 	}
 
+	/**
+	 * Result of downloading a file, used to pass information from the download threads.
+	 */
+	private static class DownloadFileResult {
+		/**
+		 * Google Drive file path.
+		 */
+		private String googleDrivePath;
+
+		/**
+		 * Google Drive file ID, null if not determined.
+		 */
+		private String fileId = null;
+
+		/**
+		 * Local file path.
+		 */
+		private String localFile;
+
+		/**
+		 * Whether the download was skipped because the local file is unchanged.
+		 */
+		private boolean skipped = false;
+
+		/**
+		 * Problem message, null if the download was successful.
+		 */
+		private String problem = null;
+
+		/**
+		 * Exception that caused the problem, or null if no exception.
+		 */
+		private Exception exception = null;
+
+		private DownloadFileResult ( String googleDrivePath, String localFile ) {
+			this.googleDrivePath = googleDrivePath;
+			this.localFile = localFile;
+		}
+	}
+
 }
\ No newline at end of file
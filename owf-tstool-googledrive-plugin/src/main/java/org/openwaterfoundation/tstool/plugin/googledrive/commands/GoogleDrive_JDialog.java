@@ -53,6 +53,8 @@ import javax.swing.event.ChangeEvent;
 import javax.swing.event.ChangeListener;
 
 import org.openwaterfoundation.tstool.plugin.googledrive.GoogleDriveAuthenticationMethodType;
+import org.openwaterfoundation.tstool.plugin.googledrive.GoogleDriveExportFormatType;
+import org.openwaterfoundation.tstool.plugin.googledrive.GoogleDriveRateLimiter;
 import org.openwaterfoundation.tstool.plugin.googledrive.GoogleDriveSession;
 import org.openwaterfoundation.tstool.plugin.googledrive.PluginMeta;
 
@@ -87,6 +89,12 @@ private JLabel sessionRecommendation_JLabel = null;
 private JTextField __SessionID_JTextField = null;
 private SimpleJComboBox __AuthenticationMethod_JComboBox = null;
 private SimpleJComboBox __GoogleDriveCommand_JComboBox = null;
+private SimpleJComboBox __MetadataCache_JComboBox = null;
+private JTextField __MetadataCacheTTL_JTextField = null;
+private JTextField __RequestRateLimit_JTextField = null;
+private JTextField __RequestMaxRetries_JTextField = null;
+private JTextField __MetricsPropertyPrefix_JTextField = null;
+private JTextField __MetricsTableID_JTextField = null;
 // Read-only note about whether the authentication credentials are OK.
 private JTextField __CredentialsStatus_JTextField = null;
 //private SimpleJComboBox __IfInputNotFound_JComboBox = null;
@@ -110,6 +118,10 @@ private JTextField __DeleteFoldersMinDepth_JTextField = null;
 private JTextArea __DownloadFiles_JTextArea = null;
 private JTextArea __DownloadFolders_JTextArea = null;
 private JTextField __DownloadCountProperty_JTextField = null;
+private JTextField __DownloadConcurrency_JTextField = null;
+private SimpleJComboBox __DownloadIfUnchanged_JComboBox = null;
+private SimpleJComboBox __DownloadExportFormat_JComboBox = null;
+private JTextField __DownloadSkippedCountProperty_JTextField = null;
 
 // List Drives tab.
 private JTextField __ListDrivesRegEx_JTextField = null;
@@ -123,7 +135,11 @@ private SimpleJComboBox __ListFiles_JComboBox = null;
 private SimpleJComboBox __ListFolders_JComboBox = null;
 private SimpleJComboBox __ListSharedWithMe_JComboBox = null;
 private SimpleJComboBox __ListTrashed_JComboBox = null;
+private JTextField __ListMaxDepth_JTextField = null;
+private JTextField __ListConcurrency_JTextField = null;
+private JTextField __ListPageSize_JTextField = null;
 private JTextField __ListMax_JTextField = null;
+private JTextField __ListColumns_JTextField = null;
 private JTextField __ListCountProperty_JTextField = null;
 
 // Upload tab.
@@ -418,6 +434,12 @@ private void checkInput () {
 	String SessionID = __SessionID_JTextField.getText().trim();
 	String AuthenticationMethod = __AuthenticationMethod_JComboBox.getSelected();
 	String GoogleDriveCommand = __GoogleDriveCommand_JComboBox.getSelected();
+	String MetadataCache = __MetadataCache_JComboBox.getSelected();
+	String MetadataCacheTTL = __MetadataCacheTTL_JTextField.getText().trim();
+	String RequestRateLimit = __RequestRateLimit_JTextField.getText().trim();
+	String RequestMaxRetries = __RequestMaxRetries_JTextField.getText().trim();
+	String MetricsPropertyPrefix = __MetricsPropertyPrefix_JTextField.getText().trim();
+	String MetricsTableID = __MetricsTableID_JTextField.getText().trim();
 	// Copy.
 	//String CopyFiles = __CopyFiles_JTextArea.getText().trim().replace("\n"," ");
 	//String CopyBucket = __CopyBucket_JComboBox.getSelected();
@@ -431,6 +453,10 @@ private void checkInput () {
 	String DownloadFolders = __DownloadFolders_JTextArea.getText().trim().replace("\n"," ");
 	String DownloadFiles = __DownloadFiles_JTextArea.getText().trim().replace("\n"," ");
 	String DownloadCountProperty = __DownloadCountProperty_JTextField.getText().trim();
+	String DownloadConcurrency = __DownloadConcurrency_JTextField.getText().trim();
+	String DownloadIfUnchanged = __DownloadIfUnchanged_JComboBox.getSelected();
+	String DownloadExportFormat = __DownloadExportFormat_JComboBox.getSelected();
+	String DownloadSkippedCountProperty = __DownloadSkippedCountProperty_JTextField.getText().trim();
 	// List drives.
 	String ListDrivesRegEx = __ListDrivesRegEx_JTextField.getText().trim();
 	String ListDrivesCountProperty = __ListDrivesCountProperty_JTextField.getText().trim();
@@ -442,7 +468,11 @@ private void checkInput () {
 	String ListFolders = __ListFolders_JComboBox.getSelected();
 	String ListSharedWithMe = __ListSharedWithMe_JComboBox.getSelected();
 	String ListTrashed = __ListTrashed_JComboBox.getSelected();
+	String ListMaxDepth = __ListMaxDepth_JTextField.getText().trim();
+	String ListConcurrency = __ListConcurrency_JTextField.getText().trim();
+	String ListPageSize = __ListPageSize_JTextField.getText().trim();
 	String ListMax = __ListMax_JTextField.getText().trim();
+	String ListColumns = __ListColumns_JTextField.getText().trim();
 	String ListCountProperty = __ListCountProperty_JTextField.getText().trim();
 	// Upload.
 	//String UploadFolders = __UploadFolders_JTextArea.getText().trim().replace("\n"," ");
@@ -462,6 +492,24 @@ private void checkInput () {
 	if ( (GoogleDriveCommand != null) && !GoogleDriveCommand.isEmpty() ) {
 		props.set ( "GoogleDriveCommand", GoogleDriveCommand );
 	}
+	if ( (MetadataCache != null) && !MetadataCache.isEmpty() ) {
+		props.set ( "MetadataCache", MetadataCache );
+	}
+	if ( (MetadataCacheTTL != null) && !MetadataCacheTTL.isEmpty() ) {
+		props.set ( "MetadataCacheTTL", MetadataCacheTTL );
+	}
+	if ( (RequestRateLimit != null) && !RequestRateLimit.isEmpty() ) {
+		props.set ( "RequestRateLimit", RequestRateLimit );
+	}
+	if ( (RequestMaxRetries != null) && !RequestMaxRetries.isEmpty() ) {
+		props.set ( "RequestMaxRetries", RequestMaxRetries );
+	}
+	if ( (MetricsPropertyPrefix != null) && !MetricsPropertyPrefix.isEmpty() ) {
+		props.set ( "MetricsPropertyPrefix", MetricsPropertyPrefix );
+	}
+	if ( (MetricsTableID != null) && !MetricsTableID.isEmpty() ) {
+		props.set ( "MetricsTableID", MetricsTableID );
+	}
 	/*
 	// Copy.
 	if ( (CopyFiles != null) && !CopyFiles.isEmpty() ) {
@@ -497,6 +545,18 @@ private void checkInput () {
 	if ( (DownloadCountProperty != null) && !DownloadCountProperty.isEmpty() ) {
 		props.set ( "DownloadCountProperty", DownloadCountProperty );
 	}
+	if ( (DownloadConcurrency != null) && !DownloadConcurrency.isEmpty() ) {
+		props.set ( "DownloadConcurrency", DownloadConcurrency );
+	}
+	if ( (DownloadIfUnchanged != null) && !DownloadIfUnchanged.isEmpty() ) {
+		props.set ( "DownloadIfUnchanged", DownloadIfUnchanged );
+	}
+	if ( (DownloadExportFormat != null) && !DownloadExportFormat.isEmpty() ) {
+		props.set ( "DownloadExportFormat", DownloadExportFormat );
+	}
+	if ( (DownloadSkippedCountProperty != null) && !DownloadSkippedCountProperty.isEmpty() ) {
+		props.set ( "DownloadSkippedCountProperty", DownloadSkippedCountProperty );
+	}
 	// List drives.
 	if ( (ListDrivesRegEx != null) && !ListDrivesRegEx.isEmpty() ) {
 		props.set ( "ListDrivesRegEx", ListDrivesRegEx );
@@ -526,9 +586,21 @@ private void checkInput () {
 	if ( (ListTrashed != null) && !ListTrashed.isEmpty() ) {
 		props.set ( "ListTrashed", ListTrashed );
 	}
+	if ( (ListMaxDepth != null) && !ListMaxDepth.isEmpty() ) {
+		props.set ( "ListMaxDepth", ListMaxDepth );
+	}
+	if ( (ListConcurrency != null) && !ListConcurrency.isEmpty() ) {
+		props.set ( "ListConcurrency", ListConcurrency );
+	}
+	if ( (ListPageSize != null) && !ListPageSize.isEmpty() ) {
+		props.set ( "ListPageSize", ListPageSize );
+	}
 	if ( (ListMax != null) && !ListMax.isEmpty() ) {
 		props.set ( "ListMax", ListMax );
 	}
+	if ( (ListColumns != null) && !ListColumns.isEmpty() ) {
+		props.set ( "ListColumns", ListColumns );
+	}
 	if ( (ListCountProperty != null) && !ListCountProperty.isEmpty() ) {
 		props.set ( "ListCountProperty", ListCountProperty );
 	}
@@ -575,6 +647,12 @@ private void commitEdits () {
 	String SessionID = __SessionID_JTextField.getText().trim();
 	String AuthenticationMethod = __AuthenticationMethod_JComboBox.getSelected();
 	String GoogleDriveCommand = __GoogleDriveCommand_JComboBox.getSelected();
+	String MetadataCache = __MetadataCache_JComboBox.getSelected();
+	String MetadataCacheTTL = __MetadataCacheTTL_JTextField.getText().trim();
+	String RequestRateLimit = __RequestRateLimit_JTextField.getText().trim();
+	String RequestMaxRetries = __RequestMaxRetries_JTextField.getText().trim();
+	String MetricsPropertyPrefix = __MetricsPropertyPrefix_JTextField.getText().trim();
+	String MetricsTableID = __MetricsTableID_JTextField.getText().trim();
 	// Copy.
 	//String CopyFiles = __CopyFiles_JTextArea.getText().trim().replace("\n"," ");
 	//String CopyBucket = __CopyBucket_JComboBox.getSelected();
@@ -588,6 +666,10 @@ private void commitEdits () {
 	String DownloadFolders = __DownloadFolders_JTextArea.getText().trim().replace("\n"," ");
 	String DownloadFiles = __DownloadFiles_JTextArea.getText().trim().replace("\n"," ");
 	String DownloadCountProperty = __DownloadCountProperty_JTextField.getText().trim();
+	String DownloadConcurrency = __DownloadConcurrency_JTextField.getText().trim();
+	String DownloadIfUnchanged = __DownloadIfUnchanged_JComboBox.getSelected();
+	String DownloadExportFormat = __DownloadExportFormat_JComboBox.getSelected();
+	String DownloadSkippedCountProperty = __DownloadSkippedCountProperty_JTextField.getText().trim();
 	// List drives.
 	String ListDrivesRegEx = __ListDrivesRegEx_JTextField.getText().trim();
 	String ListDrivesCountProperty = __ListDrivesCountProperty_JTextField.getText().trim();
@@ -599,7 +681,11 @@ private void commitEdits () {
 	String ListFolders = __ListFolders_JComboBox.getSelected();
 	String ListSharedWithMe = __ListSharedWithMe_JComboBox.getSelected();
 	String ListTrashed = __ListTrashed_JComboBox.getSelected();
+	String ListMaxDepth = __ListMaxDepth_JTextField.getText().trim();
+	String ListConcurrency = __ListConcurrency_JTextField.getText().trim();
+	String ListPageSize = __ListPageSize_JTextField.getText().trim();
 	String ListMax = __ListMax_JTextField.getText().trim();
+	String ListColumns = __ListColumns_JTextField.getText().trim();
 	String ListCountProperty = __ListCountProperty_JTextField.getText().trim();
 	// Upload.
 	//String UploadFolders = __UploadFolders_JTextArea.getText().trim().replace("\n"," ");
@@ -613,6 +699,12 @@ private void commitEdits () {
 	__command.setCommandParameter ( "SessionID", SessionID );
 	__command.setCommandParameter ( "AuthenticationMethod", AuthenticationMethod );
 	__command.setCommandParameter ( "GoogleDriveCommand", GoogleDriveCommand );
+	__command.setCommandParameter ( "MetadataCache", MetadataCache );
+	__command.setCommandParameter ( "MetadataCacheTTL", MetadataCacheTTL );
+	__command.setCommandParameter ( "RequestRateLimit", RequestRateLimit );
+	__command.setCommandParameter ( "RequestMaxRetries", RequestMaxRetries );
+	__command.setCommandParameter ( "MetricsPropertyPrefix", MetricsPropertyPrefix );
+	__command.setCommandParameter ( "MetricsTableID", MetricsTableID );
 	// Copy.
 	//__command.setCommandParameter ( "CopyFiles", CopyFiles );
 	//__command.setCommandParameter ( "CopyBucket", CopyBucket );
@@ -626,6 +718,10 @@ private void commitEdits () {
 	__command.setCommandParameter ( "DownloadFolders", DownloadFolders );
 	__command.setCommandParameter ( "DownloadFiles", DownloadFiles );
 	__command.setCommandParameter ( "DownloadCountProperty", DownloadCountProperty );
+	__command.setCommandParameter ( "DownloadConcurrency", DownloadConcurrency );
+	__command.setCommandParameter ( "DownloadIfUnchanged", DownloadIfUnchanged );
+	__command.setCommandParameter ( "DownloadExportFormat", DownloadExportFormat );
+	__command.setCommandParameter ( "DownloadSkippedCountProperty", DownloadSkippedCountProperty );
 	// List drives.
 	__command.setCommandParameter ( "ListDrivesRegEx", ListDrivesRegEx );
 	__command.setCommandParameter ( "ListDrivesCountProperty", ListDrivesCountProperty );
@@ -637,7 +733,11 @@ private void commitEdits () {
 	__command.setCommandParameter ( "ListFolders", ListFolders );
 	__command.setCommandParameter ( "ListSharedWithMe", ListSharedWithMe );
 	__command.setCommandParameter ( "ListTrashed", ListTrashed );
+	__command.setCommandParameter ( "ListMaxDepth", ListMaxDepth );
+	__command.setCommandParameter ( "ListConcurrency", ListConcurrency );
+	__command.setCommandParameter ( "ListPageSize", ListPageSize );
 	__command.setCommandParameter ( "ListMax", ListMax );
+	__command.setCommandParameter ( "ListColumns", ListColumns );
 	__command.setCommandParameter ( "ListCountProperty", ListCountProperty );
 	// Upload.
 	//__command.setCommandParameter ( "UploadFolders", UploadFolders );
@@ -816,6 +916,54 @@ private void initialize ( JFrame parent, GoogleDrive_Command command, List<Strin
     JGUIUtil.addComponent(main_JPanel, new JLabel("Required - Google Drive command to run (see tabs below)."),
 		3, y, 2, 1, 0, 0, insetsTLBR, GridBagConstraints.NONE, GridBagConstraints.WEST);
 
+    JGUIUtil.addComponent(main_JPanel, new JLabel ( "Metadata cache?:"),
+		0, ++y, 1, 1, 0, 0, insetsTLBR, GridBagConstraints.NONE, GridBagConstraints.EAST);
+	__MetadataCache_JComboBox = new SimpleJComboBox ( false );
+	__MetadataCache_JComboBox.setToolTipText("Whether to use the on-disk metadata cache that is shared across TSTool runs.");
+	List<String> metadataCacheChoices = new ArrayList<>();
+	metadataCacheChoices.add ( "" );	// Default.
+	metadataCacheChoices.add ( __command._False );
+	metadataCacheChoices.add ( __command._True );
+	metadataCacheChoices.add ( __command._Clear );
+	__MetadataCache_JComboBox.setData(metadataCacheChoices);
+	__MetadataCache_JComboBox.select ( 0 );
+	__MetadataCache_JComboBox.addActionListener ( this );
+    JGUIUtil.addComponent(main_JPanel, __MetadataCache_JComboBox,
+		1, y, 2, 1, 1, 0, insetsTLBR, GridBagConstraints.NONE, GridBagConstraints.WEST);
+    JGUIUtil.addComponent(main_JPanel, new JLabel(
+		"Optional - use the metadata cache? (default=" + __command._False + ")."),
+		3, y, 2, 1, 0, 0, insetsTLBR, GridBagConstraints.NONE, GridBagConstraints.WEST);
+
+    JGUIUtil.addComponent(main_JPanel, new JLabel ( "Metadata cache TTL:"),
+        0, ++y, 1, 1, 0, 0, insetsTLBR, GridBagConstraints.NONE, GridBagConstraints.EAST);
+    __MetadataCacheTTL_JTextField = new JTextField ( "", 10 );
+    __MetadataCacheTTL_JTextField.setToolTipText("Time to live for metadata cache entries, seconds.");
+    __MetadataCacheTTL_JTextField.addKeyListener ( this );
+    JGUIUtil.addComponent(main_JPanel, __MetadataCacheTTL_JTextField,
+        1, y, 1, 1, 1, 0, insetsTLBR, GridBagConstraints.NONE, GridBagConstraints.WEST);
+    JGUIUtil.addComponent(main_JPanel, new JLabel ( "Optional - metadata cache time to live, seconds (default=" + __command._DefaultMetadataCacheTTL + ")."),
+        3, y, 3, 1, 0, 0, insetsTLBR, GridBagConstraints.NONE, GridBagConstraints.WEST);
+
+    JGUIUtil.addComponent(main_JPanel, new JLabel ( "Request rate limit:"),
+        0, ++y, 1, 1, 0, 0, insetsTLBR, GridBagConstraints.NONE, GridBagConstraints.EAST);
+    __RequestRateLimit_JTextField = new JTextField ( "", 10 );
+    __RequestRateLimit_JTextField.setToolTipText("Maximum Google Drive requests per second for the session, 0 to not limit.");
+    __RequestRateLimit_JTextField.addKeyListener ( this );
+    JGUIUtil.addComponent(main_JPanel, __RequestRateLimit_JTextField,
+        1, y, 1, 1, 1, 0, insetsTLBR, GridBagConstraints.NONE, GridBagConstraints.WEST);
+    JGUIUtil.addComponent(main_JPanel, new JLabel ( "Optional - maximum requests per second (default=" + GoogleDriveRateLimiter.DEFAULT_REQUESTS_PER_SECOND + ")."),
+        3, y, 3, 1, 0, 0, insetsTLBR, GridBagConstraints.NONE, GridBagConstraints.WEST);
+
+    JGUIUtil.addComponent(main_JPanel, new JLabel ( "Request maximum retries:"),
+        0, ++y, 1, 1, 0, 0, insetsTLBR, GridBagConstraints.NONE, GridBagConstraints.EAST);
+    __RequestMaxRetries_JTextField = new JTextField ( "", 10 );
+    __RequestMaxRetries_JTextField.setToolTipText("Maximum number of retries for rate limited Google Drive requests.");
+    __RequestMaxRetries_JTextField.addKeyListener ( this );
+    JGUIUtil.addComponent(main_JPanel, __RequestMaxRetries_JTextField,
+        1, y, 1, 1, 1, 0, insetsTLBR, GridBagConstraints.NONE, GridBagConstraints.WEST);
+    JGUIUtil.addComponent(main_JPanel, new JLabel ( "Optional - maximum retries for rate limited requests (default=" + GoogleDriveRateLimiter.DEFAULT_MAX_RETRIES + ")."),
+        3, y, 3, 1, 0, 0, insetsTLBR, GridBagConstraints.NONE, GridBagConstraints.WEST);
+
     __main_JTabbedPane = new JTabbedPane ();
     __main_JTabbedPane.addChangeListener(this);
     JGUIUtil.addComponent(main_JPanel, __main_JTabbedPane,
@@ -1011,6 +1159,58 @@ private void initialize ( JFrame parent, GoogleDrive_Command command, List<Strin
     JGUIUtil.addComponent(download_JPanel, new JLabel ( "Optional - processor property to set as download count." ),
         3, yDownload, 3, 1, 0, 0, insetsTLBR, GridBagConstraints.NONE, GridBagConstraints.WEST);
 
+    JGUIUtil.addComponent(download_JPanel, new JLabel ( "Download concurrency:"),
+        0, ++yDownload, 1, 1, 0, 0, insetsTLBR, GridBagConstraints.NONE, GridBagConstraints.EAST);
+    __DownloadConcurrency_JTextField = new JTextField ( "", 10 );
+    __DownloadConcurrency_JTextField.setToolTipText("Number of files to download at the same time");
+    __DownloadConcurrency_JTextField.addKeyListener ( this );
+    JGUIUtil.addComponent(download_JPanel, __DownloadConcurrency_JTextField,
+        1, yDownload, 1, 1, 1, 0, insetsTLBR, GridBagConstraints.NONE, GridBagConstraints.WEST);
+    JGUIUtil.addComponent(download_JPanel, new JLabel ( "Optional - number of files to download at the same time (default=" + __command._DefaultDownloadConcurrency + ")."),
+        3, yDownload, 3, 1, 0, 0, insetsTLBR, GridBagConstraints.NONE, GridBagConstraints.WEST);
+
+   JGUIUtil.addComponent(download_JPanel, new JLabel ( "Download if unchanged?:"),
+		0, ++yDownload, 1, 1, 0, 0, insetsTLBR, GridBagConstraints.NONE, GridBagConstraints.EAST);
+	__DownloadIfUnchanged_JComboBox = new SimpleJComboBox ( false );
+	__DownloadIfUnchanged_JComboBox.setToolTipText("Whether to download files that are the same as the local file, based on the Google Drive MD5 checksum, size, and modification time.");
+	List<String> downloadIfUnchangedChoices = new ArrayList<>();
+	downloadIfUnchangedChoices.add ( "" );	// Default.
+	downloadIfUnchangedChoices.add ( __command._Download );
+	downloadIfUnchangedChoices.add ( __command._Skip );
+	__DownloadIfUnchanged_JComboBox.setData(downloadIfUnchangedChoices);
+	__DownloadIfUnchanged_JComboBox.select ( 0 );
+	__DownloadIfUnchanged_JComboBox.addActionListener ( this );
+    JGUIUtil.addComponent(download_JPanel, __DownloadIfUnchanged_JComboBox,
+		1, yDownload, 2, 1, 1, 0, insetsTLBR, GridBagConstraints.NONE, GridBagConstraints.WEST);
+    JGUIUtil.addComponent(download_JPanel, new JLabel(
+		"Optional - download unchanged files? (default=" + __command._Download + ")."),
+		3, yDownload, 2, 1, 0, 0, insetsTLBR, GridBagConstraints.NONE, GridBagConstraints.WEST);
+
+   JGUIUtil.addComponent(download_JPanel, new JLabel ( "Export format:"),
+		0, ++yDownload, 1, 1, 0, 0, insetsTLBR, GridBagConstraints.NONE, GridBagConstraints.EAST);
+	__DownloadExportFormat_JComboBox = new SimpleJComboBox ( false );
+	__DownloadExportFormat_JComboBox.setToolTipText("Format to export Google Workspace files (Docs, Sheets, Slides), which cannot be downloaded directly.");
+	List<String> downloadExportFormatChoices = GoogleDriveExportFormatType.getChoicesAsStrings(false);
+	downloadExportFormatChoices.add ( 0, "" );	// Default.
+	__DownloadExportFormat_JComboBox.setData(downloadExportFormatChoices);
+	__DownloadExportFormat_JComboBox.select ( 0 );
+	__DownloadExportFormat_JComboBox.addActionListener ( this );
+    JGUIUtil.addComponent(download_JPanel, __DownloadExportFormat_JComboBox,
+		1, yDownload, 2, 1, 1, 0, insetsTLBR, GridBagConstraints.NONE, GridBagConstraints.WEST);
+    JGUIUtil.addComponent(download_JPanel, new JLabel(
+		"Optional - format to export Google Workspace files (default=Google Workspace files are skipped)."),
+		3, yDownload, 2, 1, 0, 0, insetsTLBR, GridBagConstraints.NONE, GridBagConstraints.WEST);
+
+    JGUIUtil.addComponent(download_JPanel, new JLabel ( "Skipped count property:"),
+        0, ++yDownload, 1, 1, 0, 0, insetsTLBR, GridBagConstraints.NONE, GridBagConstraints.EAST);
+    __DownloadSkippedCountProperty_JTextField = new JTextField ( "", 10 );
+    __DownloadSkippedCountProperty_JTextField.setToolTipText("Property to set containing the number of files that were not downloaded because unchanged.");
+    __DownloadSkippedCountProperty_JTextField.addKeyListener ( this );
+    JGUIUtil.addComponent(download_JPanel, __DownloadSkippedCountProperty_JTextField,
+        1, yDownload, 1, 1, 1, 0, insetsTLBR, GridBagConstraints.NONE, GridBagConstraints.WEST);
+    JGUIUtil.addComponent(download_JPanel, new JLabel ( "Optional - property to set containing skipped download count."),
+        3, yDownload, 3, 1, 0, 0, insetsTLBR, GridBagConstraints.NONE, GridBagConstraints.WEST);
+
     // Panel for 'List Drives' parameters.
     int yListDrives = -1;
     JPanel listDrives_JPanel = new JPanel();
@@ -1031,7 +1231,7 @@ private void initialize ( JFrame parent, GoogleDrive_Command command, List<Strin
     JGUIUtil.addComponent(listDrives_JPanel, new JLabel ( "Regular expression:"),
         0, ++yListDrives, 1, 1, 0, 0, insetsTLBR, GridBagConstraints.NONE, GridBagConstraints.EAST);
     __ListDrivesRegEx_JTextField = new JTextField ( "", 30 );
-    __ListDrivesRegEx_JTextField.setToolTipText("Regular expression to filter results, default=glob (*) style");
+    __ListDrivesRegEx_JTextField.setToolTipText("Regular expression to filter results, default=glob (*, ?, [abc], {a,b}) style, or java:regex");
     __ListDrivesRegEx_JTextField.addKeyListener ( this );
     JGUIUtil.addComponent(listDrives_JPanel, __ListDrivesRegEx_JTextField,
         1, yListDrives, 2, 1, 1, 0, insetsTLBR, GridBagConstraints.NONE, GridBagConstraints.WEST);
@@ -1107,10 +1307,15 @@ private void initialize ( JFrame parent, GoogleDrive_Command command, List<Strin
     		+ "       <td" + tdStyle + "><code>/id/identifier/</code></td>"
     		+ "    </tr>"
     		+ "    <tr" + trStyle + ">"
-    		+ "       <td" + tdStyle + ">All files in folder and sub-folders (<b>not implemented</b>)</td>"
+    		+ "       <td" + tdStyle + ">All files in folder and sub-folders</td>"
     		+ "       <td" + tdStyle + "><code>All</code></td>"
     		+ "       <td" + tdStyle + "><code>/folder/path/</code> or <code>/My Drive/folder/path/</code></td>"
     		+ "    </tr>"
+    		+ "    <tr" + trStyle + ">"
+    		+ "       <td" + tdStyle + ">Files added, modified, or removed since the previous run</td>"
+    		+ "       <td" + tdStyle + "><code>Changes</code></td>"
+    		+ "       <td" + tdStyle + "><code>/</code> or <code>/Shared drives/drive/</code></td>"
+    		+ "    </tr>"
     		+ "  </table>"
     		+ "</html>";
     JGUIUtil.addComponent(list_JPanel, new JLabel (table),
@@ -1135,7 +1340,8 @@ private void initialize ( JFrame parent, GoogleDrive_Command command, List<Strin
 	__ListScope_JComboBox.setToolTipText("Scope (depth) of the list, which controls the output");
 	List<String> listRootChoices = new ArrayList<>();
 	listRootChoices.add ( "" );	// Default.
-	//listRootChoices.add ( __command._All );
+	listRootChoices.add ( __command._All );
+	listRootChoices.add ( __command._Changes );
 	//listRootChoices.add ( __command._File );
 	listRootChoices.add ( __command._Folder );
 	__ListScope_JComboBox.setData(listRootChoices);
@@ -1160,7 +1366,7 @@ private void initialize ( JFrame parent, GoogleDrive_Command command, List<Strin
     JGUIUtil.addComponent(list_JPanel, new JLabel ( "Regular expression:"),
         0, ++yList, 1, 1, 0, 0, insetsTLBR, GridBagConstraints.NONE, GridBagConstraints.EAST);
     __ListRegEx_JTextField = new JTextField ( "", 30 );
-    __ListRegEx_JTextField.setToolTipText("Regular expression to filter results, default=glob (*) style");
+    __ListRegEx_JTextField.setToolTipText("Regular expression to filter results, default=glob (*, ?, [abc], {a,b}) style, or java:regex");
     __ListRegEx_JTextField.addKeyListener ( this );
     JGUIUtil.addComponent(list_JPanel, __ListRegEx_JTextField,
         1, yList, 2, 1, 1, 0, insetsTLBR, GridBagConstraints.NONE, GridBagConstraints.WEST);
@@ -1236,6 +1442,36 @@ private void initialize ( JFrame parent, GoogleDrive_Command command, List<Strin
 		"Optional - list trashed files? (default=" + __command._False + ")."),
 		3, yList, 2, 1, 0, 0, insetsTLBR, GridBagConstraints.NONE, GridBagConstraints.WEST);
 
+    JGUIUtil.addComponent(list_JPanel, new JLabel ( "List maximum depth:"),
+        0, ++yList, 1, 1, 0, 0, insetsTLBR, GridBagConstraints.NONE, GridBagConstraints.EAST);
+    __ListMaxDepth_JTextField = new JTextField ( "", 10 );
+    __ListMaxDepth_JTextField.setToolTipText("Maximum folder depth to list for ListScope=All, 1 for only the folder contents.");
+    __ListMaxDepth_JTextField.addKeyListener ( this );
+    JGUIUtil.addComponent(list_JPanel, __ListMaxDepth_JTextField,
+        1, yList, 1, 1, 1, 0, insetsTLBR, GridBagConstraints.NONE, GridBagConstraints.WEST);
+    JGUIUtil.addComponent(list_JPanel, new JLabel ( "Optional - maximum depth for ListScope=All (default=all depths)."),
+        3, yList, 3, 1, 0, 0, insetsTLBR, GridBagConstraints.NONE, GridBagConstraints.WEST);
+
+    JGUIUtil.addComponent(list_JPanel, new JLabel ( "List concurrency:"),
+        0, ++yList, 1, 1, 0, 0, insetsTLBR, GridBagConstraints.NONE, GridBagConstraints.EAST);
+    __ListConcurrency_JTextField = new JTextField ( "", 10 );
+    __ListConcurrency_JTextField.setToolTipText("Number of folders to list at the same time for ListScope=All.");
+    __ListConcurrency_JTextField.addKeyListener ( this );
+    JGUIUtil.addComponent(list_JPanel, __ListConcurrency_JTextField,
+        1, yList, 1, 1, 1, 0, insetsTLBR, GridBagConstraints.NONE, GridBagConstraints.WEST);
+    JGUIUtil.addComponent(list_JPanel, new JLabel ( "Optional - number of folders to list at once (default=" + __command._DefaultListConcurrency + ")."),
+        3, yList, 3, 1, 0, 0, insetsTLBR, GridBagConstraints.NONE, GridBagConstraints.WEST);
+
+    JGUIUtil.addComponent(list_JPanel, new JLabel ( "List page size:"),
+        0, ++yList, 1, 1, 0, 0, insetsTLBR, GridBagConstraints.NONE, GridBagConstraints.EAST);
+    __ListPageSize_JTextField = new JTextField ( "", 10 );
+    __ListPageSize_JTextField.setToolTipText("Number of files and folders to request per page, 1 to 1000.");
+    __ListPageSize_JTextField.addKeyListener ( this );
+    JGUIUtil.addComponent(list_JPanel, __ListPageSize_JTextField,
+        1, yList, 1, 1, 1, 0, insetsTLBR, GridBagConstraints.NONE, GridBagConstraints.WEST);
+    JGUIUtil.addComponent(list_JPanel, new JLabel ( "Optional - files and folders per request (default=" + __command._DefaultListPageSize + ")."),
+        3, yList, 3, 1, 0, 0, insetsTLBR, GridBagConstraints.NONE, GridBagConstraints.WEST);
+
     JGUIUtil.addComponent(list_JPanel, new JLabel ( "List maximum:"),
         0, ++yList, 1, 1, 0, 0, insetsTLBR, GridBagConstraints.NONE, GridBagConstraints.EAST);
     __ListMax_JTextField = new JTextField ( "", 10 );
@@ -1246,6 +1482,16 @@ private void initialize ( JFrame parent, GoogleDrive_Command command, List<Strin
     JGUIUtil.addComponent(list_JPanel, new JLabel ( "Optional - maximum number of items read (default=no limit)."),
         3, yList, 2, 1, 0, 0, insetsTLBR, GridBagConstraints.NONE, GridBagConstraints.WEST);
 
+    JGUIUtil.addComponent(list_JPanel, new JLabel ( "List columns:"),
+        0, ++yList, 1, 1, 0, 0, insetsTLBR, GridBagConstraints.NONE, GridBagConstraints.EAST);
+    __ListColumns_JTextField = new JTextField ( "", 10 );
+    __ListColumns_JTextField.setToolTipText("Comma-separated list of output columns, to request only the needed fields.");
+    __ListColumns_JTextField.addKeyListener ( this );
+    JGUIUtil.addComponent(list_JPanel, __ListColumns_JTextField,
+        1, yList, 1, 1, 1, 0, insetsTLBR, GridBagConstraints.NONE, GridBagConstraints.WEST);
+    JGUIUtil.addComponent(list_JPanel, new JLabel ( "Optional - columns to output (default=all)."),
+        3, yList, 3, 1, 0, 0, insetsTLBR, GridBagConstraints.NONE, GridBagConstraints.WEST);
+
     JGUIUtil.addComponent(list_JPanel, new JLabel("List count property:"),
         0, ++yList, 1, 1, 0, 0, insetsTLBR, GridBagConstraints.NONE, GridBagConstraints.EAST);
     __ListCountProperty_JTextField = new JTextField ( "", 30 );
@@ -1377,6 +1623,42 @@ private void initialize ( JFrame parent, GoogleDrive_Command command, List<Strin
 		"Optional - append to output (default=" + __command._False + ")."),
 		3, yOutput, 2, 1, 0, 0, insetsTLBR, GridBagConstraints.NONE, GridBagConstraints.WEST);
 
+    // Panel for metrics.
+    int yMetrics = -1;
+    JPanel metrics_JPanel = new JPanel();
+    metrics_JPanel.setLayout( new GridBagLayout() );
+    __main_JTabbedPane.addTab ( "Metrics", metrics_JPanel );
+
+    JGUIUtil.addComponent(metrics_JPanel, new JLabel (
+    	"The following parameters are used to output Google Drive request metrics for the command."),
+		0, ++yMetrics, 8, 1, 0, 0, insetsTLBR, GridBagConstraints.NONE, GridBagConstraints.WEST);
+    JGUIUtil.addComponent(metrics_JPanel, new JLabel ("Metrics include the number of requests, retries, errors, bytes, and latency percentiles for each operation."),
+		0, ++yMetrics, 8, 1, 0, 0, insetsTLBR, GridBagConstraints.NONE, GridBagConstraints.WEST);
+    JGUIUtil.addComponent(metrics_JPanel, new JLabel ("A one-line summary is always written to the log file."),
+		0, ++yMetrics, 8, 1, 0, 0, insetsTLBR, GridBagConstraints.NONE, GridBagConstraints.WEST);
+    JGUIUtil.addComponent(metrics_JPanel, new JSeparator(SwingConstants.HORIZONTAL),
+    	0, ++yMetrics, 8, 1, 0, 0, insetsTLBR, GridBagConstraints.HORIZONTAL, GridBagConstraints.WEST);
+
+    JGUIUtil.addComponent(metrics_JPanel, new JLabel ( "Metrics property prefix:"),
+        0, ++yMetrics, 1, 1, 0, 0, insetsTLBR, GridBagConstraints.NONE, GridBagConstraints.EAST);
+    __MetricsPropertyPrefix_JTextField = new JTextField ( "", 10 );
+    __MetricsPropertyPrefix_JTextField.setToolTipText("Prefix for processor properties that are set with request metrics.");
+    __MetricsPropertyPrefix_JTextField.addKeyListener ( this );
+    JGUIUtil.addComponent(metrics_JPanel, __MetricsPropertyPrefix_JTextField,
+        1, yMetrics, 1, 1, 1, 0, insetsTLBR, GridBagConstraints.NONE, GridBagConstraints.WEST);
+    JGUIUtil.addComponent(metrics_JPanel, new JLabel ( "Optional - prefix for metrics properties (e.g., GoogleDrive)."),
+        3, yMetrics, 3, 1, 0, 0, insetsTLBR, GridBagConstraints.NONE, GridBagConstraints.WEST);
+
+    JGUIUtil.addComponent(metrics_JPanel, new JLabel ( "Metrics table ID:"),
+        0, ++yMetrics, 1, 1, 0, 0, insetsTLBR, GridBagConstraints.NONE, GridBagConstraints.EAST);
+    __MetricsTableID_JTextField = new JTextField ( "", 10 );
+    __MetricsTableID_JTextField.setToolTipText("Table for request metrics, by operation.");
+    __MetricsTableID_JTextField.addKeyListener ( this );
+    JGUIUtil.addComponent(metrics_JPanel, __MetricsTableID_JTextField,
+        1, yMetrics, 1, 1, 1, 0, insetsTLBR, GridBagConstraints.NONE, GridBagConstraints.WEST);
+    JGUIUtil.addComponent(metrics_JPanel, new JLabel ( "Optional - table for request metrics."),
+        3, yMetrics, 3, 1, 0, 0, insetsTLBR, GridBagConstraints.NONE, GridBagConstraints.WEST);
+
     /*
     JGUIUtil.addComponent(main_JPanel, new JLabel ( "If input not found?:"),
 		0, ++y, 1, 1, 0, 0, insetsTLBR, GridBagConstraints.NONE, GridBagConstraints.EAST);
@@ -1498,6 +1780,12 @@ private void refresh () {
 	String SessionID = "";
 	String AuthenticationMethod = "";
 	String GoogleDriveCommand = "";
+	String MetadataCache = "";
+	String MetadataCacheTTL = "";
+	String RequestRateLimit = "";
+	String RequestMaxRetries = "";
+	String MetricsPropertyPrefix = "";
+	String MetricsTableID = "";
 	// Copy.
 	String CopyFiles = "";
 	String CopyBucket = "";
@@ -1511,6 +1799,10 @@ private void refresh () {
 	String DownloadFolders = "";
 	String DownloadFiles = "";
 	String DownloadCountProperty = "";
+	String DownloadConcurrency = "";
+	String DownloadIfUnchanged = "";
+	String DownloadExportFormat = "";
+	String DownloadSkippedCountProperty = "";
 	// List drives.
 	String ListDrivesRegEx = "";
 	String ListDrivesCountProperty = "";
@@ -1522,7 +1814,11 @@ private void refresh () {
 	String ListFolders = "";
 	String ListSharedWithMe = "";
 	String ListTrashed = "";
+	String ListMaxDepth = "";
+	String ListConcurrency = "";
+	String ListPageSize = "";
 	String ListMax = "";
+	String ListColumns = "";
 	String ListCountProperty = "";
 	// Upload.
 	String UploadFolders = "";
@@ -1540,6 +1836,12 @@ private void refresh () {
 		SessionID = parameters.getValue ( "SessionID" );
 		AuthenticationMethod = parameters.getValue ( "AuthenticationMethod" );
 		GoogleDriveCommand = parameters.getValue ( "GoogleDriveCommand" );
+		MetadataCache = parameters.getValue ( "MetadataCache" );
+		MetadataCacheTTL = parameters.getValue ( "MetadataCacheTTL" );
+		RequestRateLimit = parameters.getValue ( "RequestRateLimit" );
+		RequestMaxRetries = parameters.getValue ( "RequestMaxRetries" );
+		MetricsPropertyPrefix = parameters.getValue ( "MetricsPropertyPrefix" );
+		MetricsTableID = parameters.getValue ( "MetricsTableID" );
 		// Copy.
 		CopyFiles = parameters.getValue ( "CopyFiles" );
 		CopyBucket = parameters.getValue ( "CopyBucket" );
@@ -1553,6 +1855,10 @@ private void refresh () {
 		DownloadFolders = parameters.getValue ( "DownloadFolders" );
 		DownloadFiles = parameters.getValue ( "DownloadFiles" );
 		DownloadCountProperty = parameters.getValue ( "DownloadCountProperty" );
+		DownloadConcurrency = parameters.getValue ( "DownloadConcurrency" );
+		DownloadIfUnchanged = parameters.getValue ( "DownloadIfUnchanged" );
+		DownloadExportFormat = parameters.getValue ( "DownloadExportFormat" );
+		DownloadSkippedCountProperty = parameters.getValue ( "DownloadSkippedCountProperty" );
 		// List drives.
 		ListDrivesRegEx = parameters.getValue ( "ListDrivesRegEx" );
 		ListDrivesCountProperty = parameters.getValue ( "ListDrivesCountProperty" );
@@ -1564,7 +1870,11 @@ private void refresh () {
 		ListFolders = parameters.getValue ( "ListFolders" );
 		ListSharedWithMe = parameters.getValue ( "ListSharedWithMe" );
 		ListTrashed = parameters.getValue ( "ListTrashed" );
+		ListMaxDepth = parameters.getValue ( "ListMaxDepth" );
+		ListConcurrency = parameters.getValue ( "ListConcurrency" );
+		ListPageSize = parameters.getValue ( "ListPageSize" );
 		ListMax = parameters.getValue ( "ListMax" );
+		ListColumns = parameters.getValue ( "ListColumns" );
 		ListCountProperty = parameters.getValue ( "ListCountProperty" );
 		// Upload.
 		UploadFolders = parameters.getValue ( "UploadFolders" );
@@ -1609,6 +1919,36 @@ private void refresh () {
 				"GoogleDriveCommand parameter \"" + GoogleDriveCommand + "\".  Select a value or Cancel." );
 			}
 		}
+		if ( JGUIUtil.isSimpleJComboBoxItem(__MetadataCache_JComboBox, MetadataCache,JGUIUtil.NONE, null, null ) ) {
+			__MetadataCache_JComboBox.select ( MetadataCache );
+		}
+		else {
+            if ( (MetadataCache == null) ||	MetadataCache.equals("") ) {
+				// New command...select the default.
+				__MetadataCache_JComboBox.select ( 0 );
+			}
+			else {
+				// Bad user command.
+				Message.printWarning ( 1, routine,
+				"Existing command references an invalid\n"+
+				"MetadataCache parameter \"" + MetadataCache + "\".  Select a value or Cancel." );
+			}
+		}
+        if ( MetadataCacheTTL != null ) {
+            __MetadataCacheTTL_JTextField.setText ( MetadataCacheTTL );
+        }
+        if ( RequestRateLimit != null ) {
+            __RequestRateLimit_JTextField.setText ( RequestRateLimit );
+        }
+        if ( RequestMaxRetries != null ) {
+            __RequestMaxRetries_JTextField.setText ( RequestMaxRetries );
+        }
+        if ( MetricsPropertyPrefix != null ) {
+            __MetricsPropertyPrefix_JTextField.setText ( MetricsPropertyPrefix );
+        }
+        if ( MetricsTableID != null ) {
+            __MetricsTableID_JTextField.setText ( MetricsTableID );
+        }
         /*
         if ( CopyFiles != null ) {
             __CopyFiles_JTextArea.setText ( CopyFiles );
@@ -1672,6 +2012,42 @@ private void refresh () {
         if ( DownloadCountProperty != null ) {
             __DownloadCountProperty_JTextField.setText ( DownloadCountProperty );
         }
+        if ( DownloadConcurrency != null ) {
+            __DownloadConcurrency_JTextField.setText ( DownloadConcurrency );
+        }
+		if ( JGUIUtil.isSimpleJComboBoxItem(__DownloadIfUnchanged_JComboBox, DownloadIfUnchanged,JGUIUtil.NONE, null, null ) ) {
+			__DownloadIfUnchanged_JComboBox.select ( DownloadIfUnchanged );
+		}
+		else {
+            if ( (DownloadIfUnchanged == null) ||	DownloadIfUnchanged.equals("") ) {
+				// New command...select the default.
+				__DownloadIfUnchanged_JComboBox.select ( 0 );
+			}
+			else {
+				// Bad user command.
+				Message.printWarning ( 1, routine,
+				"Existing command references an invalid\n"+
+				"DownloadIfUnchanged parameter \"" + DownloadIfUnchanged + "\".  Select a value or Cancel." );
+			}
+		}
+		if ( JGUIUtil.isSimpleJComboBoxItem(__DownloadExportFormat_JComboBox, DownloadExportFormat,JGUIUtil.NONE, null, null ) ) {
+			__DownloadExportFormat_JComboBox.select ( DownloadExportFormat );
+		}
+		else {
+            if ( (DownloadExportFormat == null) ||	DownloadExportFormat.equals("") ) {
+				// New command...select the default.
+				__DownloadExportFormat_JComboBox.select ( 0 );
+			}
+			else {
+				// Bad user command.
+				Message.printWarning ( 1, routine,
+				"Existing command references an invalid\n"+
+				"DownloadExportFormat parameter \"" + DownloadExportFormat + "\".  Select a value or Cancel." );
+			}
+		}
+        if ( DownloadSkippedCountProperty != null ) {
+            __DownloadSkippedCountProperty_JTextField.setText ( DownloadSkippedCountProperty );
+        }
         // List Drives.
         if ( ListDrivesRegEx != null ) {
             __ListDrivesRegEx_JTextField.setText ( ListDrivesRegEx );
@@ -1761,9 +2137,21 @@ private void refresh () {
 				"ListTrashed parameter \"" + ListTrashed + "\".  Select a value or Cancel." );
 			}
 		}
+        if ( ListMaxDepth != null ) {
+            __ListMaxDepth_JTextField.setText ( ListMaxDepth );
+        }
+        if ( ListConcurrency != null ) {
+            __ListConcurrency_JTextField.setText ( ListConcurrency );
+        }
+        if ( ListPageSize != null ) {
+            __ListPageSize_JTextField.setText ( ListPageSize );
+        }
         if ( ListMax != null ) {
             __ListMax_JTextField.setText ( ListMax );
         }
+        if ( ListColumns != null ) {
+            __ListColumns_JTextField.setText ( ListColumns );
+        }
         if ( ListCountProperty != null ) {
             __ListCountProperty_JTextField.setText ( ListCountProperty );
         }
@@ -1838,6 +2226,12 @@ private void refresh () {
 	SessionID = __SessionID_JTextField.getText().trim();
 	AuthenticationMethod = __AuthenticationMethod_JComboBox.getSelected();
 	GoogleDriveCommand = __GoogleDriveCommand_JComboBox.getSelected();
+	MetadataCache = __MetadataCache_JComboBox.getSelected();
+	MetadataCacheTTL = __MetadataCacheTTL_JTextField.getText().trim();
+	RequestRateLimit = __RequestRateLimit_JTextField.getText().trim();
+	RequestMaxRetries = __RequestMaxRetries_JTextField.getText().trim();
+	MetricsPropertyPrefix = __MetricsPropertyPrefix_JTextField.getText().trim();
+	MetricsTableID = __MetricsTableID_JTextField.getText().trim();
 	/*
 	// Copy.
 	CopyFiles = __CopyFiles_JTextArea.getText().trim().replace("\n"," ");
@@ -1856,6 +2250,10 @@ private void refresh () {
 	DownloadFolders = __DownloadFolders_JTextArea.getText().trim().replace("\n"," ");
 	DownloadFiles = __DownloadFiles_JTextArea.getText().trim().replace("\n"," ");
 	DownloadCountProperty = __DownloadCountProperty_JTextField.getText().trim();
+	DownloadConcurrency = __DownloadConcurrency_JTextField.getText().trim();
+	DownloadIfUnchanged = __DownloadIfUnchanged_JComboBox.getSelected();
+	DownloadExportFormat = __DownloadExportFormat_JComboBox.getSelected();
+	DownloadSkippedCountProperty = __DownloadSkippedCountProperty_JTextField.getText().trim();
 	// List drives.
 	ListDrivesRegEx = __ListDrivesRegEx_JTextField.getText().trim();
 	ListDrivesCountProperty = __ListDrivesCountProperty_JTextField.getText().trim();
@@ -1867,7 +2265,11 @@ private void refresh () {
 	ListFolders = __ListFolders_JComboBox.getSelected();
 	ListSharedWithMe = __ListSharedWithMe_JComboBox.getSelected();
 	ListTrashed = __ListTrashed_JComboBox.getSelected();
+	ListMaxDepth = __ListMaxDepth_JTextField.getText().trim();
+	ListConcurrency = __ListConcurrency_JTextField.getText().trim();
+	ListPageSize = __ListPageSize_JTextField.getText().trim();
 	ListMax = __ListMax_JTextField.getText().trim();
+	ListColumns = __ListColumns_JTextField.getText().trim();
 	ListCountProperty = __ListCountProperty_JTextField.getText().trim();
 	/*
 	// Upload.
@@ -1884,6 +2286,12 @@ private void refresh () {
 	props.add ( "SessionID=" + SessionID );
 	props.add ( "AuthenticationMethod=" + AuthenticationMethod );
 	props.add ( "GoogleDriveCommand=" + GoogleDriveCommand );
+	props.add ( "MetadataCache=" + MetadataCache );
+	props.add ( "MetadataCacheTTL=" + MetadataCacheTTL );
+	props.add ( "RequestRateLimit=" + RequestRateLimit );
+	props.add ( "RequestMaxRetries=" + RequestMaxRetries );
+	props.add ( "MetricsPropertyPrefix=" + MetricsPropertyPrefix );
+	props.add ( "MetricsTableID=" + MetricsTableID );
 	// Copy.
 	props.add ( "CopyFiles=" + CopyFiles );
 	props.add ( "CopyBucket=" + CopyBucket );
@@ -1897,6 +2305,10 @@ private void refresh () {
 	props.add ( "DownloadFolders=" + DownloadFolders );
 	props.add ( "DownloadFiles=" + DownloadFiles );
 	props.add ( "DownloadCountProperty=" + DownloadCountProperty );
+	props.add ( "DownloadConcurrency=" + DownloadConcurrency );
+	props.add ( "DownloadIfUnchanged=" + DownloadIfUnchanged );
+	props.add ( "DownloadExportFormat=" + DownloadExportFormat );
+	props.add ( "DownloadSkippedCountProperty=" + DownloadSkippedCountProperty );
 	// List drives.
 	props.add ( "ListDrivesRegEx=" + ListDrivesRegEx );
 	props.add ( "ListDrivesCountProperty=" + ListDrivesCountProperty );
@@ -1908,7 +2320,11 @@ private void refresh () {
 	props.add ( "ListFolders=" + ListFolders );
 	props.add ( "ListSharedWithMe=" + ListSharedWithMe );
 	props.add ( "ListTrashed=" + ListTrashed );
+	props.add ( "ListMaxDepth=" + ListMaxDepth );
+	props.add ( "ListConcurrency=" + ListConcurrency );
+	props.add ( "ListPageSize=" + ListPageSize );
 	props.add ( "ListMax=" + ListMax );
+	props.add ( "ListColumns=" + ListColumns );
 	props.add ( "ListCountProperty=" + ListCountProperty );
 	// Upload.
 	props.add ( "UploadFolders=" + UploadFolders );